@@ -1,5 +1,8 @@
 package com.balazsholczer.bulkhead;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Future;
 
 /**
@@ -10,6 +13,8 @@ import java.util.concurrent.Future;
  * - Separate thread pools for different services
  * - Limits resource consumption per service
  * - Prevents one failing service from affecting others
+ * - Bounded queues reject work instead of piling it up
+ * - Semaphore and virtual-thread bulkheads cap concurrency without a thread pool
  * 
  * Benefits:
  * - Fault isolation between services
@@ -30,7 +35,9 @@ public class App {
         // Create separate bulkheads for different services
         bulkheadService.createBulkhead("PaymentService", 2);
         bulkheadService.createBulkhead("NotificationService", 3);
-        bulkheadService.createBulkhead("ReportingService", 1);
+        bulkheadService.createBulkhead("ReportingService", 1, 1, RejectionPolicy.ABORT);
+        bulkheadService.createSemaphoreBulkhead("InventoryService", 2, Duration.ofMillis(100));
+        bulkheadService.createVirtualThreadBulkhead("SearchService", 50, 1_000);
         
         try {
             // Execute tasks in isolated bulkheads
@@ -73,6 +80,40 @@ public class App {
                 System.out.println("Reporting failed: " + e.getMessage());
             }
             
+            System.out.println("\n--- Bounded Queue ---");
+            // ReportingService has one thread and one queue slot - the third task is rejected
+            bulkheadService.executeTask("ReportingService", new ServiceTask("Reporting-2", 300, false));
+            bulkheadService.executeTask("ReportingService", new ServiceTask("Reporting-3", 300, false));
+            try {
+                bulkheadService.executeTask("ReportingService", new ServiceTask("Reporting-4", 300, false));
+            } catch (BulkheadFullException e) {
+                System.out.println("Rejected: " + e.getMessage());
+            }
+            
+            System.out.println("\n--- Semaphore Bulkhead (caller's thread) ---");
+            Future<String> inventory = bulkheadService.executeTask("InventoryService",
+                new ServiceTask("Inventory-1", 100, false));
+            System.out.println("Inventory: " + inventory.get());
+            
+            System.out.println("\n--- Virtual Thread Bulkhead ---");
+            // 200 calls, at most 50 at a time, none of them holding a platform thread while waiting
+            List<Future<Integer>> searches = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int query = i;
+                searches.add(bulkheadService.executeTask("SearchService", () -> {
+                    Thread.sleep(50);
+                    return query;
+                }));
+            }
+            for (Future<Integer> search : searches) {
+                search.get();
+            }
+            System.out.println("Completed " + searches.size() + " searches");
+            
+            System.out.println("\n--- Bulkhead Metrics ---");
+            bulkheadService.getAllMetrics().forEach((service, metrics) ->
+                System.out.println(service + ": " + metrics));
+            
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
@@ -84,5 +125,6 @@ public class App {
         System.out.println("✅ Prevented resource exhaustion");
         System.out.println("✅ One service failure didn't affect others");
         System.out.println("✅ Controlled resource allocation");
+        System.out.println("✅ Bounded queues with rejection instead of unbounded backlog");
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.balazsholczer.bulkhead;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+public interface Bulkhead {
+
+    /**
+     * Runs the task inside the bulkhead, or throws {@link BulkheadFullException}
+     * when neither a free slot nor queue space is available.
+     */
+    <T> Future<T> submit(Callable<T> task);
+
+    BulkheadMetrics getMetrics();
+
+    String getName();
+
+    void shutdown();
+}
@@ -0,0 +1,12 @@
+package com.balazsholczer.bulkhead;
+
+import java.io.Serial;
+
+public class BulkheadFullException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public BulkheadFullException(String bulkheadName) {
+        super("Bulkhead " + bulkheadName + " is full - call rejected");
+    }
+}
@@ -0,0 +1,10 @@
+package com.balazsholczer.bulkhead;
+
+public record BulkheadMetrics(int activeCalls, int queueDepth, long rejectedCalls, double averageWaitMillis) {
+
+    @Override
+    public String toString() {
+        return String.format("BulkheadMetrics{active=%d, queued=%d, rejected=%d, avgWait=%.1fms}",
+            activeCalls, queueDepth, rejectedCalls, averageWaitMillis);
+    }
+}
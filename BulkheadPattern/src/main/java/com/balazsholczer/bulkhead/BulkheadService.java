@@ -1,30 +1,67 @@
 package com.balazsholczer.bulkhead;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 public class BulkheadService {
-    private final Map<String, ResourcePool> resourcePools = new HashMap<>();
+    private static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
     
     public void createBulkhead(String serviceName, int poolSize) {
-        ResourcePool pool = new ResourcePool(serviceName + "Pool", poolSize);
-        resourcePools.put(serviceName, pool);
-        System.out.println("BulkheadService: Created bulkhead for " + serviceName);
+        createBulkhead(serviceName, poolSize, DEFAULT_QUEUE_CAPACITY, RejectionPolicy.ABORT);
     }
     
-    public Future<String> executeTask(String serviceName, ServiceTask task) {
-        ResourcePool pool = resourcePools.get(serviceName);
-        if (pool == null) {
-            throw new IllegalArgumentException("No bulkhead found for service: " + serviceName);
-        }
-        
-        System.out.println("BulkheadService: Executing task in " + pool.getName());
-        return pool.submit(task);
+    public void createBulkhead(String serviceName, int poolSize, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        register(serviceName, new ResourcePool(serviceName + "Pool", poolSize, queueCapacity, rejectionPolicy));
+    }
+    
+    public void createSemaphoreBulkhead(String serviceName, int maxConcurrentCalls, Duration maxWait) {
+        register(serviceName, new SemaphoreBulkhead(serviceName + "Semaphore", maxConcurrentCalls, maxWait));
+    }
+    
+    public void createVirtualThreadBulkhead(String serviceName, int maxConcurrentCalls, int maxQueuedCalls) {
+        register(serviceName, new VirtualThreadBulkhead(serviceName + "VirtualThreads", maxConcurrentCalls, maxQueuedCalls));
+    }
+    
+    public <T> Future<T> executeTask(String serviceName, Callable<T> task) {
+        Bulkhead bulkhead = getBulkhead(serviceName);
+        System.out.println("BulkheadService: Executing task in " + bulkhead.getName());
+        return bulkhead.submit(task);
+    }
+    
+    public BulkheadMetrics getMetrics(String serviceName) {
+        return getBulkhead(serviceName).getMetrics();
+    }
+    
+    public Map<String, BulkheadMetrics> getAllMetrics() {
+        Map<String, BulkheadMetrics> metrics = new LinkedHashMap<>();
+        bulkheads.forEach((serviceName, bulkhead) -> metrics.put(serviceName, bulkhead.getMetrics()));
+        return metrics;
     }
     
     public void shutdown() {
         System.out.println("BulkheadService: Shutting down all bulkheads");
-        resourcePools.values().forEach(ResourcePool::shutdown);
+        bulkheads.values().forEach(Bulkhead::shutdown);
+    }
+    
+    private void register(String serviceName, Bulkhead bulkhead) {
+        Bulkhead previous = bulkheads.put(serviceName, bulkhead);
+        if (previous != null) {
+            previous.shutdown();
+        }
+        System.out.println("BulkheadService: Created bulkhead for " + serviceName);
+    }
+    
+    private Bulkhead getBulkhead(String serviceName) {
+        Bulkhead bulkhead = bulkheads.get(serviceName);
+        if (bulkhead == null) {
+            throw new IllegalArgumentException("No bulkhead found for service: " + serviceName);
+        }
+        return bulkhead;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.balazsholczer.bulkhead;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+class MetricsRecorder {
+    private final AtomicInteger activeCalls = new AtomicInteger();
+    private final LongAdder rejectedCalls = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder admittedCalls = new LongAdder();
+
+    // Wraps a task so that its time in the queue and its execution are recorded
+    <T> Callable<T> instrument(Callable<T> task) {
+        long enqueuedAt = System.nanoTime();
+        return () -> {
+            recordAdmitted(enqueuedAt);
+            try {
+                return task.call();
+            } finally {
+                recordFinished();
+            }
+        };
+    }
+
+    void recordAdmitted(long waitingSince) {
+        totalWaitNanos.add(System.nanoTime() - waitingSince);
+        admittedCalls.increment();
+        activeCalls.incrementAndGet();
+    }
+
+    void recordFinished() {
+        activeCalls.decrementAndGet();
+    }
+
+    void recordRejected() {
+        rejectedCalls.increment();
+    }
+
+    BulkheadMetrics snapshot(int queueDepth) {
+        long admitted = admittedCalls.sum();
+        double averageWaitMillis = admitted == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / admitted;
+        return new BulkheadMetrics(activeCalls.get(), queueDepth, rejectedCalls.sum(), averageWaitMillis);
+    }
+}
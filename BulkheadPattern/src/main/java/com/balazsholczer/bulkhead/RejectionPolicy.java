@@ -0,0 +1,7 @@
+package com.balazsholczer.bulkhead;
+
+public enum RejectionPolicy {
+    ABORT,          // Throw BulkheadFullException to the caller
+    CALLER_RUNS,    // Run the task on the submitting thread (natural backpressure)
+    DISCARD_OLDEST  // Drop the oldest queued task to make room
+}
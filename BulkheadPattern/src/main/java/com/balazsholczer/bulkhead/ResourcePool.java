@@ -1,31 +1,71 @@
 package com.balazsholczer.bulkhead;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-public class ResourcePool {
+public class ResourcePool implements Bulkhead {
     private final String name;
-    private final ExecutorService executor;
+    private final ThreadPoolExecutor executor;
+    private final MetricsRecorder metrics = new MetricsRecorder();
     
-    public ResourcePool(String name, int poolSize) {
+    public ResourcePool(String name, int poolSize, int queueCapacity, RejectionPolicy rejectionPolicy) {
         this.name = name;
-        this.executor = Executors.newFixedThreadPool(poolSize);
-        System.out.println("ResourcePool: Created " + name + " with " + poolSize + " threads");
+        // Bounded queue: a slow downstream causes rejections instead of an ever-growing backlog
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), rejectionHandler(rejectionPolicy));
+        System.out.println("ResourcePool: Created " + name + " with " + poolSize + " threads, queue capacity "
+            + queueCapacity + ", policy " + rejectionPolicy);
     }
     
+    @Override
     public <T> Future<T> submit(Callable<T> task) {
-        System.out.println("ResourcePool: Submitting task to " + name);
-        return executor.submit(task);
+        return executor.submit(metrics.instrument(task));
+    }
+    
+    @Override
+    public BulkheadMetrics getMetrics() {
+        return metrics.snapshot(executor.getQueue().size());
     }
     
+    @Override
     public void shutdown() {
         executor.shutdown();
         System.out.println("ResourcePool: Shutdown " + name);
     }
     
+    @Override
     public String getName() {
         return name;
     }
-}
\ No newline at end of file
+    
+    private RejectedExecutionHandler rejectionHandler(RejectionPolicy policy) {
+        return (task, pool) -> {
+            if (pool.isShutdown()) {
+                metrics.recordRejected();
+                throw new RejectedExecutionException(name + " is shut down");
+            }
+            switch (policy) {
+                case ABORT -> {
+                    metrics.recordRejected();
+                    throw new BulkheadFullException(name);
+                }
+                // Not a rejection: the task still runs, just on the submitting thread
+                case CALLER_RUNS -> task.run();
+                case DISCARD_OLDEST -> {
+                    // Cancel the dropped task so whoever holds its Future is not left waiting
+                    Runnable oldest = pool.getQueue().poll();
+                    if (oldest instanceof Future<?> future) {
+                        metrics.recordRejected();
+                        future.cancel(false);
+                    }
+                    pool.execute(task);
+                }
+            }
+        };
+    }
+}
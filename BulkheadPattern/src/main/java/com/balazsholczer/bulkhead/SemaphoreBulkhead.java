@@ -0,0 +1,71 @@
+package com.balazsholczer.bulkhead;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits concurrent calls with a semaphore and runs them on the caller's
+ * thread - no pool, no queue, no thread hand-off.
+ */
+public class SemaphoreBulkhead implements Bulkhead {
+    private final String name;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final MetricsRecorder metrics = new MetricsRecorder();
+
+    public SemaphoreBulkhead(String name, int maxConcurrentCalls, Duration maxWait) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxWaitNanos = maxWait.toNanos();
+        System.out.println("SemaphoreBulkhead: Created " + name + " with " + maxConcurrentCalls + " permits");
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        try {
+            return CompletableFuture.completedFuture(execute(task));
+        } catch (BulkheadFullException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            // Reported through the future, but the caller's thread stays interrupted
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public <T> T execute(Callable<T> task) throws Exception {
+        long waitingSince = System.nanoTime();
+        if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+            metrics.recordRejected();
+            throw new BulkheadFullException(name);
+        }
+        metrics.recordAdmitted(waitingSince);
+        try {
+            return task.call();
+        } finally {
+            metrics.recordFinished();
+            permits.release();
+        }
+    }
+
+    @Override
+    public BulkheadMetrics getMetrics() {
+        return metrics.snapshot(permits.getQueueLength());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void shutdown() {
+        System.out.println("SemaphoreBulkhead: Shutdown " + name);
+    }
+}
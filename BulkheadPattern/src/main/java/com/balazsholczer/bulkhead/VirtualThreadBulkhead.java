@@ -0,0 +1,78 @@
+package com.balazsholczer.bulkhead;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs each call on its own virtual thread and caps concurrency with a
+ * semaphore. Waiting calls park cheaply instead of holding a platform thread;
+ * the number of waiting calls is bounded by maxQueuedCalls.
+ */
+public class VirtualThreadBulkhead implements Bulkhead {
+    private final String name;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int capacity;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final MetricsRecorder metrics = new MetricsRecorder();
+
+    public VirtualThreadBulkhead(String name, int maxConcurrentCalls, int maxQueuedCalls) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.capacity = maxConcurrentCalls + maxQueuedCalls;
+        System.out.println("VirtualThreadBulkhead: Created " + name + " with " + maxConcurrentCalls
+            + " concurrent calls, " + maxQueuedCalls + " queued");
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        // Running plus waiting calls never exceed capacity
+        if (admitted.incrementAndGet() > capacity) {
+            admitted.decrementAndGet();
+            metrics.recordRejected();
+            throw new BulkheadFullException(name);
+        }
+        long waitingSince = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                try {
+                    permits.acquire();
+                    metrics.recordAdmitted(waitingSince);
+                    try {
+                        return task.call();
+                    } finally {
+                        metrics.recordFinished();
+                        permits.release();
+                    }
+                } finally {
+                    admitted.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shut down: the task never runs, so give its slot back
+            admitted.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public BulkheadMetrics getMetrics() {
+        return metrics.snapshot(permits.getQueueLength());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+        System.out.println("VirtualThreadBulkhead: Shutdown " + name);
+    }
+}
@@ -0,0 +1,195 @@
+package com.balazsholczer.bulkhead;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    @Test
+    void testSemaphoreBulkheadRejectsOncePermitsAreTaken() throws Exception {
+        SemaphoreBulkhead bulkhead = new SemaphoreBulkhead("inventory", 3, Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(3);
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            callers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    bulkhead.execute(() -> {
+                        running.countDown();
+                        return release.await(5, TimeUnit.SECONDS);
+                    });
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertThrows(BulkheadFullException.class, () -> bulkhead.execute(() -> "too many"));
+        assertEquals(3, bulkhead.getMetrics().activeCalls());
+        assertEquals(1, bulkhead.getMetrics().rejectedCalls());
+
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        assertEquals("admitted", bulkhead.execute(() -> "admitted"));
+        assertEquals(0, bulkhead.getMetrics().activeCalls());
+    }
+
+    @Test
+    void testSemaphoreBulkheadNeverExceedsItsPermits() throws InterruptedException {
+        SemaphoreBulkhead bulkhead = new SemaphoreBulkhead("inventory", 4, Duration.ofSeconds(10));
+        ConcurrencyProbe probe = new ConcurrencyProbe();
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            callers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    bulkhead.execute(probe::call);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        assertEquals(32, probe.calls.get());
+        assertTrue(probe.peak.get() <= 4, "peak concurrency " + probe.peak.get());
+        assertEquals(0, bulkhead.getMetrics().rejectedCalls());
+    }
+
+    @Test
+    void testResourcePoolAbortRejectsWhenThreadsAndQueueAreFull() throws Exception {
+        ResourcePool pool = new ResourcePool("payments", 2, 2, RejectionPolicy.ABORT);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Boolean>> accepted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accepted.add(pool.submit(() -> release.await(5, TimeUnit.SECONDS)));
+        }
+
+        assertThrows(BulkheadFullException.class, () -> pool.submit(() -> false));
+        assertEquals(1, pool.getMetrics().rejectedCalls());
+        assertEquals(2, pool.getMetrics().queueDepth());
+
+        release.countDown();
+        for (Future<Boolean> future : accepted) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> pool.submit(() -> true));
+    }
+
+    @Test
+    void testResourcePoolDiscardOldestCancelsTheDroppedCall() throws Exception {
+        ResourcePool pool = new ResourcePool("payments", 1, 1, RejectionPolicy.DISCARD_OLDEST);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> running = pool.submit(() -> release.await(5, TimeUnit.SECONDS));
+        awaitTrue(() -> pool.getMetrics().activeCalls() == 1);
+        Future<String> oldest = pool.submit(() -> "oldest");
+        Future<String> newest = pool.submit(() -> "newest");
+
+        assertThrows(CancellationException.class, oldest::get);
+        assertEquals(1, pool.getMetrics().rejectedCalls());
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertEquals("newest", newest.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    @Test
+    void testResourcePoolCallerRunsWhenSaturated() throws Exception {
+        ResourcePool pool = new ResourcePool("payments", 1, 1, RejectionPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.submit(() -> release.await(5, TimeUnit.SECONDS));
+        awaitTrue(() -> pool.getMetrics().activeCalls() == 1);
+        pool.submit(() -> "queued");
+
+        Future<Thread> overflow = pool.submit(Thread::currentThread);
+        assertSame(Thread.currentThread(), overflow.get(), "the submitting thread runs the overflow");
+        assertEquals(0, pool.getMetrics().rejectedCalls());
+        release.countDown();
+        pool.shutdown();
+    }
+
+    @Test
+    void testVirtualThreadBulkheadBoundsRunningAndWaitingCalls() throws Exception {
+        VirtualThreadBulkhead bulkhead = new VirtualThreadBulkhead("search", 3, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Boolean>> accepted = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            accepted.add(bulkhead.submit(() -> {
+                assertTrue(Thread.currentThread().isVirtual());
+                return release.await(5, TimeUnit.SECONDS);
+            }));
+        }
+        awaitTrue(() -> bulkhead.getMetrics().activeCalls() == 3 && bulkhead.getMetrics().queueDepth() == 2);
+
+        assertThrows(BulkheadFullException.class, () -> bulkhead.submit(() -> false));
+        assertEquals(1, bulkhead.getMetrics().rejectedCalls());
+
+        release.countDown();
+        for (Future<Boolean> future : accepted) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+        // Finished calls give their slots back
+        assertEquals("again", bulkhead.submit(() -> "again").get(5, TimeUnit.SECONDS));
+        bulkhead.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> bulkhead.submit(() -> "closed"));
+    }
+
+    @Test
+    void testVirtualThreadBulkheadNeverExceedsItsConcurrency() throws Exception {
+        VirtualThreadBulkhead bulkhead = new VirtualThreadBulkhead("search", 4, 1_000);
+        ConcurrencyProbe probe = new ConcurrencyProbe();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(bulkhead.submit(probe::call));
+        }
+        for (Future<Integer> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(200, probe.calls.get());
+        assertTrue(probe.peak.get() <= 4, "peak concurrency " + probe.peak.get());
+        assertEquals(0, bulkhead.getMetrics().activeCalls());
+        bulkhead.shutdown();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(5);
+        }
+    }
+
+    // Records the highest number of calls seen running at once
+    private static final class ConcurrencyProbe {
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private Integer call() throws InterruptedException {
+            int now = running.incrementAndGet();
+            peak.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(2);
+                return calls.incrementAndGet();
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package com.balazsholczer.cacheaside;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Cache-Aside Pattern: caching strategy
  * 
@@ -8,6 +14,9 @@ package com.balazsholczer.cacheaside;
  * - Cache miss triggers database load
  * - Cache is updated after database operations
  * - Provides performance optimization for read-heavy workloads
+ * - Cache is bounded (LRU eviction) and entries expire after a time-to-live
+ * - Entries older than the refresh age are reloaded in the background while still being served
+ * - Concurrent misses for the same key share one load (no thundering herd)
  * 
  * Benefits:
  * - Improved read performance
@@ -24,44 +33,63 @@ public class App {
         System.out.println();
         
         Database database = new Database();
-        Cache<String, User> cache = new Cache<>("UserCache");
-        UserService userService = new UserService(database, cache);
+        Cache<String, User> cache = new Cache<>("UserCache", 1_000, Duration.ofMinutes(5), Duration.ofMinutes(1));
+        try (UserService userService = new UserService(database, cache)) {
+            // First access - cache miss, loads from database
+            System.out.println("--- First Access ---");
+            User user1 = userService.getUser("1");
+            System.out.println("Retrieved: " + user1);
+        
+            System.out.println("\n--- Second Access (same user) ---");
+            // Second access - cache hit, no database call
+            User user1Again = userService.getUser("1");
+            System.out.println("Retrieved: " + user1Again);
         
-        // First access - cache miss, loads from database
-        System.out.println("--- First Access ---");
-        User user1 = userService.getUser("1");
-        System.out.println("Retrieved: " + user1);
+            System.out.println("\n--- Access Different User ---");
+            // Different user - cache miss again
+            User user2 = userService.getUser("2");
+            System.out.println("Retrieved: " + user2);
         
-        System.out.println("\n--- Second Access (same user) ---");
-        // Second access - cache hit, no database call
-        User user1Again = userService.getUser("1");
-        System.out.println("Retrieved: " + user1Again);
+            System.out.println("\n--- Update User ---");
+            // Update user - updates both database and cache
+            User updatedUser = new User("1", "John Updated", "john.updated@example.com");
+            userService.updateUser(updatedUser);
         
-        System.out.println("\n--- Access Different User ---");
-        // Different user - cache miss again
-        User user2 = userService.getUser("2");
-        System.out.println("Retrieved: " + user2);
+            System.out.println("\n--- Access Updated User ---");
+            // Access updated user - cache hit with new data
+            User user1Updated = userService.getUser("1");
+            System.out.println("Retrieved: " + user1Updated);
         
-        System.out.println("\n--- Update User ---");
-        // Update user - updates both database and cache
-        User updatedUser = new User("1", "John Updated", "john.updated@example.com");
-        userService.updateUser(updatedUser);
+            System.out.println("\n--- Delete User ---");
+            // Delete user - removes from both database and cache
+            userService.deleteUser("2");
         
-        System.out.println("\n--- Access Updated User ---");
-        // Access updated user - cache hit with new data
-        User user1Updated = userService.getUser("1");
-        System.out.println("Retrieved: " + user1Updated);
+            System.out.println("\nCache size: " + cache.size());
+            System.out.println("Cache stats: " + cache.stats());
         
-        System.out.println("\n--- Delete User ---");
-        // Delete user - removes from both database and cache
-        userService.deleteUser("2");
+            System.out.println("\n--- Bulk Access ---");
+            // Misses are batched into a single database round trip
+            Map<String, User> users = userService.getUsers(List.of("1", "3"));
+            System.out.println("Retrieved: " + users.values());
         
-        System.out.println("\nCache size: " + cache.size());
+            System.out.println("\n--- Hot Key Expires Under Load ---");
+            // 10k concurrent lookups of a cold key share a single database load
+            cache.evict("3");
+            int queriesBefore = database.getQueryCount();
+            List<CompletableFuture<User>> lookups = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                lookups.add(userService.getUserAsync("3"));
+            }
+            lookups.forEach(CompletableFuture::join);
+            System.out.println("Database calls for 10000 concurrent requests: "
+                + (database.getQueryCount() - queriesBefore));
+        }
         
         System.out.println("\n=== Benefits Demonstrated ===");
         System.out.println("✅ Improved read performance through caching");
         System.out.println("✅ Reduced database load on repeated access");
         System.out.println("✅ Application-controlled cache management");
         System.out.println("✅ Consistent data through cache invalidation");
+        System.out.println("✅ Request coalescing protects the database from hot-key stampedes");
     }
 }
\ No newline at end of file
@@ -1,44 +1,223 @@
 package com.balazsholczer.cacheaside;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 public class Cache<K, V> {
-    private final Map<K, V> cache = new HashMap<>();
+    private static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+    private static final int EVICTION_BATCH_DIVISOR = 10;
+
+    private final Map<K, Entry<V>> cache = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
     private final String name;
-    
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final long refreshAfterWriteNanos;
+    private volatile Consumer<? super K> refresher = key -> { };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
     public Cache(String name) {
+        this(name, DEFAULT_MAXIMUM_SIZE, Duration.ZERO);
+    }
+
+    /**
+     * @param maximumSize upper bound on the number of entries; least recently used entries are evicted beyond it
+     * @param timeToLive how long an entry stays readable after it was written, {@link Duration#ZERO} for no expiry
+     */
+    public Cache(String name, int maximumSize, Duration timeToLive) {
+        this(name, maximumSize, timeToLive, Duration.ZERO);
+    }
+
+    /**
+     * @param refreshAfterWrite age after which a hit still returns the entry but asks the refresher to reload it,
+     *                          {@link Duration#ZERO} to never refresh
+     */
+    public Cache(String name, int maximumSize, Duration timeToLive, Duration refreshAfterWrite) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        if (timeToLive.isNegative()) {
+            throw new IllegalArgumentException("timeToLive must not be negative: " + timeToLive);
+        }
+        if (refreshAfterWrite.isNegative()) {
+            throw new IllegalArgumentException("refreshAfterWrite must not be negative: " + refreshAfterWrite);
+        }
         this.name = name;
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.refreshAfterWriteNanos = refreshAfterWrite.toNanos();
+    }
+
+    /**
+     * Sets who reloads entries that are due for refresh. The cache does not load values itself, so the
+     * refresher is expected to load asynchronously and put() the fresh value; until then hits keep
+     * returning the current one.
+     */
+    public void setRefresher(Consumer<? super K> refresher) {
+        this.refresher = Objects.requireNonNull(refresher, "refresher");
     }
-    
+
     public Optional<V> get(K key) {
-        V value = cache.get(key);
-        if (value != null) {
-            System.out.println("Cache: HIT for key " + key + " in " + name);
-            return Optional.of(value);
-        } else {
-            System.out.println("Cache: MISS for key " + key + " in " + name);
+        Entry<V> entry = cache.get(key);
+        if (entry == null) {
+            misses.increment();
             return Optional.empty();
         }
+
+        long now = System.nanoTime();
+        if (isExpired(entry, now)) {
+            if (cache.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return Optional.empty();
+        }
+
+        // Hit path only touches a volatile long and a striped counter - no allocation
+        entry.accessTime = now;
+        hits.increment();
+        if (isDueForRefresh(entry, now)) {
+            requestRefresh(key, entry);
+        }
+        return entry.value;
+    }
+
+    // Reads an entry without counting a hit or miss or touching its access time
+    Optional<V> peek(K key) {
+        Entry<V> entry = cache.get(key);
+        if (entry == null || isExpired(entry, System.nanoTime())) {
+            return Optional.empty();
+        }
+        return entry.value;
     }
-    
+
     public void put(K key, V value) {
-        cache.put(key, value);
-        System.out.println("Cache: PUT key " + key + " in " + name);
+        Objects.requireNonNull(value, "value");
+        cache.put(key, new Entry<>(value, System.nanoTime()));
+        if (cache.size() > maximumSize) {
+            evictIfNeeded();
+        }
     }
-    
+
     public void evict(K key) {
         cache.remove(key);
-        System.out.println("Cache: EVICTED key " + key + " from " + name);
     }
-    
+
     public void clear() {
         cache.clear();
-        System.out.println("Cache: CLEARED " + name);
     }
-    
+
     public int size() {
         return cache.size();
     }
-}
\ No newline at end of file
+
+    public String getName() {
+        return name;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return timeToLiveNanos > 0 && now - entry.writeTime >= timeToLiveNanos;
+    }
+
+    private boolean isDueForRefresh(Entry<V> entry, long now) {
+        return refreshAfterWriteNanos > 0 && !entry.refreshRequested && now - entry.writeTime >= refreshAfterWriteNanos;
+    }
+
+    private void requestRefresh(K key, Entry<V> entry) {
+        // Racing hits may both ask; the flag only keeps it to about once per written entry
+        entry.refreshRequested = true;
+        try {
+            refresher.accept(key);
+        } catch (RuntimeException e) {
+            // A failed request must not fail the read; a later hit asks again
+            entry.refreshRequested = false;
+        }
+    }
+
+    private void evictIfNeeded() {
+        // A single thread evicts at a time. Writers that arrive meanwhile wait rather than skip it, and
+        // since each pass evicts a batch below the bound, they usually find nothing left to do.
+        evictionLock.lock();
+        try {
+            int excess = cache.size() - maximumSize;
+            if (excess <= 0) {
+                return;
+            }
+
+            // Evict a batch below the bound so the scan is amortised over many puts
+            int target = Math.max(excess, maximumSize / EVICTION_BATCH_DIVISOR);
+            long now = System.nanoTime();
+            List<Map.Entry<K, Entry<V>>> candidates = new ArrayList<>(cache.size());
+            int removed = 0;
+
+            for (Map.Entry<K, Entry<V>> candidate : cache.entrySet()) {
+                if (isExpired(candidate.getValue(), now)) {
+                    removed += remove(candidate);
+                } else {
+                    candidates.add(candidate);
+                }
+            }
+
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().accessTime));
+            for (Map.Entry<K, Entry<V>> candidate : candidates) {
+                if (removed >= target) {
+                    break;
+                }
+                removed += remove(candidate);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private int remove(Map.Entry<K, Entry<V>> candidate) {
+        if (cache.remove(candidate.getKey(), candidate.getValue())) {
+            evictions.increment();
+            return 1;
+        }
+        return 0;
+    }
+
+    private static final class Entry<V> {
+        private final Optional<V> value;
+        private final long writeTime;
+        private volatile long accessTime;
+        private volatile boolean refreshRequested;
+
+        private Entry(V value, long writeTime) {
+            this.value = Optional.of(value);
+            this.writeTime = writeTime;
+            this.accessTime = writeTime;
+        }
+    }
+
+    public record Stats(long hitCount, long missCount, long evictionCount) {
+
+        public double hitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Stats{hits=%d, misses=%d, evictions=%d, hitRate=%.2f}",
+                hitCount, missCount, evictionCount, hitRate());
+        }
+    }
+}
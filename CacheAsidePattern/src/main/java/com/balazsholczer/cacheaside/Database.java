@@ -1,10 +1,14 @@
 package com.balazsholczer.cacheaside;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Database {
-    private final Map<String, User> users = new HashMap<>();
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final AtomicInteger queryCount = new AtomicInteger();
     
     public Database() {
         // Initialize with sample data
@@ -15,6 +19,7 @@ public class Database {
     
     public User findById(String id) {
         System.out.println("Database: Querying user " + id + " (expensive operation)");
+        queryCount.incrementAndGet();
         
         // Simulate database delay
         try {
@@ -26,6 +31,27 @@ public class Database {
         return users.get(id);
     }
     
+    public Map<String, User> findAllById(Collection<String> ids) {
+        System.out.println("Database: Querying users " + ids + " in one batch");
+        queryCount.incrementAndGet();
+        
+        // Simulate database delay - one round trip for the whole batch
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        Map<String, User> found = new HashMap<>();
+        for (String id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                found.put(id, user);
+            }
+        }
+        return found;
+    }
+    
     public void save(User user) {
         System.out.println("Database: Saving user " + user.getId());
         users.put(user.getId(), user);
@@ -42,4 +68,8 @@ public class Database {
         System.out.println("Database: Deleting user " + id);
         users.remove(id);
     }
+    
+    public int getQueryCount() {
+        return queryCount.get();
+    }
 }
\ No newline at end of file
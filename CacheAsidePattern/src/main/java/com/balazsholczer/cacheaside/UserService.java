@@ -1,52 +1,211 @@
 package com.balazsholczer.cacheaside;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class UserService {
+public class UserService implements AutoCloseable {
     private final Database database;
     private final Cache<String, User> cache;
-    
+    private final Executor loadExecutor;
+    // Only an executor the service created itself is shut down on close; an injected one belongs to the caller
+    private final boolean ownsExecutor;
+
+    // One pending load per id: concurrent misses for the same id share it instead of all hitting the database.
+    // Updates and deletes drop the pending load, and a load only fills the cache while it is still registered.
+    private final Map<String, CompletableFuture<User>> inFlight = new ConcurrentHashMap<>();
+
     public UserService(Database database, Cache<String, User> cache) {
+        this(database, cache, Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    public UserService(Database database, Cache<String, User> cache, Executor loadExecutor) {
+        this(database, cache, loadExecutor, false);
+    }
+
+    private UserService(Database database, Cache<String, User> cache, Executor loadExecutor, boolean ownsExecutor) {
         this.database = database;
         this.cache = cache;
+        this.loadExecutor = loadExecutor;
+        this.ownsExecutor = ownsExecutor;
+        cache.setRefresher(this::refresh);
     }
-    
+
     public User getUser(String id) {
         System.out.println("UserService: Getting user " + id);
-        
+
         // Try cache first (Cache-Aside pattern)
         Optional<User> cachedUser = cache.get(id);
         if (cachedUser.isPresent()) {
             return cachedUser.get();
         }
-        
-        // Cache miss - load from database
-        User user = database.findById(id);
-        if (user != null) {
-            // Store in cache for future requests
-            cache.put(id, user);
+
+        // Cache miss - join a load already in flight, or load on this thread
+        CompletableFuture<User> load = new CompletableFuture<>();
+        CompletableFuture<User> existing = inFlight.putIfAbsent(id, load);
+        if (existing != null) {
+            return existing.join();
+        }
+        loadInto(id, load);
+        return load.join();
+    }
+
+    public CompletableFuture<User> getUserAsync(String id) {
+        Optional<User> cachedUser = cache.get(id);
+        if (cachedUser.isPresent()) {
+            return CompletableFuture.completedFuture(cachedUser.get());
+        }
+
+        CompletableFuture<User> load = new CompletableFuture<>();
+        CompletableFuture<User> existing = inFlight.putIfAbsent(id, load);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            loadExecutor.execute(() -> loadInto(id, load));
+        } catch (RuntimeException e) {
+            inFlight.remove(id, load);
+            load.completeExceptionally(e);
+        }
+        return load;
+    }
+
+    public Map<String, User> getUsers(Collection<String> ids) {
+        System.out.println("UserService: Getting users " + ids);
+
+        Map<String, User> result = new LinkedHashMap<>();
+        Map<String, CompletableFuture<User>> pending = new LinkedHashMap<>();
+        Map<String, CompletableFuture<User>> claimed = new LinkedHashMap<>();
+
+        for (String id : ids) {
+            Optional<User> cachedUser = cache.get(id);
+            if (cachedUser.isPresent()) {
+                result.put(id, cachedUser.get());
+                continue;
+            }
+            CompletableFuture<User> load = new CompletableFuture<>();
+            CompletableFuture<User> existing = inFlight.putIfAbsent(id, load);
+            if (existing != null) {
+                pending.put(id, existing);
+            } else {
+                claimed.put(id, load);
+            }
+        }
+
+        // All misses this call owns go to the database in one batch
+        if (!claimed.isEmpty()) {
+            loadAllInto(claimed);
+            pending.putAll(claimed);
         }
-        
-        return user;
+
+        pending.forEach((id, load) -> {
+            User user = load.join();
+            if (user != null) {
+                result.put(id, user);
+            }
+        });
+        return result;
     }
-    
+
     public void updateUser(User user) {
         System.out.println("UserService: Updating user " + user.getId());
-        
+
         // Update database
         database.save(user);
-        
+
+        // A load that read the old row must not put it back after us
+        inFlight.remove(user.getId());
+
         // Update cache (write-through)
         cache.put(user.getId(), user);
     }
-    
+
     public void deleteUser(String id) {
         System.out.println("UserService: Deleting user " + id);
-        
+
         // Delete from database
         database.delete(id);
-        
+        inFlight.remove(id);
+
         // Remove from cache
         cache.evict(id);
     }
-}
\ No newline at end of file
+
+    /**
+     * Waits for background loads to finish and shuts down the load executor if
+     * this service created it. Later async loads and refreshes are rejected.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            ((ExecutorService) loadExecutor).close();
+        }
+    }
+
+    // Reloads an entry the cache reports as due for refresh, unless a load for it is already running
+    private void refresh(String id) {
+        CompletableFuture<User> load = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(id, load) == null) {
+            try {
+                loadExecutor.execute(() -> loadInto(id, load, true));
+            } catch (RuntimeException e) {
+                inFlight.remove(id, load);
+                throw e;
+            }
+        }
+    }
+
+    private void loadInto(String id, CompletableFuture<User> load) {
+        loadInto(id, load, false);
+    }
+
+    private void loadInto(String id, CompletableFuture<User> load, boolean refresh) {
+        try {
+            // Another load may have finished between our cache miss and claiming the slot; the caller
+            // already counted the miss, so look without counting again
+            Optional<User> cachedUser = refresh ? Optional.empty() : cache.peek(id);
+            User user = cachedUser.isPresent() ? cachedUser.get() : database.findById(id);
+            complete(id, load, user);
+            load.complete(user);
+        } catch (RuntimeException e) {
+            inFlight.remove(id, load);
+            load.completeExceptionally(e);
+        }
+    }
+
+    // Stores the loaded user and retires the load in one step, so an update or delete cannot slip in between
+    private void complete(String id, CompletableFuture<User> load, User user) {
+        inFlight.computeIfPresent(id, (key, current) -> {
+            if (current != load) {
+                return current;
+            }
+            if (user != null) {
+                cache.put(id, user);
+            }
+            return null;
+        });
+    }
+
+    private void loadAllInto(Map<String, CompletableFuture<User>> claimed) {
+        try {
+            List<String> ids = new ArrayList<>(claimed.keySet());
+            Map<String, User> users = database.findAllById(ids);
+            claimed.forEach((id, load) -> {
+                User user = users.get(id);
+                complete(id, load, user);
+                load.complete(user);
+            });
+        } catch (RuntimeException e) {
+            claimed.forEach(inFlight::remove);
+            claimed.values().forEach(load -> load.completeExceptionally(e));
+        }
+    }
+}
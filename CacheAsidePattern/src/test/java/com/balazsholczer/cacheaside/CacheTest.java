@@ -0,0 +1,83 @@
+package com.balazsholczer.cacheaside;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheTest {
+
+    @Test
+    void testSizeBoundHoldsUnderConcurrentWriters() throws InterruptedException {
+        int writers = 8;
+        Cache<Integer, Integer> cache = new Cache<>("bounded", 100, Duration.ZERO);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[writers];
+        for (int t = 0; t < writers; t++) {
+            int offset = t * 100_000;
+            threads[t] = Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    cache.put(offset + i, i);
+                }
+            });
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(cache.size() <= 100, "size " + cache.size() + " exceeds the bound");
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void testExpiredEntriesAreMisses() throws InterruptedException {
+        Cache<String, String> cache = new Cache<>("ttl", 10, Duration.ofMillis(20));
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key").orElseThrow());
+
+        Thread.sleep(40);
+        assertTrue(cache.get("key").isEmpty());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void testRefreshAfterWriteServesCurrentValueAndAsksOnce() throws InterruptedException {
+        Cache<String, String> cache = new Cache<>("refresh", 10, Duration.ZERO, Duration.ofMillis(20));
+        List<String> refreshed = new CopyOnWriteArrayList<>();
+        cache.setRefresher(refreshed::add);
+        cache.put("key", "old");
+
+        assertEquals("old", cache.get("key").orElseThrow());
+        assertTrue(refreshed.isEmpty());
+
+        Thread.sleep(40);
+        assertEquals("old", cache.get("key").orElseThrow());
+        assertEquals("old", cache.get("key").orElseThrow());
+        assertEquals(List.of("key"), refreshed);
+
+        cache.put("key", "new");
+        assertEquals("new", cache.get("key").orElseThrow());
+        assertEquals(List.of("key"), refreshed);
+    }
+
+    @Test
+    void testFailingRefresherDoesNotFailReads() throws InterruptedException {
+        Cache<String, String> cache = new Cache<>("refresh", 10, Duration.ZERO, Duration.ofMillis(10));
+        cache.setRefresher(key -> {
+            throw new IllegalStateException("executor shut down");
+        });
+        cache.put("key", "value");
+        Thread.sleep(20);
+
+        assertEquals("value", cache.get("key").orElseThrow());
+    }
+}
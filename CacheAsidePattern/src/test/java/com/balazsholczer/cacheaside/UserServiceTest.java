@@ -0,0 +1,147 @@
+package com.balazsholczer.cacheaside;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserServiceTest {
+
+    // Holds every lookup until released, and returns the row as it was when the lookup started
+    private static final class GatedDatabase extends Database {
+        final CountDownLatch lookupStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public User findById(String id) {
+            User row = super.findAllById(List.of(id)).get(id);
+            lookups.incrementAndGet();
+            lookupStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return row;
+        }
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() {
+        GatedDatabase database = new GatedDatabase();
+        Cache<String, User> cache = new Cache<>("users", 100, Duration.ZERO);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            UserService service = new UserService(database, cache, executor);
+
+            List<CompletableFuture<User>> lookups = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                lookups.add(service.getUserAsync("1"));
+            }
+            database.release.countDown();
+
+            lookups.forEach(lookup -> assertEquals("John Doe", lookup.join().getName()));
+            assertEquals(1, database.lookups.get());
+        }
+    }
+
+    @Test
+    void testMissIsCountedOnce() {
+        Database database = new Database();
+        Cache<String, User> cache = new Cache<>("users", 100, Duration.ZERO);
+        UserService service = new UserService(database, cache, Runnable::run);
+
+        service.getUser("1");
+        service.getUser("1");
+
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void testUpdateDuringLoadIsNotOverwritten() throws InterruptedException {
+        GatedDatabase database = new GatedDatabase();
+        Cache<String, User> cache = new Cache<>("users", 100, Duration.ZERO);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            UserService service = new UserService(database, cache, executor);
+
+            CompletableFuture<User> staleLoad = service.getUserAsync("1");
+            database.lookupStarted.await();
+            service.updateUser(new User("1", "John Updated", "john.updated@example.com"));
+            database.release.countDown();
+            staleLoad.join();
+
+            assertEquals("John Updated", service.getUser("1").getName());
+            assertEquals(1, database.lookups.get());
+        }
+    }
+
+    @Test
+    void testDeleteDuringLoadIsNotUndone() throws InterruptedException {
+        GatedDatabase database = new GatedDatabase();
+        Cache<String, User> cache = new Cache<>("users", 100, Duration.ZERO);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            UserService service = new UserService(database, cache, executor);
+
+            CompletableFuture<User> staleLoad = service.getUserAsync("2");
+            database.lookupStarted.await();
+            service.deleteUser("2");
+            database.release.countDown();
+            staleLoad.join();
+
+            assertEquals(0, cache.size());
+            assertNull(service.getUser("2"));
+        }
+    }
+
+    @Test
+    void testEntriesDueForRefreshAreReloaded() throws InterruptedException {
+        Database database = new Database();
+        Cache<String, User> cache = new Cache<>("users", 100, Duration.ZERO, Duration.ofMillis(20));
+        UserService service = new UserService(database, cache, Runnable::run);
+
+        assertEquals("John Doe", service.getUser("1").getName());
+        database.save(new User("1", "John Renamed", "john@example.com"));
+        Thread.sleep(40);
+
+        // The hit that notices the age still gets the cached row and triggers the reload
+        assertEquals("John Doe", service.getUser("1").getName());
+        assertEquals("John Renamed", service.getUser("1").getName());
+        assertEquals(2, database.getQueryCount());
+    }
+
+    @Test
+    void testCloseShutsDownTheOwnExecutor() {
+        Cache<String, User> cache = new Cache<>("users", 100, Duration.ZERO);
+        UserService service = new UserService(new Database(), cache);
+        assertEquals("John Doe", service.getUserAsync("1").join().getName());
+
+        service.close();
+
+        CompletableFuture<User> afterClose = service.getUserAsync("2");
+        CompletionException failure = assertThrows(CompletionException.class, afterClose::join);
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        // The rejected load is retired, so a synchronous lookup still works
+        assertEquals("Jane Smith", service.getUser("2").getName());
+    }
+
+    @Test
+    void testCloseLeavesAnInjectedExecutorRunning() {
+        Cache<String, User> cache = new Cache<>("users", 100, Duration.ZERO);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            try (UserService service = new UserService(new Database(), cache, executor)) {
+                assertEquals("John Doe", service.getUserAsync("1").join().getName());
+            }
+            assertFalse(executor.isShutdown());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.balazsholczer.chainofresponsibility;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Dispatch cost for chains of 5 to 500 handlers: the original stream
+ * anyMatch, a plain loop over the list, and the compiled chain. Most
+ * handlers match one type each, one escalates on priority and a catch-all
+ * general predicate sits at the end.
+ *
+ * Run with: java com.balazsholczer.chainofresponsibility.ChainDispatchBenchmark [requests]
+ */
+public class ChainDispatchBenchmark {
+
+    private static long handled;
+
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("=== Chain Dispatch Benchmark ===");
+
+        for (int size : new int[]{5, 50, 500}) {
+            List<FunctionalChain.ChainHandler> handlers = chain(size);
+            FunctionalChain.RequestRecord[] batch = requests(size, new Random(size));
+            FunctionalChain.CompiledHandlers compiled = FunctionalChain.compile(handlers);
+
+            System.out.println(size + " handlers:");
+            for (int round = 0; round < 2; round++) {
+                run("  stream anyMatch", requests, batch, request -> handlers.stream().anyMatch(handler -> handler.handle(request)));
+                run("  loop", requests, batch, request -> {
+                    FunctionalChain.processRequest(request, handlers);
+                    return true;
+                });
+                run("  compiled", requests, batch, compiled::process);
+            }
+        }
+    }
+
+    private static List<FunctionalChain.ChainHandler> chain(int size) {
+        List<FunctionalChain.ChainHandler> handlers = new ArrayList<>();
+        for (int i = 0; i < size - 2; i++) {
+            handlers.add(new FunctionalChain.ChainHandler(Conditions.typeIs("T" + i), ChainDispatchBenchmark::count));
+        }
+        handlers.add(new FunctionalChain.ChainHandler(Conditions.priorityAbove(90), ChainDispatchBenchmark::count));
+        handlers.add(new FunctionalChain.ChainHandler(request -> true, ChainDispatchBenchmark::count));
+        return handlers;
+    }
+
+    private static FunctionalChain.RequestRecord[] requests(int size, Random random) {
+        FunctionalChain.RequestRecord[] batch = new FunctionalChain.RequestRecord[1024];
+        for (int i = 0; i < batch.length; i++) {
+            // A few types are unknown and fall through to the priority or catch-all handler
+            batch[i] = new FunctionalChain.RequestRecord("T" + random.nextInt(size), "payload", random.nextInt(100));
+        }
+        return batch;
+    }
+
+    private static boolean count(FunctionalChain.RequestRecord request) {
+        handled++;
+        return true;
+    }
+
+    private static void run(String name, int requests, FunctionalChain.RequestRecord[] batch,
+                            Predicate<FunctionalChain.RequestRecord> dispatch) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            dispatch.test(batch[i & (batch.length - 1)]);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-18s %,8.1f ns/op %,8.1f bytes/op%n", name,
+            (double) elapsed / requests, (double) allocated / requests);
+    }
+}
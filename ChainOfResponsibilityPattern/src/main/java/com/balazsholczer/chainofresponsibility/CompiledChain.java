@@ -0,0 +1,195 @@
+package com.balazsholczer.chainofresponsibility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Index over the conditions of a chain, so finding the handler for a request
+ * does not mean testing every condition in turn. Conditions built with
+ * {@link Condition#typeIs} go into a hash table keyed by type, and those built
+ * with {@link Condition#priorityAbove} into a threshold index searched by
+ * binary search. Any other predicate is still tested in chain order, but only
+ * up to the best indexed match found so far. The result is the same as
+ * walking the chain; lookups allocate nothing.
+ *
+ * A chain only holds the conditions. Callers keep their handlers in an
+ * array and use the returned position to pick one.
+ */
+public final class CompiledChain<R> {
+
+    /**
+     * A condition the compiler can see into. A plain {@link Predicate} works
+     * too, it just cannot be indexed. Conditions are indexed together when
+     * they share the same extractor instance, so keep the extractor in one
+     * field or factory per request type. Whether two method references or
+     * lambdas evaluate to the same instance is up to the JVM; a condition
+     * whose extractor differs is just tested in order like a plain predicate,
+     * so sharing only affects speed, never the result.
+     */
+    public sealed interface Condition<R> extends Predicate<R> {
+
+        static <R> Condition<R> typeIs(String type, Function<? super R, String> typeOf) {
+            return new TypeIs<>(type, typeOf);
+        }
+
+        static <R> Condition<R> priorityAbove(int threshold, ToIntFunction<? super R> priorityOf) {
+            return new PriorityAbove<>(threshold, priorityOf);
+        }
+
+        record TypeIs<R>(String type, Function<? super R, String> typeOf) implements Condition<R> {
+            @Override
+            public boolean test(R request) {
+                return type.equals(typeOf.apply(request));
+            }
+        }
+
+        record PriorityAbove<R>(int threshold, ToIntFunction<? super R> priorityOf) implements Condition<R> {
+            @Override
+            public boolean test(R request) {
+                return priorityOf.applyAsInt(request) > threshold;
+            }
+        }
+    }
+
+    private static final int[] NONE = new int[0];
+
+    private final int size;
+
+    // Chain positions of the typeIs conditions for each type, ascending
+    private final Function<R, String> typeOf;
+    private final Map<String, int[]> byType;
+
+    // priorityAbove conditions sorted by threshold; lowestPosition[k] is the earliest of the first k + 1
+    private final ToIntFunction<R> priorityOf;
+    private final int[] thresholds;
+    private final int[] thresholdPositions;
+    private final int[] lowestPosition;
+
+    // Everything else, in chain order
+    private final int[] generalPositions;
+    private final List<Predicate<? super R>> generalConditions;
+
+    @SuppressWarnings("unchecked")
+    private CompiledChain(List<? extends Predicate<? super R>> conditions) {
+        this.size = conditions.size();
+        Function<R, String> typeExtractor = null;
+        ToIntFunction<R> priorityExtractor = null;
+        Map<String, List<Integer>> types = new HashMap<>();
+        List<int[]> priorities = new ArrayList<>();
+        List<Integer> general = new ArrayList<>();
+
+        for (int position = 0; position < conditions.size(); position++) {
+            Predicate<? super R> condition = conditions.get(position);
+            if (condition instanceof Condition.TypeIs<?> typeIs
+                    && (typeExtractor == null || typeExtractor == typeIs.typeOf())) {
+                typeExtractor = (Function<R, String>) typeIs.typeOf();
+                types.computeIfAbsent(typeIs.type(), type -> new ArrayList<>()).add(position);
+            } else if (condition instanceof Condition.PriorityAbove<?> priorityAbove
+                    && (priorityExtractor == null || priorityExtractor == priorityAbove.priorityOf())) {
+                priorityExtractor = (ToIntFunction<R>) priorityAbove.priorityOf();
+                priorities.add(new int[]{priorityAbove.threshold(), position});
+            } else {
+                // Also conditions whose extractor differs from the one the index was built for
+                general.add(position);
+            }
+        }
+
+        this.typeOf = typeExtractor;
+        this.byType = new HashMap<>();
+        types.forEach((type, positions) -> byType.put(type, positions.stream().mapToInt(Integer::intValue).toArray()));
+
+        this.priorityOf = priorityExtractor;
+        priorities.sort((a, b) -> Integer.compare(a[0], b[0]));
+        this.thresholds = new int[priorities.size()];
+        this.thresholdPositions = new int[priorities.size()];
+        this.lowestPosition = new int[priorities.size()];
+        for (int k = 0; k < priorities.size(); k++) {
+            thresholds[k] = priorities.get(k)[0];
+            thresholdPositions[k] = priorities.get(k)[1];
+            lowestPosition[k] = k == 0 ? thresholdPositions[k] : Math.min(lowestPosition[k - 1], thresholdPositions[k]);
+        }
+
+        this.generalPositions = general.stream().mapToInt(Integer::intValue).toArray();
+        this.generalConditions = new ArrayList<>(generalPositions.length);
+        for (int position : generalPositions) {
+            generalConditions.add(conditions.get(position));
+        }
+    }
+
+    public static <R> CompiledChain<R> compile(List<? extends Predicate<? super R>> conditions) {
+        return new CompiledChain<>(conditions);
+    }
+
+    // Position of the first condition that matches, or -1
+    public int first(R request) {
+        return next(request, 0);
+    }
+
+    // Position of the first matching condition at or after from, or -1
+    public int next(R request, int from) {
+        int best = size;
+        if (typeOf != null) {
+            int[] positions = byType.getOrDefault(typeOf.apply(request), NONE);
+            int i = from == 0 ? 0 : lowerBound(positions, from);
+            if (i < positions.length) {
+                best = positions[i];
+            }
+        }
+        if (priorityOf != null) {
+            // Conditions with threshold < priority match: a prefix of the sorted thresholds
+            int matching = lowerBound(thresholds, priorityOf.applyAsInt(request));
+            if (matching > 0) {
+                if (from == 0) {
+                    best = Math.min(best, lowestPosition[matching - 1]);
+                } else {
+                    for (int k = 0; k < matching; k++) {
+                        int position = thresholdPositions[k];
+                        if (position >= from && position < best) {
+                            best = position;
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = from == 0 ? 0 : lowerBound(generalPositions, from); i < generalPositions.length; i++) {
+            if (generalPositions[i] >= best) {
+                break;
+            }
+            if (generalConditions.get(i).test(request)) {
+                best = generalPositions[i];
+                break;
+            }
+        }
+        return best == size ? -1 : best;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledChain{size=" + size + ", types=" + byType.size() + ", thresholds=" + thresholds.length
+            + ", general=" + generalPositions.length + "}";
+    }
+
+    // Index of the first element >= key in a sorted array
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,33 @@
+package com.balazsholczer.chainofresponsibility;
+
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Conditions the chain compiler can index, shared by the record-based chains.
+ * Their request records all expose a type and a priority through
+ * {@link Fields}, so one pair of extractors serves every chain.
+ */
+final class Conditions {
+
+    interface Fields {
+        String type();
+
+        int priority();
+    }
+
+    // One extractor instance per property, so every condition lands in the same index
+    private static final Function<Fields, String> TYPE = Fields::type;
+    private static final ToIntFunction<Fields> PRIORITY = Fields::priority;
+
+    private Conditions() {
+    }
+
+    static <R extends Fields> CompiledChain.Condition<R> typeIs(String type) {
+        return CompiledChain.Condition.typeIs(type, TYPE);
+    }
+
+    static <R extends Fields> CompiledChain.Condition<R> priorityAbove(int threshold) {
+        return CompiledChain.Condition.priorityAbove(threshold, PRIORITY);
+    }
+}
@@ -1,25 +1,26 @@
 package com.balazsholczer.chainofresponsibility;
 
+import java.util.Arrays;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 public enum EnumChain {
     INFO(
-        req -> "INFO".equals(req.type()),
+        Conditions.typeIs("INFO"),
         req -> {
             System.out.println("EnumChain: Processing INFO - " + req);
             return true;
         }
     ),
     WARNING(
-        req -> "WARNING".equals(req.type()),
+        Conditions.typeIs("WARNING"),
         req -> {
             System.out.println("EnumChain: Processing WARNING - " + req);
             return true;
         }
     ),
     ERROR(
-        req -> "ERROR".equals(req.type()),
+        Conditions.typeIs("ERROR"),
         req -> {
             System.out.println("EnumChain: Processing ERROR - " + req);
             return true;
@@ -41,12 +42,18 @@ public enum EnumChain {
         return false;
     }
     
-    public record RequestRecord(String type, String content, int priority) {}
+    public record RequestRecord(String type, String content, int priority) implements Conditions.Fields {
+    }
+    
+    // Constants in declaration order, and an index over their conditions
+    private static final EnumChain[] HANDLERS = values();
+    private static final CompiledChain<RequestRecord> DISPATCH =
+        CompiledChain.compile(Arrays.stream(HANDLERS).map(handler -> handler.canHandle).toList());
     
     public static void processRequest(RequestRecord request) {
         boolean handled = false;
-        for (EnumChain handler : values()) {
-            if (handler.handle(request)) {
+        for (int position = DISPATCH.first(request); position >= 0; position = DISPATCH.next(request, position + 1)) {
+            if (HANDLERS[position].handler.apply(request)) {
                 handled = true;
                 break;
             }
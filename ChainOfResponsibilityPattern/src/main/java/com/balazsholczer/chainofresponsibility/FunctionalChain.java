@@ -6,7 +6,8 @@ import java.util.function.Predicate;
 
 public class FunctionalChain {
     
-    public record RequestRecord(String type, String content, int priority) {}
+    public record RequestRecord(String type, String content, int priority) implements Conditions.Fields {
+    }
     
     public record ChainHandler(Predicate<RequestRecord> canHandle, Function<RequestRecord, Boolean> handler) {
         
@@ -19,7 +20,7 @@ public class FunctionalChain {
     }
     
     public static final ChainHandler INFO_HANDLER = new ChainHandler(
-        req -> "INFO".equals(req.type()),
+        Conditions.typeIs("INFO"),
         req -> {
             System.out.println("FunctionalChain: Processing INFO - " + req);
             return true;
@@ -27,7 +28,7 @@ public class FunctionalChain {
     );
     
     public static final ChainHandler WARNING_HANDLER = new ChainHandler(
-        req -> "WARNING".equals(req.type()),
+        Conditions.typeIs("WARNING"),
         req -> {
             System.out.println("FunctionalChain: Processing WARNING - " + req);
             return true;
@@ -35,19 +36,48 @@ public class FunctionalChain {
     );
     
     public static final ChainHandler ERROR_HANDLER = new ChainHandler(
-        req -> "ERROR".equals(req.type()),
+        Conditions.typeIs("ERROR"),
         req -> {
             System.out.println("FunctionalChain: Processing ERROR - " + req);
             return true;
         }
     );
     
-    public static void processRequest(RequestRecord request, List<ChainHandler> handlers) {
-        boolean handled = handlers.stream()
-                                 .anyMatch(handler -> handler.handle(request));
+    /**
+     * A handler list compiled once for repeated dispatch. A handler that
+     * declines by returning false passes the request on, as in the list form.
+     */
+    public static final class CompiledHandlers {
+        private final ChainHandler[] handlers;
+        private final CompiledChain<RequestRecord> dispatch;
+        
+        private CompiledHandlers(List<ChainHandler> handlers) {
+            this.handlers = handlers.toArray(ChainHandler[]::new);
+            this.dispatch = CompiledChain.compile(handlers.stream().map(ChainHandler::canHandle).toList());
+        }
         
-        if (!handled) {
+        public boolean process(RequestRecord request) {
+            for (int position = dispatch.first(request); position >= 0; position = dispatch.next(request, position + 1)) {
+                if (handlers[position].handler().apply(request)) {
+                    return true;
+                }
+            }
             System.out.println("FunctionalChain: No handler found for " + request);
+            return false;
+        }
+    }
+    
+    public static CompiledHandlers compile(List<ChainHandler> handlers) {
+        return new CompiledHandlers(handlers);
+    }
+    
+    // Walks the list in order; compile() the list when it is dispatched to repeatedly
+    public static void processRequest(RequestRecord request, List<ChainHandler> handlers) {
+        for (int i = 0; i < handlers.size(); i++) {
+            if (handlers.get(i).handle(request)) {
+                return;
+            }
         }
+        System.out.println("FunctionalChain: No handler found for " + request);
     }
 }
\ No newline at end of file
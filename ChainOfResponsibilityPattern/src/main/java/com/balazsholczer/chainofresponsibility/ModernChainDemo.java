@@ -83,5 +83,19 @@ public class ModernChainDemo {
         for (EnumChain handler : EnumChain.values()) {
             System.out.println("Handler: " + handler.name());
         }
+        
+        System.out.println("Functional - Compiled Chain:");
+        var escalation = new FunctionalChain.ChainHandler(
+            Conditions.priorityAbove(4),
+            req -> {
+                System.out.println("Escalation: Paging on-call for " + req);
+                return true;
+            }
+        );
+        var compiled = FunctionalChain.compile(List.of(FunctionalChain.INFO_HANDLER, FunctionalChain.WARNING_HANDLER,
+                                                       escalation, FunctionalChain.ERROR_HANDLER));
+        compiled.process(funcInfoReq);
+        compiled.process(funcErrorReq);
+        compiled.process(funcUnknownReq);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.balazsholczer.chainofresponsibility;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
@@ -7,7 +8,8 @@ import java.util.function.Predicate;
 
 public class StreamChain {
     
-    public record RequestRecord(String type, String content, int priority) {}
+    public record RequestRecord(String type, String content, int priority) implements Conditions.Fields {
+    }
     
     public record Handler(String name, Predicate<RequestRecord> condition, Function<RequestRecord, String> processor) {
         
@@ -20,33 +22,34 @@ public class StreamChain {
     }
     
     private static final List<Handler> HANDLERS = List.of(
-        new Handler("INFO", req -> "INFO".equals(req.type()), 
+        new Handler("INFO", Conditions.typeIs("INFO"), 
                    req -> "StreamChain: Processed INFO - " + req.content()),
-        new Handler("WARNING", req -> "WARNING".equals(req.type()), 
+        new Handler("WARNING", Conditions.typeIs("WARNING"), 
                    req -> "StreamChain: Processed WARNING - " + req.content()),
-        new Handler("ERROR", req -> "ERROR".equals(req.type()), 
+        new Handler("ERROR", Conditions.typeIs("ERROR"), 
                    req -> "StreamChain: Processed ERROR - " + req.content()),
-        new Handler("PRIORITY", req -> req.priority() > 5, 
+        new Handler("PRIORITY", Conditions.priorityAbove(5), 
                    req -> "StreamChain: High priority request - " + req.content())
     );
     
+    private static final Handler[] HANDLER_ARRAY = HANDLERS.toArray(Handler[]::new);
+    private static final CompiledChain<RequestRecord> DISPATCH =
+        CompiledChain.compile(HANDLERS.stream().map(Handler::condition).toList());
+    
     public static void processRequest(RequestRecord request) {
-        String result = HANDLERS.stream()
-                               .map(handler -> handler.tryHandle(request))
-                               .filter(Optional::isPresent)
-                               .map(Optional::get)
-                               .findFirst()
-                               .orElse("StreamChain: No handler found for " + request);
+        int position = DISPATCH.first(request);
+        String result = position < 0
+            ? "StreamChain: No handler found for " + request
+            : HANDLER_ARRAY[position].processor().apply(request);
         
         System.out.println(result);
     }
     
     public static void processAllHandlers(RequestRecord request) {
-        List<String> results = HANDLERS.stream()
-                                      .map(handler -> handler.tryHandle(request))
-                                      .filter(Optional::isPresent)
-                                      .map(Optional::get)
-                                      .toList();
+        List<String> results = new ArrayList<>();
+        for (int position = DISPATCH.first(request); position >= 0; position = DISPATCH.next(request, position + 1)) {
+            results.add(HANDLER_ARRAY[position].processor().apply(request));
+        }
         
         if (results.isEmpty()) {
             System.out.println("StreamChain: No handlers matched " + request);
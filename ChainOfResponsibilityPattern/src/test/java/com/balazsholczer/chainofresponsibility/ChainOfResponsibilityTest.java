@@ -1,7 +1,10 @@
 package com.balazsholczer.chainofresponsibility;
 
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -148,6 +151,57 @@ class ChainOfResponsibilityTest {
         assertDoesNotThrow(() -> first.handleRequest(errorRequest));
     }
     
+    @Test
+    void testCompiledChainMatchesLinearScan() {
+        Random random = new Random(7);
+        List<Predicate<FunctionalChain.RequestRecord>> conditions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            switch (random.nextInt(3)) {
+                case 0 -> conditions.add(Conditions.typeIs("T" + random.nextInt(20)));
+                case 1 -> conditions.add(Conditions.priorityAbove(random.nextInt(100)));
+                default -> {
+                    int modulus = 2 + random.nextInt(10);
+                    conditions.add(req -> req.content().length() % modulus == 0);
+                }
+            }
+        }
+        CompiledChain<FunctionalChain.RequestRecord> chain = CompiledChain.compile(conditions);
+        
+        for (int n = 0; n < 2_000; n++) {
+            var request = new FunctionalChain.RequestRecord("T" + random.nextInt(25), "x".repeat(random.nextInt(30)), random.nextInt(110));
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < conditions.size(); i++) {
+                if (conditions.get(i).test(request)) {
+                    expected.add(i);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            for (int i = chain.first(request); i >= 0; i = chain.next(request, i + 1)) {
+                actual.add(i);
+            }
+            assertEquals(expected, actual, request.toString());
+        }
+    }
+    
+    @Test
+    void testCompiledFunctionalChainPassesOnDeclinedRequests() {
+        List<String> seen = new ArrayList<>();
+        var decliner = new FunctionalChain.ChainHandler(Conditions.typeIs("ERROR"), req -> {
+            seen.add("decliner");
+            return false;
+        });
+        var escalation = new FunctionalChain.ChainHandler(Conditions.priorityAbove(3), req -> {
+            seen.add("escalation");
+            return true;
+        });
+        var compiled = FunctionalChain.compile(List.of(FunctionalChain.INFO_HANDLER, decliner, escalation, FunctionalChain.ERROR_HANDLER));
+        
+        assertTrue(compiled.process(new FunctionalChain.RequestRecord("ERROR", "Disk full", 5)));
+        assertEquals(List.of("decliner", "escalation"), seen);
+        assertTrue(compiled.process(new FunctionalChain.RequestRecord("INFO", "Started", 1)));
+        assertFalse(compiled.process(new FunctionalChain.RequestRecord("DEBUG", "Trace", 1)));
+    }
+    
     @Test
     void testEquivalence() {
         // All approaches should handle same request types
@@ -1,5 +1,7 @@
 package com.balazsholczer.circuitbreaker;
 
+import java.time.Duration;
+
 /**
  * Circuit Breaker Pattern: fault tolerance for service calls
  * 
@@ -12,7 +14,10 @@ package com.balazsholczer.circuitbreaker;
  * States:
  * - CLOSED: Normal operation, calls pass through
  * - OPEN: Circuit is open, calls fail immediately
- * - HALF_OPEN: Testing if service has recovered
+ * - HALF_OPEN: Testing if service has recovered with a bounded number of trial calls
+ * 
+ * Failure-rate and slow-call-rate thresholds are evaluated over a count-based
+ * or time-based sliding window; state transitions are published as events.
  * 
  * Benefits:
  * - Prevents resource exhaustion
@@ -30,6 +35,7 @@ public class App {
         
         ExternalService service = new ExternalService();
         CircuitBreaker circuitBreaker = new CircuitBreaker(3, 2000); // 3 failures, 2 second timeout
+        circuitBreaker.addStateTransitionListener(event -> System.out.println("CircuitBreaker: " + event));
         
         // Simulate multiple service calls
         for (int i = 1; i <= 15; i++) {
@@ -56,6 +62,34 @@ public class App {
         
         System.out.println("\nFinal circuit state: " + circuitBreaker.getState());
         
+        System.out.println("\n--- Sliding Window Configuration ---");
+        // Opens when half of the calls in the last 10 seconds failed or ran slower than 50ms
+        CircuitBreaker slidingBreaker = new CircuitBreaker(CircuitBreakerConfig.builder()
+            .timeBasedWindow(10)
+            .minimumNumberOfCalls(4)
+            .failureRateThreshold(50)
+            .slowCallRateThreshold(50)
+            .slowCallDurationThreshold(Duration.ofMillis(50))
+            .waitDurationInOpenState(Duration.ofSeconds(1))
+            .permittedCallsInHalfOpenState(2)
+            .build());
+        slidingBreaker.addStateTransitionListener(event -> System.out.println("SlidingBreaker: " + event));
+        
+        for (int i = 1; i <= 6; i++) {
+            boolean fail = i % 2 == 0;
+            try {
+                slidingBreaker.call(() -> {
+                    if (fail) {
+                        throw new RuntimeException("Service unavailable");
+                    }
+                    return "ok";
+                });
+            } catch (CircuitBreakerException e) {
+                System.out.println("Call " + i + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Sliding window metrics: " + slidingBreaker.getMetrics());
+        
         System.out.println("\n=== Benefits Demonstrated ===");
         System.out.println("✅ Prevents cascading failures");
         System.out.println("✅ Fail-fast behavior when service is down");
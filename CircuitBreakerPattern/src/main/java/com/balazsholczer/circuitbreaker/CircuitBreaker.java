@@ -1,68 +1,189 @@
 package com.balazsholczer.circuitbreaker;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+/**
+ * Circuit breaker with lock-free state changes. The current state, its sliding
+ * window and its half-open permits live in one immutable holder that is swapped
+ * by CAS, so a transition happens exactly once no matter how many threads
+ * observe it.
+ */
 public class CircuitBreaker {
-    
-    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
-    private int failureCount = 0;
-    private long lastFailureTime = 0;
-    
-    private final int failureThreshold;
-    private final long timeout;
-    
+
+    private final CircuitBreakerConfig config;
+    private final LongSupplier nanoClock;
+    private final long waitNanosInOpenState;
+    private final long slowCallNanos;
+    private final AtomicReference<StateHolder> holder;
+    private final List<Consumer<CircuitBreakerEvent>> listeners = new CopyOnWriteArrayList<>();
+
     public CircuitBreaker(int failureThreshold, long timeout) {
-        this.failureThreshold = failureThreshold;
-        this.timeout = timeout;
-        System.out.println("CircuitBreaker: Created with threshold=" + failureThreshold + ", timeout=" + timeout + "ms");
+        // Opens after failureThreshold consecutive failures: a window of that size that is 100% failures
+        this(CircuitBreakerConfig.builder()
+            .countBasedWindow(failureThreshold)
+            .minimumNumberOfCalls(failureThreshold)
+            .failureRateThreshold(100)
+            .waitDurationInOpenState(Duration.ofMillis(timeout))
+            .permittedCallsInHalfOpenState(1)
+            .build());
+    }
+
+    public CircuitBreaker(CircuitBreakerConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    CircuitBreaker(CircuitBreakerConfig config, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.waitNanosInOpenState = config.waitDurationInOpenState().toNanos();
+        this.slowCallNanos = config.slowCallDurationThreshold().toNanos();
+        this.holder = new AtomicReference<>(newHolder(CircuitBreakerState.CLOSED));
     }
-    
+
     public <T> T call(Supplier<T> operation) {
-        if (state == CircuitBreakerState.OPEN) {
-            if (System.currentTimeMillis() - lastFailureTime > timeout) {
-                state = CircuitBreakerState.HALF_OPEN;
-                System.out.println("CircuitBreaker: Transitioning to HALF_OPEN");
-            } else {
-                System.out.println("CircuitBreaker: Circuit is OPEN - failing fast");
-                throw new CircuitBreakerException("Circuit breaker is OPEN");
-            }
+        StateHolder current = acquirePermission();
+        if (current == null) {
+            throw new CircuitBreakerException("Circuit breaker is OPEN");
         }
-        
+
+        long start = nanoClock.getAsLong();
+        T result;
         try {
-            T result = operation.get();
-            onSuccess();
-            return result;
+            result = operation.get();
         } catch (Exception e) {
-            onFailure();
+            onResult(current, start, true);
             throw new CircuitBreakerException("Operation failed", e);
+        } catch (Error e) {
+            // Still recorded, or a HALF_OPEN trial permit would never come back
+            onResult(current, start, true);
+            throw e;
+        }
+        onResult(current, start, false);
+        return result;
+    }
+
+    public void addStateTransitionListener(Consumer<CircuitBreakerEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public CircuitBreakerState getState() {
+        return holder.get().state;
+    }
+
+    public int getFailureCount() {
+        return getMetrics().failedCalls();
+    }
+
+    public CircuitBreakerMetrics getMetrics() {
+        return holder.get().window.snapshot();
+    }
+
+    public CircuitBreakerConfig getConfig() {
+        return config;
+    }
+
+    private StateHolder acquirePermission() {
+        while (true) {
+            StateHolder current = holder.get();
+            switch (current.state) {
+                case CLOSED -> {
+                    return current;
+                }
+                case OPEN -> {
+                    if (nanoClock.getAsLong() - current.enteredAt < waitNanosInOpenState) {
+                        return null;
+                    }
+                    transition(current, CircuitBreakerState.HALF_OPEN);
+                }
+                case HALF_OPEN -> {
+                    return current.tryAcquireTrialPermit() ? current : null;
+                }
+            }
         }
     }
-    
-    private void onSuccess() {
-        failureCount = 0;
-        if (state == CircuitBreakerState.HALF_OPEN) {
-            state = CircuitBreakerState.CLOSED;
-            System.out.println("CircuitBreaker: Success in HALF_OPEN - transitioning to CLOSED");
+
+    private void onResult(StateHolder current, long start, boolean failed) {
+        boolean slow = nanoClock.getAsLong() - start >= slowCallNanos;
+        CircuitBreakerMetrics metrics = current.window.record(failed, slow);
+
+        // Results of calls started in an earlier state land in that state's window and change nothing
+        if (current.state == CircuitBreakerState.CLOSED) {
+            if (metrics.numberOfCalls() >= minimumNumberOfCalls() && exceedsThresholds(metrics)) {
+                transition(current, CircuitBreakerState.OPEN);
+            }
+        } else if (current.state == CircuitBreakerState.HALF_OPEN
+                && metrics.numberOfCalls() >= config.permittedCallsInHalfOpenState()) {
+            transition(current, exceedsThresholds(metrics) ? CircuitBreakerState.OPEN : CircuitBreakerState.CLOSED);
         }
     }
-    
-    private void onFailure() {
-        failureCount++;
-        lastFailureTime = System.currentTimeMillis();
-        
-        if (failureCount >= failureThreshold) {
-            state = CircuitBreakerState.OPEN;
-            System.out.println("CircuitBreaker: Failure threshold reached - transitioning to OPEN");
-        } else {
-            System.out.println("CircuitBreaker: Failure " + failureCount + "/" + failureThreshold);
+
+    private int minimumNumberOfCalls() {
+        if (config.slidingWindowType() == CircuitBreakerConfig.SlidingWindowType.COUNT_BASED) {
+            return Math.min(config.minimumNumberOfCalls(), config.slidingWindowSize());
         }
+        return config.minimumNumberOfCalls();
     }
-    
-    public CircuitBreakerState getState() {
-        return state;
+
+    private boolean exceedsThresholds(CircuitBreakerMetrics metrics) {
+        return metrics.failureRate() >= config.failureRateThreshold()
+            || metrics.slowCallRate() >= config.slowCallRateThreshold();
     }
-    
-    public int getFailureCount() {
-        return failureCount;
+
+    private void transition(StateHolder from, CircuitBreakerState to) {
+        if (!holder.compareAndSet(from, newHolder(to))) {
+            return; // Another thread already moved the breaker on
+        }
+        CircuitBreakerEvent event = new CircuitBreakerEvent(from.state, to, from.window.snapshot(), Instant.now());
+        for (Consumer<CircuitBreakerEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                // A failing listener must not keep the others from hearing about the transition
+            }
+        }
+    }
+
+    private StateHolder newHolder(CircuitBreakerState state) {
+        SlidingWindow window = switch (state) {
+            case CLOSED -> config.slidingWindowType() == CircuitBreakerConfig.SlidingWindowType.COUNT_BASED
+                ? new CountBasedSlidingWindow(config.slidingWindowSize())
+                : new TimeBasedSlidingWindow(config.slidingWindowSize(), nanoClock);
+            case OPEN -> new CountBasedSlidingWindow(1);
+            case HALF_OPEN -> new CountBasedSlidingWindow(config.permittedCallsInHalfOpenState());
+        };
+        return new StateHolder(state, window, nanoClock.getAsLong(), config.permittedCallsInHalfOpenState());
+    }
+
+    private static final class StateHolder {
+        private final CircuitBreakerState state;
+        private final SlidingWindow window;
+        private final long enteredAt;
+        private final AtomicInteger trialPermits;
+
+        private StateHolder(CircuitBreakerState state, SlidingWindow window, long enteredAt, int trialPermits) {
+            this.state = state;
+            this.window = window;
+            this.enteredAt = enteredAt;
+            this.trialPermits = new AtomicInteger(trialPermits);
+        }
+
+        private boolean tryAcquireTrialPermit() {
+            int permits;
+            do {
+                permits = trialPermits.get();
+                if (permits == 0) {
+                    return false;
+                }
+            } while (!trialPermits.compareAndSet(permits, permits - 1));
+            return true;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package com.balazsholczer.circuitbreaker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Measures the cost of a CLOSED circuit breaker against a direct call.
+ * Run with: java com.balazsholczer.circuitbreaker.CircuitBreakerBenchmark
+ */
+public class CircuitBreakerBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5_000_000;
+    private static final int MEASURED_ITERATIONS = 20_000_000;
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Circuit Breaker Benchmark (CLOSED state) ===");
+
+        CircuitBreaker countBased = new CircuitBreaker(CircuitBreakerConfig.ofDefaults());
+        CircuitBreaker timeBased = new CircuitBreaker(CircuitBreakerConfig.builder().timeBasedWindow(10).build());
+        Supplier<Long> operation = System::nanoTime;
+
+        for (int threads : new int[] {1, 4, 16, 256}) {
+            System.out.println("\n--- " + threads + " thread(s) ---");
+            report("direct call", run(threads, operation::get));
+            report("count-based window", run(threads, () -> countBased.call(operation)));
+            report("time-based window", run(threads, () -> timeBased.call(operation)));
+        }
+    }
+
+    private static double run(int threads, Supplier<Long> call) throws Exception {
+        measure(threads, WARMUP_ITERATIONS, call);
+        return measure(threads, MEASURED_ITERATIONS, call);
+    }
+
+    private static double measure(int threads, int iterations, Supplier<Long> call) throws Exception {
+        int perThread = iterations / threads;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Long>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    long acc = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        acc += call.get();
+                    }
+                    return acc;
+                }));
+            }
+            for (Future<Long> result : results) {
+                sink += result.get();
+            }
+            return (double) (System.nanoTime() - start) / perThread;
+        }
+    }
+
+    private static void report(String name, double nanosPerCall) {
+        System.out.printf("%-20s %8.1f ns/op%n", name, nanosPerCall);
+    }
+}
@@ -0,0 +1,81 @@
+package com.balazsholczer.circuitbreaker;
+
+import java.time.Duration;
+
+public record CircuitBreakerConfig(
+        SlidingWindowType slidingWindowType,
+        int slidingWindowSize,
+        int minimumNumberOfCalls,
+        float failureRateThreshold,
+        float slowCallRateThreshold,
+        Duration slowCallDurationThreshold,
+        Duration waitDurationInOpenState,
+        int permittedCallsInHalfOpenState) {
+
+    public enum SlidingWindowType {
+        COUNT_BASED, // Window over the last N calls
+        TIME_BASED   // Window over the calls of the last N seconds
+    }
+
+    public CircuitBreakerConfig {
+        if (slidingWindowSize <= 0 || slidingWindowSize > CountBasedSlidingWindow.MAX_SIZE) {
+            throw new IllegalArgumentException("slidingWindowSize out of range: " + slidingWindowSize);
+        }
+        if (minimumNumberOfCalls <= 0) {
+            throw new IllegalArgumentException("minimumNumberOfCalls must be positive: " + minimumNumberOfCalls);
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 100]: " + failureRateThreshold);
+        }
+        if (slowCallRateThreshold <= 0 || slowCallRateThreshold > 100) {
+            throw new IllegalArgumentException("slowCallRateThreshold must be in (0, 100]: " + slowCallRateThreshold);
+        }
+        if (permittedCallsInHalfOpenState <= 0) {
+            throw new IllegalArgumentException("permittedCallsInHalfOpenState must be positive: " + permittedCallsInHalfOpenState);
+        }
+    }
+
+    public static CircuitBreakerConfig ofDefaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private SlidingWindowType slidingWindowType = SlidingWindowType.COUNT_BASED;
+        private int slidingWindowSize = 100;
+        private int minimumNumberOfCalls = 10;
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 100;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(60);
+        private Duration waitDurationInOpenState = Duration.ofSeconds(60);
+        private int permittedCallsInHalfOpenState = 10;
+
+        public Builder countBasedWindow(int size) {
+            this.slidingWindowType = SlidingWindowType.COUNT_BASED;
+            this.slidingWindowSize = size;
+            return this;
+        }
+
+        public Builder timeBasedWindow(int seconds) {
+            this.slidingWindowType = SlidingWindowType.TIME_BASED;
+            this.slidingWindowSize = seconds;
+            return this;
+        }
+
+        public Builder minimumNumberOfCalls(int minimumNumberOfCalls) { this.minimumNumberOfCalls = minimumNumberOfCalls; return this; }
+        public Builder failureRateThreshold(float percent) { this.failureRateThreshold = percent; return this; }
+        public Builder slowCallRateThreshold(float percent) { this.slowCallRateThreshold = percent; return this; }
+        public Builder slowCallDurationThreshold(Duration duration) { this.slowCallDurationThreshold = duration; return this; }
+        public Builder waitDurationInOpenState(Duration duration) { this.waitDurationInOpenState = duration; return this; }
+        public Builder permittedCallsInHalfOpenState(int calls) { this.permittedCallsInHalfOpenState = calls; return this; }
+
+        public CircuitBreakerConfig build() {
+            return new CircuitBreakerConfig(slidingWindowType, slidingWindowSize, minimumNumberOfCalls,
+                failureRateThreshold, slowCallRateThreshold, slowCallDurationThreshold,
+                waitDurationInOpenState, permittedCallsInHalfOpenState);
+        }
+    }
+}
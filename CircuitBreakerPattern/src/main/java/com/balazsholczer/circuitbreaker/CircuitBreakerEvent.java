@@ -0,0 +1,12 @@
+package com.balazsholczer.circuitbreaker;
+
+import java.time.Instant;
+
+public record CircuitBreakerEvent(CircuitBreakerState fromState, CircuitBreakerState toState,
+                                  CircuitBreakerMetrics metrics, Instant timestamp) {
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerEvent{" + fromState + " -> " + toState + ", " + metrics + "}";
+    }
+}
@@ -0,0 +1,12 @@
+package com.balazsholczer.circuitbreaker;
+
+public record CircuitBreakerMetrics(int numberOfCalls, int failedCalls, int slowCalls) {
+
+    public float failureRate() {
+        return numberOfCalls == 0 ? 0 : failedCalls * 100f / numberOfCalls;
+    }
+
+    public float slowCallRate() {
+        return numberOfCalls == 0 ? 0 : slowCalls * 100f / numberOfCalls;
+    }
+}
@@ -0,0 +1,87 @@
+package com.balazsholczer.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ring buffer of the last N outcomes. The running totals are a packed long
+ * (calls | failures | slow calls, 21 bits each).
+ *
+ * Each call takes a ticket and belongs in slot ticket % N. A slot holds the
+ * ticket of its outcome next to the outcome itself, and a writer claims it
+ * with a CAS only while the slot still holds an older ticket. The writer adds
+ * its outcome to the totals before claiming, so whatever it evicts has
+ * already been added and the packed subtraction can never borrow from the
+ * neighbouring field. Nobody waits: a writer that finds a newer ticket in
+ * its slot has been evicted already and takes its own outcome back out.
+ *
+ * While writers are between those two steps the totals may briefly count
+ * their outcomes on top of the window, never more than one per writer in
+ * flight; once they are done the totals are exact. Readers take the totals
+ * without locking.
+ */
+class CountBasedSlidingWindow implements SlidingWindow {
+    static final int MAX_SIZE = (1 << 20) - 1;
+
+    private static final int BITS = 21;
+    private static final long MASK = (1L << BITS) - 1;
+    private static final long CALL = 1L;
+    private static final long FAILURE = 1L << BITS;
+    private static final long SLOW = 1L << (2 * BITS);
+
+    // A slot is (ticket + 1) << 3 | slow << 2 | failed << 1 | call; 0 is an empty slot older than any ticket
+    private static final int SLOT_CALL = 1;
+    private static final int SLOT_FAILED = 2;
+    private static final int SLOT_SLOW = 4;
+    private static final int SEQUENCE_SHIFT = 3;
+
+    private final int size;
+    private final AtomicLongArray slots;
+    private final AtomicLong tickets = new AtomicLong();
+    private final AtomicLong totals = new AtomicLong();
+
+    CountBasedSlidingWindow(int size) {
+        this.size = size;
+        this.slots = new AtomicLongArray(size);
+    }
+
+    @Override
+    public CircuitBreakerMetrics record(boolean failed, boolean slow) {
+        long ticket = tickets.getAndIncrement();
+        int index = (int) (ticket % size);
+        long sequence = ticket + 1;
+        long claim = sequence << SEQUENCE_SHIFT | SLOT_CALL | (failed ? SLOT_FAILED : 0) | (slow ? SLOT_SLOW : 0);
+        long outcome = counted(claim);
+
+        totals.getAndAdd(outcome);
+        while (true) {
+            long current = slots.get(index);
+            if (current >>> SEQUENCE_SHIFT > sequence) {
+                // A later call already took the slot, so this outcome is out of the window
+                return unpack(totals.addAndGet(-outcome));
+            }
+            if (slots.compareAndSet(index, current, claim)) {
+                return unpack(totals.addAndGet(-counted(current)));
+            }
+        }
+    }
+
+    @Override
+    public CircuitBreakerMetrics snapshot() {
+        return unpack(totals.get());
+    }
+
+    // The slot's outcome in the packed layout of the totals
+    private static long counted(long slot) {
+        return ((slot & SLOT_CALL) != 0 ? CALL : 0)
+            | ((slot & SLOT_FAILED) != 0 ? FAILURE : 0)
+            | ((slot & SLOT_SLOW) != 0 ? SLOW : 0);
+    }
+
+    private static CircuitBreakerMetrics unpack(long packed) {
+        return new CircuitBreakerMetrics(
+            (int) (packed & MASK),
+            (int) ((packed >>> BITS) & MASK),
+            (int) ((packed >>> (2 * BITS)) & MASK));
+    }
+}
@@ -0,0 +1,12 @@
+package com.balazsholczer.circuitbreaker;
+
+/**
+ * Records call outcomes; readers never lock and never see a torn view of
+ * the window.
+ */
+interface SlidingWindow {
+
+    CircuitBreakerMetrics record(boolean failed, boolean slow);
+
+    CircuitBreakerMetrics snapshot();
+}
@@ -0,0 +1,77 @@
+package com.balazsholczer.circuitbreaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * One bucket per second for the last N seconds. A bucket is claimed for a new
+ * second by CAS on its epoch; a writer racing with the reset may lose a single
+ * count, which is acceptable for rate thresholds.
+ */
+class TimeBasedSlidingWindow implements SlidingWindow {
+    private static final long UNUSED = Long.MIN_VALUE;
+
+    private final int seconds;
+    private final LongSupplier nanoClock;
+    private final AtomicLongArray epochs;
+    private final AtomicLongArray calls;
+    private final AtomicLongArray failures;
+    private final AtomicLongArray slowCalls;
+
+    TimeBasedSlidingWindow(int seconds, LongSupplier nanoClock) {
+        this.seconds = seconds;
+        this.nanoClock = nanoClock;
+        this.epochs = new AtomicLongArray(seconds);
+        this.calls = new AtomicLongArray(seconds);
+        this.failures = new AtomicLongArray(seconds);
+        this.slowCalls = new AtomicLongArray(seconds);
+        for (int i = 0; i < seconds; i++) {
+            epochs.set(i, UNUSED);
+        }
+    }
+
+    @Override
+    public CircuitBreakerMetrics record(boolean failed, boolean slow) {
+        long now = currentSecond();
+        int index = (int) Math.floorMod(now, (long) seconds);
+        long epoch = epochs.get(index);
+        if (epoch != now && epochs.compareAndSet(index, epoch, now)) {
+            calls.set(index, 0);
+            failures.set(index, 0);
+            slowCalls.set(index, 0);
+        }
+        calls.incrementAndGet(index);
+        if (failed) {
+            failures.incrementAndGet(index);
+        }
+        if (slow) {
+            slowCalls.incrementAndGet(index);
+        }
+        return aggregate(now);
+    }
+
+    @Override
+    public CircuitBreakerMetrics snapshot() {
+        return aggregate(currentSecond());
+    }
+
+    private CircuitBreakerMetrics aggregate(long now) {
+        long totalCalls = 0;
+        long totalFailures = 0;
+        long totalSlow = 0;
+        for (int i = 0; i < seconds; i++) {
+            long epoch = epochs.get(i);
+            if (epoch != UNUSED && now - epoch < seconds) {
+                totalCalls += calls.get(i);
+                totalFailures += failures.get(i);
+                totalSlow += slowCalls.get(i);
+            }
+        }
+        return new CircuitBreakerMetrics((int) totalCalls, (int) totalFailures, (int) totalSlow);
+    }
+
+    private long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong());
+    }
+}
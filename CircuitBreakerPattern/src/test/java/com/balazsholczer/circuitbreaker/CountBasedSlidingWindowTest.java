@@ -0,0 +1,97 @@
+package com.balazsholczer.circuitbreaker;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountBasedSlidingWindowTest {
+
+    @Test
+    void testTotalsStayExactUnderConcurrentWriters() throws InterruptedException {
+        assertTotalsStayExact(8, 100, 200_000);
+    }
+
+    @Test
+    void testTotalsStayExactWhenWritersLapTheWindow() throws InterruptedException {
+        // Far more writers than slots, so writers regularly find their slot already taken by a later call
+        assertTotalsStayExact(32, 4, 20_000);
+    }
+
+    private static void assertTotalsStayExact(int writers, int size, int callsPerWriter) throws InterruptedException {
+        CountBasedSlidingWindow window = new CountBasedSlidingWindow(size);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[writers];
+        boolean[] sawImpossibleTotals = new boolean[writers];
+        for (int t = 0; t < writers; t++) {
+            int writer = t;
+            threads[t] = Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < callsPerWriter; i++) {
+                    // A packed field that borrowed would show far more calls or failures than this
+                    CircuitBreakerMetrics metrics = window.record(i % 4 == 0, false);
+                    if (metrics.numberOfCalls() > size + writers || metrics.failedCalls() > metrics.numberOfCalls()) {
+                        sawImpossibleTotals[writer] = true;
+                    }
+                }
+            });
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (boolean impossible : sawImpossibleTotals) {
+            assertFalse(impossible);
+        }
+        CircuitBreakerMetrics metrics = window.snapshot();
+        assertEquals(size, metrics.numberOfCalls());
+        assertTrue(metrics.failedCalls() <= size);
+        assertEquals(0, metrics.slowCalls());
+    }
+
+    @Test
+    void testOldestOutcomeIsEvicted() {
+        CountBasedSlidingWindow window = new CountBasedSlidingWindow(3);
+        window.record(true, true);
+        window.record(false, false);
+        window.record(false, false);
+        assertEquals(new CircuitBreakerMetrics(3, 1, 1), window.snapshot());
+
+        window.record(false, false);
+        assertEquals(new CircuitBreakerMetrics(3, 0, 0), window.snapshot());
+    }
+
+    @Test
+    void testErrorStillReleasesHalfOpenPermit() {
+        long[] now = {0};
+        CircuitBreaker breaker = new CircuitBreaker(CircuitBreakerConfig.builder()
+            .countBasedWindow(2)
+            .minimumNumberOfCalls(2)
+            .failureRateThreshold(50)
+            .waitDurationInOpenState(Duration.ofSeconds(1))
+            .permittedCallsInHalfOpenState(1)
+            .build(), () -> now[0]);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(CircuitBreakerException.class, () -> breaker.call(() -> {
+                throw new IllegalStateException("down");
+            }));
+        }
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+
+        now[0] += Duration.ofSeconds(2).toNanos();
+        assertThrows(StackOverflowError.class, () -> breaker.call(() -> {
+            throw new StackOverflowError();
+        }));
+        assertEquals(CircuitBreakerState.OPEN, breaker.getState());
+
+        now[0] += Duration.ofSeconds(2).toNanos();
+        assertEquals("up", breaker.call(() -> "up"));
+        assertEquals(CircuitBreakerState.CLOSED, breaker.getState());
+    }
+}
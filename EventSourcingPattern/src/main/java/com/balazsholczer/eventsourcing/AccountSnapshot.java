@@ -0,0 +1,8 @@
+package com.balazsholczer.eventsourcing;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record AccountSnapshot(String accountId, String accountHolder, BigDecimal balance,
+                              long version, Instant takenAt) {
+}
@@ -11,6 +11,7 @@ import java.util.List;
  * - Rebuilds aggregate state from event history
  * - Provides complete audit trail
  * - Enables temporal queries and replay
+ * - Snapshots bound load time: only events after the last snapshot are replayed
  * 
  * Benefits:
  * - Complete audit trail
@@ -50,6 +51,14 @@ public class App {
         System.out.println("\nEvent History:");
         events.forEach(event -> System.out.println("- " + event));
         
+        // Snapshots: loads replay only the events recorded after the latest snapshot
+        System.out.println("\n--- Snapshotting ---");
+        BankAccountRepository repository =
+            new BankAccountRepository(eventStore, new SnapshotStore(), SnapshotPolicy.everyNEvents(3));
+        System.out.println("Loaded: " + repository.load(accountId));
+        repository.save(new MoneyDepositedEvent(accountId, BigDecimal.valueOf(100)));
+        System.out.println("Loaded from snapshot + 1 event: " + repository.load(accountId));
+        
         System.out.println("\n=== Benefits Demonstrated ===");
         System.out.println("✅ Complete audit trail");
         System.out.println("✅ State rebuilding from events");
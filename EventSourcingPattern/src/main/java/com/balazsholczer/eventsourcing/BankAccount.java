@@ -1,12 +1,14 @@
 package com.balazsholczer.eventsourcing;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 public class BankAccount {
     private String accountId;
     private String accountHolder;
     private BigDecimal balance;
+    private long version;
     
     public static BankAccount fromEvents(String accountId, List<Event> events) {
         BankAccount account = new BankAccount();
@@ -19,7 +21,27 @@ public class BankAccount {
         return account;
     }
     
+    // Starts from the snapshot and replays only the events recorded after it
+    public static BankAccount fromSnapshot(AccountSnapshot snapshot, List<Event> eventsAfter) {
+        BankAccount account = new BankAccount();
+        account.accountId = snapshot.accountId();
+        account.accountHolder = snapshot.accountHolder();
+        account.balance = snapshot.balance();
+        account.version = snapshot.version();
+        
+        for (Event event : eventsAfter) {
+            account.apply(event);
+        }
+        
+        return account;
+    }
+    
+    public AccountSnapshot toSnapshot() {
+        return new AccountSnapshot(accountId, accountHolder, balance, version, Instant.now());
+    }
+    
     private void apply(Event event) {
+        version++;
         if (event instanceof AccountCreatedEvent) {
             AccountCreatedEvent created = (AccountCreatedEvent) event;
             this.accountHolder = created.getAccountHolder();
@@ -33,9 +55,10 @@ public class BankAccount {
     public String getAccountId() { return accountId; }
     public String getAccountHolder() { return accountHolder; }
     public BigDecimal getBalance() { return balance; }
+    public long getVersion() { return version; }
     
     @Override
     public String toString() {
-        return "BankAccount{id='" + accountId + "', holder='" + accountHolder + "', balance=" + balance + "}";
+        return "BankAccount{id='" + accountId + "', holder='" + accountHolder + "', balance=" + balance + ", version=" + version + "}";
     }
 }
\ No newline at end of file
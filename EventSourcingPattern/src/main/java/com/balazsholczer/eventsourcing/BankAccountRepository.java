@@ -0,0 +1,46 @@
+package com.balazsholczer.eventsourcing;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Loads accounts from the latest snapshot plus the events after it, and
+ * takes a new snapshot whenever the policy says the replay got too long.
+ */
+public class BankAccountRepository {
+    private final EventStore eventStore;
+    private final SnapshotStore snapshotStore;
+    private final SnapshotPolicy snapshotPolicy;
+    
+    public BankAccountRepository(EventStore eventStore, SnapshotStore snapshotStore, SnapshotPolicy snapshotPolicy) {
+        this.eventStore = eventStore;
+        this.snapshotStore = snapshotStore;
+        this.snapshotPolicy = snapshotPolicy;
+    }
+    
+    public BankAccount load(String accountId) {
+        Optional<AccountSnapshot> snapshot = snapshotStore.latest(accountId);
+        
+        BankAccount account;
+        List<Event> replayed;
+        if (snapshot.isPresent()) {
+            replayed = eventStore.getEvents(accountId, snapshot.get().version() + 1);
+            account = BankAccount.fromSnapshot(snapshot.get(), replayed);
+        } else {
+            replayed = eventStore.getEvents(accountId);
+            account = BankAccount.fromEvents(accountId, replayed);
+        }
+        
+        Instant lastSnapshotAt = snapshot.map(AccountSnapshot::takenAt).orElse(Instant.EPOCH);
+        if (snapshotPolicy.shouldSnapshot(replayed.size(), lastSnapshotAt)) {
+            snapshotStore.save(account.toSnapshot());
+            System.out.println("BankAccountRepository: Snapshot of " + accountId + " at version " + account.getVersion());
+        }
+        return account;
+    }
+    
+    public void save(Event event) {
+        eventStore.saveEvent(event);
+    }
+}
@@ -13,10 +13,22 @@ public class EventStore {
         System.out.println("EventStore: Saved " + event.getEventType() + " for " + event.getAggregateId());
     }
     
+    public void saveEvents(List<? extends Event> batch) {
+        batch.forEach(event -> events.computeIfAbsent(event.getAggregateId(), k -> new ArrayList<>()).add(event));
+        System.out.println("EventStore: Saved " + batch.size() + " events");
+    }
+    
     public List<Event> getEvents(String aggregateId) {
         return events.getOrDefault(aggregateId, new ArrayList<>());
     }
     
+    // Versions are 1-based positions in the aggregate's stream
+    public List<Event> getEvents(String aggregateId, long fromVersion) {
+        List<Event> stream = events.getOrDefault(aggregateId, new ArrayList<>());
+        int from = (int) Math.min(Math.max(fromVersion - 1, 0), stream.size());
+        return new ArrayList<>(stream.subList(from, stream.size()));
+    }
+    
     public List<Event> getAllEvents() {
         List<Event> allEvents = new ArrayList<>();
         events.values().forEach(allEvents::addAll);
@@ -0,0 +1,65 @@
+package com.balazsholczer.eventsourcing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load time versus history length, replaying everything versus starting
+ * from a snapshot taken every 1,000 events.
+ * Run with: java com.balazsholczer.eventsourcing.SnapshotBenchmark
+ */
+public class SnapshotBenchmark {
+
+    private static final int LOADS = 200;
+    private static final int SNAPSHOT_EVERY = 1_000;
+
+    public static void main(String[] args) {
+        System.out.println("=== Snapshot Benchmark ===");
+        System.out.printf("%12s %18s %18s%n", "events", "full replay (us)", "snapshot (us)");
+
+        for (int history : new int[] {1_000, 10_000, 100_000, 1_000_000}) {
+            String accountId = "ACC-" + history;
+            EventStore eventStore = new EventStore();
+            eventStore.saveEvents(history(accountId, history));
+
+            BankAccountRepository withoutSnapshots =
+                new BankAccountRepository(eventStore, new SnapshotStore(), SnapshotPolicy.never());
+            BankAccountRepository withSnapshots =
+                new BankAccountRepository(eventStore, new SnapshotStore(), SnapshotPolicy.everyNEvents(SNAPSHOT_EVERY));
+            withSnapshots.load(accountId); // Takes the first snapshot
+
+            // A few new events arrive after the snapshot, as in steady state
+            eventStore.saveEvents(deposits(accountId, SNAPSHOT_EVERY / 2));
+
+            System.out.printf("%,12d %,18.1f %,18.1f%n", history,
+                averageLoadMicros(withoutSnapshots, accountId), averageLoadMicros(withSnapshots, accountId));
+        }
+    }
+
+    private static double averageLoadMicros(BankAccountRepository repository, String accountId) {
+        for (int i = 0; i < LOADS; i++) {
+            repository.load(accountId); // Warm-up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < LOADS; i++) {
+            repository.load(accountId);
+        }
+        return (System.nanoTime() - start) / 1_000.0 / LOADS;
+    }
+
+    private static List<Event> history(String accountId, int events) {
+        List<Event> history = new ArrayList<>(events);
+        history.add(new AccountCreatedEvent(accountId, "John Doe", BigDecimal.ZERO));
+        history.addAll(deposits(accountId, events - 1));
+        return history;
+    }
+
+    private static List<Event> deposits(String accountId, int count) {
+        List<Event> deposits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            deposits.add(new MoneyDepositedEvent(accountId, BigDecimal.ONE));
+        }
+        return deposits;
+    }
+}
@@ -0,0 +1,32 @@
+package com.balazsholczer.eventsourcing;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@FunctionalInterface
+public interface SnapshotPolicy {
+    
+    /**
+     * @param eventsSinceSnapshot events replayed on top of the last snapshot (or from the start)
+     * @param lastSnapshotAt when the last snapshot was taken, {@link Instant#EPOCH} if there is none
+     */
+    boolean shouldSnapshot(long eventsSinceSnapshot, Instant lastSnapshotAt);
+    
+    static SnapshotPolicy everyNEvents(int n) {
+        return (eventsSinceSnapshot, lastSnapshotAt) -> eventsSinceSnapshot >= n;
+    }
+    
+    static SnapshotPolicy every(Duration interval) {
+        return (eventsSinceSnapshot, lastSnapshotAt) ->
+            eventsSinceSnapshot > 0 && Duration.between(lastSnapshotAt, Instant.now()).compareTo(interval) >= 0;
+    }
+    
+    static SnapshotPolicy never() {
+        return (eventsSinceSnapshot, lastSnapshotAt) -> false;
+    }
+    
+    default SnapshotPolicy or(SnapshotPolicy other) {
+        return (eventsSinceSnapshot, lastSnapshotAt) ->
+            shouldSnapshot(eventsSinceSnapshot, lastSnapshotAt) || other.shouldSnapshot(eventsSinceSnapshot, lastSnapshotAt);
+    }
+}
@@ -0,0 +1,44 @@
+package com.balazsholczer.eventsourcing;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Snapshots keyed by aggregate id and version. Only the most recent few
+ * snapshots per aggregate are retained.
+ */
+public class SnapshotStore {
+    private final Map<String, NavigableMap<Long, AccountSnapshot>> snapshots = new ConcurrentHashMap<>();
+    private final int retainedPerAggregate;
+    
+    public SnapshotStore() {
+        this(3);
+    }
+    
+    public SnapshotStore(int retainedPerAggregate) {
+        this.retainedPerAggregate = retainedPerAggregate;
+    }
+    
+    public void save(AccountSnapshot snapshot) {
+        NavigableMap<Long, AccountSnapshot> versions =
+            snapshots.computeIfAbsent(snapshot.accountId(), k -> new ConcurrentSkipListMap<>());
+        versions.put(snapshot.version(), snapshot);
+        while (versions.size() > retainedPerAggregate) {
+            versions.pollFirstEntry();
+        }
+    }
+    
+    public Optional<AccountSnapshot> latest(String accountId) {
+        NavigableMap<Long, AccountSnapshot> versions = snapshots.get(accountId);
+        return versions == null ? Optional.empty() : Optional.ofNullable(versions.lastEntry()).map(Map.Entry::getValue);
+    }
+    
+    // Latest snapshot not newer than the given version, for loading historical state
+    public Optional<AccountSnapshot> atOrBefore(String accountId, long version) {
+        NavigableMap<Long, AccountSnapshot> versions = snapshots.get(accountId);
+        return versions == null ? Optional.empty() : Optional.ofNullable(versions.floorEntry(version)).map(Map.Entry::getValue);
+    }
+}
@@ -0,0 +1,111 @@
+package com.balazsholczer.eventsourcing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankAccountRepositoryTest {
+
+    private static final String ACCOUNT = "ACC-1";
+
+    private final EventStore eventStore = new EventStore();
+    private final SnapshotStore snapshotStore = new SnapshotStore();
+
+    @Test
+    void testSnapshotPlusTailMatchesFullReplay() {
+        BankAccountRepository repository = new BankAccountRepository(eventStore, snapshotStore, SnapshotPolicy.everyNEvents(10));
+        repository.save(new AccountCreatedEvent(ACCOUNT, "Alice", new BigDecimal("100.00")));
+
+        for (int i = 1; i <= 57; i++) {
+            repository.save(new MoneyDepositedEvent(ACCOUNT, new BigDecimal(i + ".25")));
+            // Loading after every event mixes snapshot-based and full loads at every tail length
+            BankAccount loaded = repository.load(ACCOUNT);
+            BankAccount replayed = BankAccount.fromEvents(ACCOUNT, eventStore.getEvents(ACCOUNT));
+
+            assertEquals(replayed.getBalance(), loaded.getBalance(), "after " + i + " deposits");
+            assertEquals(replayed.getVersion(), loaded.getVersion());
+            assertEquals(replayed.getAccountHolder(), loaded.getAccountHolder());
+        }
+        assertTrue(snapshotStore.latest(ACCOUNT).isPresent());
+        assertEquals(new BigDecimal("1767.25"), repository.load(ACCOUNT).getBalance());
+    }
+
+    @Test
+    void testSnapshotIsTakenOnceTheReplayReachesTheInterval() {
+        BankAccountRepository repository = new BankAccountRepository(eventStore, snapshotStore, SnapshotPolicy.everyNEvents(10));
+        repository.save(new AccountCreatedEvent(ACCOUNT, "Alice", BigDecimal.ZERO));
+        deposit(repository, 8);
+
+        repository.load(ACCOUNT);
+        assertTrue(snapshotStore.latest(ACCOUNT).isEmpty(), "9 events are below the interval");
+
+        deposit(repository, 1);
+        repository.load(ACCOUNT);
+        assertEquals(10, snapshotStore.latest(ACCOUNT).orElseThrow().version());
+
+        // Counted from the snapshot now, not from the start of the stream
+        deposit(repository, 9);
+        assertEquals(19, repository.load(ACCOUNT).getVersion());
+        assertEquals(10, snapshotStore.latest(ACCOUNT).orElseThrow().version());
+
+        deposit(repository, 1);
+        repository.load(ACCOUNT);
+        AccountSnapshot latest = snapshotStore.latest(ACCOUNT).orElseThrow();
+        assertEquals(20, latest.version());
+        assertEquals(new BigDecimal("19"), latest.balance());
+    }
+
+    @Test
+    void testTimeBasedPolicyWaitsForTheInterval() throws InterruptedException {
+        BankAccountRepository repository = new BankAccountRepository(eventStore, snapshotStore,
+            SnapshotPolicy.every(Duration.ofMillis(200)));
+        repository.save(new AccountCreatedEvent(ACCOUNT, "Alice", BigDecimal.ZERO));
+
+        repository.load(ACCOUNT);
+        assertEquals(1, snapshotStore.latest(ACCOUNT).orElseThrow().version(), "no snapshot yet counts as overdue");
+
+        deposit(repository, 1);
+        repository.load(ACCOUNT);
+        assertEquals(1, snapshotStore.latest(ACCOUNT).orElseThrow().version());
+
+        Thread.sleep(250);
+        repository.load(ACCOUNT);
+        assertEquals(2, snapshotStore.latest(ACCOUNT).orElseThrow().version());
+
+        // Nothing new to replay, so no point in another snapshot
+        Thread.sleep(250);
+        repository.load(ACCOUNT);
+        assertEquals(2, snapshotStore.latest(ACCOUNT).orElseThrow().version());
+    }
+
+    @Test
+    void testCombinedPoliciesAndNever() {
+        SnapshotPolicy policy = SnapshotPolicy.everyNEvents(100).or(SnapshotPolicy.every(Duration.ofHours(1)));
+        assertTrue(policy.shouldSnapshot(100, Instant.now()));
+        assertTrue(policy.shouldSnapshot(1, Instant.EPOCH));
+        assertFalse(policy.shouldSnapshot(99, Instant.now()));
+        assertFalse(SnapshotPolicy.never().shouldSnapshot(1_000_000, Instant.EPOCH));
+    }
+
+    @Test
+    void testSnapshotStoreKeepsOnlyTheNewestSnapshots() {
+        SnapshotStore store = new SnapshotStore(2);
+        for (long version = 10; version <= 40; version += 10) {
+            store.save(new AccountSnapshot(ACCOUNT, "Alice", BigDecimal.valueOf(version), version, Instant.now()));
+        }
+        assertEquals(40, store.latest(ACCOUNT).orElseThrow().version());
+        assertEquals(30, store.atOrBefore(ACCOUNT, 35).orElseThrow().version());
+        assertTrue(store.atOrBefore(ACCOUNT, 25).isEmpty(), "older snapshots were dropped");
+        assertTrue(store.latest("unknown").isEmpty());
+    }
+
+    private static void deposit(BankAccountRepository repository, int count) {
+        for (int i = 0; i < count; i++) {
+            repository.save(new MoneyDepositedEvent(ACCOUNT, BigDecimal.ONE));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.balazsholczer.eventstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Compact binary codec for {@link AccountEvents}: strings as length-prefixed
+ * UTF-8 and amounts as scale plus unscaled bytes. The layout is fixed by this
+ * class rather than by the classes' serialized form, so recompiling the
+ * events never makes an existing log unreadable.
+ */
+public class AccountEventSerializer implements EventSerializer {
+
+    @Override
+    public byte[] serialize(Object event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            switch (event) {
+                case AccountEvents.AccountOpened opened -> {
+                    out.writeUTF(opened.accountId);
+                    out.writeUTF(opened.accountHolder);
+                    writeAmount(out, opened.initialBalance);
+                }
+                case AccountEvents.MoneyDeposited deposited -> {
+                    out.writeUTF(deposited.accountId);
+                    writeAmount(out, deposited.amount);
+                }
+                case AccountEvents.MoneyWithdrawn withdrawn -> {
+                    out.writeUTF(withdrawn.accountId);
+                    writeAmount(out, withdrawn.amount);
+                }
+                default -> throw new IllegalArgumentException("Not an account event: " + event.getClass().getName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot serialize " + event.getClass().getSimpleName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(String eventType, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            return switch (eventType) {
+                case "AccountOpened" -> new AccountEvents.AccountOpened(in.readUTF(), in.readUTF(), readAmount(in));
+                case "MoneyDeposited" -> new AccountEvents.MoneyDeposited(in.readUTF(), readAmount(in));
+                case "MoneyWithdrawn" -> new AccountEvents.MoneyWithdrawn(in.readUTF(), readAmount(in));
+                default -> throw new IllegalStateException("Unknown account event type " + eventType);
+            };
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot deserialize " + eventType, e);
+        }
+    }
+
+    private static void writeAmount(DataOutputStream out, BigDecimal amount) throws IOException {
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        out.writeInt(amount.scale());
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readAmount(DataInputStream in) throws IOException {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readInt()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -1,10 +1,13 @@
 package com.balazsholczer.eventstore;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
 public class AccountEvents {
     
-    public static class AccountOpened {
+    public static class AccountOpened implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         public final String accountId;
         public final String accountHolder;
         public final BigDecimal initialBalance;
@@ -22,7 +25,9 @@ public class AccountEvents {
         }
     }
     
-    public static class MoneyDeposited {
+    public static class MoneyDeposited implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         public final String accountId;
         public final BigDecimal amount;
         
@@ -37,7 +42,9 @@ public class AccountEvents {
         }
     }
     
-    public static class MoneyWithdrawn {
+    public static class MoneyWithdrawn implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
         public final String accountId;
         public final BigDecimal amount;
         
@@ -1,15 +1,19 @@
 package com.balazsholczer.eventstore;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
  * Event Store Pattern: event persistence and replay
  * 
  * Key Concepts:
- * - Persists events in append-only log
+ * - Persists events in append-only log (optionally on memory-mapped segment files)
  * - Provides event replay capabilities
  * - Supports temporal queries and projections
+ * - Type and position indexes let projections page through the log with a cursor
  * - Enables event-driven architecture patterns
  * 
  * Benefits:
@@ -21,7 +25,7 @@ import java.util.List;
 
 public class App {
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("=== Event Store Pattern ===");
         System.out.println("Event persistence and replay");
         System.out.println();
@@ -35,6 +39,8 @@ public class App {
         eventStore.appendEvent(accountId, new AccountEvents.MoneyDeposited(accountId, BigDecimal.valueOf(500)));
         eventStore.appendEvent(accountId, new AccountEvents.MoneyWithdrawn(accountId, BigDecimal.valueOf(200)));
         eventStore.appendEvent(accountId, new AccountEvents.MoneyDeposited(accountId, BigDecimal.valueOf(300)));
+        eventStore.getEventStream(accountId).forEach(event -> System.out.println("EventStore: Appended "
+            + event.getEventType() + " to stream " + accountId + " (version " + event.getVersion() + ")"));
         
         // Replay events from stream
         System.out.println("\n--- Event Stream Replay ---");
@@ -59,6 +65,42 @@ public class App {
         List<EventStore.StoredEvent> allEvents = eventStore.getAllEvents();
         System.out.println("Total events in store: " + allEvents.size());
         
+        // Cursor-based catch-up: page through the log without copying all of it
+        System.out.println("\n--- Cursor-Based Reads ---");
+        long position = 0;
+        EventStore.EventPage page;
+        do {
+            page = eventStore.readFrom(position, 2);
+            System.out.println("Page from position " + position + ": " + page.events().size() + " events");
+            position = page.nextPosition();
+        } while (!page.endOfLog());
+        System.out.println("Deposits via type index: " + eventStore.streamByType("MoneyDeposited", 0).count());
+        
+        // Optimistic concurrency: append only if nobody else wrote to the stream meanwhile
+        System.out.println("\n--- Optimistic Concurrency ---");
+        long version = eventStore.getStreamVersion(accountId);
+        long newVersion = eventStore.appendEvent(accountId, version,
+            new AccountEvents.MoneyDeposited(accountId, BigDecimal.valueOf(50)),
+            new AccountEvents.MoneyWithdrawn(accountId, BigDecimal.valueOf(20)));
+        System.out.println("Appended batch: version " + version + " -> " + newVersion);
+        try {
+            eventStore.appendEvent(accountId, version, new AccountEvents.MoneyWithdrawn(accountId, BigDecimal.valueOf(999)));
+        } catch (ConcurrencyException e) {
+            System.out.println("Rejected stale write: " + e.getMessage());
+        }
+        
+        // Durable store: events survive a restart
+        System.out.println("\n--- Durable Event Store ---");
+        Path directory = Files.createTempDirectory("event-store");
+        try (EventStore durableStore = EventStore.open(directory, new AccountEventSerializer(), SegmentedEventLog.SyncMode.GROUP_COMMIT)) {
+            durableStore.appendEvent(accountId, new AccountEvents.AccountOpened(accountId, "John Doe", BigDecimal.valueOf(1000)));
+            durableStore.appendEvent(accountId, new AccountEvents.MoneyDeposited(accountId, BigDecimal.valueOf(500)));
+        }
+        try (EventStore reopened = EventStore.open(directory, new AccountEventSerializer(), SegmentedEventLog.SyncMode.GROUP_COMMIT)) {
+            System.out.println("Recovered after restart:");
+            reopened.getEventStream(accountId).forEach(event -> System.out.println("- " + event.getEventData()));
+        }
+        
         System.out.println("\n=== Benefits Demonstrated ===");
         System.out.println("✅ Complete audit trail of all changes");
         System.out.println("✅ Event replay capabilities");
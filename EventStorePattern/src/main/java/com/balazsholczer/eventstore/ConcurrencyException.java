@@ -0,0 +1,20 @@
+package com.balazsholczer.eventstore;
+
+public class ConcurrencyException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    private final String streamId;
+    private final long expectedVersion;
+    private final long actualVersion;
+    
+    public ConcurrencyException(String streamId, long expectedVersion, long actualVersion) {
+        super("Stream " + streamId + " is at version " + actualVersion + ", expected " + expectedVersion);
+        this.streamId = streamId;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+    
+    public String getStreamId() { return streamId; }
+    public long getExpectedVersion() { return expectedVersion; }
+    public long getActualVersion() { return actualVersion; }
+}
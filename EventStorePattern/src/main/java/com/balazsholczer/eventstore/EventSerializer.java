@@ -0,0 +1,14 @@
+package com.balazsholczer.eventstore;
+
+/**
+ * Converts event payloads to and from bytes for the durable log. Implement it
+ * with a hand-written codec, as {@link AccountEventSerializer} does;
+ * {@link JavaEventSerializer} works for anything {@link java.io.Serializable},
+ * but ties the log to each class's serialVersionUID.
+ */
+public interface EventSerializer {
+
+    byte[] serialize(Object event);
+
+    Object deserialize(String eventType, byte[] data);
+}
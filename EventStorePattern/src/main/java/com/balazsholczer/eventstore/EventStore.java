@@ -1,55 +1,275 @@
 package com.balazsholczer.eventstore;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class EventStore {
-    private final Map<String, List<StoredEvent>> streams = new ConcurrentHashMap<>();
+public class EventStore implements AutoCloseable {
+    /** Expected version that skips the concurrency check. */
+    public static final long ANY_VERSION = -1;
+    /** Expected version of a stream that must not exist yet. */
+    public static final long NO_STREAM = 0;
+    
+    private static final int STRIPES = 64;
+    private static final int STREAM_BATCH_SIZE = 1_024;
+    
+    private final Map<String, EventStream> streams = new ConcurrentHashMap<>();
+    // An event's global position is its index in the global log
     private final List<StoredEvent> globalEventLog = new ArrayList<>();
+    private final Map<String, PositionIndex> typeIndex = new HashMap<>();
+    private final Object globalLock = new Object();
+    // Appends to different streams only contend when they hash to the same stripe
+    private final Object[] stripes = new Object[STRIPES];
+    private SegmentedEventLog durableLog;
+    
+    public EventStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+    
+    /**
+     * Opens a durable event store backed by memory-mapped segment files in the
+     * given directory, recovering every intact event written before.
+     */
+    public static EventStore open(Path directory, EventSerializer serializer, SegmentedEventLog.SyncMode syncMode) {
+        return open(directory, SegmentedEventLog.DEFAULT_SEGMENT_SIZE, serializer, syncMode);
+    }
+    
+    public static EventStore open(Path directory, int segmentSize, EventSerializer serializer,
+                                  SegmentedEventLog.SyncMode syncMode) {
+        EventStore store = new EventStore();
+        store.durableLog = SegmentedEventLog.open(directory, segmentSize, serializer, syncMode, 10, store::index);
+        System.out.println("EventStore: Recovered " + store.globalEventLog.size() + " events from " + directory);
+        return store;
+    }
+    
+    public static EventStore open(Path directory) {
+        return open(directory, new JavaEventSerializer(), SegmentedEventLog.SyncMode.GROUP_COMMIT);
+    }
     
     public void appendEvent(String streamId, Object event) {
-        StoredEvent storedEvent = new StoredEvent(
-            UUID.randomUUID().toString(),
-            streamId,
-            event.getClass().getSimpleName(),
-            event,
-            LocalDateTime.now(),
-            getNextVersion(streamId)
-        );
+        appendEvent(streamId, ANY_VERSION, event);
+    }
+    
+    /**
+     * Appends the events to the stream only if it is currently at
+     * expectedVersion ({@link #ANY_VERSION} to skip the check). The batch is
+     * appended atomically: readers see all of it or none of it.
+     *
+     * @return the stream version after the append
+     * @throws ConcurrencyException if another writer moved the stream on first
+     */
+    public long appendEvent(String streamId, long expectedVersion, Object... events) {
+        if (events.length == 0) {
+            throw new IllegalArgumentException("At least one event is required");
+        }
         
-        streams.computeIfAbsent(streamId, k -> new ArrayList<>()).add(storedEvent);
-        globalEventLog.add(storedEvent);
+        long newVersion;
+        synchronized (stripeFor(streamId)) {
+            // A failed check or append must not leave an empty stream behind, so it is only registered at the end
+            EventStream existing = streams.get(streamId);
+            EventStream stream = existing != null ? existing : new EventStream();
+            if (expectedVersion != ANY_VERSION && expectedVersion != stream.version) {
+                throw new ConcurrencyException(streamId, expectedVersion, stream.version);
+            }
+            
+            LocalDateTime now = LocalDateTime.now();
+            List<StoredEvent> batch = new ArrayList<>(events.length);
+            for (Object event : events) {
+                batch.add(new StoredEvent(newEventId(), streamId, event.getClass().getSimpleName(),
+                    event, now, stream.version + batch.size() + 1));
+            }
+            // Serialized before taking globalLock; a batch that cannot be written fails here, before anything changes
+            SegmentedEventLog.Batch record = durableLog != null ? durableLog.encode(batch) : null;
+            
+            // Global order is decided here; the batch lands contiguously in the log as a single record
+            synchronized (globalLock) {
+                if (record != null) {
+                    durableLog.append(record);
+                }
+                batch.forEach(this::appendToGlobalLog);
+            }
+            stream.events.addAll(batch);
+            stream.version += batch.size();
+            newVersion = stream.version;
+            if (existing == null) {
+                streams.put(streamId, stream);
+            }
+        }
         
-        System.out.println("EventStore: Appended " + storedEvent.getEventType() + 
-                          " to stream " + streamId + " (version " + storedEvent.getVersion() + ")");
+        // Wait for the fsync outside the locks so concurrent appends share it
+        if (durableLog != null) {
+            durableLog.commit();
+        }
+        return newVersion;
+    }
+    
+    public long getStreamVersion(String streamId) {
+        EventStream stream = streams.get(streamId);
+        if (stream == null) {
+            return NO_STREAM;
+        }
+        synchronized (stripeFor(streamId)) {
+            return stream.version;
+        }
     }
     
     public List<StoredEvent> getEventStream(String streamId) {
-        return streams.getOrDefault(streamId, new ArrayList<>());
+        return getEventStream(streamId, 1);
     }
     
     public List<StoredEvent> getEventStream(String streamId, long fromVersion) {
-        return streams.getOrDefault(streamId, new ArrayList<>())
-                .stream()
-                .filter(event -> event.getVersion() >= fromVersion)
-                .collect(Collectors.toList());
+        EventStream stream = streams.get(streamId);
+        if (stream == null) {
+            return new ArrayList<>();
+        }
+        synchronized (stripeFor(streamId)) {
+            // Versions are dense and start at 1, so the start index is known without scanning
+            int from = (int) Math.min(Math.max(fromVersion - 1, 0), stream.events.size());
+            return new ArrayList<>(stream.events.subList(from, stream.events.size()));
+        }
     }
     
     public List<StoredEvent> getAllEvents() {
-        return new ArrayList<>(globalEventLog);
+        synchronized (globalLock) {
+            return new ArrayList<>(globalEventLog);
+        }
     }
     
     public List<StoredEvent> getEventsByType(String eventType) {
-        return globalEventLog.stream()
-                .filter(event -> event.getEventType().equals(eventType))
-                .collect(Collectors.toList());
+        synchronized (globalLock) {
+            PositionIndex index = typeIndex.get(eventType);
+            List<StoredEvent> events = new ArrayList<>(index == null ? 0 : index.size());
+            for (int i = 0; index != null && i < index.size(); i++) {
+                events.add(globalEventLog.get(index.get(i)));
+            }
+            return events;
+        }
+    }
+    
+    /** Position the next appended event will get. */
+    public long getHeadPosition() {
+        synchronized (globalLock) {
+            return globalEventLog.size();
+        }
+    }
+    
+    /**
+     * Reads at most batchSize events starting at the given global position.
+     * Only the page is copied, so a subscriber can page through the whole log
+     * in constant memory by continuing from {@link EventPage#nextPosition()}.
+     */
+    public EventPage readFrom(long position, int batchSize) {
+        synchronized (globalLock) {
+            int from = (int) Math.min(Math.max(position, 0), globalEventLog.size());
+            int to = (int) Math.min((long) from + batchSize, globalEventLog.size());
+            return new EventPage(new ArrayList<>(globalEventLog.subList(from, to)), to, to == globalEventLog.size());
+        }
+    }
+    
+    /**
+     * Like {@link #readFrom(long, int)} but only returns events of one type,
+     * found through the type index instead of scanning the log.
+     */
+    public EventPage readByType(String eventType, long position, int batchSize) {
+        synchronized (globalLock) {
+            PositionIndex index = typeIndex.get(eventType);
+            if (index == null) {
+                return new EventPage(new ArrayList<>(), Math.max(position, 0), true);
+            }
+            int from = index.lowerBound(position);
+            int to = (int) Math.min((long) from + batchSize, index.size());
+            List<StoredEvent> events = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                events.add(globalEventLog.get(index.get(i)));
+            }
+            long nextPosition = to == from ? Math.max(position, 0) : index.get(to - 1) + 1L;
+            return new EventPage(events, nextPosition, to == index.size());
+        }
+    }
+    
+    /** Lazily pages through the log from the given position up to its current head. */
+    public Stream<StoredEvent> streamFrom(long position) {
+        return pagedStream(position, from -> readFrom(from, STREAM_BATCH_SIZE));
+    }
+    
+    public Stream<StoredEvent> streamByType(String eventType, long position) {
+        return pagedStream(position, from -> readByType(eventType, from, STREAM_BATCH_SIZE));
+    }
+    
+    @Override
+    public void close() {
+        if (durableLog != null) {
+            durableLog.close();
+        }
+    }
+    
+    // Random (version 4) UUID from ThreadLocalRandom: ids only need to be unique, and SecureRandom dominates append cost
+    private static String newEventId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~(0xC000000000000000L)) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+    
+    private static Stream<StoredEvent> pagedStream(long position, LongFunction<EventPage> reader) {
+        Iterator<StoredEvent> iterator = new Iterator<>() {
+            private EventPage page = reader.apply(position);
+            private int index;
+            
+            @Override
+            public boolean hasNext() {
+                while (index == page.events().size()) {
+                    if (page.endOfLog()) {
+                        return false;
+                    }
+                    page = reader.apply(page.nextPosition());
+                    index = 0;
+                }
+                return true;
+            }
+            
+            @Override
+            public StoredEvent next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.events().get(index++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+    
+    // Callers hold globalLock (or own the store exclusively during recovery)
+    private void appendToGlobalLog(StoredEvent storedEvent) {
+        typeIndex.computeIfAbsent(storedEvent.getEventType(), k -> new PositionIndex()).add(globalEventLog.size());
+        globalEventLog.add(storedEvent);
+    }
+    
+    private Object stripeFor(String streamId) {
+        return stripes[(streamId.hashCode() & 0x7fffffff) % STRIPES];
+    }
+    
+    // Used during recovery, before the store is shared
+    private void index(StoredEvent storedEvent) {
+        EventStream stream = streams.computeIfAbsent(storedEvent.getStreamId(), k -> new EventStream());
+        stream.events.add(storedEvent);
+        stream.version = storedEvent.getVersion();
+        appendToGlobalLog(storedEvent);
+    }
+    
+    public record EventPage(List<StoredEvent> events, long nextPosition, boolean endOfLog) {
     }
     
-    private long getNextVersion(String streamId) {
-        List<StoredEvent> stream = streams.get(streamId);
-        return stream == null ? 1 : stream.size() + 1;
+    private static final class EventStream {
+        private final List<StoredEvent> events = new ArrayList<>();
+        private long version = NO_STREAM;
     }
     
     public static class StoredEvent {
@@ -0,0 +1,65 @@
+package com.balazsholczer.eventstore;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures durable append throughput of the EventStore.
+ * Run with: java com.balazsholczer.eventstore.EventStoreBenchmark [events]
+ */
+public class EventStoreBenchmark {
+
+    record Tick(long sequence) {
+    }
+
+    // Hand-written codec: a fixed 8-byte payload instead of Java serialization
+    static class TickSerializer implements EventSerializer {
+        @Override
+        public byte[] serialize(Object event) {
+            return ByteBuffer.allocate(8).putLong(((Tick) event).sequence()).array();
+        }
+
+        @Override
+        public Object deserialize(String eventType, byte[] data) {
+            return new Tick(ByteBuffer.wrap(data).getLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("=== Event Store Append Benchmark ===");
+
+        // PERIODIC: one writer, fsync in the background
+        run(SegmentedEventLog.SyncMode.PERIODIC, 1, events);
+        // GROUP_COMMIT: every append waits for fsync, so throughput comes from many concurrent writers
+        run(SegmentedEventLog.SyncMode.GROUP_COMMIT, 256, events);
+    }
+
+    private static void run(SegmentedEventLog.SyncMode mode, int writers, int events) throws Exception {
+        Path directory = Files.createTempDirectory("event-store-bench");
+        int perWriter = events / writers;
+        try (EventStore store = EventStore.open(directory, new TickSerializer(), mode)) {
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int w = 0; w < writers; w++) {
+                    String streamId = "stream-" + w;
+                    executor.submit(() -> {
+                        for (int i = 0; i < perWriter; i++) {
+                            store.appendEvent(streamId, new Tick(i));
+                        }
+                    });
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%-12s %3d writer(s) %,d events in %,d ms = %,.0f appends/sec%n", mode, writers,
+                perWriter * writers, TimeUnit.NANOSECONDS.toMillis(elapsed), perWriter * writers / (elapsed / 1e9));
+        }
+        try (EventStore recovered = EventStore.open(directory, new TickSerializer(), mode)) {
+            System.out.println("Recovered " + recovered.getAllEvents().size() + " events");
+        }
+    }
+}
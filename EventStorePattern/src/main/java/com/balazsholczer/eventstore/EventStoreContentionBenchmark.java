@@ -0,0 +1,59 @@
+package com.balazsholczer.eventstore;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Many writers appending with expected versions, spread over few streams
+ * (heavy contention, many conflicts) versus many streams (striped locks,
+ * almost no conflicts).
+ * Run with: java com.balazsholczer.eventstore.EventStoreContentionBenchmark [writers] [appendsPerWriter]
+ */
+public class EventStoreContentionBenchmark {
+
+    record Tick(long sequence) {
+    }
+
+    public static void main(String[] args) {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int appendsPerWriter = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        System.out.println("=== Event Store Contention Benchmark ===");
+
+        for (int streamCount : new int[] {1, 4, writers}) {
+            run(writers, appendsPerWriter, streamCount);
+        }
+    }
+
+    private static void run(int writers, int appendsPerWriter, int streamCount) {
+        EventStore store = new EventStore();
+        LongAdder conflicts = new LongAdder();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.min(writers, 16))) {
+            for (int w = 0; w < writers; w++) {
+                String streamId = "stream-" + (w % streamCount);
+                executor.submit(() -> {
+                    for (int i = 0; i < appendsPerWriter; i++) {
+                        // Read-decide-write loop, as an aggregate would do
+                        while (true) {
+                            long version = store.getStreamVersion(streamId);
+                            try {
+                                store.appendEvent(streamId, version, new Tick(i));
+                                break;
+                            } catch (ConcurrencyException e) {
+                                conflicts.increment();
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long appends = (long) writers * appendsPerWriter;
+        System.out.printf("%3d writers on %3d stream(s): %,.0f appends/sec, %,d conflicts (%d ms)%n",
+            writers, streamCount, appends / (elapsed / 1e9), conflicts.sum(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+}
@@ -0,0 +1,42 @@
+package com.balazsholczer.eventstore;
+
+import java.util.Arrays;
+
+/**
+ * Growable, sorted array of global log positions. Primitive storage keeps an
+ * index over tens of millions of events to 4 bytes per entry.
+ */
+class PositionIndex {
+    private int[] positions = new int[16];
+    private int size;
+
+    void add(int position) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        positions[size++] = position;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return positions[index];
+    }
+
+    // Index of the first entry at or after the given position
+    int lowerBound(long position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] < position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
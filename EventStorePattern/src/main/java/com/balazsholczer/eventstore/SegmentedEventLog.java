@@ -0,0 +1,407 @@
+package com.balazsholczer.eventstore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only event log on fixed-size memory-mapped segment files.
+ *
+ * Record layout: [int bodyLength][int crc32c(body)][body], where body is
+ * an event count followed by that many events, each written as version,
+ * timestamp, event id, stream id, event type and the serialized payload.
+ * One record holds one appended batch, so recovery keeps a batch whole or
+ * drops it whole. A zero length marks the end of a segment. On open, records
+ * are replayed until the first torn or corrupt one; everything after it is
+ * discarded.
+ */
+public class SegmentedEventLog implements AutoCloseable {
+
+    public enum SyncMode {
+        PERIODIC,     // fsync every flush interval; commit() returns immediately
+        GROUP_COMMIT  // commit() waits for the next fsync, which covers every append made meanwhile
+    }
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final int END_MARKER_SIZE = 4;
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final EventSerializer serializer;
+    private final SyncMode syncMode;
+    private final long flushIntervalNanos;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    // Only used by recovery; encoding runs on the appending threads
+    private final CRC32C crc = new CRC32C();
+
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+    private volatile boolean open = true;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushed = flushLock.newCondition();
+    private final Thread flusher;
+
+    private SegmentedEventLog(Path directory, int segmentSize, EventSerializer serializer,
+                              SyncMode syncMode, long flushIntervalMs) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.serializer = serializer;
+        this.syncMode = syncMode;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.flusher = Thread.ofPlatform().name("event-log-flusher").daemon().unstarted(this::flushLoop);
+    }
+
+    /**
+     * Opens (or creates) the log in the given directory and replays every
+     * intact record to the consumer before returning.
+     */
+    public static SegmentedEventLog open(Path directory, EventSerializer serializer, SyncMode syncMode,
+                                         Consumer<EventStore.StoredEvent> recovered) {
+        return open(directory, DEFAULT_SEGMENT_SIZE, serializer, syncMode, 10, recovered);
+    }
+
+    public static SegmentedEventLog open(Path directory, int segmentSize, EventSerializer serializer,
+                                         SyncMode syncMode, long flushIntervalMs,
+                                         Consumer<EventStore.StoredEvent> recovered) {
+        SegmentedEventLog log = new SegmentedEventLog(directory, segmentSize, serializer, syncMode, flushIntervalMs);
+        try {
+            Files.createDirectories(directory);
+            log.recover(recovered);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open event log in " + directory, e);
+        }
+        log.flusher.start();
+        return log;
+    }
+
+    /**
+     * Serializes the events into a single record without touching the log,
+     * so callers can do it before taking their own locks. Fails if the
+     * record could never fit in a segment.
+     */
+    public Batch encode(List<EventStore.StoredEvent> events) {
+        List<EncodedEvent> encoded = new ArrayList<>(events.size());
+        int bodyLength = 4;
+        for (EventStore.StoredEvent event : events) {
+            EncodedEvent next = encodeEvent(event);
+            bodyLength = Math.addExact(bodyLength, next.size());
+            encoded.add(next);
+        }
+        if ((long) HEADER_SIZE + bodyLength + END_MARKER_SIZE > segmentSize) {
+            throw new IllegalArgumentException("Batch of " + (HEADER_SIZE + bodyLength) + " bytes exceeds segment size");
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+        record.position(HEADER_SIZE);
+        record.putInt(encoded.size());
+        for (EncodedEvent event : encoded) {
+            event.writeTo(record);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(record.array(), HEADER_SIZE, bodyLength);
+        record.putInt(0, bodyLength);
+        record.putInt(4, (int) checksum.getValue());
+        return new Batch(record.flip());
+    }
+
+    /**
+     * Appends an encoded batch as one record and returns its global position
+     * in the log. The batch is not necessarily durable yet - see
+     * {@link #commit()}.
+     */
+    public long append(Batch batch) {
+        ByteBuffer record = batch.record.duplicate();
+        synchronized (this) {
+            if (!open) {
+                throw new IllegalStateException("Event log is closed");
+            }
+            if (active.buffer.remaining() < record.remaining() + END_MARKER_SIZE) {
+                roll();
+            }
+            long position = active.basePosition + active.buffer.position();
+            active.buffer.put(record);
+            writtenPosition = active.basePosition + active.buffer.position();
+            return position;
+        }
+    }
+
+    /**
+     * In GROUP_COMMIT mode blocks until everything appended so far is on disk;
+     * concurrent committers share one fsync. In PERIODIC mode returns at once.
+     */
+    public void commit() {
+        if (syncMode == SyncMode.GROUP_COMMIT) {
+            awaitDurable(writtenPosition);
+        }
+    }
+
+    public long getWrittenPosition() {
+        return writtenPosition;
+    }
+
+    public long getDurablePosition() {
+        return durablePosition;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    private EncodedEvent encodeEvent(EventStore.StoredEvent event) {
+        return new EncodedEvent(event,
+            UUID.fromString(event.getEventId()),
+            encodeString("Stream id", event.getStreamId()),
+            encodeString("Event type", event.getEventType()),
+            serializer.serialize(event.getEventData()));
+    }
+
+    // Stream ids and event types are stored with an unsigned 16-bit length
+    private static byte[] encodeString(String what, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException(what + " of " + bytes.length + " bytes exceeds " + MAX_STRING_LENGTH);
+        }
+        return bytes;
+    }
+
+    private void decodeBatch(ByteBuffer body, Consumer<EventStore.StoredEvent> recovered) {
+        int count = body.getInt();
+        for (int i = 0; i < count; i++) {
+            recovered.accept(decode(body));
+        }
+    }
+
+    private EventStore.StoredEvent decode(ByteBuffer body) {
+        long version = body.getLong();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(body.getLong(), body.getInt(), ZoneOffset.UTC);
+        String eventId = new UUID(body.getLong(), body.getLong()).toString();
+        String streamId = readString(body, body.getShort() & 0xFFFF);
+        String eventType = readString(body, body.getShort() & 0xFFFF);
+        byte[] payload = new byte[body.getInt()];
+        body.get(payload);
+        return new EventStore.StoredEvent(eventId, streamId, eventType,
+            serializer.deserialize(eventType, payload), timestamp, version);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void recover(Consumer<EventStore.StoredEvent> recovered) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+
+        boolean corrupt = false;
+        for (Path file : files) {
+            if (corrupt) {
+                // Nothing after a torn record can be trusted
+                Files.delete(file);
+                continue;
+            }
+            Segment segment = Segment.map(file, segmentIndex(file) * segmentSize, segmentSize);
+            segments.add(segment);
+            active = segment;
+            corrupt = !replaySegment(segment, recovered);
+        }
+
+        if (active == null) {
+            active = Segment.map(segmentPath(0), 0, segmentSize);
+            segments.add(active);
+        }
+        writtenPosition = active.basePosition + active.buffer.position();
+        durablePosition = writtenPosition;
+    }
+
+    // Returns false if the segment ends in a torn or corrupt record
+    private boolean replaySegment(Segment segment, Consumer<EventStore.StoredEvent> recovered) {
+        MappedByteBuffer buffer = segment.buffer;
+        while (buffer.remaining() >= END_MARKER_SIZE) {
+            int start = buffer.position();
+            int bodyLength = buffer.getInt(start);
+            if (bodyLength == 0) {
+                return true;
+            }
+            if (bodyLength < 0 || start + HEADER_SIZE + bodyLength > buffer.limit() - END_MARKER_SIZE) {
+                truncate(segment, start);
+                return false;
+            }
+            crc.reset();
+            crc.update(buffer.slice(start + HEADER_SIZE, bodyLength));
+            if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+                truncate(segment, start);
+                return false;
+            }
+            decodeBatch(buffer.slice(start + HEADER_SIZE, bodyLength), recovered);
+            buffer.position(start + HEADER_SIZE + bodyLength);
+        }
+        return true;
+    }
+
+    private void truncate(Segment segment, int from) {
+        System.out.println("SegmentedEventLog: Discarding torn record at " + (segment.basePosition + from));
+        MappedByteBuffer buffer = segment.buffer;
+        for (int i = from; i < buffer.limit(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force();
+        buffer.position(from);
+    }
+
+    private void roll() {
+        // The end marker is already zero in a fresh mapping; make the full segment durable before moving on
+        active.buffer.force();
+        long index = active.basePosition / segmentSize + 1;
+        try {
+            active = Segment.map(segmentPath(index), index * segmentSize, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create segment " + index, e);
+        }
+        segments.add(active);
+    }
+
+    private void flushLoop() {
+        while (open) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            flush();
+        }
+    }
+
+    private void flush() {
+        Segment segment;
+        long target;
+        synchronized (this) {
+            segment = active;
+            target = writtenPosition;
+        }
+        if (target > durablePosition) {
+            segment.buffer.force();
+        }
+        flushLock.lock();
+        try {
+            durablePosition = Math.max(durablePosition, target);
+            flushed.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long position) {
+        LockSupport.unpark(flusher);
+        flushLock.lock();
+        try {
+            while (durablePosition < position && open) {
+                flushed.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /** A batch of events encoded as one log record, ready to append. */
+    public static final class Batch {
+        private final ByteBuffer record;
+
+        private Batch(ByteBuffer record) {
+            this.record = record;
+        }
+    }
+
+    private record EncodedEvent(EventStore.StoredEvent event, UUID eventId, byte[] streamId,
+                                byte[] eventType, byte[] payload) {
+
+        int size() {
+            return 8 + 8 + 4 + 16 + 2 + streamId.length + 2 + eventType.length + 4 + payload.length;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putLong(event.getVersion());
+            buffer.putLong(event.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(event.getTimestamp().getNano());
+            buffer.putLong(eventId.getMostSignificantBits());
+            buffer.putLong(eventId.getLeastSignificantBits());
+            buffer.putShort((short) streamId.length).put(streamId);
+            buffer.putShort((short) eventType.length).put(eventType);
+            buffer.putInt(payload.length).put(payload);
+        }
+    }
+
+    private static final class Segment {
+        private final long basePosition;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(long basePosition, FileChannel channel, MappedByteBuffer buffer) {
+            this.basePosition = basePosition;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private static Segment map(Path path, long basePosition, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(basePosition, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("SegmentedEventLog: Failed to close segment - " + e.getMessage());
+            }
+        }
+    }
+}
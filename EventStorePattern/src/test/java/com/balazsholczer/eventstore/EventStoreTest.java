@@ -0,0 +1,160 @@
+package com.balazsholczer.eventstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventStoreTest {
+
+    @Test
+    void testExactlyOneConcurrentWriterWinsTheExpectedVersion() throws InterruptedException {
+        int writers = 8;
+        for (int round = 0; round < 50; round++) {
+            EventStore store = new EventStore();
+            String accountId = "account-" + round;
+            store.appendEvent(accountId, EventStore.NO_STREAM, opened(accountId));
+
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger winners = new AtomicInteger();
+            List<ConcurrencyException> conflicts = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                        // A batch of three, so a partly applied loser would show up in the version
+                        store.appendEvent(accountId, 1, deposit(accountId), deposit(accountId), deposit(accountId));
+                        winners.incrementAndGet();
+                    } catch (ConcurrencyException e) {
+                        synchronized (conflicts) {
+                            conflicts.add(e);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(1, winners.get());
+            assertEquals(writers - 1, conflicts.size());
+            for (ConcurrencyException conflict : conflicts) {
+                assertEquals(accountId, conflict.getStreamId());
+                assertEquals(1, conflict.getExpectedVersion());
+                assertEquals(4, conflict.getActualVersion());
+            }
+            assertEquals(4, store.getStreamVersion(accountId));
+            assertEquals(4, store.getEventStream(accountId).size());
+            assertEquals(4, store.getAllEvents().size());
+        }
+    }
+
+    @Test
+    void testFailedAppendLeavesNoStreamBehind() {
+        EventStore store = new EventStore();
+        assertThrows(ConcurrencyException.class, () -> store.appendEvent("missing", 3, deposit("missing")));
+        assertEquals(EventStore.NO_STREAM, store.getStreamVersion("missing"));
+        assertTrue(store.getAllEvents().isEmpty());
+        assertEquals(1, store.appendEvent("missing", EventStore.NO_STREAM, opened("missing")));
+    }
+
+    @Test
+    void testReadFromPagesThroughTheLogAcrossSegments(@TempDir Path directory) throws IOException {
+        writeAccounts(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 2, "the log spans several segments");
+        }
+        try (EventStore store = openSmallSegments(directory)) {
+            List<EventStore.StoredEvent> all = store.getAllEvents();
+            assertEquals(120, all.size());
+
+            // Starting mid-segment, in pages that do not line up with record or segment boundaries
+            List<EventStore.StoredEvent> paged = new ArrayList<>();
+            long position = 37;
+            EventStore.EventPage page;
+            do {
+                page = store.readFrom(position, 7);
+                assertTrue(page.events().size() <= 7);
+                paged.addAll(page.events());
+                position = page.nextPosition();
+            } while (!page.endOfLog());
+            assertEquals(all.subList(37, 120), paged);
+            assertEquals(120, position);
+
+            assertTrue(store.readFrom(120, 7).events().isEmpty());
+            assertTrue(store.readFrom(120, 7).endOfLog());
+            assertEquals(all.subList(50, 120), store.streamFrom(50).toList());
+        }
+    }
+
+    @Test
+    void testReadByTypeUsesGlobalPositions(@TempDir Path directory) throws IOException {
+        writeAccounts(directory);
+        try (EventStore store = openSmallSegments(directory)) {
+            List<EventStore.StoredEvent> all = store.getAllEvents();
+            List<EventStore.StoredEvent> withdrawals = all.stream()
+                .filter(event -> event.getEventType().equals("MoneyWithdrawn")).toList();
+
+            // Position 41 falls between two withdrawals, so the first page starts at the next one
+            List<EventStore.StoredEvent> paged = new ArrayList<>();
+            long position = 41;
+            EventStore.EventPage page;
+            do {
+                page = store.readByType("MoneyWithdrawn", position, 4);
+                paged.addAll(page.events());
+                position = page.nextPosition();
+            } while (!page.endOfLog());
+            List<EventStore.StoredEvent> expected = withdrawals.stream()
+                .filter(event -> all.indexOf(event) >= 41).toList();
+            assertEquals(expected, paged);
+            assertEquals(withdrawals, store.streamByType("MoneyWithdrawn", 0).toList());
+            assertEquals(withdrawals, store.getEventsByType("MoneyWithdrawn"));
+
+            EventStore.EventPage unknown = store.readByType("AccountClosed", 10, 4);
+            assertTrue(unknown.events().isEmpty());
+            assertTrue(unknown.endOfLog());
+        }
+    }
+
+    // Four accounts, each opened and then alternating deposits and withdrawals: 120 events
+    private static void writeAccounts(Path directory) {
+        try (EventStore store = openSmallSegments(directory)) {
+            for (int i = 0; i < 29; i++) {
+                for (int account = 0; account < 4; account++) {
+                    String accountId = "account-" + account;
+                    if (i == 0) {
+                        store.appendEvent(accountId, opened(accountId));
+                    }
+                    store.appendEvent(accountId, i % 2 == 0 ? deposit(accountId)
+                        : new AccountEvents.MoneyWithdrawn(accountId, BigDecimal.ONE));
+                }
+            }
+        }
+    }
+
+    private static EventStore openSmallSegments(Path directory) {
+        return EventStore.open(directory, 4096, new AccountEventSerializer(), SegmentedEventLog.SyncMode.PERIODIC);
+    }
+
+    private static AccountEvents.AccountOpened opened(String accountId) {
+        return new AccountEvents.AccountOpened(accountId, "Holder", BigDecimal.TEN);
+    }
+
+    private static AccountEvents.MoneyDeposited deposit(String accountId) {
+        return new AccountEvents.MoneyDeposited(accountId, BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,192 @@
+package com.balazsholczer.eventstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedEventLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCorruptTailRecordIsDiscardedOnReopen() throws IOException {
+        long lastRecord;
+        try (SegmentedEventLog log = open(new ArrayList<>())) {
+            append(log, 1);
+            append(log, 2);
+            lastRecord = log.getWrittenPosition();
+            append(log, 3);
+        }
+        // Flip a byte in the last record's body, so its CRC no longer matches
+        ByteBuffer flipped = read(lastRecord + 8 + 4, 1);
+        write(lastRecord + 8 + 4, new byte[]{(byte) ~flipped.get(0)});
+
+        List<EventStore.StoredEvent> recovered = new ArrayList<>();
+        try (SegmentedEventLog log = open(recovered)) {
+            assertEquals(List.of(1L, 2L), versions(recovered));
+            assertEquals(lastRecord, log.getWrittenPosition());
+            append(log, 3);
+        }
+
+        recovered.clear();
+        try (SegmentedEventLog ignored = open(recovered)) {
+            assertEquals(List.of(1L, 2L, 3L), versions(recovered));
+        }
+    }
+
+    @Test
+    void testTornTailRecordIsDiscardedOnReopen() throws IOException {
+        long end;
+        try (SegmentedEventLog log = open(new ArrayList<>())) {
+            append(log, 1);
+            end = log.getWrittenPosition();
+        }
+        // A crash mid-write: the header made it to disk but not the whole body
+        write(end, ByteBuffer.allocate(12).putInt(200).putInt(0x1234).putInt(1).array());
+
+        List<EventStore.StoredEvent> recovered = new ArrayList<>();
+        try (SegmentedEventLog log = open(recovered)) {
+            assertEquals(List.of(1L), versions(recovered));
+            assertEquals(end, log.getWrittenPosition());
+        }
+        assertEquals(0, read(end, 12).getInt(8), "torn bytes are zeroed");
+    }
+
+    @Test
+    void testRecordsRollOverIntoNewSegments() throws IOException {
+        try (SegmentedEventLog log = open(new ArrayList<>())) {
+            for (int version = 1; version <= 200; version++) {
+                append(log, version);
+            }
+            assertTrue(log.getWrittenPosition() > 3L * SEGMENT_SIZE);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 3);
+        }
+
+        List<EventStore.StoredEvent> recovered = new ArrayList<>();
+        try (SegmentedEventLog ignored = open(recovered)) {
+            assertEquals(200, recovered.size());
+            for (int i = 0; i < recovered.size(); i++) {
+                assertEquals(i + 1, recovered.get(i).getVersion());
+            }
+            AccountEvents.MoneyDeposited last = (AccountEvents.MoneyDeposited) recovered.get(199).getEventData();
+            assertEquals(new BigDecimal("200.50"), last.amount);
+        }
+    }
+
+    @Test
+    void testBatchTooLargeForASegmentIsRejected() {
+        try (SegmentedEventLog log = open(new ArrayList<>())) {
+            List<EventStore.StoredEvent> batch = new ArrayList<>();
+            for (int version = 1; version <= 100; version++) {
+                batch.add(event(version));
+            }
+            assertThrows(IllegalArgumentException.class, () -> log.encode(batch));
+        }
+    }
+
+    @Test
+    void testConcurrentAppendsSurviveReopen() throws InterruptedException {
+        int writers = 8;
+        int eventsPerWriter = 500;
+        List<EventStore.StoredEvent> written;
+        try (EventStore store = EventStore.open(directory, new AccountEventSerializer(), SegmentedEventLog.SyncMode.PERIODIC)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                String accountId = "account-" + w;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int i = 0; i < eventsPerWriter; i++) {
+                        store.appendEvent(accountId, new AccountEvents.MoneyDeposited(accountId, BigDecimal.valueOf(i)));
+                    }
+                }));
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            written = store.getAllEvents();
+        }
+
+        try (EventStore reopened = EventStore.open(directory, new AccountEventSerializer(), SegmentedEventLog.SyncMode.PERIODIC)) {
+            List<EventStore.StoredEvent> recovered = reopened.getAllEvents();
+            assertEquals(writers * eventsPerWriter, recovered.size());
+            for (int i = 0; i < recovered.size(); i++) {
+                assertEquals(written.get(i).getEventId(), recovered.get(i).getEventId());
+            }
+            for (int w = 0; w < writers; w++) {
+                List<EventStore.StoredEvent> stream = reopened.getEventStream("account-" + w);
+                assertEquals(eventsPerWriter, reopened.getStreamVersion("account-" + w));
+                for (int i = 0; i < stream.size(); i++) {
+                    assertEquals(i + 1, stream.get(i).getVersion());
+                    assertEquals(BigDecimal.valueOf(i), ((AccountEvents.MoneyDeposited) stream.get(i).getEventData()).amount);
+                }
+            }
+        }
+    }
+
+    private SegmentedEventLog open(List<EventStore.StoredEvent> recovered) {
+        return SegmentedEventLog.open(directory, SEGMENT_SIZE, new AccountEventSerializer(),
+            SegmentedEventLog.SyncMode.GROUP_COMMIT, 1, recovered::add);
+    }
+
+    private static void append(SegmentedEventLog log, long version) {
+        log.append(log.encode(List.of(event(version))));
+        log.commit();
+    }
+
+    private static EventStore.StoredEvent event(long version) {
+        return new EventStore.StoredEvent(UUID.randomUUID().toString(), "account-1", "MoneyDeposited",
+            new AccountEvents.MoneyDeposited("account-1", new BigDecimal(version + ".50")), LocalDateTime.now(), version);
+    }
+
+    private static List<Long> versions(List<EventStore.StoredEvent> events) {
+        return events.stream().map(EventStore.StoredEvent::getVersion).toList();
+    }
+
+    // Everything in these tests fits in the first segment
+    private ByteBuffer read(long position, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(firstSegment(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            channel.read(buffer, position);
+            return buffer.flip();
+        }
+    }
+
+    private void write(long position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(firstSegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+            channel.force(true);
+        }
+    }
+
+    private Path firstSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().findFirst().orElseThrow();
+        }
+    }
+}
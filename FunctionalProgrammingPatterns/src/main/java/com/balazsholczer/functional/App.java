@@ -178,6 +178,16 @@ public class App {
         System.out.println("Doubled: " + doubled);
         System.out.println("Evens: " + evens);
         System.out.println("Extended: " + extended);
+        
+        ImmutableList<Integer> appended = list.append(6);
+        ImmutableList<Integer> large = Unfold.range(0, 1_000_000);
+        System.out.println("Appended: " + appended + " (original still " + list + ")");
+        System.out.println("Element 765432 of a million: " + large.get(765_432));
+        System.out.println("Sum of a million after map: " + large.map(x -> x % 10).foldLeft(0, Integer::sum));
+        
+        IntImmutableList primitives = IntImmutableList.range(1, 11);
+        System.out.println("Unboxed squares: " + primitives.map(x -> x * x));
+        System.out.println("Fused even Fibonacci numbers: " + IntStream.fibonacci().filter(x -> x % 2 == 0).take(8));
     }
     
     private static void demonstrateLazyEvaluation() {
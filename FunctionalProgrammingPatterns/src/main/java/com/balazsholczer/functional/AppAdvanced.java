@@ -100,6 +100,29 @@ public class AppAdvanced {
         System.out.println("IO created (not executed yet)");
         String result = greeting.unsafeRun();
         System.out.println("IO executed, result: " + result);
+
+        IO<Integer> counter = IO.pure(0);
+        for (int i = 0; i < 1_000_000; i++) {
+            counter = counter.flatMap(x -> IO.pure(x + 1));
+        }
+        System.out.println("1,000,000 chained flatMaps: " + counter.unsafeRun());
+
+        IO<Either<String, String>> race = IO.race(
+            IO.sleep(java.time.Duration.ofMillis(10)).then(IO.pure("fast")),
+            IO.sleep(java.time.Duration.ofSeconds(10)).then(IO.pure("slow")));
+        System.out.println("Race winner: " + race.unsafeRun());
+
+        IO<java.util.List<Integer>> lengths = IO.parTraverse(java.util.List.of("fiber", "on", "virtual", "threads"),
+            word -> IO.delay(word::length));
+        System.out.println("parTraverse lengths: " + lengths.unsafeRun());
+
+        StringBuilder log = new StringBuilder();
+        IO<String> resource = IO.bracket(
+            IO.delay(() -> log.append("open ")),
+            builder -> IO.<String>raiseError(new IllegalStateException("read failed")),
+            builder -> IO.delay(() -> log.append("close")));
+        System.out.println("Bracket: " + resource.attempt().unsafeRun().isLeft() + " failed, log: " + log);
+        System.out.println("✅ Stack-safe run loop, fibers on virtual threads, cancellation with guaranteed release");
     }
 
     public static void demonstrateFreePattern() {
@@ -110,6 +133,41 @@ public class AppAdvanced {
         Free<Integer> program = step2.flatMap(s -> Free.pure(42));
 
         System.out.println("Free monad program (interpreted): " + program.interpret());
+
+        java.util.Map<String, Integer> store = new java.util.HashMap<>(java.util.Map.of("a", 1, "b", 2, "c", 3));
+        int[] batches = {0};
+        FreeInterpreter interpreter = FreeInterpreter.builder()
+            .onBatch(Get.class, gets -> {
+                batches[0]++;
+                return gets.stream().map(get -> store.getOrDefault(get.key(), 0)).toList();
+            })
+            .on(Put.class, put -> {
+                store.put(put.key(), put.value());
+                return put.value();
+            })
+            .build();
+
+        Free<Integer> total = Free.sequence(java.util.List.of(get("a"), get("b"), get("c")))
+            .map(values -> values.stream().mapToInt(Integer::intValue).sum())
+            .flatMap(sum -> Free.suspend(new Put("total", sum)));
+        System.out.println("Store program: " + total.run(interpreter) + " (3 gets in " + batches[0] + " batch)");
+
+        Free<Integer> counter = Free.pure(0);
+        for (int i = 0; i < 1_000_000; i++) {
+            counter = counter.flatMap(x -> Free.pure(x + 1));
+        }
+        System.out.println("1,000,000 left-nested binds: " + counter.interpret());
+        System.out.println("✅ O(1) binds, stack-safe interpretation, batched independent instructions");
+    }
+
+    private record Get(String key) implements Free.Instruction<Integer> {
+    }
+
+    private record Put(String key, int value) implements Free.Instruction<Integer> {
+    }
+
+    private static Free<Integer> get(String key) {
+        return Free.suspend(new Get(key));
     }
 
     public static void demonstrateZipperPattern() {
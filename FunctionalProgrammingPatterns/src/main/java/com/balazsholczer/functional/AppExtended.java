@@ -46,6 +46,12 @@ public class AppExtended {
                 .take(5);
 
         System.out.println("First 5 even numbers: " + evens);
+
+        // Fused map/filter stages: a sparse filter no longer recurses per rejected element
+        int millionth = Stream.from(1).filter(x -> x % 1_000_000 == 0).head();
+        long evenSquares = Stream.range(0, 1_000).parallel().filter(x -> x % 2 == 0).map(x -> (long) x * x).reduce(0L, Long::sum);
+        System.out.println("First multiple of a million: " + millionth);
+        System.out.println("Sum of even squares below 1000 (parallel): " + evenSquares);
     }
     
     private static void printStream(Stream<Integer> stream) {
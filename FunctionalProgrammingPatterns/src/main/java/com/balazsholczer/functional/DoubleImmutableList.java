@@ -0,0 +1,248 @@
+package com.balazsholczer.functional;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Immutable list of double values kept unboxed in an array. tail, take and drop
+ * are views sharing that array; map and filter write a new array in one pass.
+ * prepend and append copy, so build larger lists with the Builder.
+ */
+public final class DoubleImmutableList {
+
+    // Largest array the VM reliably allocates
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final double[] NO_ELEMENTS = new double[0];
+    private static final DoubleImmutableList EMPTY = new DoubleImmutableList(NO_ELEMENTS, 0, 0);
+
+    private final double[] elements;
+    private final int offset;
+    private final int size;
+
+    private DoubleImmutableList(double[] elements, int offset, int size) {
+        this.elements = elements;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public static DoubleImmutableList empty() {
+        return EMPTY;
+    }
+
+    public static DoubleImmutableList of(double... elements) {
+        return elements.length == 0 ? EMPTY : new DoubleImmutableList(elements.clone(), 0, elements.length);
+    }
+
+    public static DoubleImmutableList copyOf(ImmutableList<Double> list) {
+        double[] copy = new double[list.size()];
+        int i = 0;
+        for (Double element : list) {
+            copy[i++] = element;
+        }
+        return wrap(copy, copy.length);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Takes ownership of the array
+    static DoubleImmutableList wrap(double[] elements, int size) {
+        return size == 0 ? EMPTY : new DoubleImmutableList(elements, 0, size);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double head() {
+        if (size == 0) {
+            throw new UnsupportedOperationException("Empty list has no head");
+        }
+        return elements[offset];
+    }
+
+    public DoubleImmutableList tail() {
+        if (size == 0) {
+            throw new UnsupportedOperationException("Empty list has no tail");
+        }
+        return drop(1);
+    }
+
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return elements[offset + index];
+    }
+
+    public DoubleImmutableList take(int n) {
+        if (n <= 0) return EMPTY;
+        if (n >= size) return this;
+        return new DoubleImmutableList(elements, offset, n);
+    }
+
+    public DoubleImmutableList drop(int n) {
+        if (n <= 0) return this;
+        if (n >= size) return EMPTY;
+        return new DoubleImmutableList(elements, offset + n, size - n);
+    }
+
+    public DoubleImmutableList map(DoubleUnaryOperator mapper) {
+        double[] mapped = new double[size];
+        for (int i = 0; i < size; i++) {
+            mapped[i] = mapper.applyAsDouble(elements[offset + i]);
+        }
+        return wrap(mapped, size);
+    }
+
+    public DoubleImmutableList filter(DoublePredicate predicate) {
+        double[] kept = new double[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            double element = elements[offset + i];
+            if (predicate.test(element)) {
+                kept[count++] = element;
+            }
+        }
+        if (count == size) {
+            return this;
+        }
+        return wrap(count < size / 2 ? Arrays.copyOf(kept, count) : kept, count);
+    }
+
+    public <U> ImmutableList<U> mapToObj(DoubleFunction<U> mapper) {
+        ImmutableList.Builder<U> builder = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(mapper.apply(elements[offset + i]));
+        }
+        return builder.build();
+    }
+
+    public ImmutableList<Double> boxed() {
+        return mapToObj(Double::valueOf);
+    }
+
+    public double foldLeft(double identity, DoubleBinaryOperator accumulator) {
+        double result = identity;
+        for (int i = 0; i < size; i++) {
+            result = accumulator.applyAsDouble(result, elements[offset + i]);
+        }
+        return result;
+    }
+
+    public double sum() {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += elements[offset + i];
+        }
+        return sum;
+    }
+
+    public void forEach(DoubleConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[offset + i]);
+        }
+    }
+
+    public DoubleImmutableList prepend(double element) {
+        double[] copy = new double[size + 1];
+        copy[0] = element;
+        System.arraycopy(elements, offset, copy, 1, size);
+        return wrap(copy, copy.length);
+    }
+
+    public DoubleImmutableList append(double element) {
+        double[] copy = Arrays.copyOfRange(elements, offset, offset + size + 1);
+        copy[size] = element;
+        return wrap(copy, copy.length);
+    }
+
+    public DoubleImmutableList reverse() {
+        double[] reversed = new double[size];
+        for (int i = 0; i < size; i++) {
+            reversed[i] = elements[offset + size - 1 - i];
+        }
+        return wrap(reversed, size);
+    }
+
+    public double[] toArray() {
+        return Arrays.copyOfRange(elements, offset, offset + size);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof DoubleImmutableList other)) return false;
+        return Arrays.equals(elements, offset, offset + size, other.elements, other.offset, other.offset + other.size);
+    }
+
+    // Same formula as ImmutableList, so a list and its boxed() copy hash alike
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Double.hashCode(elements[offset + i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements[offset + i]);
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * Growable buffer for building a list without boxing. build() copies, so
+     * the builder can keep adding afterwards.
+     */
+    public static final class Builder {
+        private double[] buffer = new double[16];
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder add(double element) {
+            if (size == buffer.length) {
+                if (size == MAX_SIZE) {
+                    throw new IllegalStateException("List cannot hold more than " + MAX_SIZE + " elements");
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min(2L * size, MAX_SIZE));
+            }
+            buffer[size++] = element;
+            return this;
+        }
+
+        public Builder addAll(DoubleImmutableList list) {
+            for (int i = 0; i < list.size; i++) {
+                add(list.elements[list.offset + i]);
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public DoubleImmutableList build() {
+            return wrap(Arrays.copyOf(buffer, size), size);
+        }
+    }
+}
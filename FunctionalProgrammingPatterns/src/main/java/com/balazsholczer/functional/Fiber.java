@@ -0,0 +1,407 @@
+package com.balazsholczer.functional;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A running IO program.
+ *
+ * Each fiber reduces its program in a loop, keeping pending continuations,
+ * error handlers and finalizers on an explicit stack. Forked fibers get a
+ * virtual thread of their own, so waiting - on an async callback, a sleep or
+ * another fiber - simply parks that thread.
+ *
+ * join waits for the outcome and re-raises an error; a canceled fiber's join
+ * raises CancellationException. cancel requests cancellation and waits until
+ * the fiber's finalizers have run.
+ */
+public final class Fiber<T> {
+
+    // Returned by the loop in place of a value once the fiber has been canceled
+    private static final Object CANCELED = new Object();
+
+    private final IO<T> program;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private volatile boolean canceled;
+    private volatile Thread thread;
+    // Depth of uncancelable regions; only touched by the fiber's own thread
+    private int masks;
+    // Set while an interruptible block may be interrupted; guarded by this
+    private Thread interruptibleThread;
+
+    Fiber(IO<T> program) {
+        this.program = program;
+    }
+
+    public IO<T> join() {
+        return IO.async(callback -> result.whenComplete((value, error) ->
+            callback.accept(error == null ? Either.right(value) : Either.left(error))));
+    }
+
+    public IO<Void> cancel() {
+        return IO.<Void>delay(() -> {
+            requestCancel();
+            return null;
+        }).then(IO.async(callback -> result.whenComplete((value, error) -> callback.accept(Either.right(null)))));
+    }
+
+    void start() {
+        Thread.ofVirtual().start(this::runOnThread);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runOnThread() {
+        thread = Thread.currentThread();
+        try {
+            Object value = runLoop(program);
+            if (value == CANCELED) {
+                result.completeExceptionally(new CancellationException("Fiber was canceled"));
+            } else {
+                result.complete((T) value);
+            }
+        } catch (Throwable error) {
+            result.completeExceptionally(error);
+        }
+    }
+
+    // Runs the program on the calling thread, for IO.unsafeRun
+    @SuppressWarnings("unchecked")
+    T runHere() {
+        thread = Thread.currentThread();
+        Object value;
+        try {
+            value = runLoop(program);
+        } catch (RuntimeException | Error error) {
+            throw error;
+        } catch (Throwable error) {
+            throw new RuntimeException(error);
+        }
+        if (value == CANCELED) {
+            throw new CancellationException("Program was canceled");
+        }
+        return (T) value;
+    }
+
+    private void requestCancel() {
+        synchronized (this) {
+            canceled = true;
+            if (interruptibleThread != null) {
+                interruptibleThread.interrupt();
+            }
+        }
+        Thread current = thread;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    private boolean cancelPending() {
+        return canceled && masks == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object runLoop(IO<?> start) throws Throwable {
+        ArrayDeque<IO<?>> stack = new ArrayDeque<>();
+        IO<?> current = start;
+        while (true) {
+            if (cancelPending()) {
+                unwindCanceled(stack);
+                return CANCELED;
+            }
+
+            // Descend to the next step, pushing what has to happen with its result
+            Object value = null;
+            Throwable error = null;
+            if (current instanceof IO.Pure<?> pure) {
+                value = pure.value;
+            } else if (current instanceof IO.FlatMapped<?, ?> flatMapped) {
+                stack.push(flatMapped);
+                current = flatMapped.source;
+                continue;
+            } else if (current instanceof IO.Mapped<?, ?> mapped) {
+                stack.push(mapped);
+                current = mapped.source;
+                continue;
+            } else if (current instanceof IO.HandleErrorWith<?> handleErrorWith) {
+                stack.push(handleErrorWith);
+                current = handleErrorWith.source;
+                continue;
+            } else if (current instanceof IO.Guarantee<?> guarantee) {
+                stack.push(guarantee);
+                current = guarantee.source;
+                continue;
+            } else if (current instanceof IO.Uncancelable<?> uncancelable) {
+                masks++;
+                stack.push(uncancelable);
+                current = uncancelable.source;
+                continue;
+            } else if (current instanceof IO.Bracket<?, ?> bracket) {
+                masks++;
+                stack.push(bracket);
+                current = bracket.acquire;
+                continue;
+            } else {
+                try {
+                    value = step(current);
+                } catch (Throwable t) {
+                    error = t;
+                }
+                if (value == CANCELED) {
+                    continue;
+                }
+            }
+
+            // Unwind the stack with the value or error until a frame supplies the next program
+            current = null;
+            while (current == null) {
+                IO<?> frame = stack.poll();
+                if (frame == null) {
+                    if (error != null) {
+                        throw error;
+                    }
+                    return value;
+                }
+                if (error == null) {
+                    try {
+                        if (frame instanceof IO.FlatMapped<?, ?> flatMapped) {
+                            current = Objects.requireNonNull(
+                                ((Function<Object, IO<?>>) (Function<?, ?>) flatMapped.next).apply(value),
+                                "flatMap returned null");
+                        } else if (frame instanceof IO.Mapped<?, ?> mapped) {
+                            value = ((Function<Object, Object>) (Function<?, ?>) mapped.mapper).apply(value);
+                        } else if (frame instanceof IO.Guarantee<?> guarantee) {
+                            if (!guarantee.onCancelOnly) {
+                                error = runFinalizer(guarantee.finalizer);
+                            }
+                        } else if (frame instanceof IO.Uncancelable<?>) {
+                            masks--;
+                        } else if (frame instanceof IO.Bracket<?, ?> bracket) {
+                            // Acquired: the release is registered before use can be canceled
+                            masks--;
+                            IO<?> release = ((Function<Object, IO<?>>) (Function<?, ?>) bracket.release).apply(value);
+                            stack.push(new IO.Guarantee<>(null, release, false));
+                            current = ((Function<Object, IO<?>>) (Function<?, ?>) bracket.use).apply(value);
+                        }
+                    } catch (Throwable t) {
+                        error = t;
+                    }
+                } else {
+                    if (frame instanceof IO.HandleErrorWith<?> handleErrorWith) {
+                        try {
+                            current = Objects.requireNonNull(handleErrorWith.handler.apply(error), "handler returned null");
+                        } catch (Throwable t) {
+                            error = t;
+                        }
+                    } else if (frame instanceof IO.Guarantee<?> guarantee) {
+                        if (!guarantee.onCancelOnly) {
+                            Throwable finalizerError = runFinalizer(guarantee.finalizer);
+                            if (finalizerError != null && finalizerError != error) {
+                                error.addSuppressed(finalizerError);
+                            }
+                        }
+                    } else if (frame instanceof IO.Uncancelable<?> || frame instanceof IO.Bracket<?, ?>) {
+                        masks--;
+                    }
+                }
+            }
+        }
+    }
+
+    // Runs a leaf step: a thunk, an error, a wait or a fork
+    @SuppressWarnings("unchecked")
+    private Object step(IO<?> current) throws Throwable {
+        if (current instanceof IO.Delay<?> delay) {
+            return delay.thunk.get();
+        } else if (current instanceof IO.RaiseError<?> raiseError) {
+            throw raiseError.error;
+        } else if (current instanceof IO.Async<?> async) {
+            CompletableFuture<Either<Throwable, Object>> slot = new CompletableFuture<>();
+            ((Consumer<Consumer<Either<Throwable, Object>>>) (Consumer<?>) async.register).accept(slot::complete);
+            if (!await(slot, true)) {
+                return CANCELED;
+            }
+            Either<Throwable, Object> outcome = slot.join();
+            if (outcome.isLeft()) {
+                throw outcome.getLeft();
+            }
+            return outcome.getRight();
+        } else if (current instanceof IO.Sleep sleep) {
+            return sleep(sleep.nanos) ? null : CANCELED;
+        } else if (current instanceof IO.Interruptible<?> interruptible) {
+            return runInterruptibly(interruptible);
+        } else if (current instanceof IO.Fork<?> fork) {
+            Fiber<?> child = new Fiber<>(fork.source);
+            child.start();
+            return child;
+        } else if (current instanceof IO.Race<?, ?> race) {
+            return race((IO<Object>) race.left, (IO<Object>) race.right);
+        } else if (current instanceof IO.Par<?> par) {
+            return par((List<IO<Object>>) (List<?>) par.programs);
+        }
+        throw new IllegalStateException("Unknown IO node: " + current.getClass().getName());
+    }
+
+    private Throwable runFinalizer(IO<?> finalizer) {
+        masks++;
+        try {
+            runLoop(finalizer);
+            return null;
+        } catch (Throwable error) {
+            return error;
+        } finally {
+            masks--;
+        }
+    }
+
+    // Nothing below an unmasked frame can be uncancelable, so only finalizers matter here
+    private void unwindCanceled(ArrayDeque<IO<?>> stack) {
+        IO<?> frame;
+        while ((frame = stack.poll()) != null) {
+            if (frame instanceof IO.Guarantee<?> guarantee) {
+                runFinalizer(guarantee.finalizer);
+            }
+        }
+    }
+
+    // Parks until the future completes; false if the fiber was canceled first
+    private boolean await(CompletableFuture<?> future, boolean cancelable) {
+        if (future.isDone()) {
+            return true;
+        }
+        Thread waiter = Thread.currentThread();
+        future.whenComplete((value, error) -> LockSupport.unpark(waiter));
+        while (!future.isDone()) {
+            if (cancelable) {
+                if (Thread.interrupted()) {
+                    canceled = true;
+                }
+                if (cancelPending()) {
+                    return false;
+                }
+            }
+            LockSupport.park(this);
+        }
+        return true;
+    }
+
+    private boolean sleep(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            if (Thread.interrupted()) {
+                canceled = true;
+            }
+            if (cancelPending()) {
+                return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private Object runInterruptibly(IO.Interruptible<?> interruptible) {
+        synchronized (this) {
+            if (cancelPending()) {
+                return CANCELED;
+            }
+            if (masks == 0) {
+                interruptibleThread = Thread.currentThread();
+            }
+        }
+        try {
+            return interruptible.thunk.get();
+        } catch (RuntimeException | Error error) {
+            if (cancelPending()) {
+                return CANCELED;
+            }
+            throw error;
+        } finally {
+            synchronized (this) {
+                interruptibleThread = null;
+            }
+            if (canceled) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private Object race(IO<Object> leftProgram, IO<Object> rightProgram) throws Throwable {
+        Fiber<Object> left = new Fiber<>(leftProgram);
+        Fiber<Object> right = new Fiber<>(rightProgram);
+        left.start();
+        right.start();
+        CompletableFuture<Fiber<Object>> first = new CompletableFuture<>();
+        left.result.whenComplete((value, error) -> first.complete(left));
+        right.result.whenComplete((value, error) -> first.complete(right));
+        if (!await(first, true)) {
+            cancelAll(List.of(left, right));
+            return CANCELED;
+        }
+        Fiber<Object> winner = first.join();
+        cancelAll(List.of(winner == left ? right : left));
+        Object value = outcome(winner);
+        return winner == left ? Either.left(value) : Either.right(value);
+    }
+
+    private Object par(List<IO<Object>> programs) throws Throwable {
+        if (programs.isEmpty()) {
+            return List.of();
+        }
+        List<Fiber<Object>> children = programs.stream().map(Fiber::new).toList();
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(children.size());
+        AtomicReference<Fiber<Object>> firstFailure = new AtomicReference<>();
+        for (Fiber<Object> child : children) {
+            child.result.whenComplete((value, error) -> {
+                if (error != null) {
+                    firstFailure.compareAndSet(null, child);
+                    settled.complete(null);
+                } else if (remaining.decrementAndGet() == 0) {
+                    settled.complete(null);
+                }
+            });
+            child.start();
+        }
+        if (!await(settled, true)) {
+            cancelAll(children);
+            return CANCELED;
+        }
+        Fiber<Object> failed = firstFailure.get();
+        if (failed != null) {
+            cancelAll(children);
+            return outcome(failed);
+        }
+        Object[] values = new Object[children.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = children.get(i).result.join();
+        }
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    // Cancels the fibers and waits, uncancelably, until they have finished
+    private void cancelAll(List<Fiber<Object>> fibers) {
+        fibers.forEach(Fiber::requestCancel);
+        fibers.forEach(fiber -> await(fiber.result, false));
+    }
+
+    private static Object outcome(Fiber<Object> fiber) throws Throwable {
+        try {
+            return fiber.result.join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -2,24 +2,32 @@ package com.balazsholczer.functional;
 
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
 
 public class Fold {
 
     // Left fold: (((identity op x1) op x2) op x3) ...
     public static <T, R> R foldLeft(ImmutableList<T> list, R identity, BiFunction<R, T, R> accumulator) {
         R result = identity;
-        ImmutableList<T> current = list;
-        while (!current.isEmpty()) {
-            result = accumulator.apply(result, current.head());
-            current = current.tail();
+        for (T element : list) {
+            result = accumulator.apply(result, element);
         }
         return result;
     }
 
     // Right fold: x1 op (x2 op (x3 op identity) ...)
     public static <T, R> R foldRight(ImmutableList<T> list, R identity, BiFunction<T, R, R> f) {
-        if (list.isEmpty()) return identity;
-        return f.apply(list.head(), foldRight(list.tail(), identity, f));
+        // Walks an array copy backwards rather than recursing, so long lists cannot overflow the stack
+        Object[] elements = list.toArray();
+        R result = identity;
+        for (int i = elements.length - 1; i >= 0; i--) {
+            @SuppressWarnings("unchecked")
+            T element = (T) elements[i];
+            result = f.apply(element, result);
+        }
+        return result;
     }
 
     // Reduce (non-empty list) using a binary operator
@@ -38,4 +46,49 @@ public class Fold {
     public static <T> T sum(ImmutableList<T> list, T identity, BinaryOperator<T> add) {
         return foldLeft(list, identity, add::apply);
     }
-}
\ No newline at end of file
+
+    // Primitive overloads: the same folds without boxing each element
+
+    public static int foldLeft(IntImmutableList list, int identity, IntBinaryOperator accumulator) {
+        return list.foldLeft(identity, accumulator);
+    }
+
+    public static long foldLeft(LongImmutableList list, long identity, LongBinaryOperator accumulator) {
+        return list.foldLeft(identity, accumulator);
+    }
+
+    public static double foldLeft(DoubleImmutableList list, double identity, DoubleBinaryOperator accumulator) {
+        return list.foldLeft(identity, accumulator);
+    }
+
+    public static int foldLeft(IntStream stream, int identity, IntBinaryOperator accumulator) {
+        return stream.foldLeft(identity, accumulator);
+    }
+
+    public static int reduce(IntImmutableList list, IntBinaryOperator op) {
+        if (list.isEmpty()) throw new IllegalArgumentException("Cannot reduce empty list");
+        return list.tail().foldLeft(list.head(), op);
+    }
+
+    public static long reduce(LongImmutableList list, LongBinaryOperator op) {
+        if (list.isEmpty()) throw new IllegalArgumentException("Cannot reduce empty list");
+        return list.tail().foldLeft(list.head(), op);
+    }
+
+    public static double reduce(DoubleImmutableList list, DoubleBinaryOperator op) {
+        if (list.isEmpty()) throw new IllegalArgumentException("Cannot reduce empty list");
+        return list.tail().foldLeft(list.head(), op);
+    }
+
+    public static int sum(IntImmutableList list) {
+        return list.sum();
+    }
+
+    public static long sum(LongImmutableList list) {
+        return list.sum();
+    }
+
+    public static double sum(DoubleImmutableList list) {
+        return list.sum();
+    }
+}
@@ -1,18 +1,38 @@
 package com.balazsholczer.functional;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.List;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
- * Minimal Free monad (pure + flatMap) for tests.
- * Only supports sequencing of pure computations (no external functor).
+ * Free monad over an open set of instructions.
+ *
+ * A program is built from pure values, suspended instructions and binds, and
+ * is run by a FreeInterpreter that supplies a handler for each instruction
+ * type. Binding is O(1) however the binds nest: flatMap only records the
+ * continuation, and the interpreter reassociates left-nested binds with an
+ * explicit continuation stack, so running is linear and stack-safe.
+ *
+ * sequence and map2 mark sub-programs as independent; the interpreter runs
+ * them side by side and can hand their instructions to a batch handler in
+ * one call.
  */
 public abstract class Free<T> {
 
-    public abstract <R> Free<R> map(Function<T, R> f);
+    /**
+     * One effect a program can ask for, producing an A. Instructions are
+     * plain data, usually records; what they mean is up to the handler.
+     */
+    public interface Instruction<A> {
+    }
 
-    public abstract <R> Free<R> flatMap(Function<T, Free<R>> f);
+    public <R> Free<R> map(Function<T, R> f) {
+        return new FlatMapped<>(this, value -> new Pure<>(f.apply(value)));
+    }
+
+    public <R> Free<R> flatMap(Function<T, Free<R>> f) {
+        return new FlatMapped<>(this, f);
+    }
 
     public abstract boolean isPure();
 
@@ -24,30 +44,15 @@ public abstract class Free<T> {
     }
 
     /**
-     * Interpret (run) the free structure, reducing it to a single value.
+     * Interpret (run) a program without instructions, reducing it to a single value.
      * Stack-safe via explicit continuation stack.
      */
-    @SuppressWarnings("unchecked")
     public T interpret() {
-        Free<?> current = this;
-        Deque<Function<Object, Free<?>>> conts = new ArrayDeque<>();
-
-        while (true) {
-            if (current instanceof Pure<?> p) {
-                Object v = p.value;
-                if (conts.isEmpty()) {
-                    return (T) v;
-                }
-                Function<Object, Free<?>> k = conts.pop();
-                current = k.apply(v);
-            } else if (current instanceof FlatMapped<?, ?> fm) {
-                // Unwrap left side; defer its continuation
-                conts.push((Function<Object, Free<?>>) fm.next);
-                current = fm.prev;
-            } else {
-                throw new IllegalStateException("Unknown Free node");
-            }
-        }
+        return FreeInterpreter.pureOnly().run(this);
+    }
+
+    public T run(FreeInterpreter interpreter) {
+        return interpreter.run(this);
     }
 
     /* Factory */
@@ -55,10 +60,24 @@ public abstract class Free<T> {
         return new Pure<>(value);
     }
 
+    public static <A> Free<A> suspend(Instruction<A> instruction) {
+        return new Suspend<>(instruction);
+    }
+
+    // Runs the programs as independent branches and collects their results in order
+    public static <A> Free<List<A>> sequence(List<? extends Free<A>> programs) {
+        return new Zip<>(List.copyOf(programs));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, R> Free<R> map2(Free<A> first, Free<B> second, BiFunction<A, B, R> f) {
+        return new Zip<Object>(List.of(first, second)).map(results -> f.apply((A) results.get(0), (B) results.get(1)));
+    }
+
     /* Internal variants */
 
-    private static final class Pure<T> extends Free<T> {
-        private final T value;
+    static final class Pure<T> extends Free<T> {
+        final T value;
 
         private Pure(T value) {
             this.value = value;
@@ -69,11 +88,6 @@ public abstract class Free<T> {
             return new Pure<>(f.apply(value));
         }
 
-        @Override
-        public <R> Free<R> flatMap(Function<T, Free<R>> f) {
-            return new FlatMapped<>(this, f);
-        }
-
         @Override
         public boolean isPure() {
             return true;
@@ -90,9 +104,27 @@ public abstract class Free<T> {
         }
     }
 
-    private static final class FlatMapped<A, B> extends Free<B> {
-        private final Free<A> prev;
-        private final Function<A, Free<B>> next;
+    static final class Suspend<T> extends Free<T> {
+        final Instruction<T> instruction;
+
+        private Suspend(Instruction<T> instruction) {
+            this.instruction = instruction;
+        }
+
+        @Override
+        public boolean isPure() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "Suspend(" + instruction + ")";
+        }
+    }
+
+    static final class FlatMapped<A, B> extends Free<B> {
+        final Free<A> prev;
+        final Function<A, Free<B>> next;
 
         private FlatMapped(Free<A> prev, Function<A, Free<B>> next) {
             this.prev = prev;
@@ -100,13 +132,21 @@ public abstract class Free<T> {
         }
 
         @Override
-        public <R> Free<R> map(Function<B, R> f) {
-            return new FlatMapped<>(prev, a -> next.apply(a).map(f));
+        public boolean isPure() {
+            return false;
         }
 
         @Override
-        public <R> Free<R> flatMap(Function<B, Free<R>> f) {
-            return new FlatMapped<>(prev, a -> next.apply(a).flatMap(f));
+        public String toString() {
+            return "FlatMapped(" + prev + ", <fn>)";
+        }
+    }
+
+    static final class Zip<A> extends Free<List<A>> {
+        final List<? extends Free<? extends A>> programs;
+
+        private Zip(List<? extends Free<? extends A>> programs) {
+            this.programs = programs;
         }
 
         @Override
@@ -116,7 +156,7 @@ public abstract class Free<T> {
 
         @Override
         public String toString() {
-            return "FlatMapped(" + prev + ", <fn>)";
+            return "Zip(" + programs + ")";
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package com.balazsholczer.functional;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Free programs of 1,000,000 steps: left-nested binds, right-nested binds and
+ * a chain of suspended instructions, plus 10,000 independent lookups run
+ * through a one-at-a-time handler and through a batch handler that charges a
+ * fixed cost per call, the way a remote lookup would.
+ *
+ * Run with: java com.balazsholczer.functional.FreeBenchmark [steps]
+ */
+public class FreeBenchmark {
+
+    private record Increment(int value) implements Free.Instruction<Integer> {
+    }
+
+    private record Lookup(int key) implements Free.Instruction<Integer> {
+    }
+
+    private static long sink;
+    private static int calls;
+
+    public static void main(String[] args) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int lookups = 10_000;
+        System.out.println("=== Free Benchmark (" + steps + " steps, " + lookups + " lookups) ===");
+
+        FreeInterpreter effects = FreeInterpreter.builder()
+            .on(Increment.class, increment -> increment.value() + 1)
+            .build();
+        FreeInterpreter single = FreeInterpreter.builder()
+            .on(Lookup.class, lookup -> {
+                calls++;
+                spin();
+                return lookup.key() * 2;
+            })
+            .build();
+        FreeInterpreter batched = FreeInterpreter.builder()
+            .onBatch(Lookup.class, batch -> {
+                calls++;
+                spin();
+                return batch.stream().map(lookup -> lookup.key() * 2).toList();
+            })
+            .build();
+
+        for (int round = 0; round < 2; round++) {
+            System.out.println("Round " + (round + 1) + ":");
+            run("  left-nested binds", steps, () -> leftNested(steps).interpret());
+            run("  right-nested binds", steps, () -> rightNested(0, steps).interpret());
+            run("  suspended instructions", steps, () -> effectChain(steps).run(effects));
+            calls = 0;
+            run("  lookups, one per call", lookups, () -> lookups(lookups).run(single));
+            System.out.println("    handler calls: " + calls);
+            calls = 0;
+            run("  lookups, batched", lookups, () -> lookups(lookups).run(batched));
+            System.out.println("    handler calls: " + calls);
+        }
+    }
+
+    private static Free<Integer> leftNested(int steps) {
+        Free<Integer> program = Free.pure(0);
+        for (int i = 0; i < steps; i++) {
+            program = program.flatMap(x -> Free.pure(x + 1));
+        }
+        return program;
+    }
+
+    private static Free<Integer> rightNested(int current, int target) {
+        return current == target
+            ? Free.pure(current)
+            : Free.pure(current + 1).flatMap(next -> rightNested(next, target));
+    }
+
+    private static Free<Integer> effectChain(int steps) {
+        Free<Integer> program = Free.pure(0);
+        for (int i = 0; i < steps; i++) {
+            program = program.flatMap(x -> Free.suspend(new Increment(x)));
+        }
+        return program;
+    }
+
+    private static Free<Integer> lookups(int count) {
+        List<Free<Integer>> programs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            programs.add(Free.suspend(new Lookup(i)));
+        }
+        return Free.sequence(programs).map(values -> values.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    // Stands in for the fixed cost of one round trip
+    private static void spin() {
+        long until = System.nanoTime() + 2_000;
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void run(String name, int steps, Supplier<Integer> program) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        sink += program.get();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-26s %,8.1f ms %,8.1f ns/step %,8.1f bytes/step%n", name,
+            elapsed / 1e6, (double) elapsed / steps, (double) allocated / steps);
+    }
+}
@@ -0,0 +1,239 @@
+package com.balazsholczer.functional;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Runs Free programs against a set of instruction handlers.
+ *
+ * Handlers are registered per instruction class, either one instruction at a
+ * time with on, or a whole batch with onBatch. The interpreter is a loop over
+ * explicit continuation stacks, one per branch: a program that never uses
+ * sequence or map2 is a single branch and each instruction is handled as
+ * soon as it is reached. Independent branches run in rounds instead: every
+ * branch advances until it needs an instruction, then the round's
+ * instructions are grouped by class and each group goes to its batch handler
+ * in a single call, the way a data loader batches lookups.
+ */
+public final class FreeInterpreter {
+
+    private static final FreeInterpreter PURE_ONLY = builder().build();
+
+    // Registration order matters: the first registered supertype wins a lookup
+    private final Map<Class<?>, Function<Object, Object>> handlers;
+    private final Map<Class<?>, Function<List<Object>, List<?>>> batchHandlers;
+    // Each instruction class is resolved against the registries once, not on every instruction
+    private final ClassValue<Resolved> resolved = new ClassValue<>() {
+        @Override
+        protected Resolved computeValue(Class<?> type) {
+            return new Resolved(lookup(handlers, type), lookup(batchHandlers, type));
+        }
+    };
+
+    private FreeInterpreter(Builder builder) {
+        this.handlers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.handlers));
+        this.batchHandlers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.batchHandlers));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // For programs made only of pure values and binds
+    static FreeInterpreter pureOnly() {
+        return PURE_ONLY;
+    }
+
+    // Handlers found for one instruction class; either may be null
+    private record Resolved(Function<Object, Object> handler, Function<List<Object>, List<?>> batch) {
+    }
+
+    // One line of execution: the node being reduced and the binds waiting for its value
+    private static final class Branch {
+        Free<?> current;
+        ArrayDeque<Function<Object, Free<?>>> continuations;
+        final Branch parent;
+        final int slot;
+        Object[] childResults;
+        int waitingFor;
+        Free.Instruction<?> instruction;
+        boolean finished;
+        Object value;
+
+        Branch(Free<?> current, Branch parent, int slot) {
+            this.current = current;
+            this.parent = parent;
+            this.slot = slot;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <A> A run(Free<A> program) {
+        Branch root = new Branch(program, null, 0);
+        ArrayDeque<Branch> runnable = new ArrayDeque<>();
+        List<Branch> blocked = new ArrayList<>();
+        runnable.add(root);
+        while (true) {
+            while (!runnable.isEmpty()) {
+                step(runnable.poll(), runnable, blocked);
+                if (root.finished) {
+                    return (A) root.value;
+                }
+            }
+            if (blocked.isEmpty()) {
+                throw new IllegalStateException("Program has no runnable branch");
+            }
+            dispatch(blocked, runnable);
+            blocked.clear();
+        }
+    }
+
+    // Reduces a branch until it finishes, waits for child branches or needs an instruction
+    @SuppressWarnings("unchecked")
+    private void step(Branch branch, ArrayDeque<Branch> runnable, List<Branch> blocked) {
+        while (true) {
+            Free<?> current = branch.current;
+            if (current instanceof Free.Pure<?> pure) {
+                if (branch.continuations != null && !branch.continuations.isEmpty()) {
+                    branch.current = branch.continuations.pop().apply(pure.value);
+                    continue;
+                }
+                finish(branch, pure.value, runnable);
+                return;
+            } else if (current instanceof Free.FlatMapped<?, ?> flatMapped) {
+                // Left-nested binds are reassociated here: defer the continuation, reduce the left side
+                if (branch.continuations == null) {
+                    branch.continuations = new ArrayDeque<>();
+                }
+                branch.continuations.push((Function<Object, Free<?>>) flatMapped.next);
+                branch.current = flatMapped.prev;
+            } else if (current instanceof Free.Suspend<?> suspend) {
+                if (runnable.isEmpty() && blocked.isEmpty()) {
+                    // Nothing else could join a batch, so answer right away
+                    branch.current = Free.pure(handle(suspend.instruction));
+                    continue;
+                }
+                branch.instruction = suspend.instruction;
+                blocked.add(branch);
+                return;
+            } else if (current instanceof Free.Zip<?> zip) {
+                int count = zip.programs.size();
+                if (count == 0) {
+                    branch.current = Free.pure(List.of());
+                    continue;
+                }
+                branch.childResults = new Object[count];
+                branch.waitingFor = count;
+                for (int i = 0; i < count; i++) {
+                    runnable.add(new Branch(zip.programs.get(i), branch, i));
+                }
+                return;
+            } else {
+                throw new IllegalStateException("Unknown Free node");
+            }
+        }
+    }
+
+    private void finish(Branch branch, Object value, ArrayDeque<Branch> runnable) {
+        branch.finished = true;
+        branch.value = value;
+        Branch parent = branch.parent;
+        if (parent != null) {
+            parent.childResults[branch.slot] = value;
+            if (--parent.waitingFor == 0) {
+                parent.current = Free.pure(Collections.unmodifiableList(Arrays.asList(parent.childResults)));
+                parent.childResults = null;
+                runnable.add(parent);
+            }
+        }
+    }
+
+    // Answers a round of instructions, one handler call per batchable class
+    private void dispatch(List<Branch> blocked, ArrayDeque<Branch> runnable) {
+        Map<Class<?>, List<Branch>> byClass = new LinkedHashMap<>();
+        for (Branch branch : blocked) {
+            byClass.computeIfAbsent(branch.instruction.getClass(), type -> new ArrayList<>()).add(branch);
+        }
+        byClass.forEach((type, branches) -> {
+            Resolved found = resolved.get(type);
+            Function<List<Object>, List<?>> batch = found.batch();
+            if (batch != null && (branches.size() > 1 || found.handler() == null)) {
+                List<Object> instructions = new ArrayList<>(branches.size());
+                branches.forEach(branch -> instructions.add(branch.instruction));
+                List<?> results = batch.apply(instructions);
+                if (results.size() != branches.size()) {
+                    throw new IllegalStateException("Batch handler for " + type.getName() + " returned "
+                        + results.size() + " results for " + branches.size() + " instructions");
+                }
+                for (int i = 0; i < branches.size(); i++) {
+                    resume(branches.get(i), results.get(i), runnable);
+                }
+            } else {
+                branches.forEach(branch -> resume(branch, handle(branch.instruction), runnable));
+            }
+        });
+    }
+
+    private void resume(Branch branch, Object result, ArrayDeque<Branch> runnable) {
+        branch.instruction = null;
+        branch.current = Free.pure(result);
+        runnable.add(branch);
+    }
+
+    private Object handle(Free.Instruction<?> instruction) {
+        Resolved found = resolved.get(instruction.getClass());
+        if (found.handler() != null) {
+            return found.handler().apply(instruction);
+        }
+        if (found.batch() != null) {
+            return found.batch().apply(List.of(instruction)).get(0);
+        }
+        throw new IllegalStateException("No handler for " + instruction.getClass().getName());
+    }
+
+    // Exact class first, then any registered supertype such as a sealed instruction interface
+    private static <H> H lookup(Map<Class<?>, H> registry, Class<?> type) {
+        H handler = registry.get(type);
+        if (handler != null) {
+            return handler;
+        }
+        for (Map.Entry<Class<?>, H> entry : registry.entrySet()) {
+            if (entry.getKey().isAssignableFrom(type)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    public static final class Builder {
+        private final Map<Class<?>, Function<Object, Object>> handlers = new LinkedHashMap<>();
+        private final Map<Class<?>, Function<List<Object>, List<?>>> batchHandlers = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        @SuppressWarnings("unchecked")
+        public <A, I extends Free.Instruction<A>> Builder on(Class<I> type, Function<? super I, ? extends A> handler) {
+            handlers.put(type, instruction -> handler.apply((I) instruction));
+            return this;
+        }
+
+        // The handler must return one result per instruction, in the same order
+        @SuppressWarnings("unchecked")
+        public <A, I extends Free.Instruction<A>> Builder onBatch(Class<I> type,
+                                                                  Function<? super List<I>, ? extends List<? extends A>> handler) {
+            batchHandlers.put(type, instructions -> handler.apply((List<I>) (List<?>) instructions));
+            return this;
+        }
+
+        public FreeInterpreter build() {
+            return new FreeInterpreter(this);
+        }
+    }
+}
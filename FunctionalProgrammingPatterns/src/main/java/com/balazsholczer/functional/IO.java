@@ -1,45 +1,311 @@
 package com.balazsholczer.functional;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
  * IO Monad Pattern - pure functional side effects
+ *
+ * An IO is a description of a program; nothing happens until it is run.
+ * Programs are trees of the nodes below, and a Fiber reduces them in a loop
+ * with an explicit continuation stack, so flatMap chains of any length run
+ * in constant stack space. unsafeRun runs the program on the calling thread;
+ * fork starts it as a fiber on its own virtual thread.
+ *
+ * Fibers can be canceled. Cancellation is observed between steps and while
+ * waiting on async, sleep, join and the parallel combinators, never inside
+ * an uncancelable region. Finalizers registered with guarantee, onCancel or
+ * bracket run however the program ends.
+ *
+ * IO used to be a functional interface. It is now a closed set of nodes, so
+ * a lambda is no longer an IO: write {@code IO.delay(() -> ...)} where code
+ * used to write {@code () -> ...}, and a method reference such as
+ * {@code IO.delay(this::load)} likewise.
  */
-@FunctionalInterface
-public interface IO<T> {
-    T unsafeRun();
-    
-    default <U> IO<U> map(Function<T, U> mapper) {
-        return () -> mapper.apply(unsafeRun());
-    }
-    
-    default <U> IO<U> flatMap(Function<T, IO<U>> mapper) {
-        return () -> mapper.apply(unsafeRun()).unsafeRun();
-    }
-    
-    static <T> IO<T> pure(T value) {
-        return () -> value;
-    }
-    
-    static <T> IO<T> delay(Supplier<T> supplier) {
-        return supplier::get;
-    }
-    
-    static IO<Void> println(String message) {
-        return () -> {
+public abstract class IO<T> {
+
+    IO() {
+    }
+
+    /**
+     * Runs the program on the calling thread and returns its result. Errors
+     * are rethrown, checked ones wrapped in a RuntimeException.
+     */
+    public final T unsafeRun() {
+        return new Fiber<>(this).runHere();
+    }
+
+    public <U> IO<U> map(Function<T, U> mapper) {
+        return new Mapped<>(this, mapper);
+    }
+
+    public <U> IO<U> flatMap(Function<T, IO<U>> mapper) {
+        return new FlatMapped<>(this, mapper);
+    }
+
+    public <U> IO<U> then(IO<U> next) {
+        return flatMap(ignored -> next);
+    }
+
+    public IO<T> handleErrorWith(Function<Throwable, IO<T>> handler) {
+        return new HandleErrorWith<>(this, handler);
+    }
+
+    public IO<T> handleError(Function<Throwable, T> handler) {
+        return handleErrorWith(error -> pure(handler.apply(error)));
+    }
+
+    public IO<Either<Throwable, T>> attempt() {
+        return this.<Either<Throwable, T>>map(Either::right).handleError(Either::left);
+    }
+
+    // Runs the finalizer after this program succeeds, fails or is canceled
+    public IO<T> guarantee(IO<?> finalizer) {
+        return new Guarantee<>(this, finalizer, false);
+    }
+
+    // Runs the finalizer only if this program is canceled
+    public IO<T> onCancel(IO<?> finalizer) {
+        return new Guarantee<>(this, finalizer, true);
+    }
+
+    // Starts this program on a new fiber and returns its handle right away
+    public IO<Fiber<T>> fork() {
+        return new Fork<>(this);
+    }
+
+    /* Factory */
+
+    public static <T> IO<T> pure(T value) {
+        return new Pure<>(value);
+    }
+
+    public static IO<Void> unit() {
+        return pure(null);
+    }
+
+    public static <T> IO<T> delay(Supplier<T> supplier) {
+        return new Delay<>(supplier);
+    }
+
+    public static <T> IO<T> raiseError(Throwable error) {
+        return new RaiseError<>(error);
+    }
+
+    /**
+     * Suspends the fiber until the callback passed to register is called,
+     * with Either.right for a result or Either.left for an error. Only the
+     * first call counts.
+     */
+    public static <T> IO<T> async(Consumer<Consumer<Either<Throwable, T>>> register) {
+        return new Async<>(register);
+    }
+
+    // An async that never completes; only cancellation ends it
+    public static <T> IO<T> never() {
+        return async(callback -> { });
+    }
+
+    public static IO<Void> sleep(Duration duration) {
+        return new Sleep(duration.toNanos());
+    }
+
+    /**
+     * Like delay, but cancellation interrupts the thread running the
+     * supplier, for blocking calls that respond to Thread.interrupt.
+     */
+    public static <T> IO<T> interruptible(Supplier<T> supplier) {
+        return new Interruptible<>(supplier);
+    }
+
+    public static <T> IO<T> uncancelable(IO<T> io) {
+        return new Uncancelable<>(io);
+    }
+
+    /**
+     * Acquires a resource without being canceled, uses it, and releases it
+     * whether use succeeds, fails or is canceled.
+     */
+    public static <A, B> IO<B> bracket(IO<A> acquire, Function<A, IO<B>> use, Function<A, IO<?>> release) {
+        return new Bracket<>(acquire, use, release);
+    }
+
+    /**
+     * Runs both programs on their own fibers. The first to finish decides the
+     * outcome and the other is canceled; its finalizers complete before the
+     * race does.
+     */
+    public static <A, B> IO<Either<A, B>> race(IO<A> left, IO<B> right) {
+        return new Race<>(left, right);
+    }
+
+    /**
+     * Runs f on every element on its own fiber and collects the results in
+     * order. The first failure cancels the remaining fibers and is raised.
+     */
+    public static <A, B> IO<List<B>> parTraverse(List<A> elements, Function<A, IO<B>> f) {
+        return new Par<>(elements.stream().<IO<B>>map(f).toList());
+    }
+
+    public static <T> IO<List<T>> parSequence(List<IO<T>> programs) {
+        return new Par<>(List.copyOf(programs));
+    }
+
+    public static IO<Void> println(String message) {
+        return delay(() -> {
             System.out.println(message);
             return null;
-        };
+        });
     }
-    
-    static IO<String> readLine() {
-        return () -> {
+
+    public static IO<String> readLine() {
+        return delay(() -> {
             try {
                 return new java.util.Scanner(System.in).nextLine();
             } catch (Exception e) {
                 return "";
             }
-        };
+        });
+    }
+
+    /* Internal variants, reduced by Fiber */
+
+    static final class Pure<T> extends IO<T> {
+        final T value;
+
+        Pure(T value) {
+            this.value = value;
+        }
+    }
+
+    static final class Delay<T> extends IO<T> {
+        final Supplier<T> thunk;
+
+        Delay(Supplier<T> thunk) {
+            this.thunk = thunk;
+        }
+    }
+
+    static final class RaiseError<T> extends IO<T> {
+        final Throwable error;
+
+        RaiseError(Throwable error) {
+            this.error = error;
+        }
+    }
+
+    static final class Mapped<A, B> extends IO<B> {
+        final IO<A> source;
+        final Function<A, B> mapper;
+
+        Mapped(IO<A> source, Function<A, B> mapper) {
+            this.source = source;
+            this.mapper = mapper;
+        }
+    }
+
+    static final class FlatMapped<A, B> extends IO<B> {
+        final IO<A> source;
+        final Function<A, IO<B>> next;
+
+        FlatMapped(IO<A> source, Function<A, IO<B>> next) {
+            this.source = source;
+            this.next = next;
+        }
+    }
+
+    static final class HandleErrorWith<T> extends IO<T> {
+        final IO<T> source;
+        final Function<Throwable, IO<T>> handler;
+
+        HandleErrorWith(IO<T> source, Function<Throwable, IO<T>> handler) {
+            this.source = source;
+            this.handler = handler;
+        }
+    }
+
+    static final class Guarantee<T> extends IO<T> {
+        final IO<T> source;
+        final IO<?> finalizer;
+        final boolean onCancelOnly;
+
+        Guarantee(IO<T> source, IO<?> finalizer, boolean onCancelOnly) {
+            this.source = source;
+            this.finalizer = finalizer;
+            this.onCancelOnly = onCancelOnly;
+        }
+    }
+
+    static final class Uncancelable<T> extends IO<T> {
+        final IO<T> source;
+
+        Uncancelable(IO<T> source) {
+            this.source = source;
+        }
+    }
+
+    static final class Bracket<A, B> extends IO<B> {
+        final IO<A> acquire;
+        final Function<A, IO<B>> use;
+        final Function<A, IO<?>> release;
+
+        Bracket(IO<A> acquire, Function<A, IO<B>> use, Function<A, IO<?>> release) {
+            this.acquire = acquire;
+            this.use = use;
+            this.release = release;
+        }
+    }
+
+    static final class Async<T> extends IO<T> {
+        final Consumer<Consumer<Either<Throwable, T>>> register;
+
+        Async(Consumer<Consumer<Either<Throwable, T>>> register) {
+            this.register = register;
+        }
+    }
+
+    static final class Sleep extends IO<Void> {
+        final long nanos;
+
+        Sleep(long nanos) {
+            this.nanos = nanos;
+        }
+    }
+
+    static final class Interruptible<T> extends IO<T> {
+        final Supplier<T> thunk;
+
+        Interruptible(Supplier<T> thunk) {
+            this.thunk = thunk;
+        }
+    }
+
+    static final class Fork<T> extends IO<Fiber<T>> {
+        final IO<T> source;
+
+        Fork(IO<T> source) {
+            this.source = source;
+        }
+    }
+
+    static final class Race<A, B> extends IO<Either<A, B>> {
+        final IO<A> left;
+        final IO<B> right;
+
+        Race(IO<A> left, IO<B> right) {
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    static final class Par<T> extends IO<List<T>> {
+        final List<IO<T>> programs;
+
+        Par(List<IO<T>> programs) {
+            this.programs = programs;
+        }
     }
-}
\ No newline at end of file
+}
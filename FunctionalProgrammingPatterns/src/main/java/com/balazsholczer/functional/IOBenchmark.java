@@ -0,0 +1,119 @@
+package com.balazsholczer.functional;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * IO against raw CompletableFuture chains on three workloads: a 1,000,000
+ * step synchronous bind chain, 10,000 sequential async hops completed on
+ * another thread, and a fan-out of 10,000 small tasks joined in order.
+ * Both sides run their concurrent work on virtual threads. The async hops
+ * are run once on a forked fiber and once on the calling platform thread,
+ * which pays for a platform park and unpark per hop.
+ *
+ * The bind chains keep a million nodes alive; give the heap room or the
+ * numbers measure the collector.
+ *
+ * Run with: java -Xms1g com.balazsholczer.functional.IOBenchmark [steps]
+ */
+public class IOBenchmark {
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int hops = 10_000;
+        int tasks = 10_000;
+        System.out.println("=== IO Benchmark (" + steps + " binds, " + hops + " async hops, " + tasks + " tasks) ===");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (!bindChain(steps).unsafeRun().equals(futureChain(steps).join())
+                || !asyncHops(executor, 0, hops).unsafeRun().equals(futureHops(executor, hops).join())
+                || parTraverse(tasks) != allOf(executor, tasks)) {
+                throw new IllegalStateException("IO and CompletableFuture disagree");
+            }
+            for (int round = 0; round < 2; round++) {
+                System.out.println("Round " + (round + 1) + ":");
+                run("  IO bind chain", steps, () -> bindChain(steps).unsafeRun());
+                run("  CompletableFuture chain", steps, () -> futureChain(steps).join());
+                run("  IO async hops (fiber)", hops, () -> asyncHops(executor, 0, hops).fork().flatMap(Fiber::join).unsafeRun());
+                run("  IO async hops (caller)", hops, () -> asyncHops(executor, 0, hops).unsafeRun());
+                run("  CompletableFuture hops", hops, () -> futureHops(executor, hops).join());
+                run("  IO parTraverse", tasks, () -> parTraverse(tasks));
+                run("  CompletableFuture allOf", tasks, () -> allOf(executor, tasks));
+            }
+        }
+    }
+
+    private static IO<Integer> bindChain(int steps) {
+        IO<Integer> program = IO.pure(0);
+        for (int i = 0; i < steps; i++) {
+            program = program.flatMap(x -> IO.delay(() -> x + 1));
+        }
+        return program;
+    }
+
+    private static CompletableFuture<Integer> futureChain(int steps) {
+        CompletableFuture<Integer> future = CompletableFuture.completedFuture(0);
+        for (int i = 0; i < steps; i++) {
+            future = future.thenCompose(x -> CompletableFuture.supplyAsync(() -> x + 1, Runnable::run));
+        }
+        return future;
+    }
+
+    private static IO<Integer> asyncHops(ExecutorService executor, int current, int target) {
+        if (current == target) {
+            return IO.pure(current);
+        }
+        IO<Integer> hop = IO.async(callback -> executor.execute(() -> callback.accept(Either.right(current + 1))));
+        return hop.flatMap(next -> asyncHops(executor, next, target));
+    }
+
+    private static CompletableFuture<Integer> futureHops(ExecutorService executor, int hops) {
+        CompletableFuture<Integer> future = CompletableFuture.completedFuture(0);
+        for (int i = 0; i < hops; i++) {
+            future = future.thenComposeAsync(x -> CompletableFuture.completedFuture(x + 1), executor);
+        }
+        return future;
+    }
+
+    private static int parTraverse(int tasks) {
+        List<Integer> inputs = IntStream.range(0, tasks).boxed().toList();
+        return IO.parTraverse(inputs, x -> IO.delay(() -> work(x))).unsafeRun().size();
+    }
+
+    private static int allOf(ExecutorService executor, int tasks) {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            int x = i;
+            futures.add(CompletableFuture.supplyAsync(() -> work(x), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return futures.stream().map(CompletableFuture::join).toList().size();
+    }
+
+    private static int work(int x) {
+        int h = x;
+        for (int i = 0; i < 100; i++) {
+            h = h * 31 + i;
+        }
+        return h;
+    }
+
+    private static void run(String name, int operations, Supplier<Integer> program) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        sink += program.get();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-26s %,8.1f ms %,10.1f ns/op %,8.1f bytes/op%n", name,
+            elapsed / 1e6, (double) elapsed / operations, (double) allocated / operations);
+    }
+}
@@ -1,13 +1,27 @@
 package com.balazsholczer.functional;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
  * Immutable List Pattern - persistent data structure
+ *
+ * Two representations share this API. A cons list is what prepend builds, one
+ * cell per element. Everything else - of, append, map, filter, the Builder -
+ * produces a 32-way bit-partitioned vector (the structure behind Clojure's and
+ * Scala's vectors): a trie of 32-slot arrays plus a tail buffer, giving
+ * O(log32 n) get, amortized O(1) append and O(1) tail and take, which are views
+ * sharing the trie. All bulk operations are loops, so no list is too long for
+ * the call stack.
  */
-public abstract class ImmutableList<T> {
-    
+public abstract class ImmutableList<T> implements Iterable<T> {
+
     public abstract T head();
     public abstract ImmutableList<T> tail();
     public abstract boolean isEmpty();
@@ -15,7 +29,8 @@ public abstract class ImmutableList<T> {
     public abstract <U> ImmutableList<U> map(Function<T, U> mapper);
     public abstract ImmutableList<T> filter(Predicate<T> predicate);
     public abstract ImmutableList<T> prepend(T element);
-    
+    public abstract ImmutableList<T> append(T element);
+
     public T get(int index) {
         if (index < 0 || index >= size()) {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
@@ -26,186 +41,589 @@ public abstract class ImmutableList<T> {
         }
         return current.head();
     }
-    
+
     public ImmutableList<T> reverse() {
-        ImmutableList<T> result = empty();
-        ImmutableList<T> current = this;
-        while (!current.isEmpty()) {
-            result = result.prepend(current.head());
-            current = current.tail();
+        Object[] elements = toArray();
+        Builder<T> builder = new Builder<>();
+        for (int i = elements.length - 1; i >= 0; i--) {
+            builder.add(uncheckedCast(elements[i]));
         }
-        return result;
+        return builder.build();
     }
-    
+
     public <U> U foldLeft(U identity, java.util.function.BinaryOperator<U> accumulator) {
         U result = identity;
-        ImmutableList<T> current = this;
-        while (!current.isEmpty()) {
-            result = accumulator.apply(result, (U) current.head());
-            current = current.tail();
+        for (T element : this) {
+            result = accumulator.apply(result, ImmutableList.<U>uncheckedCast(element));
         }
         return result;
     }
-    
+
     public ImmutableList<T> take(int n) {
         if (n <= 0 || isEmpty()) return empty();
-        return tail().take(n - 1).prepend(head());
+        if (n >= size()) return this;
+        Builder<T> builder = new Builder<>();
+        Iterator<T> elements = iterator();
+        for (int i = 0; i < n; i++) {
+            builder.add(elements.next());
+        }
+        return builder.build();
+    }
+
+    public Object[] toArray() {
+        Object[] elements = new Object[size()];
+        int i = 0;
+        for (T element : this) {
+            elements[i++] = element;
+        }
+        return elements;
     }
-    
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private ImmutableList<T> current = ImmutableList.this;
+
+            @Override
+            public boolean hasNext() {
+                return !current.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (current.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                T head = current.head();
+                current = current.tail();
+                return head;
+            }
+        };
+    }
+
     public static <T> ImmutableList<T> empty() {
         return new Empty<>();
     }
-    
+
+    @SafeVarargs
     public static <T> ImmutableList<T> of(T... elements) {
-        ImmutableList<T> result = empty();
-        for (int i = elements.length - 1; i >= 0; i--) {
-            result = result.prepend(elements[i]);
+        Builder<T> builder = new Builder<>();
+        for (T element : elements) {
+            builder.add(element);
+        }
+        return builder.build();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T uncheckedCast(Object element) {
+        return (T) element;
+    }
+
+    // Elementwise equality and hashing shared by both representations
+    private static boolean sameElements(ImmutableList<?> list, Object obj) {
+        if (list == obj) return true;
+        if (!(obj instanceof ImmutableList<?> other)) return false;
+        if (list.size() != other.size()) return false;
+        Iterator<?> mine = list.iterator();
+        Iterator<?> theirs = other.iterator();
+        while (mine.hasNext()) {
+            if (!java.util.Objects.equals(mine.next(), theirs.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int elementHash(ImmutableList<?> list) {
+        int hash = 1;
+        for (Object element : list) {
+            hash = 31 * hash + java.util.Objects.hashCode(element);
+        }
+        return hash;
+    }
+
+    private static String elementString(ImmutableList<?> list) {
+        StringBuilder sb = new StringBuilder("[");
+        Iterator<?> elements = list.iterator();
+        while (elements.hasNext()) {
+            sb.append(elements.next());
+            if (elements.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * Transient builder for vectors. Adds mutate arrays the builder created
+     * itself instead of copying a path per element; build() hands them over
+     * to the list, after which the builder copies before writing again, so it
+     * can keep growing without affecting lists it already built.
+     */
+    public static final class Builder<T> {
+        private Object[] root = Vector.EMPTY_NODE;
+        private int shift = Vector.BITS;
+        private int count;
+        private Object[] tail = new Object[Vector.WIDTH];
+        private final Set<Object[]> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Builder() {
+        }
+
+        public Builder<T> add(T element) {
+            int tailSize = count - Vector.tailOffset(count);
+            if (tailSize < Vector.WIDTH) {
+                tail[tailSize] = element;
+                count++;
+                return this;
+            }
+            // Full tail: move it into the trie and start a new one
+            Object[] tailNode = tail;
+            if ((count >>> Vector.BITS) > (1 << shift)) {
+                Object[] newRoot = new Object[Vector.WIDTH];
+                owned.add(newRoot);
+                newRoot[0] = root;
+                newRoot[1] = newPath(shift, tailNode);
+                root = newRoot;
+                shift += Vector.BITS;
+            } else {
+                root = pushTail(shift, root, tailNode);
+            }
+            tail = new Object[Vector.WIDTH];
+            tail[0] = element;
+            count++;
+            return this;
+        }
+
+        public Builder<T> addAll(Iterable<? extends T> elements) {
+            for (T element : elements) {
+                add(element);
+            }
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public ImmutableList<T> build() {
+            if (count == 0) {
+                return empty();
+            }
+            owned.clear();
+            Object[] trimmedTail = Arrays.copyOf(tail, count - Vector.tailOffset(count));
+            return new Vector<>(root, trimmedTail, shift, count, 0, count);
+        }
+
+        private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+            Object[] node = editable(parent);
+            int index = ((count - 1) >>> level) & Vector.MASK;
+            if (level == Vector.BITS) {
+                node[index] = tailNode;
+            } else {
+                Object[] child = (Object[]) node[index];
+                node[index] = child != null ? pushTail(level - Vector.BITS, child, tailNode) : newPath(level - Vector.BITS, tailNode);
+            }
+            return node;
+        }
+
+        private Object[] newPath(int level, Object[] node) {
+            if (level == 0) {
+                return node;
+            }
+            Object[] path = new Object[Vector.WIDTH];
+            owned.add(path);
+            path[0] = newPath(level - Vector.BITS, node);
+            return path;
+        }
+
+        private Object[] editable(Object[] node) {
+            if (owned.contains(node)) {
+                return node;
+            }
+            Object[] copy = node.clone();
+            owned.add(copy);
+            return copy;
         }
-        return result;
     }
-    
+
     private static class Empty<T> extends ImmutableList<T> {
         @Override
         public T head() {
             throw new UnsupportedOperationException("Empty list has no head");
         }
-        
+
         @Override
         public ImmutableList<T> tail() {
             throw new UnsupportedOperationException("Empty list has no tail");
         }
-        
+
         @Override
         public boolean isEmpty() {
             return true;
         }
-        
+
         @Override
         public int size() {
             return 0;
         }
-        
+
         @Override
         public <U> ImmutableList<U> map(Function<T, U> mapper) {
             return empty();
         }
-        
+
         @Override
         public ImmutableList<T> filter(Predicate<T> predicate) {
             return this;
         }
-        
+
         @Override
         public ImmutableList<T> prepend(T element) {
             return new Cons<>(element, this);
         }
-        
+
+        @Override
+        public ImmutableList<T> append(T element) {
+            return new Builder<T>().add(element).build();
+        }
+
         @Override
         public String toString() {
             return "[]";
         }
-        
+
         @Override
         public boolean equals(Object obj) {
-            return obj instanceof Empty;
+            return obj instanceof ImmutableList<?> other && other.isEmpty();
         }
-        
+
         @Override
         public int hashCode() {
             return 0;
         }
     }
-    
+
     private static class Cons<T> extends ImmutableList<T> {
         private final T head;
         private final ImmutableList<T> tail;
         private final int size;
-        
+
         Cons(T head, ImmutableList<T> tail) {
             this.head = head;
             this.tail = tail;
             this.size = tail.size() + 1;
         }
-        
+
         @Override
         public T head() {
             return head;
         }
-        
+
         @Override
         public ImmutableList<T> tail() {
             return tail;
         }
-        
+
         @Override
         public boolean isEmpty() {
             return false;
         }
-        
+
         @Override
         public int size() {
             return size;
         }
-        
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            // Walk the cons cells; a vector further down answers the rest directly
+            ImmutableList<T> current = this;
+            while (index > 0 && current instanceof Cons<T> cons) {
+                current = cons.tail;
+                index--;
+            }
+            return index == 0 ? current.head() : current.get(index);
+        }
+
         @Override
         public <U> ImmutableList<U> map(Function<T, U> mapper) {
-            return tail.map(mapper).prepend(mapper.apply(head));
+            Builder<U> builder = new Builder<>();
+            for (T element : this) {
+                builder.add(mapper.apply(element));
+            }
+            return builder.build();
         }
-        
+
         @Override
         public ImmutableList<T> filter(Predicate<T> predicate) {
-            ImmutableList<T> filteredTail = tail.filter(predicate);
-            return predicate.test(head) ? filteredTail.prepend(head) : filteredTail;
+            Builder<T> builder = new Builder<>();
+            for (T element : this) {
+                if (predicate.test(element)) {
+                    builder.add(element);
+                }
+            }
+            return builder.build();
         }
-        
+
         @Override
         public ImmutableList<T> prepend(T element) {
             return new Cons<>(element, this);
         }
-        
+
+        @Override
+        public ImmutableList<T> append(T element) {
+            return new Builder<T>().addAll(this).add(element).build();
+        }
+
         @Override
         public String toString() {
-            StringBuilder sb = new StringBuilder("[");
-            ImmutableList<T> current = this;
-            while (!current.isEmpty()) {
-                sb.append(current.head());
-                current = current.tail();
-                if (!current.isEmpty()) {
-                    sb.append(", ");
+            return elementString(this);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return sameElements(this, obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return elementHash(this);
+        }
+    }
+
+    /**
+     * Elements [start, end) of a trie holding count elements. Slicing only
+     * moves start and end, so the trie is shared by every view of it.
+     */
+    private static final class Vector<T> extends ImmutableList<T> {
+        static final int BITS = 5;
+        static final int WIDTH = 1 << BITS;
+        static final int MASK = WIDTH - 1;
+        static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+        private final Object[] root;
+        private final Object[] tail;
+        private final int shift;
+        private final int count;
+        private final int start;
+        private final int end;
+
+        Vector(Object[] root, Object[] tail, int shift, int count, int start, int end) {
+            this.root = root;
+            this.tail = tail;
+            this.shift = shift;
+            this.count = count;
+            this.start = start;
+            this.end = end;
+        }
+
+        // Index of the first element in the tail buffer
+        static int tailOffset(int count) {
+            return count < WIDTH ? 0 : ((count - 1) >>> BITS) << BITS;
+        }
+
+        // The leaf array holding trie index i
+        private Object[] leafFor(int i) {
+            if (i >= tailOffset(count)) {
+                return tail;
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Object[]) node[(i >>> level) & MASK];
+            }
+            return node;
+        }
+
+        @Override
+        public T head() {
+            return uncheckedCast(leafFor(start)[start & MASK]);
+        }
+
+        @Override
+        public ImmutableList<T> tail() {
+            return end - start == 1 ? empty() : new Vector<>(root, tail, shift, count, start + 1, end);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            int i = start + index;
+            return uncheckedCast(leafFor(i)[i & MASK]);
+        }
+
+        @Override
+        public ImmutableList<T> take(int n) {
+            if (n <= 0) return empty();
+            if (n >= end - start) return this;
+            return new Vector<>(root, tail, shift, count, start, start + n);
+        }
+
+        @Override
+        public <U> ImmutableList<U> map(Function<T, U> mapper) {
+            Builder<U> builder = new Builder<>();
+            for (int i = start; i < end; ) {
+                Object[] leaf = leafFor(i);
+                int limit = Math.min(end - (i & ~MASK), leaf.length);
+                for (int j = i & MASK; j < limit; j++, i++) {
+                    builder.add(mapper.apply(uncheckedCast(leaf[j])));
                 }
             }
-            sb.append("]");
-            return sb.toString();
+            return builder.build();
         }
-        
+
         @Override
-        public boolean equals(Object obj) {
-            if (this == obj) return true;
-            if (!(obj instanceof ImmutableList<?> other)) return false;
-            if (other.isEmpty()) return false;
-            if (size() != other.size()) return false;
-            
-            ImmutableList<T> thisCur = this;
-            ImmutableList<?> otherCur = other;
-            while (!thisCur.isEmpty() && !otherCur.isEmpty()) {
-                if (!java.util.Objects.equals(thisCur.head(), otherCur.head())) {
-                    return false;
+        public ImmutableList<T> filter(Predicate<T> predicate) {
+            Builder<T> builder = new Builder<>();
+            for (int i = start; i < end; ) {
+                Object[] leaf = leafFor(i);
+                int limit = Math.min(end - (i & ~MASK), leaf.length);
+                for (int j = i & MASK; j < limit; j++, i++) {
+                    T element = uncheckedCast(leaf[j]);
+                    if (predicate.test(element)) {
+                        builder.add(element);
+                    }
                 }
-                thisCur = thisCur.tail();
-                otherCur = otherCur.tail();
             }
-            return thisCur.isEmpty() && otherCur.isEmpty();
+            return builder.size() == size() ? this : builder.build();
         }
-        
+
         @Override
-        public int hashCode() {
-            int hash = 1;
-            ImmutableList<T> current = this;
-            while (!current.isEmpty()) {
-                hash = 31 * hash + java.util.Objects.hashCode(current.head());
-                current = current.tail();
+        public <U> U foldLeft(U identity, java.util.function.BinaryOperator<U> accumulator) {
+            U result = identity;
+            for (int i = start; i < end; ) {
+                Object[] leaf = leafFor(i);
+                int limit = Math.min(end - (i & ~MASK), leaf.length);
+                for (int j = i & MASK; j < limit; j++, i++) {
+                    result = accumulator.apply(result, uncheckedCast(leaf[j]));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public ImmutableList<T> prepend(T element) {
+            return new Cons<>(element, this);
+        }
+
+        @Override
+        public ImmutableList<T> append(T element) {
+            if (end != count) {
+                // A prefix view: the slot after end belongs to the longer list
+                return new Builder<T>().addAll(this).add(element).build();
+            }
+            int tailSize = count - tailOffset(count);
+            if (tailSize < WIDTH) {
+                Object[] newTail = Arrays.copyOf(tail, tailSize + 1);
+                newTail[tailSize] = element;
+                return new Vector<>(root, newTail, shift, count + 1, start, count + 1);
+            }
+            Object[] newRoot;
+            int newShift = shift;
+            if ((count >>> BITS) > (1 << shift)) {
+                newRoot = new Object[WIDTH];
+                newRoot[0] = root;
+                newRoot[1] = newPath(shift, tail);
+                newShift += BITS;
+            } else {
+                newRoot = pushTail(shift, root, tail);
+            }
+            return new Vector<>(newRoot, new Object[]{element}, newShift, count + 1, start, count + 1);
+        }
+
+        private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+            Object[] node = parent.clone();
+            int index = ((count - 1) >>> level) & MASK;
+            if (level == BITS) {
+                node[index] = tailNode;
+            } else {
+                Object[] child = (Object[]) parent[index];
+                node[index] = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+            }
+            return node;
+        }
+
+        private static Object[] newPath(int level, Object[] node) {
+            if (level == 0) {
+                return node;
+            }
+            Object[] path = new Object[WIDTH];
+            path[0] = newPath(level - BITS, node);
+            return path;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<>() {
+                private int index = start;
+                private Object[] leaf = leafFor(start);
+
+                @Override
+                public boolean hasNext() {
+                    return index < end;
+                }
+
+                @Override
+                public T next() {
+                    if (index >= end) {
+                        throw new NoSuchElementException();
+                    }
+                    if ((index & MASK) == 0 && index != start) {
+                        leaf = leafFor(index);
+                    }
+                    return uncheckedCast(leaf[index++ & MASK]);
+                }
+            };
+        }
+
+        @Override
+        public Object[] toArray() {
+            Object[] elements = new Object[end - start];
+            int copied = 0;
+            for (int i = start; i < end; ) {
+                Object[] leaf = leafFor(i);
+                int from = i & MASK;
+                int length = Math.min(end - (i & ~MASK), leaf.length) - from;
+                System.arraycopy(leaf, from, elements, copied, length);
+                copied += length;
+                i += length;
             }
-            return hash;
+            return elements;
+        }
+
+        @Override
+        public String toString() {
+            return elementString(this);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return sameElements(this, obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return elementHash(this);
         }
     }
-}
\ No newline at end of file
+}
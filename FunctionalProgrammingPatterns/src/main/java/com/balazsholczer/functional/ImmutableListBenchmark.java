@@ -0,0 +1,107 @@
+package com.balazsholczer.functional;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Cost per element of building, indexing, mapping, filtering and folding a
+ * 100,000 element list: the cons list that prepend builds, the vector that
+ * of/append/Builder build, and List.copyOf as the mutable-collections baseline.
+ *
+ * Run with: java com.balazsholczer.functional.ImmutableListBenchmark [size]
+ */
+public class ImmutableListBenchmark {
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Integer[] values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        int[] indices = new Random(7).ints(4096, 0, size).toArray();
+
+        ImmutableList<Integer> cons = cons(values);
+        ImmutableList<Integer> vector = ImmutableList.of(values);
+        List<Integer> copy = List.copyOf(List.of(values));
+
+        System.out.println("=== Immutable List Benchmark (" + size + " elements) ===");
+        for (int round = 0; round < 2; round++) {
+            System.out.println("Round " + (round + 1) + ":");
+            run("  build  cons", size, () -> cons(values).size());
+            run("  build  vector", size, () -> ImmutableList.of(values).size());
+            run("  build  append", size, () -> {
+                ImmutableList<Integer> list = ImmutableList.empty();
+                for (Integer value : values) {
+                    list = list.append(value);
+                }
+                return list.size();
+            });
+            run("  build  List.copyOf", size, () -> List.copyOf(new ArrayList<>(List.of(values))).size());
+
+            // The cons list walks to every index, so it gets far fewer lookups
+            run("  get    cons", 64, () -> {
+                long sum = 0;
+                for (int i = 0; i < 64; i++) {
+                    sum += cons.get(indices[i]);
+                }
+                return sum;
+            });
+            run("  get    vector", indices.length, () -> {
+                long sum = 0;
+                for (int index : indices) {
+                    sum += vector.get(index);
+                }
+                return sum;
+            });
+            run("  get    List.copyOf", indices.length, () -> {
+                long sum = 0;
+                for (int index : indices) {
+                    sum += copy.get(index);
+                }
+                return sum;
+            });
+
+            run("  map    cons", size, () -> cons.map(x -> x + 1).size());
+            run("  map    vector", size, () -> vector.map(x -> x + 1).size());
+            run("  map    List.copyOf", size, () -> copy.stream().map(x -> x + 1).toList().size());
+
+            run("  filter cons", size, () -> cons.filter(x -> (x & 1) == 0).size());
+            run("  filter vector", size, () -> vector.filter(x -> (x & 1) == 0).size());
+            run("  filter List.copyOf", size, () -> copy.stream().filter(x -> (x & 1) == 0).toList().size());
+
+            run("  fold   cons", size, () -> cons.foldLeft(0, Integer::sum));
+            run("  fold   vector", size, () -> vector.foldLeft(0, Integer::sum));
+            run("  fold   List.copyOf", size, () -> copy.stream().reduce(0, Integer::sum));
+        }
+    }
+
+    private static ImmutableList<Integer> cons(Integer[] values) {
+        ImmutableList<Integer> list = ImmutableList.empty();
+        for (int i = values.length - 1; i >= 0; i--) {
+            list = list.prepend(values[i]);
+        }
+        return list;
+    }
+
+    // Repeats the operation for about 200 ms and reports per-element figures
+    private static void run(String name, int elementsPerCall, LongSupplier operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long calls = 0;
+        long elapsed;
+        do {
+            sink += operation.getAsLong();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < 200_000_000L);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        double elements = (double) calls * elementsPerCall;
+        System.out.printf("%-22s %,8.1f ns/element %,8.1f bytes/element%n", name, elapsed / elements, allocated / elements);
+    }
+}
@@ -0,0 +1,269 @@
+package com.balazsholczer.functional;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Immutable list of int values kept unboxed in an array. tail, take and drop
+ * are views sharing that array; map and filter write a new array in one pass.
+ * prepend and append copy, so build larger lists with the Builder.
+ * For chains of map and filter, stream() fuses them into a single pass.
+ */
+public final class IntImmutableList {
+
+    // Largest array the VM reliably allocates
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final int[] NO_ELEMENTS = new int[0];
+    private static final IntImmutableList EMPTY = new IntImmutableList(NO_ELEMENTS, 0, 0);
+
+    private final int[] elements;
+    private final int offset;
+    private final int size;
+
+    private IntImmutableList(int[] elements, int offset, int size) {
+        this.elements = elements;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public static IntImmutableList empty() {
+        return EMPTY;
+    }
+
+    public static IntImmutableList of(int... elements) {
+        return elements.length == 0 ? EMPTY : new IntImmutableList(elements.clone(), 0, elements.length);
+    }
+
+    public static IntImmutableList copyOf(ImmutableList<Integer> list) {
+        int[] copy = new int[list.size()];
+        int i = 0;
+        for (Integer element : list) {
+            copy[i++] = element;
+        }
+        return wrap(copy, copy.length);
+    }
+
+    // [startInclusive, endExclusive)
+    public static IntImmutableList range(int startInclusive, int endExclusive) {
+        if (startInclusive >= endExclusive) return EMPTY;
+        long span = (long) endExclusive - startInclusive;
+        if (span > MAX_SIZE) {
+            throw new IllegalArgumentException("Range [" + startInclusive + ", " + endExclusive + ") has "
+                + span + " elements, more than a list can hold; use IntStream.range");
+        }
+        int[] values = new int[(int) span];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = startInclusive + i;
+        }
+        return wrap(values, values.length);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Takes ownership of the array
+    static IntImmutableList wrap(int[] elements, int size) {
+        return size == 0 ? EMPTY : new IntImmutableList(elements, 0, size);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int head() {
+        if (size == 0) {
+            throw new UnsupportedOperationException("Empty list has no head");
+        }
+        return elements[offset];
+    }
+
+    public IntImmutableList tail() {
+        if (size == 0) {
+            throw new UnsupportedOperationException("Empty list has no tail");
+        }
+        return drop(1);
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return elements[offset + index];
+    }
+
+    public IntImmutableList take(int n) {
+        if (n <= 0) return EMPTY;
+        if (n >= size) return this;
+        return new IntImmutableList(elements, offset, n);
+    }
+
+    public IntImmutableList drop(int n) {
+        if (n <= 0) return this;
+        if (n >= size) return EMPTY;
+        return new IntImmutableList(elements, offset + n, size - n);
+    }
+
+    public IntImmutableList map(IntUnaryOperator mapper) {
+        int[] mapped = new int[size];
+        for (int i = 0; i < size; i++) {
+            mapped[i] = mapper.applyAsInt(elements[offset + i]);
+        }
+        return wrap(mapped, size);
+    }
+
+    public IntImmutableList filter(IntPredicate predicate) {
+        int[] kept = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int element = elements[offset + i];
+            if (predicate.test(element)) {
+                kept[count++] = element;
+            }
+        }
+        if (count == size) {
+            return this;
+        }
+        return wrap(count < size / 2 ? Arrays.copyOf(kept, count) : kept, count);
+    }
+
+    public <U> ImmutableList<U> mapToObj(IntFunction<U> mapper) {
+        ImmutableList.Builder<U> builder = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(mapper.apply(elements[offset + i]));
+        }
+        return builder.build();
+    }
+
+    public ImmutableList<Integer> boxed() {
+        return mapToObj(Integer::valueOf);
+    }
+
+    public int foldLeft(int identity, IntBinaryOperator accumulator) {
+        int result = identity;
+        for (int i = 0; i < size; i++) {
+            result = accumulator.applyAsInt(result, elements[offset + i]);
+        }
+        return result;
+    }
+
+    public int sum() {
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += elements[offset + i];
+        }
+        return sum;
+    }
+
+    // Lazy view for fused pipelines, e.g. list.stream().map(f).filter(p).toList()
+    public IntStream stream() {
+        return IntStream.of(elements, offset, size);
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[offset + i]);
+        }
+    }
+
+    public IntImmutableList prepend(int element) {
+        int[] copy = new int[size + 1];
+        copy[0] = element;
+        System.arraycopy(elements, offset, copy, 1, size);
+        return wrap(copy, copy.length);
+    }
+
+    public IntImmutableList append(int element) {
+        int[] copy = Arrays.copyOfRange(elements, offset, offset + size + 1);
+        copy[size] = element;
+        return wrap(copy, copy.length);
+    }
+
+    public IntImmutableList reverse() {
+        int[] reversed = new int[size];
+        for (int i = 0; i < size; i++) {
+            reversed[i] = elements[offset + size - 1 - i];
+        }
+        return wrap(reversed, size);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOfRange(elements, offset, offset + size);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof IntImmutableList other)) return false;
+        return Arrays.equals(elements, offset, offset + size, other.elements, other.offset, other.offset + other.size);
+    }
+
+    // Same formula as ImmutableList, so a list and its boxed() copy hash alike
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Integer.hashCode(elements[offset + i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements[offset + i]);
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * Growable buffer for building a list without boxing. build() copies, so
+     * the builder can keep adding afterwards.
+     */
+    public static final class Builder {
+        private int[] buffer = new int[16];
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder add(int element) {
+            if (size == buffer.length) {
+                if (size == MAX_SIZE) {
+                    throw new IllegalStateException("List cannot hold more than " + MAX_SIZE + " elements");
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min(2L * size, MAX_SIZE));
+            }
+            buffer[size++] = element;
+            return this;
+        }
+
+        public Builder addAll(IntImmutableList list) {
+            for (int i = 0; i < list.size; i++) {
+                add(list.elements[list.offset + i]);
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public IntImmutableList build() {
+            return wrap(Arrays.copyOf(buffer, size), size);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.balazsholczer.functional;
+
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Lazy stream of unboxed ints, the primitive counterpart of Stream.
+ *
+ * Instead of a chain of memoized cons cells, a stream is a recipe that pushes
+ * its elements into a sink until the sink says stop. map, filter, limit and
+ * drop wrap the sink, so a whole pipeline runs as one loop with no boxing and
+ * no allocation per element. Nothing is memoized: each terminal operation
+ * runs the pipeline again from its source. sum, foldLeft and toList need a
+ * finite stream; use limit or take on infinite ones.
+ */
+public abstract class IntStream {
+
+    // Pushes elements in order until the sink returns false or the elements run out
+    abstract void forEachWhile(IntPredicate sink);
+
+    /* ----- Construction ----- */
+
+    public static IntStream empty() {
+        return new IntStream() {
+            @Override
+            void forEachWhile(IntPredicate sink) {
+            }
+        };
+    }
+
+    public static IntStream of(int... elements) {
+        return of(elements.clone(), 0, elements.length);
+    }
+
+    static IntStream of(int[] elements, int offset, int size) {
+        return new IntStream() {
+            @Override
+            void forEachWhile(IntPredicate sink) {
+                for (int i = offset; i < offset + size; i++) {
+                    if (!sink.test(elements[i])) {
+                        return;
+                    }
+                }
+            }
+        };
+    }
+
+    // [startInclusive, endExclusive)
+    public static IntStream range(int startInclusive, int endExclusive) {
+        return new IntStream() {
+            @Override
+            void forEachWhile(IntPredicate sink) {
+                for (int i = startInclusive; i < endExclusive; i++) {
+                    if (!sink.test(i)) {
+                        return;
+                    }
+                }
+            }
+        };
+    }
+
+    public static IntStream from(int startInclusive) {
+        return iterate(startInclusive, n -> n + 1);
+    }
+
+    public static IntStream iterate(int seed, IntUnaryOperator f) {
+        return new IntStream() {
+            @Override
+            void forEachWhile(IntPredicate sink) {
+                int value = seed;
+                while (sink.test(value)) {
+                    value = f.applyAsInt(value);
+                }
+            }
+        };
+    }
+
+    public static IntStream fibonacci() {
+        return fib(0, 1);
+    }
+
+    public static IntStream fib(int a, int b) {
+        return new IntStream() {
+            @Override
+            void forEachWhile(IntPredicate sink) {
+                int current = a;
+                int next = b;
+                while (sink.test(current)) {
+                    int following = current + next;
+                    current = next;
+                    next = following;
+                }
+            }
+        };
+    }
+
+    /* ----- Functor / Filter ----- */
+
+    public IntStream map(IntUnaryOperator mapper) {
+        IntStream source = this;
+        return new IntStream() {
+            @Override
+            void forEachWhile(IntPredicate sink) {
+                source.forEachWhile(value -> sink.test(mapper.applyAsInt(value)));
+            }
+        };
+    }
+
+    public IntStream filter(IntPredicate predicate) {
+        IntStream source = this;
+        return new IntStream() {
+            @Override
+            void forEachWhile(IntPredicate sink) {
+                source.forEachWhile(value -> !predicate.test(value) || sink.test(value));
+            }
+        };
+    }
+
+    /* ----- Slicing ----- */
+
+    public IntStream limit(int n) {
+        IntStream source = this;
+        return new IntStream() {
+            @Override
+            void forEachWhile(IntPredicate sink) {
+                if (n <= 0) {
+                    return;
+                }
+                int[] remaining = {n};
+                source.forEachWhile(value -> sink.test(value) && --remaining[0] > 0);
+            }
+        };
+    }
+
+    public IntStream drop(int n) {
+        return new Dropped(this, Math.max(n, 0));
+    }
+
+    // Consecutive drops collapse into one, so walking a stream with tail() stays flat
+    private static final class Dropped extends IntStream {
+        private final IntStream source;
+        private final long count;
+
+        private Dropped(IntStream source, long count) {
+            this.source = source;
+            this.count = count;
+        }
+
+        @Override
+        public IntStream drop(int n) {
+            return new Dropped(source, count + Math.max(n, 0));
+        }
+
+        @Override
+        void forEachWhile(IntPredicate sink) {
+            long[] skipped = {0};
+            source.forEachWhile(value -> {
+                if (skipped[0] < count) {
+                    skipped[0]++;
+                    return true;
+                }
+                return sink.test(value);
+            });
+        }
+    }
+
+    public boolean isEmpty() {
+        boolean[] found = {false};
+        forEachWhile(value -> {
+            found[0] = true;
+            return false;
+        });
+        return !found[0];
+    }
+
+    public int head() {
+        int[] head = new int[1];
+        boolean[] found = {false};
+        forEachWhile(value -> {
+            head[0] = value;
+            found[0] = true;
+            return false;
+        });
+        if (!found[0]) {
+            throw new UnsupportedOperationException("Empty stream");
+        }
+        return head[0];
+    }
+
+    // Lazy: the tail of an empty stream is empty
+    public IntStream tail() {
+        return drop(1);
+    }
+
+    /* ----- Materialization ----- */
+
+    public IntImmutableList take(int n) {
+        return limit(n).toList();
+    }
+
+    public IntImmutableList toList() {
+        IntImmutableList.Builder builder = IntImmutableList.builder();
+        forEachWhile(value -> {
+            builder.add(value);
+            return true;
+        });
+        return builder.build();
+    }
+
+    public int foldLeft(int identity, IntBinaryOperator accumulator) {
+        int[] result = {identity};
+        forEachWhile(value -> {
+            result[0] = accumulator.applyAsInt(result[0], value);
+            return true;
+        });
+        return result[0];
+    }
+
+    public int sum() {
+        return foldLeft(0, Integer::sum);
+    }
+}
@@ -0,0 +1,248 @@
+package com.balazsholczer.functional;
+
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Immutable list of long values kept unboxed in an array. tail, take and drop
+ * are views sharing that array; map and filter write a new array in one pass.
+ * prepend and append copy, so build larger lists with the Builder.
+ */
+public final class LongImmutableList {
+
+    // Largest array the VM reliably allocates
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final long[] NO_ELEMENTS = new long[0];
+    private static final LongImmutableList EMPTY = new LongImmutableList(NO_ELEMENTS, 0, 0);
+
+    private final long[] elements;
+    private final int offset;
+    private final int size;
+
+    private LongImmutableList(long[] elements, int offset, int size) {
+        this.elements = elements;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public static LongImmutableList empty() {
+        return EMPTY;
+    }
+
+    public static LongImmutableList of(long... elements) {
+        return elements.length == 0 ? EMPTY : new LongImmutableList(elements.clone(), 0, elements.length);
+    }
+
+    public static LongImmutableList copyOf(ImmutableList<Long> list) {
+        long[] copy = new long[list.size()];
+        int i = 0;
+        for (Long element : list) {
+            copy[i++] = element;
+        }
+        return wrap(copy, copy.length);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Takes ownership of the array
+    static LongImmutableList wrap(long[] elements, int size) {
+        return size == 0 ? EMPTY : new LongImmutableList(elements, 0, size);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long head() {
+        if (size == 0) {
+            throw new UnsupportedOperationException("Empty list has no head");
+        }
+        return elements[offset];
+    }
+
+    public LongImmutableList tail() {
+        if (size == 0) {
+            throw new UnsupportedOperationException("Empty list has no tail");
+        }
+        return drop(1);
+    }
+
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return elements[offset + index];
+    }
+
+    public LongImmutableList take(int n) {
+        if (n <= 0) return EMPTY;
+        if (n >= size) return this;
+        return new LongImmutableList(elements, offset, n);
+    }
+
+    public LongImmutableList drop(int n) {
+        if (n <= 0) return this;
+        if (n >= size) return EMPTY;
+        return new LongImmutableList(elements, offset + n, size - n);
+    }
+
+    public LongImmutableList map(LongUnaryOperator mapper) {
+        long[] mapped = new long[size];
+        for (int i = 0; i < size; i++) {
+            mapped[i] = mapper.applyAsLong(elements[offset + i]);
+        }
+        return wrap(mapped, size);
+    }
+
+    public LongImmutableList filter(LongPredicate predicate) {
+        long[] kept = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long element = elements[offset + i];
+            if (predicate.test(element)) {
+                kept[count++] = element;
+            }
+        }
+        if (count == size) {
+            return this;
+        }
+        return wrap(count < size / 2 ? Arrays.copyOf(kept, count) : kept, count);
+    }
+
+    public <U> ImmutableList<U> mapToObj(LongFunction<U> mapper) {
+        ImmutableList.Builder<U> builder = ImmutableList.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(mapper.apply(elements[offset + i]));
+        }
+        return builder.build();
+    }
+
+    public ImmutableList<Long> boxed() {
+        return mapToObj(Long::valueOf);
+    }
+
+    public long foldLeft(long identity, LongBinaryOperator accumulator) {
+        long result = identity;
+        for (int i = 0; i < size; i++) {
+            result = accumulator.applyAsLong(result, elements[offset + i]);
+        }
+        return result;
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += elements[offset + i];
+        }
+        return sum;
+    }
+
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[offset + i]);
+        }
+    }
+
+    public LongImmutableList prepend(long element) {
+        long[] copy = new long[size + 1];
+        copy[0] = element;
+        System.arraycopy(elements, offset, copy, 1, size);
+        return wrap(copy, copy.length);
+    }
+
+    public LongImmutableList append(long element) {
+        long[] copy = Arrays.copyOfRange(elements, offset, offset + size + 1);
+        copy[size] = element;
+        return wrap(copy, copy.length);
+    }
+
+    public LongImmutableList reverse() {
+        long[] reversed = new long[size];
+        for (int i = 0; i < size; i++) {
+            reversed[i] = elements[offset + size - 1 - i];
+        }
+        return wrap(reversed, size);
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOfRange(elements, offset, offset + size);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof LongImmutableList other)) return false;
+        return Arrays.equals(elements, offset, offset + size, other.elements, other.offset, other.offset + other.size);
+    }
+
+    // Same formula as ImmutableList, so a list and its boxed() copy hash alike
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Long.hashCode(elements[offset + i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements[offset + i]);
+        }
+        return sb.append("]").toString();
+    }
+
+    /**
+     * Growable buffer for building a list without boxing. build() copies, so
+     * the builder can keep adding afterwards.
+     */
+    public static final class Builder {
+        private long[] buffer = new long[16];
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder add(long element) {
+            if (size == buffer.length) {
+                if (size == MAX_SIZE) {
+                    throw new IllegalStateException("List cannot hold more than " + MAX_SIZE + " elements");
+                }
+                buffer = Arrays.copyOf(buffer, (int) Math.min(2L * size, MAX_SIZE));
+            }
+            buffer[size++] = element;
+            return this;
+        }
+
+        public Builder addAll(LongImmutableList list) {
+            for (int i = 0; i < list.size; i++) {
+                add(list.elements[list.offset + i]);
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public LongImmutableList build() {
+            return wrap(Arrays.copyOf(buffer, size), size);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.balazsholczer.functional;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntSupplier;
+
+/**
+ * Sum of the squares of the even numbers below 100,000, computed through the
+ * boxed Stream and ImmutableList, through IntImmutableList and the fused
+ * IntStream, and through java.util.stream.IntStream as a baseline.
+ *
+ * Run with: java com.balazsholczer.functional.PrimitiveStreamBenchmark [count]
+ */
+public class PrimitiveStreamBenchmark {
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        System.out.println("=== Primitive Stream Benchmark (" + count + " elements) ===");
+
+        IntSupplier[] pipelines = {
+            () -> Fold.sum(Stream.from(0).filter(x -> x % 2 == 0).map(x -> x * x).take(count / 2), 0, Integer::sum),
+            () -> Unfold.range(0, count).filter(x -> x % 2 == 0).map(x -> x * x).foldLeft(0, Integer::sum),
+            () -> IntImmutableList.range(0, count).filter(x -> x % 2 == 0).map(x -> x * x).sum(),
+            () -> IntStream.range(0, count).filter(x -> x % 2 == 0).map(x -> x * x).sum(),
+            () -> java.util.stream.IntStream.range(0, count).filter(x -> x % 2 == 0).map(x -> x * x).sum()
+        };
+        String[] names = {"Stream<Integer>", "ImmutableList<Integer>", "IntImmutableList", "IntStream", "java.util IntStream"};
+
+        int expected = pipelines[pipelines.length - 1].getAsInt();
+        for (int i = 0; i < pipelines.length; i++) {
+            if (pipelines[i].getAsInt() != expected) {
+                throw new IllegalStateException(names[i] + " computed a different sum");
+            }
+        }
+        for (int round = 0; round < 2; round++) {
+            System.out.println("Round " + (round + 1) + ":");
+            for (int i = 0; i < pipelines.length; i++) {
+                run("  " + names[i], count, pipelines[i]);
+            }
+        }
+    }
+
+    // Repeats the pipeline for about 300 ms and reports per-element figures
+    private static void run(String name, int count, IntSupplier pipeline) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long calls = 0;
+        long elapsed;
+        do {
+            sink += pipeline.getAsInt();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < 300_000_000L);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        double elements = (double) calls * count;
+        System.out.printf("%-26s %,8.2f ns/element %,8.1f bytes/element%n", name, elapsed / elements, allocated / elements);
+    }
+}
@@ -1,9 +1,38 @@
 package com.balazsholczer.functional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
+/**
+ * Lazy, possibly infinite stream.
+ *
+ * Streams built by cons are memoized cells, as before. map, filter and limit
+ * do not wrap cells in more cells: they append a stage to a pipeline, and a
+ * pipeline runs all of its stages for one element in a single loop before
+ * pulling the next from its source. Nothing recurses, however long the
+ * stream or however sparse the filter.
+ *
+ * head and tail pull one element at a time and memoize it, so walking a
+ * pipeline cell by cell is exactly as lazy as before. Bulk terminal
+ * operations - take, foldLeft, reduce, count, forEach, toImmutableList - pull
+ * from the source in blocks of 64, so a source may be read up to one block
+ * past the last element a filtered pipeline needs; stage functions still run
+ * only on elements that are used. A derived pipeline evaluates from its
+ * source again rather than reusing another pipeline's memoized cells.
+ *
+ * parallel() lets reduce, count and toImmutableList split range, of and
+ * fromList sources over the common fork/join pool. Infinite sources and
+ * pipelines with a limit always run sequentially.
+ */
 public abstract class Stream<T> {
 
     public abstract boolean isEmpty();
@@ -25,64 +54,106 @@ public abstract class Stream<T> {
     }
 
     public static Stream<Integer> fib(int a, int b) {
-        return cons(() -> a, () -> fib(b, a + b));
+        return new Pipeline<>(new FibOrigin(a, b), NO_STAGES, false);
     }
 
     public static Stream<Integer> from(int startInclusive) {
-        return cons(() -> startInclusive, () -> from(startInclusive + 1));
+        return iterate(startInclusive, n -> n + 1);
     }
 
     public static <T> Stream<T> iterate(T seed, Function<T, T> f) {
-        return cons(() -> seed, () -> iterate(f.apply(seed), f));
+        return new Pipeline<>(new IterateOrigin<>(seed, f), NO_STAGES, false);
+    }
+
+    // [startInclusive, endExclusive)
+    public static Stream<Integer> range(int startInclusive, int endExclusive) {
+        return new Pipeline<>(new RangeOrigin(startInclusive, Math.max(startInclusive, endExclusive)), NO_STAGES, false);
+    }
+
+    @SafeVarargs
+    public static <T> Stream<T> of(T... elements) {
+        // Copied element by element, so the varargs array itself never escapes
+        Object[] copy = new Object[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            copy[i] = elements[i];
+        }
+        return new Pipeline<>(new ArrayOrigin(copy, 0, copy.length), NO_STAGES, false);
+    }
+
+    public static <T> Stream<T> fromList(ImmutableList<T> list) {
+        Object[] elements = list.toArray();
+        return new Pipeline<>(new ArrayOrigin(elements, 0, elements.length), NO_STAGES, false);
     }
 
     /* ----- Functor / Filter ----- */
 
     public <U> Stream<U> map(Function<T, U> mapper) {
-        if (isEmpty()) return empty();
-        return cons(() -> mapper.apply(head()), () -> tail().map(mapper));
+        return pipeline().with(new Stage(Stage.MAP, mapper, null, 0));
     }
 
     public Stream<T> filter(Predicate<T> predicate) {
-        if (isEmpty()) return this;
-        return predicate.test(head())
-                ? cons(() -> head(), () -> tail().filter(predicate))
-                : tail().filter(predicate);
+        return pipeline().with(new Stage(Stage.FILTER, null, predicate, 0));
     }
 
     /* ----- Materialization / Taking ----- */
 
     // REQUIRED by tests: produce ImmutableList of first n (or fewer if stream shorter/empty)
     public ImmutableList<T> take(int n) {
-        if (n <= 0 || isEmpty()) return ImmutableList.empty();
-        // Build reversed then reverse once (iterative for stack safety)
-        ImmutableList<T> acc = ImmutableList.empty();
-        Stream<T> cur = this;
-        int k = n;
-        while (k > 0 && !cur.isEmpty()) {
-            acc = acc.prepend(cur.head());
-            cur = cur.tail();
-            k--;
-        }
-        return acc.reverse();
+        if (n <= 0) return ImmutableList.empty();
+        return limit(n).toImmutableList();
     }
 
     // Original behavior (truncate stream lazily) renamed to keep demo code working
     public Stream<T> limit(int n) {
-        if (n <= 0 || isEmpty()) return empty();
-        return cons(() -> head(), () -> tail().limit(n - 1));
+        if (n <= 0) return empty();
+        return pipeline().with(new Stage(Stage.LIMIT, null, null, n));
     }
 
     public ImmutableList<T> toImmutableList(int n) {
         return take(n);
     }
 
+    // Every element; the stream must be finite
+    public ImmutableList<T> toImmutableList() {
+        return pipeline().collect();
+    }
+
+    public <R> R foldLeft(R identity, BiFunction<R, T, R> accumulator) {
+        return pipeline().foldLeft(identity, accumulator);
+    }
+
+    // op must be associative for parallel streams
+    public T reduce(T identity, BinaryOperator<T> op) {
+        return pipeline().reduce(identity, op);
+    }
+
+    public long count() {
+        return pipeline().count();
+    }
+
+    public void forEach(Consumer<T> action) {
+        pipeline().forEach(action);
+    }
+
+    public Stream<T> parallel() {
+        return pipeline().withParallel(true);
+    }
+
+    public Stream<T> sequential() {
+        return pipeline().withParallel(false);
+    }
+
     /* ----- Helpers ----- */
 
     public ImmutableList<T> toImmutableListForce(int max) {
         return take(max);
     }
 
+    // Any stream can feed a pipeline: cells are read in order, without recursion
+    Pipeline<T> pipeline() {
+        return new Pipeline<>(new CellsOrigin<>(this), NO_STAGES, false);
+    }
+
     /* ----- Internal Variants ----- */
 
     private static final class Empty<T> extends Stream<T> {
@@ -127,4 +198,528 @@ public abstract class Stream<T> {
             return tail;
         }
     }
-}
\ No newline at end of file
+
+    /* ----- Pipeline engine ----- */
+
+    private static final int BLOCK = 64;
+    private static final Stage[] NO_STAGES = new Stage[0];
+
+    // One fused step; kept as a plain class so the inner loop is a switch on an int
+    private static final class Stage {
+        static final int MAP = 0;
+        static final int FILTER = 1;
+        static final int LIMIT = 2;
+
+        final int kind;
+        final Function<Object, Object> mapper;
+        final Predicate<Object> predicate;
+        final long limit;
+
+        @SuppressWarnings("unchecked")
+        Stage(int kind, Function<?, ?> mapper, Predicate<?> predicate, long limit) {
+            this.kind = kind;
+            this.mapper = (Function<Object, Object>) mapper;
+            this.predicate = (Predicate<Object>) predicate;
+            this.limit = limit;
+        }
+    }
+
+    // A traversal's view of a source: fills block[0, n) with the next n <= max elements, 0 at the end
+    private interface Source {
+        int pull(Object[] block, int max);
+    }
+
+    // Where a pipeline's elements come from; each traversal opens a fresh Source
+    private abstract static class Origin {
+        abstract Source open();
+
+        // Element count of a splittable origin, -1 otherwise
+        long size() {
+            return -1;
+        }
+
+        Origin slice(int from, int to) {
+            throw new UnsupportedOperationException("Origin cannot be split");
+        }
+    }
+
+    private static final class IterateOrigin<T> extends Origin {
+        private final T seed;
+        private final Function<T, T> f;
+
+        IterateOrigin(T seed, Function<T, T> f) {
+            this.seed = seed;
+            this.f = f;
+        }
+
+        @Override
+        Source open() {
+            return new Source() {
+                private T next = seed;
+                private boolean started;
+
+                @Override
+                public int pull(Object[] block, int max) {
+                    for (int i = 0; i < max; i++) {
+                        // f runs only when the next element is actually pulled
+                        next = started ? f.apply(next) : next;
+                        started = true;
+                        block[i] = next;
+                    }
+                    return max;
+                }
+            };
+        }
+    }
+
+    private static final class FibOrigin extends Origin {
+        private final int a;
+        private final int b;
+
+        FibOrigin(int a, int b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        Source open() {
+            return new Source() {
+                private int current = a;
+                private int next = b;
+
+                @Override
+                public int pull(Object[] block, int max) {
+                    for (int i = 0; i < max; i++) {
+                        block[i] = current;
+                        int following = current + next;
+                        current = next;
+                        next = following;
+                    }
+                    return max;
+                }
+            };
+        }
+    }
+
+    private static final class RangeOrigin extends Origin {
+        private final int from;
+        private final int to;
+
+        RangeOrigin(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        Source open() {
+            return new Source() {
+                private int next = from;
+
+                @Override
+                public int pull(Object[] block, int max) {
+                    int n = (int) Math.min(max, (long) to - next);
+                    for (int i = 0; i < n; i++) {
+                        block[i] = next++;
+                    }
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        long size() {
+            return (long) to - from;
+        }
+
+        @Override
+        Origin slice(int start, int end) {
+            return new RangeOrigin(from + start, from + end);
+        }
+    }
+
+    private static final class ArrayOrigin extends Origin {
+        private final Object[] elements;
+        private final int from;
+        private final int to;
+
+        ArrayOrigin(Object[] elements, int from, int to) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        Source open() {
+            return new Source() {
+                private int next = from;
+
+                @Override
+                public int pull(Object[] block, int max) {
+                    int n = Math.min(max, to - next);
+                    System.arraycopy(elements, next, block, 0, n);
+                    next += n;
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        long size() {
+            return to - from;
+        }
+
+        @Override
+        Origin slice(int start, int end) {
+            return new ArrayOrigin(elements, from + start, from + end);
+        }
+    }
+
+    private static final class CellsOrigin<T> extends Origin {
+        private final Stream<T> stream;
+
+        CellsOrigin(Stream<T> stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        Source open() {
+            return new Source() {
+                private Stream<T> current = stream;
+                private boolean headTaken;
+
+                @Override
+                public int pull(Object[] block, int max) {
+                    int n = 0;
+                    while (n < max) {
+                        // Move on only when the next element is needed, so no tail is forced early
+                        if (headTaken) {
+                            current = current.tail();
+                            headTaken = false;
+                        }
+                        if (current.isEmpty()) {
+                            break;
+                        }
+                        block[n++] = current.head();
+                        headTaken = true;
+                    }
+                    return n;
+                }
+            };
+        }
+    }
+
+    /**
+     * Pushes block[0, count) through the stages and hands survivors to sink.
+     * remaining holds each limit stage's countdown. Returns false once the
+     * sink or a limit ends the traversal.
+     */
+    private static boolean runBlock(Stage[] stages, long[] remaining, Object[] block, int count, Predicate<Object> sink) {
+        for (int i = 0; i < count; i++) {
+            Object value = block[i];
+            boolean keep = true;
+            boolean last = false;
+            for (int s = 0; s < stages.length && keep; s++) {
+                Stage stage = stages[s];
+                switch (stage.kind) {
+                    case Stage.MAP -> value = stage.mapper.apply(value);
+                    case Stage.FILTER -> keep = stage.predicate.test(value);
+                    default -> last |= --remaining[s] == 0;
+                }
+            }
+            if (keep && !sink.test(value)) {
+                return false;
+            }
+            if (last) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // No point pulling more than a limit ahead of the first filter will let through
+    private static int pullSize(Stage[] stages, long[] remaining) {
+        long size = BLOCK;
+        for (int s = 0; s < stages.length && stages[s].kind != Stage.FILTER; s++) {
+            if (stages[s].kind == Stage.LIMIT) {
+                size = Math.min(size, remaining[s]);
+            }
+        }
+        return (int) size;
+    }
+
+    private static void drain(Source source, Stage[] stages, Predicate<Object> sink) {
+        long[] remaining = countdowns(stages);
+        Object[] block = new Object[BLOCK];
+        while (true) {
+            int n = source.pull(block, pullSize(stages, remaining));
+            if (n == 0 || !runBlock(stages, remaining, block, n, sink)) {
+                return;
+            }
+        }
+    }
+
+    private static long[] countdowns(Stage[] stages) {
+        long[] remaining = new long[stages.length];
+        for (int s = 0; s < stages.length; s++) {
+            remaining[s] = stages[s].limit;
+        }
+        return remaining;
+    }
+
+    // Pulls a pipeline one element at a time, for head and tail
+    private static final class Cursor implements Predicate<Object> {
+        private final Source source;
+        private final Stage[] stages;
+        private final long[] remaining;
+        private final Object[] one = new Object[1];
+        private boolean done;
+        private boolean found;
+        private Object value;
+
+        Cursor(Source source, Stage[] stages) {
+            this.source = source;
+            this.stages = stages;
+            this.remaining = countdowns(stages);
+        }
+
+        boolean advance() {
+            found = false;
+            while (!done && !found) {
+                if (source.pull(one, 1) == 0 || !runBlock(stages, remaining, one, 1, this)) {
+                    done = true;
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public boolean test(Object element) {
+            value = element;
+            found = true;
+            return true;
+        }
+    }
+
+    // Memoized cell over a cursor; cell k is only forced after cell k - 1
+    private static final class Cell<T> extends Stream<T> {
+        private static final int UNFORCED = 0;
+        private static final int VALUE = 1;
+        private static final int END = 2;
+
+        private Cursor cursor;
+        private int state = UNFORCED;
+        private T head;
+        private Stream<T> tail;
+
+        Cell(Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void force() {
+            if (state == UNFORCED) {
+                if (cursor.advance()) {
+                    head = (T) cursor.value;
+                    state = VALUE;
+                } else {
+                    state = END;
+                    cursor = null;
+                }
+            }
+        }
+
+        @Override
+        public boolean isEmpty() {
+            force();
+            return state == END;
+        }
+
+        @Override
+        public T head() {
+            if (isEmpty()) throw new UnsupportedOperationException("Empty stream");
+            return head;
+        }
+
+        @Override
+        public Stream<T> tail() {
+            if (isEmpty()) throw new UnsupportedOperationException("Empty stream");
+            if (tail == null) {
+                tail = new Cell<>(cursor);
+                cursor = null;
+            }
+            return tail;
+        }
+    }
+
+    private static final class Pipeline<T> extends Stream<T> {
+        private final Origin origin;
+        private final Stage[] stages;
+        private final boolean parallel;
+        private Stream<T> cells;
+
+        Pipeline(Origin origin, Stage[] stages, boolean parallel) {
+            this.origin = origin;
+            this.stages = stages;
+            this.parallel = parallel;
+        }
+
+        <U> Pipeline<U> with(Stage stage) {
+            Stage[] extended = Arrays.copyOf(stages, stages.length + 1);
+            extended[stages.length] = stage;
+            return new Pipeline<>(origin, extended, parallel);
+        }
+
+        Pipeline<T> withParallel(boolean parallel) {
+            return parallel == this.parallel ? this : new Pipeline<>(origin, stages, parallel);
+        }
+
+        @Override
+        Pipeline<T> pipeline() {
+            return this;
+        }
+
+        private Stream<T> cells() {
+            if (cells == null) {
+                cells = new Cell<>(new Cursor(origin.open(), stages));
+            }
+            return cells;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return cells().isEmpty();
+        }
+
+        @Override
+        public T head() {
+            return cells().head();
+        }
+
+        @Override
+        public Stream<T> tail() {
+            return cells().tail();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <R> R foldLeft(R identity, BiFunction<R, T, R> accumulator) {
+            Object[] result = {identity};
+            drain(origin.open(), stages, element -> {
+                result[0] = accumulator.apply((R) result[0], (T) element);
+                return true;
+            });
+            return (R) result[0];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(Consumer<T> action) {
+            drain(origin.open(), stages, element -> {
+                action.accept((T) element);
+                return true;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T reduce(T identity, BinaryOperator<T> op) {
+            if (splittable()) {
+                return (T) ForkJoinPool.commonPool().invoke(new Split(origin, 0, (int) origin.size(), source -> {
+                    Object[] result = {identity};
+                    drain(source, stages, value -> {
+                        result[0] = op.apply((T) result[0], (T) value);
+                        return true;
+                    });
+                    return result[0];
+                }, (left, right) -> op.apply((T) left, (T) right)));
+            }
+            return foldLeft(identity, op);
+        }
+
+        @Override
+        public long count() {
+            if (splittable()) {
+                return (Long) ForkJoinPool.commonPool().invoke(new Split(origin, 0, (int) origin.size(), source -> {
+                    long[] count = {0};
+                    drain(source, stages, value -> {
+                        count[0]++;
+                        return true;
+                    });
+                    return count[0];
+                }, (left, right) -> (Long) left + (Long) right));
+            }
+            return foldLeft(0L, (count, element) -> count + 1);
+        }
+
+        @SuppressWarnings("unchecked")
+        ImmutableList<T> collect() {
+            ImmutableList.Builder<T> builder = ImmutableList.builder();
+            if (splittable()) {
+                // Each leaf gathers an ordered chunk; chunks are joined in order at the end
+                List<List<Object>> chunks = (List<List<Object>>) ForkJoinPool.commonPool().invoke(
+                    new Split(origin, 0, (int) origin.size(), source -> {
+                        List<Object> chunk = new ArrayList<>();
+                        drain(source, stages, chunk::add);
+                        List<List<Object>> single = new ArrayList<>();
+                        single.add(chunk);
+                        return single;
+                    }, (left, right) -> {
+                        ((List<List<Object>>) left).addAll((List<List<Object>>) right);
+                        return left;
+                    }));
+                chunks.forEach(chunk -> chunk.forEach(element -> builder.add((T) element)));
+            } else {
+                drain(origin.open(), stages, element -> {
+                    builder.add((T) element);
+                    return true;
+                });
+            }
+            return builder.build();
+        }
+
+        // Limits depend on encounter order, so they keep a pipeline sequential
+        private boolean splittable() {
+            if (!parallel || origin.size() < 0 || origin.size() > Integer.MAX_VALUE) {
+                return false;
+            }
+            for (Stage stage : stages) {
+                if (stage.kind == Stage.LIMIT) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Fork/join over index ranges of a splittable origin; ForkJoinTask is Serializable, but these are never serialized
+    @SuppressWarnings("serial")
+    private static final class Split extends RecursiveTask<Object> {
+        private final Origin origin;
+        private final int from;
+        private final int to;
+        private final Function<Source, Object> leaf;
+        private final BinaryOperator<Object> combine;
+
+        Split(Origin origin, int from, int to, Function<Source, Object> leaf, BinaryOperator<Object> combine) {
+            this.origin = origin;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.combine = combine;
+        }
+
+        @Override
+        protected Object compute() {
+            int threshold = Math.max(4 * BLOCK * BLOCK, (int) (origin.size() / (4L * ForkJoinPool.getCommonPoolParallelism())));
+            if (to - from <= threshold) {
+                return leaf.apply(origin.slice(from, to).open());
+            }
+            int middle = (from + to) >>> 1;
+            Split left = new Split(origin, from, middle, leaf, combine);
+            Split right = new Split(origin, middle, to, leaf, combine);
+            left.fork();
+            Object rightResult = right.compute();
+            return combine.apply(left.join(), rightResult);
+        }
+    }
+}
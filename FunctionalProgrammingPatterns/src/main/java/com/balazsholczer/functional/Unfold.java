@@ -42,16 +42,16 @@ public final class Unfold {
      */
     public static <A, S> ImmutableList<A> unfold(S seed,
                                                  Function<S, Maybe<UnfoldResult<A, S>>> step) {
-        ImmutableList<A> acc = ImmutableList.empty();
+        ImmutableList.Builder<A> acc = ImmutableList.builder();
         S current = seed;
         while (true) {
             Maybe<UnfoldResult<A, S>> m = step.apply(current);
             if (!m.isPresent()) break;
             UnfoldResult<A, S> r = m.get();
-            acc = acc.prepend(r.value());
+            acc.add(r.value());
             current = r.next();
         }
-        return acc.reverse();
+        return acc.build();
     }
 
     /**
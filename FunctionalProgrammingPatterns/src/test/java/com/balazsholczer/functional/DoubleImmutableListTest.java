@@ -0,0 +1,125 @@
+package com.balazsholczer.functional;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DoubleImmutableListTest {
+
+    @Test
+    void testOfAndGet() {
+        DoubleImmutableList list = DoubleImmutableList.of(0.5, 1.5, 2.0);
+        assertEquals(3, list.size());
+        assertEquals(0.5, list.head());
+        assertEquals(2.0, list.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertThrows(UnsupportedOperationException.class, () -> DoubleImmutableList.empty().head());
+        assertThrows(UnsupportedOperationException.class, () -> DoubleImmutableList.empty().tail());
+    }
+
+    @Test
+    void testOfCopiesTheArray() {
+        double[] values = {1, 2, 3};
+        DoubleImmutableList list = DoubleImmutableList.of(values);
+        values[0] = 99;
+        assertEquals(1, list.head());
+        list.toArray()[1] = 99;
+        assertEquals(2, list.get(1));
+    }
+
+    @Test
+    void testMapFilterFold() {
+        DoubleImmutableList list = build(1, 11);
+        DoubleImmutableList evens = list.filter(x -> x % 2 == 0);
+        assertEquals(DoubleImmutableList.of(2, 4, 6, 8, 10), evens);
+        assertSame(evens, evens.filter(x -> true));
+        assertEquals(DoubleImmutableList.empty(), evens.filter(x -> false));
+        assertEquals(DoubleImmutableList.of(1.0, 2.0, 3.0), evens.take(3).map(x -> x / 2));
+        assertEquals(55.0, list.sum());
+        assertEquals(3_628_800.0, list.foldLeft(1, (a, b) -> a * b));
+        assertEquals(4.0, Fold.sum(DoubleImmutableList.of(0.5, 1.5, 2.0)));
+        assertEquals(10.0, Fold.reduce(list, Math::max));
+    }
+
+    @Test
+    void testViewsAreIndependent() {
+        DoubleImmutableList list = build(0, 10);
+        DoubleImmutableList middle = list.drop(3).take(4);
+        assertEquals(DoubleImmutableList.of(3, 4, 5, 6), middle);
+        // Appending to a view must not pick up the element after it in the shared array
+        assertEquals(DoubleImmutableList.of(3, 4, 5, 6, 4.2), middle.append(4.2));
+        assertEquals(DoubleImmutableList.of(-0.5, 3, 4, 5, 6), middle.prepend(-0.5));
+        assertEquals(7.0, list.get(7));
+        assertEquals(DoubleImmutableList.of(6, 5, 4, 3), middle.reverse());
+        assertEquals(4.0, middle.tail().head());
+        assertSame(list, list.take(10));
+        assertSame(list, list.drop(0));
+        assertTrue(list.drop(10).isEmpty());
+        assertTrue(list.take(0).isEmpty());
+    }
+
+    @Test
+    void testAppendAndSliceAcrossBuilderGrowth() {
+        // The builder starts with room for 16 and doubles, so these sizes sit on either side of a resize
+        for (int size : new int[]{15, 16, 17, 31, 32, 33, 64, 65}) {
+            DoubleImmutableList list = build(0, size);
+            assertEquals(size, list.size());
+            assertEquals(size - 1, list.get(size - 1));
+
+            DoubleImmutableList appended = list.append(size);
+            assertEquals(size + 1, appended.size());
+            assertEquals(size, appended.get(size));
+            assertEquals(list, appended.take(size));
+
+            DoubleImmutableList prepended = list.prepend(-1);
+            assertEquals(-1.0, prepended.head());
+            assertEquals(list, prepended.tail());
+
+            DoubleImmutableList slice = list.drop(size / 2).take(size / 4);
+            assertEquals(build(size / 2, size / 2 + size / 4), slice);
+            assertEquals(build(0, size - 1), list.take(size - 1));
+        }
+    }
+
+    @Test
+    void testBuilderAndBoxedInterop() {
+        DoubleImmutableList.Builder builder = DoubleImmutableList.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(i * 0.5);
+        }
+        DoubleImmutableList first = builder.build();
+        builder.add(50.0);
+        assertEquals(100, first.size());
+        assertEquals(101, builder.build().size());
+        assertEquals(201, DoubleImmutableList.builder().addAll(first).addAll(builder.build()).size());
+
+        ImmutableList<Double> boxed = first.boxed();
+        assertEquals(first.hashCode(), boxed.hashCode());
+        assertEquals(first.drop(10).hashCode(), first.drop(10).boxed().hashCode());
+        assertEquals(first, DoubleImmutableList.copyOf(boxed));
+        assertEquals(2_475.0, Fold.sum(first));
+        assertEquals(2_475.0, Fold.foldLeft(boxed, 0.0, Double::sum));
+    }
+
+    @Test
+    void testEqualsFollowsDoubleEquals() {
+        // Like Double.equals: NaN equals itself, and 0.0 and -0.0 differ
+        assertEquals(DoubleImmutableList.of(Double.NaN), DoubleImmutableList.of(Double.NaN));
+        assertEquals(DoubleImmutableList.of(Double.NaN).hashCode(), DoubleImmutableList.of(Double.NaN).hashCode());
+        assertNotEquals(DoubleImmutableList.of(0.0), DoubleImmutableList.of(-0.0));
+
+        DoubleImmutableList list = build(0, 20);
+        assertEquals(DoubleImmutableList.of(5, 6, 7), list.drop(5).take(3));
+        assertNotEquals(DoubleImmutableList.of(5, 6), list.drop(5).take(3));
+        assertEquals("[5.0, 6.0, 7.0]", list.drop(5).take(3).toString());
+        assertEquals("[]", DoubleImmutableList.empty().toString());
+    }
+
+    private static DoubleImmutableList build(int from, int to) {
+        DoubleImmutableList.Builder builder = DoubleImmutableList.builder();
+        for (int i = from; i < to; i++) {
+            builder.add(i);
+        }
+        return builder.build();
+    }
+}
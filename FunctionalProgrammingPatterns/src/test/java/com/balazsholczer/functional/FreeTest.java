@@ -1,6 +1,9 @@
 package com.balazsholczer.functional;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 class FreeTest {
@@ -37,4 +40,116 @@ class FreeTest {
         Integer result = program.interpret();
         assertEquals(11, result);
     }
-}
\ No newline at end of file
+
+    private record Ask(int id) implements Free.Instruction<String> {
+    }
+
+    private record Tell(String message) implements Free.Instruction<Integer> {
+    }
+
+    @Test
+    void testLeftNestedBindsAreStackSafe() {
+        Free<Integer> program = Free.pure(0);
+        for (int i = 0; i < 1_000_000; i++) {
+            program = program.flatMap(x -> Free.pure(x + 1));
+        }
+        assertEquals(1_000_000, program.interpret());
+    }
+
+    @Test
+    void testRightNestedBindsAreStackSafe() {
+        assertEquals(1_000_000, countUp(0, 1_000_000).interpret());
+    }
+
+    private static Free<Integer> countUp(int current, int target) {
+        return current == target
+            ? Free.pure(current)
+            : Free.pure(current + 1).flatMap(next -> countUp(next, target));
+    }
+
+    @Test
+    void testSuspendedInstructionsUseHandlers() {
+        List<String> log = new ArrayList<>();
+        FreeInterpreter interpreter = FreeInterpreter.builder()
+            .on(Ask.class, ask -> "user" + ask.id())
+            .on(Tell.class, tell -> {
+                log.add(tell.message());
+                return log.size();
+            })
+            .build();
+
+        Free<Integer> program = Free.suspend(new Ask(7))
+            .flatMap(name -> Free.suspend(new Tell("hello " + name)))
+            .flatMap(count -> Free.suspend(new Tell("told " + count)));
+
+        assertEquals(2, program.run(interpreter));
+        assertEquals(List.of("hello user7", "told 1"), log);
+    }
+
+    @Test
+    void testIndependentInstructionsAreBatched() {
+        List<List<Ask>> batches = new ArrayList<>();
+        FreeInterpreter interpreter = FreeInterpreter.builder()
+            .onBatch(Ask.class, asks -> {
+                batches.add(List.copyOf(asks));
+                return asks.stream().map(ask -> "user" + ask.id()).toList();
+            })
+            .build();
+
+        Free<List<String>> users = Free.sequence(List.of(
+            Free.suspend(new Ask(1)),
+            Free.suspend(new Ask(2)).map(String::toUpperCase),
+            Free.suspend(new Ask(3))));
+        Free<String> program = Free.map2(users, Free.suspend(new Ask(4)), (list, last) -> list + " " + last);
+
+        assertEquals("[user1, USER2, user3] user4", program.run(interpreter));
+        assertEquals(1, batches.size());
+        assertEquals(4, batches.get(0).size());
+    }
+
+    private interface Query<A> extends Free.Instruction<A> {
+    }
+
+    private interface Audited<A> extends Free.Instruction<A> {
+    }
+
+    private record Lookup(int id) implements Query<String>, Audited<String> {
+    }
+
+    @Test
+    void testFirstRegisteredSupertypeHandlesAnInstruction() {
+        // Lookup matches both handlers; registration order decides, every time
+        for (int i = 0; i < 20; i++) {
+            FreeInterpreter interpreter = FreeInterpreter.builder()
+                .on(Query.class, query -> "query")
+                .on(Audited.class, audited -> "audited")
+                .build();
+            FreeInterpreter reversed = FreeInterpreter.builder()
+                .on(Audited.class, audited -> "audited")
+                .on(Query.class, query -> "query")
+                .build();
+
+            Free<String> program = Free.suspend(new Lookup(i));
+            assertEquals("query", program.run(interpreter));
+            assertEquals("query", program.run(interpreter));
+            assertEquals("audited", program.run(reversed));
+        }
+    }
+
+    @Test
+    void testExactHandlerWinsOverSupertype() {
+        FreeInterpreter interpreter = FreeInterpreter.builder()
+            .on(Query.class, query -> "query")
+            .on(Lookup.class, lookup -> "lookup" + lookup.id())
+            .build();
+        assertEquals(List.of("lookup1", "lookup2"),
+            Free.sequence(List.of(Free.suspend(new Lookup(1)), Free.suspend(new Lookup(2)))).run(interpreter));
+    }
+
+    @Test
+    void testMissingHandlerIsReported() {
+        Free<String> program = Free.suspend(new Ask(1));
+        IllegalStateException error = assertThrows(IllegalStateException.class, program::interpret);
+        assertTrue(error.getMessage().startsWith("No handler for"));
+    }
+}
@@ -1,6 +1,13 @@
 package com.balazsholczer.functional;
 
 import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
 class IOTest {
@@ -85,4 +92,158 @@ class IOTest {
         
         assertThrows(RuntimeException.class, () -> errorIO.unsafeRun());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLongChainsAreStackSafe() {
+        IO<Integer> leftNested = IO.pure(0);
+        for (int i = 0; i < 1_000_000; i++) {
+            leftNested = leftNested.flatMap(x -> IO.pure(x + 1));
+        }
+        assertEquals(1_000_000, leftNested.unsafeRun());
+        assertEquals(1_000_000, countUp(0, 1_000_000).unsafeRun());
+    }
+
+    private static IO<Integer> countUp(int current, int target) {
+        return current == target ? IO.pure(current) : IO.delay(() -> current + 1).flatMap(next -> countUp(next, target));
+    }
+
+    @Test
+    void testErrorsAreRecoverable() {
+        IO<Integer> failing = IO.<Integer>raiseError(new IllegalStateException("boom")).map(x -> x + 1);
+        assertEquals(-1, failing.handleError(error -> -1).unsafeRun());
+        assertTrue(failing.attempt().unsafeRun().isLeft());
+        assertEquals("boom", failing.attempt().unsafeRun().getLeft().getMessage());
+    }
+
+    @Test
+    void testAsyncCompletesFromAnotherThread() {
+        IO<String> async = IO.async(callback ->
+            Thread.ofVirtual().start(() -> callback.accept(Either.right("callback"))));
+        assertEquals("CALLBACK", async.map(String::toUpperCase).unsafeRun());
+    }
+
+    @Test
+    void testForkAndJoin() {
+        IO<Integer> program = IO.delay(() -> 20).fork()
+            .flatMap(fiber -> fiber.join().map(x -> x + 1))
+            .flatMap(x -> IO.<Integer>raiseError(new IllegalArgumentException("joined " + x)).fork())
+            .flatMap(Fiber::join)
+            .handleError(error -> error.getMessage().length());
+        assertEquals("joined 21".length(), program.unsafeRun());
+    }
+
+    @Test
+    void testRaceCancelsTheLoser() {
+        AtomicInteger canceled = new AtomicInteger();
+        IO<Either<String, Integer>> race = IO.race(
+            IO.sleep(Duration.ofMillis(10)).then(IO.pure("fast")),
+            IO.<Integer>never().onCancel(IO.delay(canceled::incrementAndGet)));
+
+        Either<String, Integer> winner = race.unsafeRun();
+        assertTrue(winner.isLeft());
+        assertEquals("fast", winner.getLeft());
+        assertEquals(1, canceled.get());
+    }
+
+    @Test
+    void testParTraverseKeepsOrderAndFailsFast() {
+        IO<List<Integer>> squares = IO.parTraverse(List.of(1, 2, 3, 4), x -> IO.delay(() -> x * x));
+        assertEquals(List.of(1, 4, 9, 16), squares.unsafeRun());
+
+        AtomicInteger canceled = new AtomicInteger();
+        IO<List<Integer>> failing = IO.parTraverse(List.of(1, 2, 3), x -> x == 2
+            ? IO.<Integer>raiseError(new IllegalStateException("task " + x))
+            : IO.<Integer>never().onCancel(IO.delay(canceled::incrementAndGet)));
+        IllegalStateException error = assertThrows(IllegalStateException.class, failing::unsafeRun);
+        assertEquals("task 2", error.getMessage());
+        assertEquals(2, canceled.get());
+    }
+
+    @Test
+    void testBracketReleasesOnSuccessErrorAndCancel() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        IO<String> acquire = IO.delay(() -> {
+            events.add("acquire");
+            return "resource";
+        });
+        IO<Void> release = IO.delay(() -> {
+            events.add("release");
+            return null;
+        });
+
+        assertEquals(8, IO.bracket(acquire, r -> IO.pure(r.length()), r -> release).unsafeRun());
+        assertThrows(IllegalStateException.class, () ->
+            IO.bracket(acquire, r -> IO.<Integer>raiseError(new IllegalStateException()), r -> release).unsafeRun());
+        CountDownLatch using = new CountDownLatch(1);
+        IO.bracket(acquire, r -> signal(using).then(IO.<Integer>never()), r -> release).fork()
+            .flatMap(fiber -> await(using).then(fiber.cancel()))
+            .unsafeRun();
+
+        assertEquals(List.of("acquire", "release", "acquire", "release", "acquire", "release"), events);
+    }
+
+    @Test
+    void testCanceledFiberJoinRaisesCancellation() {
+        IO<Integer> program = IO.sleep(Duration.ofSeconds(30)).then(IO.pure(1)).fork()
+            .flatMap(fiber -> fiber.cancel().then(fiber.join()));
+        assertThrows(CancellationException.class, program::unsafeRun);
+    }
+
+    @Test
+    void testInterruptibleBlockIsInterrupted() {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        IO<Void> blocking = IO.interruptible(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+        blocking.fork()
+            .flatMap(fiber -> await(started).then(fiber.cancel()))
+            .unsafeRun();
+        assertEquals(1, interrupted.get());
+    }
+
+    @Test
+    void testUncancelableRegionCompletesBeforeCancel() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        IO<Void> region = IO.uncancelable(signal(entered)
+            .then(IO.sleep(Duration.ofMillis(20)))
+            .then(IO.delay(() -> {
+                events.add("region done");
+                return null;
+            })));
+        IO<Void> program = region.then(IO.delay(() -> {
+            events.add("after region");
+            return null;
+        }));
+        program.fork()
+            .flatMap(fiber -> await(entered).then(fiber.cancel()))
+            .unsafeRun();
+        assertEquals(List.of("region done"), events);
+    }
+
+    private static IO<Void> signal(CountDownLatch latch) {
+        return IO.delay(() -> {
+            latch.countDown();
+            return null;
+        });
+    }
+
+    private static IO<Void> await(CountDownLatch latch) {
+        return IO.interruptible(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+    }
+}
@@ -1,6 +1,10 @@
 package com.balazsholczer.functional;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ImmutableListTest {
@@ -97,4 +101,103 @@ class ImmutableListTest {
         assertNotEquals(list1, list3);
         assertEquals(list1.hashCode(), list2.hashCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testAppendAcrossTrieLevels() {
+        // 32-slot leaves: crosses the first and second root splits
+        ImmutableList<Integer> list = ImmutableList.empty();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            list = list.append(i);
+            expected.add(i);
+        }
+        assertEquals(40_000, list.size());
+        for (int i = 0; i < expected.size(); i += 37) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        assertEquals(39_999, list.get(39_999));
+        assertEquals(expected, new ArrayList<>(List.of(list.toArray())));
+    }
+
+    @Test
+    void testAppendIsPersistent() {
+        ImmutableList<Integer> base = ImmutableList.of(1, 2, 3);
+        ImmutableList<Integer> left = base.append(4);
+        ImmutableList<Integer> right = base.append(5);
+
+        assertEquals(ImmutableList.of(1, 2, 3), base);
+        assertEquals(ImmutableList.of(1, 2, 3, 4), left);
+        assertEquals(ImmutableList.of(1, 2, 3, 5), right);
+
+        // A prefix view must not let an append overwrite the longer list's slot
+        ImmutableList<Integer> prefix = left.take(2).append(9);
+        assertEquals(ImmutableList.of(1, 2, 9), prefix);
+        assertEquals(ImmutableList.of(1, 2, 3, 4), left);
+    }
+
+    @Test
+    void testBuilderKeepsBuiltListsIntact() {
+        ImmutableList.Builder<Integer> builder = ImmutableList.builder();
+        for (int i = 0; i < 1_000; i++) {
+            builder.add(i);
+        }
+        ImmutableList<Integer> first = builder.build();
+        for (int i = 1_000; i < 2_000; i++) {
+            builder.add(-i);
+        }
+        ImmutableList<Integer> second = builder.build();
+
+        assertEquals(1_000, first.size());
+        assertEquals(999, first.get(999));
+        assertEquals(2_000, second.size());
+        assertEquals(-1_999, second.get(1_999));
+        assertEquals(0, first.foldLeft(0, Integer::sum) - 499_500);
+    }
+
+    @Test
+    void testLargeListOperationsAreStackSafe() {
+        ImmutableList<Integer> large = Unfold.range(0, 1_000_000);
+        assertEquals(1_000_000, large.map(x -> x + 1).size());
+        assertEquals(500_000, large.filter(x -> x % 2 == 0).size());
+        assertEquals(1_783_293_664, large.foldLeft(0, Integer::sum));
+        assertEquals(499_999_500_000L, Fold.foldLeft(large, 0L, (acc, x) -> acc + x));
+        assertEquals(499_999_500_000L, Fold.foldRight(large, 0L, (x, acc) -> acc + x));
+        assertEquals(999_999, large.reverse().head());
+        assertEquals(10, large.take(10).size());
+
+        // A long cons list maps and filters without recursion too
+        ImmutableList<Integer> cons = ImmutableList.empty();
+        for (int i = 0; i < 200_000; i++) {
+            cons = cons.prepend(i);
+        }
+        assertEquals(200_000, cons.map(x -> x * 2).size());
+        assertEquals(199_999, cons.filter(x -> x > 0).size());
+        assertEquals(199_999, cons.take(150_000).head());
+    }
+
+    @Test
+    void testTailAndPrependOnVector() {
+        ImmutableList<Integer> list = Unfold.range(0, 100);
+        ImmutableList<Integer> rest = list.tail().tail();
+        assertEquals(98, rest.size());
+        assertEquals(2, rest.head());
+        assertEquals(99, rest.get(97));
+
+        ImmutableList<Integer> withZero = rest.prepend(-1);
+        assertEquals(-1, withZero.get(0));
+        assertEquals(50, withZero.get(49));
+        assertEquals(99, withZero.get(98));
+    }
+
+    @Test
+    void testEqualityAcrossRepresentations() {
+        ImmutableList<Integer> cons = ImmutableList.<Integer>empty().prepend(3).prepend(2).prepend(1);
+        ImmutableList<Integer> vector = ImmutableList.of(1, 2, 3);
+
+        assertEquals(cons, vector);
+        assertEquals(vector, cons);
+        assertEquals(cons.hashCode(), vector.hashCode());
+        assertEquals("[1, 2, 3]", vector.toString());
+        assertEquals(ImmutableList.empty(), vector.filter(x -> x > 3));
+    }
+}
@@ -0,0 +1,73 @@
+package com.balazsholczer.functional;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntImmutableListTest {
+
+    @Test
+    void testOfAndGet() {
+        IntImmutableList list = IntImmutableList.of(4, 5, 6);
+        assertEquals(3, list.size());
+        assertEquals(4, list.head());
+        assertEquals(6, list.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+        assertThrows(UnsupportedOperationException.class, () -> IntImmutableList.empty().head());
+    }
+
+    @Test
+    void testOfCopiesTheArray() {
+        int[] values = {1, 2, 3};
+        IntImmutableList list = IntImmutableList.of(values);
+        values[0] = 99;
+        assertEquals(1, list.head());
+    }
+
+    @Test
+    void testMapFilterFold() {
+        IntImmutableList list = IntImmutableList.range(1, 11);
+        IntImmutableList evens = list.filter(x -> x % 2 == 0);
+        assertEquals(IntImmutableList.of(2, 4, 6, 8, 10), evens);
+        assertEquals(IntImmutableList.of(4, 16, 36, 64, 100), evens.map(x -> x * x));
+        assertEquals(55, list.sum());
+        assertEquals(3_628_800, list.foldLeft(1, (a, b) -> a * b));
+    }
+
+    @Test
+    void testViewsAreIndependent() {
+        IntImmutableList list = IntImmutableList.range(0, 10);
+        IntImmutableList middle = list.drop(3).take(4);
+        assertEquals(IntImmutableList.of(3, 4, 5, 6), middle);
+        assertEquals(IntImmutableList.of(3, 4, 5, 6, 42), middle.append(42));
+        assertEquals(IntImmutableList.of(-1, 3, 4, 5, 6), middle.prepend(-1));
+        assertEquals(7, list.get(7));
+        assertEquals(IntImmutableList.of(6, 5, 4, 3), middle.reverse());
+        assertEquals(4, middle.tail().head());
+    }
+
+    @Test
+    void testBuilderAndBoxedInterop() {
+        IntImmutableList.Builder builder = IntImmutableList.builder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(i);
+        }
+        IntImmutableList first = builder.build();
+        builder.add(100);
+        assertEquals(100, first.size());
+        assertEquals(101, builder.build().size());
+
+        ImmutableList<Integer> boxed = first.boxed();
+        assertEquals(first.hashCode(), boxed.hashCode());
+        assertEquals(first, IntImmutableList.copyOf(boxed));
+        assertEquals(4_950, Fold.sum(first));
+        assertEquals(4_950, Fold.foldLeft(boxed, 0, Integer::sum));
+        assertEquals(99, Fold.reduce(first, Math::max));
+    }
+
+    @Test
+    void testRangeTooLargeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> IntImmutableList.range(-2, Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> IntImmutableList.range(Integer.MIN_VALUE, 0));
+        assertEquals(IntImmutableList.of(Integer.MAX_VALUE - 1), IntImmutableList.range(Integer.MAX_VALUE - 1, Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,66 @@
+package com.balazsholczer.functional;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntStreamTest {
+
+    @Test
+    void testInfiniteStream() {
+        IntStream naturals = IntStream.from(1);
+        assertEquals(1, naturals.head());
+        assertEquals(2, naturals.tail().head());
+        assertEquals(IntImmutableList.of(1, 2, 3, 4, 5), naturals.take(5));
+    }
+
+    @Test
+    void testFusedMapAndFilter() {
+        IntImmutableList squaresOfEvens = IntStream.from(1)
+            .filter(x -> x % 2 == 0)
+            .map(x -> x * x)
+            .take(4);
+        assertEquals(IntImmutableList.of(4, 16, 36, 64), squaresOfEvens);
+    }
+
+    @Test
+    void testFibonacciMatchesBoxedStream() {
+        ImmutableList<Integer> boxed = Stream.fibonacci().take(20);
+        IntImmutableList primitive = IntStream.fibonacci().take(20);
+        assertEquals(IntImmutableList.copyOf(boxed), primitive);
+    }
+
+    @Test
+    void testLimitDropAndEmpty() {
+        IntStream range = IntStream.range(0, 10);
+        assertEquals(IntImmutableList.of(3, 4, 5), range.drop(3).limit(3).toList());
+        assertTrue(range.drop(10).isEmpty());
+        assertTrue(range.limit(0).isEmpty());
+        assertTrue(IntStream.empty().tail().isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> IntStream.empty().head());
+    }
+
+    @Test
+    void testStreamIsReusable() {
+        IntStream doubled = IntStream.range(1, 5).map(x -> x * 2);
+        assertEquals(20, doubled.sum());
+        assertEquals(20, Fold.foldLeft(doubled, 0, Integer::sum));
+        assertEquals(IntImmutableList.of(2, 4, 6, 8), doubled.toList());
+    }
+
+    @Test
+    void testLongPipelineIsStackSafe() {
+        int count = IntStream.from(0).filter(x -> x % 3 == 0).limit(1_000_000).foldLeft(0, (acc, x) -> acc + 1);
+        assertEquals(1_000_000, count);
+        assertEquals(IntImmutableList.range(0, 5), IntImmutableList.range(0, 100).stream().limit(5).toList());
+    }
+
+    @Test
+    void testRepeatedTailIsStackSafe() {
+        IntStream rest = IntStream.from(0);
+        for (int i = 0; i < 100_000; i++) {
+            rest = rest.tail();
+        }
+        assertEquals(100_000, rest.head());
+        assertEquals(IntImmutableList.of(3, 4), IntStream.range(0, 10).drop(1).drop(-5).drop(2).take(2));
+    }
+}
@@ -0,0 +1,122 @@
+package com.balazsholczer.functional;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongImmutableListTest {
+
+    @Test
+    void testOfAndGet() {
+        LongImmutableList list = LongImmutableList.of(3_000_000_000L, 4_000_000_000L, 5L);
+        assertEquals(3, list.size());
+        assertEquals(3_000_000_000L, list.head());
+        assertEquals(5L, list.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertThrows(UnsupportedOperationException.class, () -> LongImmutableList.empty().head());
+        assertThrows(UnsupportedOperationException.class, () -> LongImmutableList.empty().tail());
+    }
+
+    @Test
+    void testOfCopiesTheArray() {
+        long[] values = {1, 2, 3};
+        LongImmutableList list = LongImmutableList.of(values);
+        values[0] = 99;
+        assertEquals(1, list.head());
+        list.toArray()[1] = 99;
+        assertEquals(2, list.get(1));
+    }
+
+    @Test
+    void testMapFilterFold() {
+        LongImmutableList list = build(1, 11);
+        LongImmutableList evens = list.filter(x -> x % 2 == 0);
+        assertEquals(LongImmutableList.of(2, 4, 6, 8, 10), evens);
+        assertSame(evens, evens.filter(x -> true));
+        assertEquals(LongImmutableList.empty(), evens.filter(x -> false));
+        assertEquals(LongImmutableList.of(4_000_000_000L, 8_000_000_000L), evens.take(2).map(x -> x * 2_000_000_000L));
+        assertEquals(55, list.sum());
+        assertEquals(3_628_800, list.foldLeft(1, (a, b) -> a * b));
+        assertEquals(7_000_000_000L, Fold.sum(LongImmutableList.of(3_000_000_000L, 4_000_000_000L)));
+        assertEquals(10, Fold.reduce(list, Math::max));
+    }
+
+    @Test
+    void testViewsAreIndependent() {
+        LongImmutableList list = build(0, 10);
+        LongImmutableList middle = list.drop(3).take(4);
+        assertEquals(LongImmutableList.of(3, 4, 5, 6), middle);
+        // Appending to a view must not pick up the element after it in the shared array
+        assertEquals(LongImmutableList.of(3, 4, 5, 6, 42), middle.append(42));
+        assertEquals(LongImmutableList.of(-1, 3, 4, 5, 6), middle.prepend(-1));
+        assertEquals(7, list.get(7));
+        assertEquals(LongImmutableList.of(6, 5, 4, 3), middle.reverse());
+        assertEquals(4, middle.tail().head());
+        assertSame(list, list.take(10));
+        assertSame(list, list.drop(0));
+        assertTrue(list.drop(10).isEmpty());
+        assertTrue(list.take(0).isEmpty());
+    }
+
+    @Test
+    void testAppendAndSliceAcrossBuilderGrowth() {
+        // The builder starts with room for 16 and doubles, so these sizes sit on either side of a resize
+        for (int size : new int[]{15, 16, 17, 31, 32, 33, 64, 65}) {
+            LongImmutableList list = build(0, size);
+            assertEquals(size, list.size());
+            assertEquals(size - 1, list.get(size - 1));
+
+            LongImmutableList appended = list.append(size);
+            assertEquals(size + 1, appended.size());
+            assertEquals(size, appended.get(size));
+            assertEquals(list, appended.take(size));
+
+            LongImmutableList prepended = list.prepend(-1);
+            assertEquals(-1, prepended.head());
+            assertEquals(list, prepended.tail());
+
+            LongImmutableList slice = list.drop(size / 2).take(size / 4);
+            assertEquals(build(size / 2, size / 2 + size / 4), slice);
+            assertEquals(build(0, size - 1), list.take(size - 1));
+        }
+    }
+
+    @Test
+    void testBuilderAndBoxedInterop() {
+        LongImmutableList.Builder builder = LongImmutableList.builder();
+        for (long i = 0; i < 100; i++) {
+            builder.add(i);
+        }
+        LongImmutableList first = builder.build();
+        builder.add(100);
+        assertEquals(100, first.size());
+        assertEquals(101, builder.build().size());
+        assertEquals(201, LongImmutableList.builder().addAll(first).addAll(builder.build()).size());
+
+        ImmutableList<Long> boxed = first.boxed();
+        assertEquals(first.hashCode(), boxed.hashCode());
+        assertEquals(first.drop(10).hashCode(), first.drop(10).boxed().hashCode());
+        assertEquals(first, LongImmutableList.copyOf(boxed));
+        assertEquals(4_950, Fold.sum(first));
+        assertEquals(4_950, Fold.foldLeft(boxed, 0L, Long::sum));
+    }
+
+    @Test
+    void testEqualsComparesOnlyTheViewedElements() {
+        LongImmutableList list = build(0, 20);
+        assertEquals(LongImmutableList.of(5, 6, 7), list.drop(5).take(3));
+        assertEquals(list.drop(5).take(3).hashCode(), LongImmutableList.of(5, 6, 7).hashCode());
+        assertNotEquals(LongImmutableList.of(5, 6), list.drop(5).take(3));
+        assertNotEquals(IntImmutableList.of(5, 6, 7), LongImmutableList.of(5, 6, 7));
+        assertEquals("[5, 6, 7]", list.drop(5).take(3).toString());
+        assertEquals("[]", LongImmutableList.empty().toString());
+    }
+
+    private static LongImmutableList build(long from, long to) {
+        LongImmutableList.Builder builder = LongImmutableList.builder();
+        for (long i = from; i < to; i++) {
+            builder.add(i);
+        }
+        return builder.build();
+    }
+}
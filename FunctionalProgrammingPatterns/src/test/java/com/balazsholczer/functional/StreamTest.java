@@ -107,4 +107,58 @@ class StreamTest {
         assertEquals(1, first5.head());
         assertEquals(5, first5.reverse().head());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSparseFilterIsStackSafe() {
+        // One match per million elements used to recurse once per rejected element
+        Stream<Integer> sparse = Stream.from(1).filter(x -> x % 1_000_000 == 0);
+        assertEquals(1_000_000, sparse.head());
+        assertEquals(2_000_000, sparse.tail().head());
+        assertEquals(ImmutableList.of(1_000_000, 2_000_000, 3_000_000), sparse.take(3));
+    }
+
+    @Test
+    void testFusedStagesKeepOrderSemantics() {
+        // limit before a filter counts source elements, after it counts matches
+        assertEquals(ImmutableList.of(0, 2, 4), Stream.from(0).limit(6).filter(x -> x % 2 == 0).toImmutableList());
+        assertEquals(ImmutableList.of(0, 2, 4, 6, 8, 10), Stream.from(0).filter(x -> x % 2 == 0).limit(6).toImmutableList());
+        assertEquals(ImmutableList.of("1!", "3!"),
+            Stream.of(1, 2, 3, 4).filter(x -> x % 2 == 1).map(x -> x + "!").toImmutableList());
+    }
+
+    @Test
+    void testStageFunctionsRunOnlyOnUsedElements() {
+        int[] mapped = {0};
+        ImmutableList<Integer> firstThree = Stream.from(1).map(x -> {
+            mapped[0]++;
+            return x * 10;
+        }).take(3);
+        assertEquals(ImmutableList.of(10, 20, 30), firstThree);
+        assertEquals(3, mapped[0]);
+    }
+
+    @Test
+    void testConsStreamsFeedPipelines() {
+        Stream<Integer> countdown = countdown(100_000);
+        assertEquals(100_000, countdown.count());
+        assertEquals(5_000_050_000L, countdown.foldLeft(0L, (sum, x) -> sum + x));
+        assertEquals(ImmutableList.of(100_000, 99_998), countdown.filter(x -> x % 2 == 0).take(2));
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        Stream<Integer> pipeline = Stream.range(0, 200_000).map(x -> x * 3).filter(x -> x % 2 == 0);
+        ImmutableList<Integer> sequential = pipeline.toImmutableList();
+        ImmutableList<Integer> parallel = pipeline.parallel().toImmutableList();
+
+        assertEquals(sequential, parallel);
+        assertEquals(100_000, pipeline.parallel().count());
+        assertEquals(pipeline.foldLeft(0L, (sum, x) -> sum + x),
+            pipeline.parallel().map(Integer::longValue).reduce(0L, Long::sum));
+        assertEquals(ImmutableList.of(0, 6, 12), pipeline.parallel().limit(3).toImmutableList());
+    }
+
+    private static Stream<Integer> countdown(int n) {
+        return n == 0 ? Stream.empty() : Stream.cons(() -> n, () -> countdown(n - 1));
+    }
+}
@@ -15,6 +15,14 @@ public class AddExpression implements Expression {
         return left.interpret() + right.interpret();
     }
     
+    Expression left() {
+        return left;
+    }
+    
+    Expression right() {
+        return right;
+    }
+    
     @Override
     public String toString() {
         return "(" + left + " + " + right + ")";
@@ -0,0 +1,32 @@
+package com.balazsholczer.interpreter;
+
+// The binary operators the expression compiler understands. Comparisons yield 1 or 0.
+enum BinaryOperation {
+    ADD("+"),
+    SUBTRACT("-"),
+    MULTIPLY("*"),
+    DIVIDE("/"),
+    GREATER_THAN(">"),
+    EQUALS("==");
+
+    private final String symbol;
+
+    BinaryOperation(String symbol) {
+        this.symbol = symbol;
+    }
+
+    String symbol() {
+        return symbol;
+    }
+
+    int apply(int left, int right) {
+        return switch (this) {
+            case ADD -> left + right;
+            case SUBTRACT -> left - right;
+            case MULTIPLY -> left * right;
+            case DIVIDE -> left / right;
+            case GREATER_THAN -> left > right ? 1 : 0;
+            case EQUALS -> left == right ? 1 : 0;
+        };
+    }
+}
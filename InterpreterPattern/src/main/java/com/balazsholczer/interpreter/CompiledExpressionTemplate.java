@@ -0,0 +1,37 @@
+package com.balazsholczer.interpreter;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.function.ToIntFunction;
+
+/**
+ * Never loaded as a class of its own. ExpressionCompiler reads these bytes and
+ * defines a hidden copy for every compiled expression, handing over the
+ * expression's method handle as class data. Because the handle sits in a
+ * static final field, the JIT treats it as a constant and inlines the whole
+ * combinator tree into applyAsInt.
+ */
+final class CompiledExpressionTemplate implements ToIntFunction<LambdaInterpreter.Context> {
+
+    private static final MethodHandle HANDLE;
+
+    static {
+        try {
+            HANDLE = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Override
+    public int applyAsInt(LambdaInterpreter.Context context) {
+        try {
+            return (int) HANDLE.invokeExact(context);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Compiled expression failed", t);
+        }
+    }
+}
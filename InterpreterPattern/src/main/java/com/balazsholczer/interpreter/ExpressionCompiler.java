@@ -0,0 +1,422 @@
+package com.balazsholczer.interpreter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compiles expression trees into primitive {@code ToIntFunction<Context>}s, so
+ * rules evaluated millions of times stop walking the tree and boxing every
+ * intermediate result.
+ *
+ * The three tree styles in this package are first lowered to one small IR.
+ * Constant subtrees are folded (division by a constant zero is left alone so
+ * it still throws), and subtrees that occur more than once and cannot throw
+ * are computed once per call. The IR is then built into a method handle with
+ * the {@link MethodHandles} combinators and installed in a hidden class, where
+ * the JIT can inline all of it. Evaluators and operators the compiler cannot
+ * see into, such as a hand-written lambda, are called as they are.
+ *
+ * Compiled code is cached by the folded IR, so structurally equal expressions
+ * share one hidden class.
+ */
+public final class ExpressionCompiler {
+
+    private static final int MAX_CACHED = 1024;
+
+    // Shared values are passed as int parameters. combine() briefly needs both operands'
+    // parameters, 2 * (shared + 1), and invoking a handle takes two more of the 255 slots
+    private static final int MAX_SHARED = (255 - 2) / 2 - 1;
+
+    private static final Map<Node, ToIntFunction<LambdaInterpreter.Context>> CACHE = new ConcurrentHashMap<>();
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final byte[] TEMPLATE = readTemplate();
+
+    private static final MethodHandle VARIABLE;
+    private static final MethodHandle EVALUATE;
+    private static final MethodHandle APPLY_OPERATOR;
+    private static final MethodHandle INTERPRET;
+    private static final MethodHandle NON_ZERO;
+    private static final Map<BinaryOperation, MethodHandle> OPERATIONS = new HashMap<>();
+
+    static {
+        try {
+            Class<?> context = LambdaInterpreter.Context.class;
+            VARIABLE = LOOKUP.findStatic(ExpressionCompiler.class, "variable",
+                MethodType.methodType(int.class, String.class, context));
+            EVALUATE = LOOKUP.findStatic(ExpressionCompiler.class, "evaluate",
+                MethodType.methodType(int.class, LambdaInterpreter.Evaluator.class, context));
+            APPLY_OPERATOR = LOOKUP.findStatic(ExpressionCompiler.class, "applyOperator",
+                MethodType.methodType(int.class, BinaryOperator.class, int.class, int.class));
+            INTERPRET = LOOKUP.findStatic(ExpressionCompiler.class, "interpret",
+                MethodType.methodType(int.class, Expression.class, context));
+            NON_ZERO = LOOKUP.findStatic(ExpressionCompiler.class, "nonZero",
+                MethodType.methodType(boolean.class, int.class));
+            MethodType binary = MethodType.methodType(int.class, int.class, int.class);
+            for (BinaryOperation operation : BinaryOperation.values()) {
+                String name = switch (operation) {
+                    case ADD -> "add";
+                    case SUBTRACT -> "subtract";
+                    case MULTIPLY -> "multiply";
+                    case DIVIDE -> "divide";
+                    case GREATER_THAN -> "greaterThan";
+                    case EQUALS -> "equalTo";
+                };
+                OPERATIONS.put(operation, LOOKUP.findStatic(ExpressionCompiler.class, name, binary));
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ExpressionCompiler() {
+    }
+
+    public static ToIntFunction<LambdaInterpreter.Context> compile(FunctionalInterpreter.Expr expr) {
+        return compileNode(lower(expr));
+    }
+
+    public static ToIntFunction<LambdaInterpreter.Context> compile(LambdaInterpreter.Evaluator evaluator) {
+        return compileNode(lower(evaluator));
+    }
+
+    // Expression trees have no variables, so the context is ignored
+    public static ToIntFunction<LambdaInterpreter.Context> compile(Expression expression) {
+        return compileNode(lower(expression));
+    }
+
+    public static int cacheSize() {
+        return CACHE.size();
+    }
+
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static ToIntFunction<LambdaInterpreter.Context> compileNode(Node node) {
+        Node folded = fold(node);
+        ToIntFunction<LambdaInterpreter.Context> cached = CACHE.get(folded);
+        if (cached != null) {
+            return cached;
+        }
+        ToIntFunction<LambdaInterpreter.Context> compiled = define(build(folded));
+        if (CACHE.size() < MAX_CACHED) {
+            ToIntFunction<LambdaInterpreter.Context> raced = CACHE.putIfAbsent(folded, compiled);
+            return raced != null ? raced : compiled;
+        }
+        return compiled;
+    }
+
+    // IR shared by all three front ends; records give the structural equality the cache and CSE rely on
+    private sealed interface Node {}
+
+    private record Const(int value) implements Node {}
+
+    private record Var(String name) implements Node {}
+
+    private record Bin(BinaryOperation operation, Node left, Node right) implements Node {}
+
+    private record Cond(Node condition, Node thenNode, Node elseNode) implements Node {}
+
+    private record OpaqueEvaluator(LambdaInterpreter.Evaluator evaluator) implements Node {}
+
+    private record OpaqueOperator(BinaryOperator<Integer> operator, Node left, Node right) implements Node {}
+
+    private record OpaqueExpression(Expression expression) implements Node {}
+
+    private static Node lower(FunctionalInterpreter.Expr expr) {
+        return switch (expr) {
+            case FunctionalInterpreter.NumberExpr(var value) -> new Const(value);
+            case FunctionalInterpreter.VariableExpr(var name) -> new Var(name);
+            case FunctionalInterpreter.BinaryExpr(var left, var right, var operator, var symbol) -> {
+                BinaryOperation operation = operator == FunctionalInterpreter.ADD ? BinaryOperation.ADD
+                    : operator == FunctionalInterpreter.SUBTRACT ? BinaryOperation.SUBTRACT
+                    : operator == FunctionalInterpreter.MULTIPLY ? BinaryOperation.MULTIPLY
+                    : operator == FunctionalInterpreter.DIVIDE ? BinaryOperation.DIVIDE
+                    : null;
+                yield operation != null
+                    ? new Bin(operation, lower(left), lower(right))
+                    : new OpaqueOperator(operator, lower(left), lower(right));
+            }
+        };
+    }
+
+    private static Node lower(LambdaInterpreter.Evaluator evaluator) {
+        return switch (evaluator) {
+            case LambdaInterpreter.Constant(var value) -> new Const(value);
+            case LambdaInterpreter.Variable(var name) -> new Var(name);
+            case LambdaInterpreter.Binary(var operation, var left, var right) ->
+                new Bin(operation, lower(left), lower(right));
+            case LambdaInterpreter.Conditional(var condition, var thenExpr, var elseExpr) ->
+                new Cond(lower(condition), lower(thenExpr), lower(elseExpr));
+            default -> new OpaqueEvaluator(evaluator);
+        };
+    }
+
+    private static Node lower(Expression expression) {
+        // Exact class checks: a subclass may override interpret
+        if (expression.getClass() == NumberExpression.class) {
+            return new Const(((NumberExpression) expression).number());
+        }
+        if (expression.getClass() == AddExpression.class) {
+            AddExpression add = (AddExpression) expression;
+            return new Bin(BinaryOperation.ADD, lower(add.left()), lower(add.right()));
+        }
+        if (expression.getClass() == SubtractExpression.class) {
+            SubtractExpression subtract = (SubtractExpression) expression;
+            return new Bin(BinaryOperation.SUBTRACT, lower(subtract.left()), lower(subtract.right()));
+        }
+        return new OpaqueExpression(expression);
+    }
+
+    private static Node fold(Node node) {
+        return switch (node) {
+            case Bin(var operation, var left, var right) -> foldBinary(operation, fold(left), fold(right));
+            case Cond(var condition, var thenNode, var elseNode) -> {
+                Node foldedCondition = fold(condition);
+                Node foldedThen = fold(thenNode);
+                Node foldedElse = fold(elseNode);
+                if (foldedCondition instanceof Const(var value)) {
+                    yield value != 0 ? foldedThen : foldedElse;
+                }
+                if (foldedThen.equals(foldedElse) && total(foldedCondition)) {
+                    yield foldedThen;
+                }
+                yield new Cond(foldedCondition, foldedThen, foldedElse);
+            }
+            case OpaqueOperator(var operator, var left, var right) -> new OpaqueOperator(operator, fold(left), fold(right));
+            default -> node;
+        };
+    }
+
+    private static Node foldBinary(BinaryOperation operation, Node left, Node right) {
+        if (left instanceof Const(var a) && right instanceof Const(var b)
+                && !(operation == BinaryOperation.DIVIDE && b == 0)) {
+            return new Const(operation.apply(a, b));
+        }
+        // Identities that hold for every int, overflow included
+        switch (operation) {
+            case ADD -> {
+                if (isConst(left, 0)) return right;
+                if (isConst(right, 0)) return left;
+            }
+            case SUBTRACT -> {
+                if (isConst(right, 0)) return left;
+            }
+            case MULTIPLY -> {
+                if (isConst(left, 1)) return right;
+                if (isConst(right, 1)) return left;
+                if ((isConst(left, 0) && total(right)) || (isConst(right, 0) && total(left))) return new Const(0);
+            }
+            case DIVIDE -> {
+                if (isConst(right, 1)) return left;
+            }
+            default -> {
+            }
+        }
+        return new Bin(operation, left, right);
+    }
+
+    private static boolean isConst(Node node, int value) {
+        return node instanceof Const(var v) && v == value;
+    }
+
+    // True if evaluating the node can neither throw nor run code the compiler cannot see
+    private static boolean total(Node node) {
+        return switch (node) {
+            case Const c -> true;
+            case Var v -> true;
+            case Bin(var operation, var left, var right) ->
+                operation != BinaryOperation.DIVIDE && total(left) && total(right);
+            case Cond(var condition, var thenNode, var elseNode) ->
+                total(condition) && total(thenNode) && total(elseNode);
+            default -> false;
+        };
+    }
+
+    private static MethodHandle build(Node root) {
+        List<Node> shared = sharedSubtrees(root);
+        // Shared values become leading int parameters, most recently bound first
+        List<Node> environment = new ArrayList<>(shared);
+        Collections.reverse(environment);
+        MethodHandle body = handle(root, environment);
+        for (int i = shared.size() - 1; i >= 0; i--) {
+            List<Node> outer = environment.subList(shared.size() - i, environment.size());
+            // Compute shared value i once, then pass it to the body as its first argument
+            body = MethodHandles.foldArguments(body, handle(shared.get(i), outer));
+        }
+        return body;
+    }
+
+    // Subtrees worth computing once, children before parents
+    private static List<Node> sharedSubtrees(Node root) {
+        Map<Node, Integer> occurrences = new HashMap<>();
+        count(root, occurrences);
+        Set<Node> shared = new LinkedHashSet<>();
+        collect(root, occurrences, shared);
+        return new ArrayList<>(shared);
+    }
+
+    private static void count(Node node, Map<Node, Integer> occurrences) {
+        // Each repeat is one more use of the subtree, not of its children
+        if (occurrences.merge(node, 1, Integer::sum) > 1) {
+            return;
+        }
+        children(node).forEach(child -> count(child, occurrences));
+    }
+
+    private static void collect(Node node, Map<Node, Integer> occurrences, Set<Node> shared) {
+        if (shared.contains(node)) {
+            return;
+        }
+        children(node).forEach(child -> collect(child, occurrences, shared));
+        if (occurrences.get(node) > 1 && !(node instanceof Const) && total(node) && shared.size() < MAX_SHARED) {
+            shared.add(node);
+        }
+    }
+
+    private static List<Node> children(Node node) {
+        return switch (node) {
+            case Bin(var operation, var left, var right) -> List.of(left, right);
+            case Cond(var condition, var thenNode, var elseNode) -> List.of(condition, thenNode, elseNode);
+            case OpaqueOperator(var operator, var left, var right) -> List.of(left, right);
+            default -> List.of();
+        };
+    }
+
+    // A handle of type (int... sharedValues, Context)int
+    private static MethodHandle handle(Node node, List<Node> environment) {
+        int sharedIndex = environment.indexOf(node);
+        if (sharedIndex >= 0) {
+            MethodHandle value = MethodHandles.dropArguments(MethodHandles.identity(int.class), 0, ints(sharedIndex));
+            return MethodHandles.dropArguments(value, sharedIndex + 1, parameters(environment.size() - sharedIndex - 1));
+        }
+        return switch (node) {
+            case Const(var value) ->
+                MethodHandles.dropArguments(MethodHandles.constant(int.class, value), 0, parameters(environment.size()));
+            case Var(var name) -> leaf(MethodHandles.insertArguments(VARIABLE, 0, name), environment);
+            case Bin(var operation, var left, var right) ->
+                combine(OPERATIONS.get(operation), handle(left, environment), handle(right, environment));
+            case Cond(var condition, var thenNode, var elseNode) -> MethodHandles.guardWithTest(
+                MethodHandles.filterReturnValue(handle(condition, environment), NON_ZERO),
+                handle(thenNode, environment),
+                handle(elseNode, environment));
+            case OpaqueEvaluator(var evaluator) -> leaf(MethodHandles.insertArguments(EVALUATE, 0, evaluator), environment);
+            case OpaqueOperator(var operator, var left, var right) -> combine(
+                MethodHandles.insertArguments(APPLY_OPERATOR, 0, operator),
+                handle(left, environment),
+                handle(right, environment));
+            case OpaqueExpression(var expression) -> leaf(MethodHandles.insertArguments(INTERPRET, 0, expression), environment);
+        };
+    }
+
+    // Lifts a (Context)int handle over the shared value parameters
+    private static MethodHandle leaf(MethodHandle handle, List<Node> environment) {
+        return MethodHandles.dropArguments(handle, 0, ints(environment.size()));
+    }
+
+    // operation(left(args), right(args)) with the arguments passed once
+    private static MethodHandle combine(MethodHandle operation, MethodHandle left, MethodHandle right) {
+        int arity = left.type().parameterCount();
+        MethodHandle both = MethodHandles.collectArguments(operation, 1, right);
+        both = MethodHandles.collectArguments(both, 0, left);
+        int[] reorder = new int[arity * 2];
+        for (int i = 0; i < reorder.length; i++) {
+            reorder[i] = i % arity;
+        }
+        return MethodHandles.permuteArguments(both, left.type(), reorder);
+    }
+
+    private static List<Class<?>> ints(int count) {
+        return Collections.nCopies(count, int.class);
+    }
+
+    private static List<Class<?>> parameters(int sharedCount) {
+        List<Class<?>> parameters = new ArrayList<>(ints(sharedCount));
+        parameters.add(LambdaInterpreter.Context.class);
+        return parameters;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ToIntFunction<LambdaInterpreter.Context> define(MethodHandle handle) {
+        try {
+            MethodHandles.Lookup hidden = LOOKUP.defineHiddenClassWithClassData(TEMPLATE, handle, true);
+            return (ToIntFunction<LambdaInterpreter.Context>) hidden
+                .findConstructor(hidden.lookupClass(), MethodType.methodType(void.class))
+                .invoke();
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not define compiled expression", t);
+        }
+    }
+
+    private static byte[] readTemplate() {
+        try (InputStream in = ExpressionCompiler.class.getResourceAsStream("CompiledExpressionTemplate.class")) {
+            if (in == null) {
+                throw new IllegalStateException("CompiledExpressionTemplate.class not found");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Targets of the method handles above
+
+    private static int variable(String name, LambdaInterpreter.Context context) {
+        return context.variables().getOrDefault(name, 0);
+    }
+
+    private static int evaluate(LambdaInterpreter.Evaluator evaluator, LambdaInterpreter.Context context) {
+        return evaluator.apply(context);
+    }
+
+    private static int applyOperator(BinaryOperator<Integer> operator, int left, int right) {
+        return operator.apply(left, right);
+    }
+
+    private static int interpret(Expression expression, LambdaInterpreter.Context context) {
+        return expression.interpret();
+    }
+
+    private static boolean nonZero(int value) {
+        return value != 0;
+    }
+
+    private static int add(int left, int right) {
+        return left + right;
+    }
+
+    private static int subtract(int left, int right) {
+        return left - right;
+    }
+
+    private static int multiply(int left, int right) {
+        return left * right;
+    }
+
+    private static int divide(int left, int right) {
+        return left / right;
+    }
+
+    private static int greaterThan(int left, int right) {
+        return left > right ? 1 : 0;
+    }
+
+    private static int equalTo(int left, int right) {
+        return left == right ? 1 : 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.balazsholczer.interpreter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cost of evaluating one pricing-style rule against many variable bindings:
+ * the LambdaInterpreter closures, FunctionalInterpreter's tree walk, and the
+ * ExpressionCompiler output. The rule repeats (x * y + z) so common
+ * subexpression elimination has something to share.
+ *
+ * Run with: java com.balazsholczer.interpreter.ExpressionCompilerBenchmark [evaluations]
+ */
+public class ExpressionCompilerBenchmark {
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        System.out.println("=== Expression Compiler Benchmark ===");
+
+        LambdaInterpreter.Evaluator evaluator = evaluatorRule();
+        FunctionalInterpreter.Expr expr = functionalRule();
+        long start = System.nanoTime();
+        ToIntFunction<LambdaInterpreter.Context> compiled = ExpressionCompiler.compile(evaluator);
+        System.out.printf("compile: %,d us%n", (System.nanoTime() - start) / 1_000);
+        ToIntFunction<LambdaInterpreter.Context> compiledExpr = ExpressionCompiler.compile(expr);
+
+        LambdaInterpreter.Context[] contexts = contexts(new Random(42));
+        for (LambdaInterpreter.Context context : contexts) {
+            if (evaluator.apply(context) != compiled.applyAsInt(context)
+                    || FunctionalInterpreter.interpret(expr, context) != compiledExpr.applyAsInt(context)) {
+                throw new IllegalStateException("Compiled rule disagrees with the interpreter for " + context);
+            }
+        }
+
+        for (int round = 0; round < 2; round++) {
+            System.out.println("Round " + (round + 1) + ":");
+            run("  Lambda closures", evaluations, contexts, evaluator::apply);
+            run("  Functional walk", evaluations, contexts, context -> FunctionalInterpreter.interpret(expr, context));
+            run("  Compiled", evaluations, contexts, compiled);
+        }
+    }
+
+    // if (x * y + z) > 100 then (x * y + z) - 100 / (z + 1) else (x * y + z) * 2 - x
+    private static LambdaInterpreter.Evaluator evaluatorRule() {
+        LambdaInterpreter.Evaluator x = LambdaInterpreter.variable("x");
+        LambdaInterpreter.Evaluator y = LambdaInterpreter.variable("y");
+        LambdaInterpreter.Evaluator z = LambdaInterpreter.variable("z");
+        LambdaInterpreter.Evaluator total = LambdaInterpreter.add(LambdaInterpreter.multiply(x, y), z);
+        return LambdaInterpreter.ifThenElse(
+            LambdaInterpreter.greaterThan(total, LambdaInterpreter.constant(100)),
+            LambdaInterpreter.subtract(total,
+                LambdaInterpreter.divide(LambdaInterpreter.constant(100), LambdaInterpreter.add(z, LambdaInterpreter.constant(1)))),
+            LambdaInterpreter.subtract(
+                LambdaInterpreter.multiply(total, LambdaInterpreter.add(LambdaInterpreter.constant(1), LambdaInterpreter.constant(1))),
+                x)
+        );
+    }
+
+    // (x * y + z) * (x * y + z) - (x * y + z) / (4 + 6)
+    private static FunctionalInterpreter.Expr functionalRule() {
+        FunctionalInterpreter.Expr total = FunctionalInterpreter.add(
+            FunctionalInterpreter.multiply(FunctionalInterpreter.variable("x"), FunctionalInterpreter.variable("y")),
+            FunctionalInterpreter.variable("z"));
+        return FunctionalInterpreter.subtract(
+            FunctionalInterpreter.multiply(total, total),
+            FunctionalInterpreter.divide(total,
+                FunctionalInterpreter.add(FunctionalInterpreter.number(4), FunctionalInterpreter.number(6))));
+    }
+
+    private static LambdaInterpreter.Context[] contexts(Random random) {
+        LambdaInterpreter.Context[] contexts = new LambdaInterpreter.Context[1024];
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = new LambdaInterpreter.Context(Map.of(
+                "x", random.nextInt(20), "y", random.nextInt(20), "z", random.nextInt(20)));
+        }
+        return contexts;
+    }
+
+    private static void run(String name, int evaluations, LambdaInterpreter.Context[] contexts,
+                            ToIntFunction<LambdaInterpreter.Context> rule) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < evaluations; i++) {
+            sum += rule.applyAsInt(contexts[i & (contexts.length - 1)]);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        sink += sum;
+        System.out.printf("%-18s %,8.1f ns/op %,8.1f bytes/op%n", name,
+            (double) elapsed / evaluations, (double) allocated / evaluations);
+    }
+}
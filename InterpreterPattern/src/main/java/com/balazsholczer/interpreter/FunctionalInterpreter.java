@@ -1,26 +1,44 @@
 package com.balazsholczer.interpreter;
 
+import java.util.Map;
 import java.util.function.BinaryOperator;
 
 public class FunctionalInterpreter {
     
-    public sealed interface Expr permits NumberExpr, BinaryExpr {}
+    // Shared so ExpressionCompiler can recognise the factory operators
+    static final BinaryOperator<Integer> ADD = Integer::sum;
+    static final BinaryOperator<Integer> SUBTRACT = (a, b) -> a - b;
+    static final BinaryOperator<Integer> MULTIPLY = (a, b) -> a * b;
+    static final BinaryOperator<Integer> DIVIDE = (a, b) -> a / b;
+    
+    private static final LambdaInterpreter.Context EMPTY = new LambdaInterpreter.Context(Map.of());
+    
+    public sealed interface Expr permits NumberExpr, VariableExpr, BinaryExpr {}
     
     public record NumberExpr(int value) implements Expr {}
     
+    public record VariableExpr(String name) implements Expr {}
+    
     public record BinaryExpr(Expr left, Expr right, BinaryOperator<Integer> operator, String symbol) implements Expr {}
     
     public static int interpret(Expr expr) {
+        return interpret(expr, EMPTY);
+    }
+    
+    // Unbound variables evaluate to 0, as in LambdaInterpreter
+    public static int interpret(Expr expr, LambdaInterpreter.Context context) {
         return switch (expr) {
             case NumberExpr(var value) -> value;
+            case VariableExpr(var name) -> context.variables().getOrDefault(name, 0);
             case BinaryExpr(var left, var right, var operator, var symbol) -> 
-                operator.apply(interpret(left), interpret(right));
+                operator.apply(interpret(left, context), interpret(right, context));
         };
     }
     
     public static String toString(Expr expr) {
         return switch (expr) {
             case NumberExpr(var value) -> String.valueOf(value);
+            case VariableExpr(var name) -> name;
             case BinaryExpr(var left, var right, var operator, var symbol) -> 
                 "(" + toString(left) + " " + symbol + " " + toString(right) + ")";
         };
@@ -31,19 +49,23 @@ public class FunctionalInterpreter {
         return new NumberExpr(value);
     }
     
+    public static Expr variable(String name) {
+        return new VariableExpr(name);
+    }
+    
     public static Expr add(Expr left, Expr right) {
-        return new BinaryExpr(left, right, Integer::sum, "+");
+        return new BinaryExpr(left, right, ADD, "+");
     }
     
     public static Expr subtract(Expr left, Expr right) {
-        return new BinaryExpr(left, right, (a, b) -> a - b, "-");
+        return new BinaryExpr(left, right, SUBTRACT, "-");
     }
     
     public static Expr multiply(Expr left, Expr right) {
-        return new BinaryExpr(left, right, (a, b) -> a * b, "*");
+        return new BinaryExpr(left, right, MULTIPLY, "*");
     }
     
     public static Expr divide(Expr left, Expr right) {
-        return new BinaryExpr(left, right, (a, b) -> a / b, "/");
+        return new BinaryExpr(left, right, DIVIDE, "/");
     }
-}
\ No newline at end of file
+}
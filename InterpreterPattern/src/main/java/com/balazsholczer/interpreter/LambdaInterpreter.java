@@ -19,42 +19,71 @@ public class LambdaInterpreter {
     
     // Terminal expressions
     public static Evaluator constant(int value) {
-        return context -> value;
+        return new Constant(value);
     }
     
     public static Evaluator variable(String name) {
-        return context -> context.variables().getOrDefault(name, 0);
+        return new Variable(name);
     }
     
     // Non-terminal expressions
     public static Evaluator add(Evaluator left, Evaluator right) {
-        return context -> left.apply(context) + right.apply(context);
+        return new Binary(BinaryOperation.ADD, left, right);
     }
     
     public static Evaluator subtract(Evaluator left, Evaluator right) {
-        return context -> left.apply(context) - right.apply(context);
+        return new Binary(BinaryOperation.SUBTRACT, left, right);
     }
     
     public static Evaluator multiply(Evaluator left, Evaluator right) {
-        return context -> left.apply(context) * right.apply(context);
+        return new Binary(BinaryOperation.MULTIPLY, left, right);
     }
     
     public static Evaluator divide(Evaluator left, Evaluator right) {
-        return context -> left.apply(context) / right.apply(context);
+        return new Binary(BinaryOperation.DIVIDE, left, right);
     }
     
     // Conditional expressions
     public static Evaluator ifThenElse(Evaluator condition, Evaluator thenExpr, Evaluator elseExpr) {
-        return context -> condition.apply(context) != 0 ? thenExpr.apply(context) : elseExpr.apply(context);
+        return new Conditional(condition, thenExpr, elseExpr);
     }
     
     // Comparison expressions
     public static Evaluator greaterThan(Evaluator left, Evaluator right) {
-        return context -> left.apply(context) > right.apply(context) ? 1 : 0;
+        return new Binary(BinaryOperation.GREATER_THAN, left, right);
     }
     
     public static Evaluator equals(Evaluator left, Evaluator right) {
-        return context -> left.apply(context).equals(right.apply(context)) ? 1 : 0;
+        return new Binary(BinaryOperation.EQUALS, left, right);
+    }
+    
+    // The factories return records rather than lambdas so ExpressionCompiler can see the tree
+    record Constant(int value) implements Evaluator {
+        @Override
+        public Integer apply(Context context) {
+            return value;
+        }
+    }
+    
+    record Variable(String name) implements Evaluator {
+        @Override
+        public Integer apply(Context context) {
+            return context.variables().getOrDefault(name, 0);
+        }
+    }
+    
+    record Binary(BinaryOperation operation, Evaluator left, Evaluator right) implements Evaluator {
+        @Override
+        public Integer apply(Context context) {
+            return operation.apply(left.apply(context), right.apply(context));
+        }
+    }
+    
+    record Conditional(Evaluator condition, Evaluator thenExpr, Evaluator elseExpr) implements Evaluator {
+        @Override
+        public Integer apply(Context context) {
+            return condition.apply(context) != 0 ? thenExpr.apply(context) : elseExpr.apply(context);
+        }
     }
     
     // Builder pattern for complex expressions
@@ -119,5 +119,24 @@ public class ModernInterpreterDemo {
         var newContext = context.with("a", 20).with("b", 3);
         var dynamicExpr = LambdaInterpreter.subtract(LambdaInterpreter.variable("a"), LambdaInterpreter.variable("b"));
         System.out.println("Dynamic: a - b = " + dynamicExpr.apply(newContext));
+        
+        System.out.println("\n=== Compiled Expressions ===");
+        
+        var compiledConditional = ExpressionCompiler.compile(conditionalExpr);
+        System.out.println("Compiled conditional with x=10: " + compiledConditional.applyAsInt(context));
+        System.out.println("Compiled conditional with x=3: " + compiledConditional.applyAsInt(context.with("x", 3)));
+        
+        var compiledBuilder = ExpressionCompiler.compile(builderExpr);
+        System.out.println("Builder expression folded to a constant: " + compiledBuilder.applyAsInt(context));
+        
+        var compiledVar = ExpressionCompiler.compile(varExpr);
+        var sameStructure = ExpressionCompiler.compile(LambdaInterpreter.add(
+            LambdaInterpreter.variable("x"),
+            LambdaInterpreter.multiply(LambdaInterpreter.variable("y"), LambdaInterpreter.variable("z"))
+        ));
+        System.out.println("Equal trees share compiled code: " + (compiledVar == sameStructure));
+        System.out.println("✅ Compiled rules evaluate on primitive ints without walking the tree");
+        System.out.println("✅ Constant subtrees are folded and repeated subtrees computed once");
+        System.out.println("✅ Compiled code is cached by expression structure");
     }
 }
\ No newline at end of file
@@ -13,6 +13,10 @@ public class NumberExpression implements Expression {
         return number;
     }
     
+    int number() {
+        return number;
+    }
+    
     @Override
     public String toString() {
         return String.valueOf(number);
@@ -1,6 +1,10 @@
 package com.balazsholczer.interpreter;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -212,4 +216,99 @@ class InterpreterTest {
             FunctionalInterpreter.interpret(binary)
         );
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testCompiledEvaluatorMatchesInterpreter() {
+        LambdaInterpreter.Evaluator x = LambdaInterpreter.variable("x");
+        LambdaInterpreter.Evaluator y = LambdaInterpreter.variable("y");
+        LambdaInterpreter.Evaluator rule = LambdaInterpreter.ifThenElse(
+            LambdaInterpreter.greaterThan(LambdaInterpreter.multiply(x, y), LambdaInterpreter.constant(50)),
+            LambdaInterpreter.subtract(LambdaInterpreter.multiply(x, y), x),
+            LambdaInterpreter.equals(x, y)
+        );
+        ToIntFunction<LambdaInterpreter.Context> compiled = ExpressionCompiler.compile(rule);
+        
+        for (int i = -10; i <= 10; i++) {
+            for (int j = -10; j <= 10; j++) {
+                var context = new LambdaInterpreter.Context(Map.of("x", i, "y", j));
+                assertEquals(rule.apply(context), compiled.applyAsInt(context));
+            }
+        }
+        // Unbound variables are 0, as when interpreting
+        assertEquals(1, compiled.applyAsInt(new LambdaInterpreter.Context(Map.of())));
+    }
+    
+    @Test
+    void testCompiledFunctionalAndTraditionalTrees() {
+        var expr = FunctionalInterpreter.divide(
+            FunctionalInterpreter.add(FunctionalInterpreter.variable("a"), FunctionalInterpreter.number(4)),
+            FunctionalInterpreter.subtract(FunctionalInterpreter.number(5), FunctionalInterpreter.number(3))
+        );
+        var context = new LambdaInterpreter.Context(Map.of("a", 10));
+        assertEquals(7, FunctionalInterpreter.interpret(expr, context));
+        assertEquals(7, ExpressionCompiler.compile(expr).applyAsInt(context));
+        
+        Expression traditional = ExpressionParser.parse("5 3 + 2 1 + -");
+        assertEquals(traditional.interpret(), ExpressionCompiler.compile(traditional).applyAsInt(context));
+    }
+    
+    @Test
+    void testCompiledOpaqueNodesAreCalled() {
+        // A hand-written lambda and an unknown operator cannot be analysed, but still run
+        LambdaInterpreter.Evaluator doubled = context -> context.variables().getOrDefault("x", 0) * 2;
+        var compiled = ExpressionCompiler.compile(LambdaInterpreter.add(doubled, LambdaInterpreter.constant(1)));
+        assertEquals(21, compiled.applyAsInt(new LambdaInterpreter.Context(Map.of("x", 10))));
+        
+        var max = new FunctionalInterpreter.BinaryExpr(
+            FunctionalInterpreter.variable("x"), FunctionalInterpreter.number(3), Math::max, "max");
+        assertEquals(10, ExpressionCompiler.compile(max).applyAsInt(new LambdaInterpreter.Context(Map.of("x", 10))));
+    }
+    
+    @Test
+    void testCompiledDivisionByZeroStillThrows() {
+        // Constant folding must not turn a runtime error into a compile-time one
+        var expr = FunctionalInterpreter.divide(FunctionalInterpreter.number(1), FunctionalInterpreter.number(0));
+        ToIntFunction<LambdaInterpreter.Context> compiled = ExpressionCompiler.compile(expr);
+        assertThrows(ArithmeticException.class, () -> compiled.applyAsInt(new LambdaInterpreter.Context(Map.of())));
+        
+        // A division in an untaken branch is not evaluated
+        var guarded = LambdaInterpreter.ifThenElse(
+            LambdaInterpreter.variable("d"),
+            LambdaInterpreter.divide(LambdaInterpreter.constant(10), LambdaInterpreter.variable("d")),
+            LambdaInterpreter.constant(-1)
+        );
+        assertEquals(-1, ExpressionCompiler.compile(guarded).applyAsInt(new LambdaInterpreter.Context(Map.of("d", 0))));
+        assertEquals(5, ExpressionCompiler.compile(guarded).applyAsInt(new LambdaInterpreter.Context(Map.of("d", 2))));
+    }
+    
+    @Test
+    void testCompiledCodeIsCachedByStructure() {
+        LambdaInterpreter.Evaluator first = LambdaInterpreter.add(LambdaInterpreter.variable("x"), LambdaInterpreter.constant(2));
+        LambdaInterpreter.Evaluator second = LambdaInterpreter.add(LambdaInterpreter.variable("x"), LambdaInterpreter.constant(2));
+        assertSame(ExpressionCompiler.compile(first), ExpressionCompiler.compile(second));
+        
+        // Folds to x + 2 as well, and the functional tree lowers to the same structure
+        LambdaInterpreter.Evaluator folded = LambdaInterpreter.add(
+            LambdaInterpreter.variable("x"),
+            LambdaInterpreter.subtract(LambdaInterpreter.constant(5), LambdaInterpreter.constant(3))
+        );
+        assertSame(ExpressionCompiler.compile(first), ExpressionCompiler.compile(folded));
+        assertSame(ExpressionCompiler.compile(first), ExpressionCompiler.compile(
+            FunctionalInterpreter.add(FunctionalInterpreter.variable("x"), FunctionalInterpreter.number(2))));
+    }
+    
+    @Test
+    void testCompiledManySharedSubtrees() {
+        // Shared values travel as method handle parameters, so only so many can be shared
+        var context = new LambdaInterpreter.Context(Map.of("x", 3));
+        for (int terms : new int[]{125, 126, 130, 200}) {
+            LambdaInterpreter.Evaluator sum = LambdaInterpreter.constant(0);
+            for (int i = 0; i < terms; i++) {
+                LambdaInterpreter.Evaluator term = LambdaInterpreter.multiply(
+                    LambdaInterpreter.variable("x"), LambdaInterpreter.constant(i + 2));
+                sum = LambdaInterpreter.add(sum, LambdaInterpreter.add(term, term));
+            }
+            assertEquals(sum.apply(context), ExpressionCompiler.compile(sum).applyAsInt(context), terms + " terms");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.balazsholczer.mediator;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Raised once every handler of an event has finished, if any of them failed
+ * or timed out. Each failure is also attached as a suppressed exception.
+ */
+public final class EventDispatchException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public record HandlerFailure(String subscriberId, Throwable cause) implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+    }
+
+    private final String eventType;
+    // Always a List.copyOf, which is immutable and serializable
+    @SuppressWarnings("serial")
+    private final List<HandlerFailure> failures;
+
+    public EventDispatchException(String eventType, List<HandlerFailure> failures) {
+        super(failures.size() + " handler(s) failed for event " + eventType);
+        this.eventType = eventType;
+        this.failures = List.copyOf(failures);
+        failures.forEach(failure -> addSuppressed(failure.cause()));
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public List<HandlerFailure> getFailures() {
+        return failures;
+    }
+}
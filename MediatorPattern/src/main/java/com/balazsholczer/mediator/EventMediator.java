@@ -1,25 +1,76 @@
 package com.balazsholczer.mediator;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
-public class EventMediator {
-    
+public class EventMediator implements AutoCloseable {
+
     public record Event(String type, Object data, String source) {}
-    
+
     public record Subscription(String eventType, Consumer<Event> handler, String subscriberId) {}
-    
+
+    public enum DispatchMode {
+        SEQUENTIAL, // Handlers run one after another on the publishing thread
+        PARALLEL,   // Handlers of an event run concurrently on the executor
+        ORDERED     // Events of one type are handled in publish order, one handler at a time; different types run concurrently
+    }
+
     private final Map<String, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
-    
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    // Tail of each event type's queue in ORDERED mode
+    private final Map<String, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>();
+
+    private final DispatchMode mode;
+    private final ExecutorService executor;
+    private final Duration handlerTimeout;
+
+    public EventMediator() {
+        this(DispatchMode.SEQUENTIAL);
+    }
+
+    // SEQUENTIAL runs every handler on the publishing thread, so it gets no executor at all
+    public EventMediator(DispatchMode mode) {
+        this(mode, mode == DispatchMode.SEQUENTIAL ? null : Executors.newVirtualThreadPerTaskExecutor(), Duration.ZERO);
+    }
+
+    /**
+     * @param executor       runs the handlers in PARALLEL and ORDERED mode; unused,
+     *                       and may be null, in SEQUENTIAL mode
+     * @param handlerTimeout how long a handler may run before it is interrupted and
+     *                       counted as failed, {@link Duration#ZERO} for no limit.
+     *                       In ORDERED mode the next handler still waits until a
+     *                       timed-out one has actually returned.
+     */
+    public EventMediator(DispatchMode mode, ExecutorService executor, Duration handlerTimeout) {
+        if (executor == null && mode != DispatchMode.SEQUENTIAL) {
+            throw new IllegalArgumentException(mode + " dispatch needs an executor");
+        }
+        this.mode = mode;
+        this.executor = executor;
+        this.handlerTimeout = handlerTimeout;
+    }
+
     public void subscribe(String eventType, String subscriberId, Consumer<Event> handler) {
         subscriptions.computeIfAbsent(eventType, k -> new CopyOnWriteArrayList<>())
                     .add(new Subscription(eventType, handler, subscriberId));
         System.out.println("EventMediator: " + subscriberId + " subscribed to " + eventType);
     }
-    
+
     public void unsubscribe(String eventType, String subscriberId) {
         List<Subscription> subs = subscriptions.get(eventType);
         if (subs != null) {
@@ -27,26 +78,176 @@ public class EventMediator {
             System.out.println("EventMediator: " + subscriberId + " unsubscribed from " + eventType);
         }
     }
-    
+
+    /**
+     * In SEQUENTIAL mode returns once every handler ran. In the other modes
+     * returns straight away; failures are logged - use {@link #publishAsync}
+     * to observe them.
+     */
     public void publish(Event event) {
         System.out.println("EventMediator: Publishing " + event.type() + " from " + event.source());
-        List<Subscription> subs = subscriptions.get(event.type());
-        if (subs != null) {
-            subs.forEach(sub -> {
+        publishAsync(event).exceptionally(error -> {
+            if (error instanceof EventDispatchException dispatchError) {
+                dispatchError.getFailures().forEach(failure ->
+                    System.err.println("Error handling event: " + failure.cause().getMessage()));
+            } else {
+                System.err.println("Error handling event: " + error.getMessage());
+            }
+            return null;
+        });
+    }
+
+    public void publish(String eventType, Object data, String source) {
+        publish(new Event(eventType, data, source));
+    }
+
+    /**
+     * Completes when every handler has finished. If any failed or timed out
+     * it completes exceptionally with an {@link EventDispatchException}
+     * listing all of them.
+     */
+    public CompletableFuture<Void> publishAsync(Event event) {
+        if (mode == DispatchMode.SEQUENTIAL) {
+            long start = System.nanoTime();
+            List<EventDispatchException.HandlerFailure> failures = new ArrayList<>();
+            for (Subscription sub : subscriptions.getOrDefault(event.type(), List.of())) {
                 try {
                     sub.handler().accept(event);
                 } catch (Exception e) {
-                    System.err.println("Error handling event: " + e.getMessage());
+                    failures.add(new EventDispatchException.HandlerFailure(sub.subscriberId(), e));
                 }
-            });
+            }
+            recordLatency(event.type(), start);
+            return failures.isEmpty() ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.failedFuture(new EventDispatchException(event.type(), failures));
         }
+        return dispatch(event);
     }
-    
-    public void publish(String eventType, Object data, String source) {
-        publish(new Event(eventType, data, source));
-    }
-    
+
     public int getSubscriberCount(String eventType) {
         return subscriptions.getOrDefault(eventType, List.of()).size();
     }
-}
\ No newline at end of file
+
+    public DispatchMode getDispatchMode() {
+        return mode;
+    }
+
+    // Publish-to-last-handler latency for one event type
+    public LatencyHistogram.Snapshot getLatencyStats(String eventType) {
+        LatencyHistogram histogram = latencies.get(eventType);
+        return histogram == null ? new LatencyHistogram().snapshot() : histogram.snapshot();
+    }
+
+    public Map<String, LatencyHistogram.Snapshot> getAllLatencyStats() {
+        Map<String, LatencyHistogram.Snapshot> stats = new ConcurrentHashMap<>();
+        latencies.forEach((type, histogram) -> stats.put(type, histogram.snapshot()));
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> dispatch(Event event) {
+        long start = System.nanoTime();
+        List<Subscription> subs = List.copyOf(subscriptions.getOrDefault(event.type(), List.of()));
+        List<EventDispatchException.HandlerFailure> failures = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> done = mode == DispatchMode.PARALLEL
+            ? CompletableFuture.allOf(subs.stream()
+                .map(sub -> runHandler(sub, event, failures, false))
+                .toArray(CompletableFuture[]::new))
+            : enqueue(event, subs, failures);
+
+        // Completed directly (not via a dependent stage) so callers see the EventDispatchException unwrapped
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        done.whenComplete((ignored, error) -> {
+            recordLatency(event.type(), start);
+            if (error != null) {
+                // Handlers could not even be started, e.g. the mediator was closed
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            } else if (failures.isEmpty()) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(new EventDispatchException(event.type(), failures));
+            }
+        });
+        return result;
+    }
+
+    // Queues the event behind the previous one of the same type; other types have their own lane
+    private CompletableFuture<Void> enqueue(Event event, List<Subscription> subs,
+                                            List<EventDispatchException.HandlerFailure> failures) {
+        CompletableFuture<Void> done = lanes.compute(event.type(), (type, tail) -> {
+            CompletableFuture<Void> chain = tail == null ? CompletableFuture.completedFuture(null) : tail;
+            for (Subscription sub : subs) {
+                chain = chain.thenCompose(ignored -> runHandler(sub, event, failures, true));
+            }
+            return chain;
+        });
+        // Drop an idle lane so the map does not keep every type ever published
+        done.whenComplete((ignored, error) -> lanes.remove(event.type(), done));
+        return done;
+    }
+
+    /**
+     * Completes normally once the handler is done; a failure or timeout is
+     * recorded instead. With awaitExit a timed-out handler is still waited
+     * for, so one that ignores the interrupt cannot overlap the next.
+     * Completes exceptionally only if the executor rejects the handler.
+     */
+    private CompletableFuture<Void> runHandler(Subscription sub, Event event,
+                                               List<EventDispatchException.HandlerFailure> failures,
+                                               boolean awaitExit) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        CompletableFuture<Void> exited = new CompletableFuture<>();
+        // Decides between the handler starting and the timeout firing first
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    sub.handler().accept(event);
+                    completion.complete(null);
+                } catch (Throwable e) {
+                    completion.completeExceptionally(e);
+                } finally {
+                    exited.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (!handlerTimeout.isZero()) {
+            completion.orTimeout(handlerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        CompletableFuture<Void> reported = completion.handle((ignored, error) -> {
+            if (error != null) {
+                if (error instanceof TimeoutException) {
+                    if (claimed.compareAndSet(false, true)) {
+                        // Timed out before it got a thread: it will never run
+                        task.cancel(false);
+                        exited.complete(null);
+                    } else {
+                        task.cancel(true);
+                    }
+                    error = new TimeoutException("Handler " + sub.subscriberId() + " exceeded " + handlerTimeout);
+                }
+                failures.add(new EventDispatchException.HandlerFailure(sub.subscriberId(), error));
+            }
+            return null;
+        });
+        return awaitExit ? reported.thenCompose(ignored -> exited) : reported;
+    }
+
+    private void recordLatency(String eventType, long start) {
+        latencies.computeIfAbsent(eventType, type -> new LatencyHistogram()).record(System.nanoTime() - start);
+    }
+}
@@ -1,5 +1,7 @@
 package com.balazsholczer.mediator;
 
+import java.time.Duration;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class ModernMediatorDemo {
@@ -42,6 +44,35 @@ public class ModernMediatorDemo {
         eventMediator.publish("user.login", "john_doe", "AuthController");
         eventMediator.publish("order.created", "ORDER-123", "OrderController");
         
+        System.out.println("\n=== Parallel Event Mediator ===");
+        
+        // Handlers fan out on virtual threads; a stuck handler is cut off after 200 ms
+        try (EventMediator parallelMediator = new EventMediator(EventMediator.DispatchMode.PARALLEL,
+                Executors.newVirtualThreadPerTaskExecutor(), Duration.ofMillis(200))) {
+            parallelMediator.subscribe("payment.received", "LedgerService",
+                event -> System.out.println("LedgerService: Booking " + event.data()));
+            parallelMediator.subscribe("payment.received", "FraudService", event -> {
+                throw new IllegalStateException("fraud model unavailable");
+            });
+            parallelMediator.subscribe("payment.received", "ReportingService", event -> {
+                try {
+                    Thread.sleep(1_000);
+                } catch (InterruptedException e) {
+                    System.out.println("ReportingService: Interrupted after timeout");
+                }
+            });
+            
+            parallelMediator.publishAsync(new EventMediator.Event("payment.received", "PAY-42", "PaymentGateway"))
+                .exceptionally(error -> {
+                    EventDispatchException failure = (EventDispatchException) error;
+                    failure.getFailures().forEach(f ->
+                        System.out.println("Failed: " + f.subscriberId() + " - " + f.cause().getMessage()));
+                    return null;
+                })
+                .join();
+            System.out.println("payment.received latency: " + parallelMediator.getLatencyStats("payment.received"));
+        }
+        
         System.out.println("\n=== Functional Mediator Pattern ===");
         
         FunctionalMediator funcMediator = new FunctionalMediator();
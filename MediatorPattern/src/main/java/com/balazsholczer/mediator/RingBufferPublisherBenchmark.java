@@ -0,0 +1,118 @@
+package com.balazsholczer.mediator;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Items per second delivered to every subscriber, SubmissionPublisher versus
+ * RingBufferPublisher, at 1, 4 and 16 subscribers. Subscribers either request
+ * one item at a time (as StreamMediator used to) or in batches.
+ *
+ * Run with: java com.balazsholczer.mediator.RingBufferPublisherBenchmark [items]
+ */
+public class RingBufferPublisherBenchmark {
+    private static final Integer[] ITEMS = new Integer[1024];
+
+    static {
+        for (int i = 0; i < ITEMS.length; i++) {
+            ITEMS[i] = i;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("=== Ring Buffer Publisher Benchmark ===");
+        System.out.printf("%,d items, %d cores%n", items, cores);
+
+        for (int subscribers : new int[]{1, 4, 16}) {
+            System.out.println("\n--- " + subscribers + " subscriber(s) ---");
+            for (int round = 0; round < 2; round++) {
+                boolean warmUp = round == 0;
+                run("SubmissionPublisher request(1)", new SubmissionPublisher<>(), subscribers, items, 1, warmUp);
+                run("SubmissionPublisher request(256)", new SubmissionPublisher<>(), subscribers, items, 256, warmUp);
+                for (RingBufferPublisher.WaitStrategy strategy : RingBufferPublisher.WaitStrategy.values()) {
+                    // A spinning consumer per subscriber needs a core each, plus one for the producer
+                    if (strategy == RingBufferPublisher.WaitStrategy.BUSY_SPIN && subscribers >= cores) {
+                        continue;
+                    }
+                    run("RingBuffer " + strategy + " request(1)",
+                        new RingBufferPublisher<>(4096, strategy), subscribers, items, 1, warmUp);
+                    run("RingBuffer " + strategy + " request(256)",
+                        new RingBufferPublisher<>(4096, strategy), subscribers, items, 256, warmUp);
+                }
+            }
+        }
+    }
+
+    private static void run(String label, Flow.Publisher<Integer> publisher, int subscribers, int items,
+                            int batch, boolean warmUp) throws InterruptedException {
+        int count = warmUp ? items / 10 : items;
+        CountDownLatch done = new CountDownLatch(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            publisher.subscribe(new CountingSubscriber(batch, done));
+        }
+
+        long start = System.nanoTime();
+        if (publisher instanceof SubmissionPublisher<Integer> submission) {
+            for (int i = 0; i < count; i++) {
+                submission.submit(ITEMS[i & 1023]);
+            }
+            submission.close();
+        } else if (publisher instanceof RingBufferPublisher<Integer> ring) {
+            for (int i = 0; i < count; i++) {
+                ring.submit(ITEMS[i & 1023]);
+            }
+            ring.close();
+        }
+        if (!done.await(5, TimeUnit.MINUTES)) {
+            System.out.println(label + ": timed out");
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (!warmUp) {
+            System.out.printf("%-40s %,14.0f items/s%n", label, count / (elapsed / 1e9));
+        }
+    }
+
+    private static final class CountingSubscriber implements Flow.Subscriber<Integer> {
+        private final int batch;
+        private final CountDownLatch done;
+        private Flow.Subscription subscription;
+        private int receivedSinceRequest;
+        private long sum;
+
+        private CountingSubscriber(int batch, CountDownLatch done) {
+            this.batch = batch;
+            this.done = done;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            sum += item;
+            if (++receivedSinceRequest == batch) {
+                receivedSinceRequest = 0;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
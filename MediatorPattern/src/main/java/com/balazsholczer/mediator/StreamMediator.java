@@ -4,7 +4,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Flow;
-import java.util.concurrent.SubmissionPublisher;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -17,9 +16,13 @@ public class StreamMediator {
     }
     
     public static class MessageSubscriber implements Flow.Subscriber<StreamMessage> {
+        // Demand is requested in batches rather than one item at a time
+        private static final int BATCH_SIZE = 64;
+        
         private final String subscriberId;
         private final Predicate<StreamMessage> filter;
         private Flow.Subscription subscription;
+        private int receivedSinceRequest;
         
         public MessageSubscriber(String subscriberId, Predicate<StreamMessage> filter) {
             this.subscriberId = subscriberId;
@@ -29,7 +32,7 @@ public class StreamMediator {
         @Override
         public void onSubscribe(Flow.Subscription subscription) {
             this.subscription = subscription;
-            subscription.request(1);
+            subscription.request(BATCH_SIZE);
             System.out.println("StreamMediator: " + subscriberId + " subscribed");
         }
         
@@ -38,7 +41,11 @@ public class StreamMediator {
             if (filter.test(message)) {
                 System.out.println(subscriberId + " processed: " + message.type() + " from " + message.sender());
             }
-            subscription.request(1);
+            // Top up at half the batch so the publisher never stalls waiting for demand
+            if (++receivedSinceRequest == BATCH_SIZE / 2) {
+                receivedSinceRequest = 0;
+                subscription.request(BATCH_SIZE / 2);
+            }
         }
         
         @Override
@@ -52,9 +59,17 @@ public class StreamMediator {
         }
     }
     
-    private final SubmissionPublisher<StreamMessage> publisher = new SubmissionPublisher<>();
+    private final RingBufferPublisher<StreamMessage> publisher;
     private final Map<String, MessageSubscriber> subscribers = new ConcurrentHashMap<>();
     
+    public StreamMediator() {
+        this(RingBufferPublisher.DEFAULT_BUFFER_SIZE, RingBufferPublisher.WaitStrategy.BLOCKING);
+    }
+    
+    public StreamMediator(int bufferSize, RingBufferPublisher.WaitStrategy waitStrategy) {
+        this.publisher = new RingBufferPublisher<>(bufferSize, waitStrategy);
+    }
+    
     public void subscribe(String subscriberId, Predicate<StreamMessage> filter) {
         MessageSubscriber subscriber = new MessageSubscriber(subscriberId, filter);
         subscribers.put(subscriberId, subscriber);
@@ -69,7 +84,8 @@ public class StreamMediator {
         }
     }
     
-    public void publish(StreamMessage message) {
+    // The ring buffer takes one producer at a time
+    public synchronized void publish(StreamMessage message) {
         System.out.println("StreamMediator: Publishing " + message.type() + " from " + message.sender());
         publisher.submit(message);
     }
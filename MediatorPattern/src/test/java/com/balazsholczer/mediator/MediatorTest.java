@@ -1,6 +1,21 @@
 package com.balazsholczer.mediator;
 
 import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -220,4 +235,265 @@ class MediatorTest {
         assertTrue(stream.getActiveSubscribers().contains("subscriber"));
         stream.close();
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testRingBufferPublisherDeliversInOrderAcrossWraps() throws InterruptedException {
+        for (RingBufferPublisher.WaitStrategy strategy : RingBufferPublisher.WaitStrategy.values()) {
+            // Tiny ring so the producer wraps many times and must wait for the slowest subscriber
+            RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>(8, strategy);
+            CountDownLatch completed = new CountDownLatch(3);
+            List<List<Integer>> received = List.of(
+                new CopyOnWriteArrayList<>(), new CopyOnWriteArrayList<>(), new CopyOnWriteArrayList<>());
+            long[] batches = {1, 5, Long.MAX_VALUE};
+            for (int i = 0; i < 3; i++) {
+                publisher.subscribe(new CollectingSubscriber(batches[i], received.get(i), completed));
+            }
+            
+            for (int i = 0; i < 1_000; i++) {
+                publisher.submit(i);
+            }
+            publisher.close();
+            
+            assertTrue(completed.await(10, TimeUnit.SECONDS), strategy + " did not complete");
+            for (List<Integer> items : received) {
+                assertEquals(1_000, items.size());
+                for (int i = 0; i < items.size(); i++) {
+                    assertEquals(i, items.get(i));
+                }
+            }
+            assertEquals(0, publisher.getNumberOfSubscribers());
+        }
+    }
+    
+    @Test
+    void testRingBufferPublisherCancelStopsGating() throws InterruptedException {
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>(4, RingBufferPublisher.WaitStrategy.BLOCKING);
+        CollectingSubscriber idle = new CollectingSubscriber(0, new CopyOnWriteArrayList<>(), new CountDownLatch(1));
+        publisher.subscribe(idle);
+        while (idle.subscription == null) {
+            Thread.onSpinWait();
+        }
+        idle.subscription.cancel();
+        
+        // Without the cancelled subscriber the producer never waits for it
+        for (int i = 0; i < 100; i++) {
+            publisher.submit(i);
+        }
+        assertEquals(0, publisher.getNumberOfSubscribers());
+        publisher.close();
+    }
+    
+    @Test
+    void testRingBufferPublisherDoesNotRetainConsumedItems() throws InterruptedException {
+        RingBufferPublisher<Object> publisher = new RingBufferPublisher<>(16, RingBufferPublisher.WaitStrategy.BLOCKING);
+        CountDownLatch consumed = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            publisher.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+                
+                @Override
+                public void onNext(Object item) {
+                    consumed.countDown();
+                }
+                
+                @Override
+                public void onError(Throwable throwable) {
+                }
+                
+                @Override
+                public void onComplete() {
+                }
+            });
+        }
+        while (publisher.getNumberOfSubscribers() < 2) {
+            Thread.onSpinWait();
+        }
+        
+        WeakReference<Object> item = publish(publisher);
+        assertTrue(consumed.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50 && item.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(item.get(), "ring still references an item every subscriber has read");
+        publisher.close();
+    }
+    
+    private static WeakReference<Object> publish(RingBufferPublisher<Object> publisher) {
+        Object item = new Object();
+        publisher.submit(item);
+        return new WeakReference<>(item);
+    }
+    
+    @Test
+    void testParallelEventMediatorAggregatesFailuresAndTimeouts() {
+        try (EventMediator mediator = new EventMediator(EventMediator.DispatchMode.PARALLEL,
+                Executors.newVirtualThreadPerTaskExecutor(), Duration.ofMillis(100))) {
+            AtomicInteger delivered = new AtomicInteger();
+            mediator.subscribe("test", "ok", event -> delivered.incrementAndGet());
+            mediator.subscribe("test", "broken", event -> {
+                throw new IllegalStateException("boom");
+            });
+            mediator.subscribe("test", "slow", event -> {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            
+            CompletionException thrown = assertThrows(CompletionException.class,
+                () -> mediator.publishAsync(new EventMediator.Event("test", "data", "source")).join());
+            EventDispatchException failure = assertInstanceOf(EventDispatchException.class, thrown.getCause());
+            
+            assertEquals(1, delivered.get());
+            assertEquals(List.of("broken", "slow"), failure.getFailures().stream()
+                .map(EventDispatchException.HandlerFailure::subscriberId).sorted().toList());
+            assertEquals(2, failure.getSuppressed().length);
+            assertEquals(1, mediator.getLatencyStats("test").count());
+        }
+    }
+    
+    @Test
+    void testEventDispatchExceptionSurvivesSerialization() throws Exception {
+        EventDispatchException original = new EventDispatchException("test", List.of(
+            new EventDispatchException.HandlerFailure("broken", new IllegalStateException("boom"))));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(original);
+        }
+        EventDispatchException copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (EventDispatchException) in.readObject();
+        }
+        
+        assertEquals("test", copy.getEventType());
+        assertEquals("broken", copy.getFailures().get(0).subscriberId());
+        assertEquals("boom", copy.getFailures().get(0).cause().getMessage());
+        assertEquals(1, copy.getSuppressed().length);
+        assertThrows(UnsupportedOperationException.class, () -> copy.getFailures().clear());
+    }
+    
+    @Test
+    void testSequentialEventMediatorNeedsNoExecutor() {
+        try (EventMediator mediator = new EventMediator(EventMediator.DispatchMode.SEQUENTIAL, null, Duration.ZERO)) {
+            AtomicInteger delivered = new AtomicInteger();
+            mediator.subscribe("test", "counter", event -> delivered.incrementAndGet());
+            mediator.publishAsync(new EventMediator.Event("test", "data", "source")).join();
+            assertEquals(1, delivered.get());
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> new EventMediator(EventMediator.DispatchMode.PARALLEL, null, Duration.ZERO));
+    }
+    
+    @Test
+    void testOrderedEventMediatorKeepsPerTypeOrder() {
+        try (EventMediator mediator = new EventMediator(EventMediator.DispatchMode.ORDERED)) {
+            List<Integer> orders = new CopyOnWriteArrayList<>();
+            List<Integer> payments = new CopyOnWriteArrayList<>();
+            mediator.subscribe("order", "orders", event -> orders.add((Integer) event.data()));
+            mediator.subscribe("payment", "payments", event -> payments.add((Integer) event.data()));
+            
+            CompletableFuture<?> lastOrder = null;
+            CompletableFuture<?> lastPayment = null;
+            for (int i = 0; i < 200; i++) {
+                lastOrder = mediator.publishAsync(new EventMediator.Event("order", i, "test"));
+                lastPayment = mediator.publishAsync(new EventMediator.Event("payment", i, "test"));
+            }
+            lastOrder.join();
+            lastPayment.join();
+            
+            for (int i = 0; i < 200; i++) {
+                assertEquals(i, orders.get(i));
+                assertEquals(i, payments.get(i));
+            }
+            assertEquals(200, mediator.getLatencyStats("order").count());
+        }
+    }
+    
+    @Test
+    void testOrderedEventMediatorFailsAfterClose() {
+        EventMediator mediator = new EventMediator(EventMediator.DispatchMode.ORDERED);
+        mediator.subscribe("order", "orders", event -> { });
+        mediator.close();
+        
+        CompletionException thrown = assertThrows(CompletionException.class,
+            () -> mediator.publishAsync(new EventMediator.Event("order", 1, "test")).join());
+        assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+    }
+    
+    @Test
+    void testOrderedEventMediatorWaitsForTimedOutHandler() {
+        try (EventMediator mediator = new EventMediator(EventMediator.DispatchMode.ORDERED,
+                Executors.newVirtualThreadPerTaskExecutor(), Duration.ofMillis(20))) {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger overlaps = new AtomicInteger();
+            mediator.subscribe("order", "stubborn", event -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                // Ignores the interrupt and keeps going past its timeout
+                long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+                while (System.nanoTime() < until) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                running.decrementAndGet();
+            });
+            
+            CompletableFuture<Void> first = mediator.publishAsync(new EventMediator.Event("order", 1, "test"));
+            CompletableFuture<Void> second = mediator.publishAsync(new EventMediator.Event("order", 2, "test"));
+            assertThrows(CompletionException.class, first::join);
+            assertThrows(CompletionException.class, second::join);
+            assertEquals(0, overlaps.get());
+        }
+    }
+    
+    private static final class CollectingSubscriber implements Flow.Subscriber<Integer> {
+        private final long batch;
+        private final List<Integer> received;
+        private final CountDownLatch completed;
+        private volatile Flow.Subscription subscription;
+        private long outstanding;
+        
+        private CollectingSubscriber(long batch, List<Integer> received, CountDownLatch completed) {
+            this.batch = batch;
+            this.received = received;
+            this.completed = completed;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (batch > 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+        
+        @Override
+        public void onNext(Integer item) {
+            received.add(item);
+            if (batch != Long.MAX_VALUE && --outstanding == 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+        
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
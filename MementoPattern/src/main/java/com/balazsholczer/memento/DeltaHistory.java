@@ -0,0 +1,308 @@
+package com.balazsholczer.memento;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Linear undo/redo history that stores each version as a binary delta from
+ * the one before it: the common prefix and suffix are kept as lengths, only
+ * the changed middle is stored, once as removed and once as inserted bytes,
+ * so the delta can be applied in either direction. Only the current state is
+ * held in full.
+ *
+ * The most recent deltas live in a fixed-size ring on the heap; older ones are
+ * appended to a memory-mapped spill file. Undo and redo apply a single delta,
+ * read from the ring or straight out of the mapping, so their cost depends on
+ * the size of the edit and the state, never on how deep the history is.
+ */
+public class DeltaHistory<T> implements AutoCloseable {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final StateCodec<T> codec;
+    private final HistoryConfig config;
+
+    private T currentState;
+    private byte[] currentBytes = EMPTY;
+    private Delta currentEntry;
+    private int cursor = -1;
+    private int size;
+
+    // Entries spilled..size-1, oldest at hotHead
+    private final Delta[] hot;
+    private int hotHead;
+    private int hotCount;
+
+    // Entries 0..spilled-1, located by segment index (high int) and offset (low int)
+    private int spilled;
+    private long[] locations = new long[64];
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private FileChannel channel;
+    private Path spillFile;
+    private long mappedEnd;
+    private int writeOffset;
+
+    public DeltaHistory(StateCodec<T> codec, HistoryConfig config) {
+        this.codec = codec;
+        this.config = config;
+        this.hot = new Delta[config.hotWindow()];
+    }
+
+    /**
+     * Makes state the current version. Versions after the current one (the
+     * redo branch) are discarded.
+     */
+    public synchronized void push(T state, String description) {
+        byte[] bytes = codec.encode(state);
+        truncate(cursor + 1);
+        Delta delta = Delta.between(currentBytes, bytes, LocalDateTime.now(), description);
+        append(delta);
+        cursor = size - 1;
+        currentBytes = bytes;
+        currentState = state;
+        currentEntry = delta;
+    }
+
+    public synchronized boolean undo() {
+        if (cursor <= 0) {
+            return false;
+        }
+        currentBytes = entry(cursor).backward(currentBytes);
+        cursor--;
+        moveTo(entry(cursor));
+        return true;
+    }
+
+    public synchronized boolean redo() {
+        if (cursor >= size - 1) {
+            return false;
+        }
+        Delta delta = entry(cursor + 1);
+        currentBytes = delta.forward(currentBytes);
+        cursor++;
+        moveTo(delta);
+        return true;
+    }
+
+    public synchronized T getState() {
+        return currentState;
+    }
+
+    public synchronized String getDescription() {
+        return currentEntry == null ? null : currentEntry.description();
+    }
+
+    public synchronized boolean canUndo() {
+        return cursor > 0;
+    }
+
+    public synchronized boolean canRedo() {
+        return cursor < size - 1;
+    }
+
+    /**
+     * Rebuilds every version, oldest first. Costs a full state per version,
+     * so it is meant for browsing, not for the undo path.
+     */
+    public synchronized List<RecordMemento.Snapshot<T>> snapshots() {
+        List<RecordMemento.Snapshot<T>> result = new ArrayList<>(size);
+        if (size == 0) {
+            return result;
+        }
+        byte[][] versions = new byte[size][];
+        versions[cursor] = currentBytes;
+        for (int k = cursor; k > 0; k--) {
+            versions[k - 1] = entry(k).backward(versions[k]);
+        }
+        for (int k = cursor + 1; k < size; k++) {
+            versions[k] = entry(k).forward(versions[k - 1]);
+        }
+        for (int k = 0; k < size; k++) {
+            Delta delta = entry(k);
+            result.add(new RecordMemento.Snapshot<>(codec.decode(versions[k]), delta.timestamp(), delta.description()));
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int getHotCount() {
+        return hotCount;
+    }
+
+    public synchronized int getSpilledCount() {
+        return spilled;
+    }
+
+    // Bytes of the spill file in use
+    public synchronized long getSpilledBytes() {
+        return segments.isEmpty() ? 0 : mappedEnd - segments.get(segments.size() - 1).capacity() + writeOffset;
+    }
+
+    @Override
+    public synchronized void close() {
+        segments.clear();
+        try {
+            if (channel != null) {
+                channel.close();
+                Files.deleteIfExists(spillFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private void moveTo(Delta entry) {
+        currentEntry = entry;
+        currentState = codec.decode(currentBytes);
+    }
+
+    private Delta entry(int index) {
+        return index >= spilled ? hot[(hotHead + index - spilled) % hot.length] : readSpilled(index);
+    }
+
+    private void append(Delta delta) {
+        if (hotCount == hot.length) {
+            spill(hot[hotHead]);
+            hot[hotHead] = null;
+            hotHead = (hotHead + 1) % hot.length;
+            hotCount--;
+        }
+        hot[(hotHead + hotCount) % hot.length] = delta;
+        hotCount++;
+        size++;
+    }
+
+    private void truncate(int newSize) {
+        if (newSize >= size) {
+            return;
+        }
+        int keepHot = Math.max(0, newSize - spilled);
+        for (int i = keepHot; i < hotCount; i++) {
+            hot[(hotHead + i) % hot.length] = null;
+        }
+        hotCount = keepHot;
+        if (newSize < spilled) {
+            // Rewind the spill file to where entry newSize was written
+            int segment = (int) (locations[newSize] >>> 32);
+            while (segments.size() > segment + 1) {
+                mappedEnd -= segments.remove(segments.size() - 1).capacity();
+            }
+            writeOffset = (int) locations[newSize];
+            spilled = newSize;
+            hotHead = 0;
+        }
+        size = newSize;
+    }
+
+    private void spill(Delta delta) {
+        int length = delta.encodedSize();
+        try {
+            if (channel == null) {
+                Files.createDirectories(config.spillDirectory());
+                spillFile = Files.createTempFile(config.spillDirectory(), "memento-history", ".bin");
+                channel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            if (segments.isEmpty() || writeOffset + length > segments.get(segments.size() - 1).capacity()) {
+                int capacity = Math.max(config.segmentBytes(), length);
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, mappedEnd, capacity));
+                mappedEnd += capacity;
+                writeOffset = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (spilled == locations.length) {
+            locations = Arrays.copyOf(locations, spilled * 2);
+        }
+        locations[spilled++] = (long) (segments.size() - 1) << 32 | writeOffset;
+        delta.writeTo(segments.get(segments.size() - 1).slice(writeOffset, length));
+        writeOffset += length;
+    }
+
+    private Delta readSpilled(int index) {
+        long location = locations[index];
+        MappedByteBuffer segment = segments.get((int) (location >>> 32));
+        int offset = (int) location;
+        return Delta.readFrom(segment.slice(offset, segment.capacity() - offset));
+    }
+
+    private record Delta(int prefix, int suffix, byte[] removed, byte[] inserted,
+                         LocalDateTime timestamp, String description) {
+
+        static Delta between(byte[] from, byte[] to, LocalDateTime timestamp, String description) {
+            int common = Math.min(from.length, to.length);
+            int prefix = Arrays.mismatch(from, to);
+            if (prefix < 0 || prefix > common) {
+                prefix = common;
+            }
+            int suffix = 0;
+            while (suffix < common - prefix && from[from.length - 1 - suffix] == to[to.length - 1 - suffix]) {
+                suffix++;
+            }
+            return new Delta(prefix, suffix,
+                Arrays.copyOfRange(from, prefix, from.length - suffix),
+                Arrays.copyOfRange(to, prefix, to.length - suffix),
+                timestamp, description);
+        }
+
+        byte[] forward(byte[] from) {
+            return splice(from, removed.length, inserted);
+        }
+
+        byte[] backward(byte[] to) {
+            return splice(to, inserted.length, removed);
+        }
+
+        private byte[] splice(byte[] source, int replacedLength, byte[] replacement) {
+            byte[] result = new byte[prefix + replacement.length + suffix];
+            System.arraycopy(source, 0, result, 0, prefix);
+            System.arraycopy(replacement, 0, result, prefix, replacement.length);
+            System.arraycopy(source, prefix + replacedLength, result, prefix + replacement.length, suffix);
+            return result;
+        }
+
+        // [prefix][suffix][removed][inserted][epochSecond][nano][description], arrays and strings length-prefixed
+        int encodedSize() {
+            return 4 * Integer.BYTES + removed.length + inserted.length + Long.BYTES + Integer.BYTES
+                + Integer.BYTES + description.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            byte[] text = description.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(prefix).putInt(suffix)
+                  .putInt(removed.length).put(removed)
+                  .putInt(inserted.length).put(inserted)
+                  .putLong(timestamp.toEpochSecond(ZoneOffset.UTC)).putInt(timestamp.getNano())
+                  .putInt(text.length).put(text);
+        }
+
+        static Delta readFrom(ByteBuffer buffer) {
+            int prefix = buffer.getInt();
+            int suffix = buffer.getInt();
+            byte[] removed = new byte[buffer.getInt()];
+            buffer.get(removed);
+            byte[] inserted = new byte[buffer.getInt()];
+            buffer.get(inserted);
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            byte[] text = new byte[buffer.getInt()];
+            buffer.get(text);
+            return new Delta(prefix, suffix, removed, inserted, timestamp, new String(text, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.balazsholczer.memento;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.ref.Reference;
+import java.util.Random;
+
+/**
+ * A long editing session on a 64 KB document: retained heap of the in-memory
+ * StateManager history versus the delta history, then undo/redo latency at
+ * increasing history depths, which should stay flat once entries spill.
+ *
+ * Run with: java com.balazsholczer.memento.DeltaHistoryBenchmark [edits]
+ */
+public class DeltaHistoryBenchmark {
+
+    private static final String DOCUMENT = "All work and no play makes Jack a dull boy. ".repeat(64 * 1024 / 44);
+
+    public static void main(String[] args) {
+        int edits = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+
+        System.out.println("=== Delta History Benchmark ===");
+        System.out.println("Document: " + DOCUMENT.length() / 1024 + " KB, " + edits + " edits");
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long deltaBytes = retainedHeap(new RecordMemento.StateManager<>(StateCodec.utf8(), HistoryConfig.ofDefaults()), edits);
+            long fullBytes = retainedHeap(new RecordMemento.StateManager<>(), edits);
+            console.printf("In-memory history: %,12d bytes (%,d per edit)%n", fullBytes, fullBytes / edits);
+            console.printf("Delta history:     %,12d bytes (%,d per edit)%n", deltaBytes, deltaBytes / edits);
+
+            for (int depth : new int[]{1_000, 10_000, 100_000}) {
+                timeUndoRedo(console, depth);
+            }
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static long retainedHeap(RecordMemento.StateManager<String> manager, int edits) {
+        long baseline = usedHeap();
+        edit(manager, edits, new Random(42));
+        long used = usedHeap() - baseline;
+        Reference.reachabilityFence(manager);
+        manager.close();
+        return used;
+    }
+
+    private static void timeUndoRedo(PrintStream console, int depth) {
+        try (RecordMemento.StateManager<String> manager =
+                 new RecordMemento.StateManager<>(StateCodec.utf8(), HistoryConfig.ofDefaults())) {
+            edit(manager, depth, new Random(7));
+            // Undo deep into the spilled part of the history and redo back out
+            int steps = Math.min(depth - 1, 5_000);
+            long start = System.nanoTime();
+            for (int i = 0; i < steps; i++) {
+                manager.undo();
+            }
+            long undone = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < steps; i++) {
+                manager.redo();
+            }
+            long redone = System.nanoTime() - start;
+            console.printf("Depth %,7d: undo %,6.1f us, redo %,6.1f us%n",
+                depth, undone / 1_000.0 / steps, redone / 1_000.0 / steps);
+        }
+    }
+
+    private static void edit(RecordMemento.StateManager<String> manager, int edits, Random random) {
+        String text = DOCUMENT;
+        manager.setState(text, "Opened");
+        for (int i = 0; i < edits; i++) {
+            int at = random.nextInt(text.length());
+            text = text.substring(0, at) + (char) ('a' + random.nextInt(26)) + text.substring(at + 1);
+            manager.setState(text, "Edit " + i);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,8 +1,9 @@
 package com.balazsholczer.memento;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.Stack;
 
 public class FunctionalMemento {
     
@@ -17,19 +18,38 @@ public class FunctionalMemento {
         }
     }
     
-    public static class CommandManager<T> {
+    /**
+     * Keeps undo/redo commands in memory by default. Given a {@link StateCodec}
+     * the resulting states go to a {@link DeltaHistory} instead, which bounds
+     * heap use for long sessions.
+     */
+    public static class CommandManager<T> implements AutoCloseable {
         private T state;
-        private final Stack<Command<T>> undoStack = new Stack<>();
-        private final Stack<Command<T>> redoStack = new Stack<>();
+        private final Deque<Command<T>> undoStack = new ArrayDeque<>();
+        private final Deque<Command<T>> redoStack = new ArrayDeque<>();
+        private final DeltaHistory<T> deltas;
         
         public CommandManager(T initialState) {
             this.state = initialState;
+            this.deltas = null;
+        }
+        
+        public CommandManager(T initialState, StateCodec<T> codec, HistoryConfig config) {
+            this.state = initialState;
+            this.deltas = new DeltaHistory<>(codec, config);
+            deltas.push(initialState, "Initial state");
         }
         
         public void execute(Command<T> command) {
             T previousState = state;
             state = command.execute().apply(state);
             
+            if (deltas != null) {
+                deltas.push(state, command.description());
+                System.out.println("FunctionalMemento: Executed - " + command.description());
+                return;
+            }
+            
             // Create undo command with previous state
             Command<T> undoCommand = new Command<>(
                 current -> previousState,
@@ -44,6 +64,15 @@ public class FunctionalMemento {
         }
         
         public boolean undo() {
+            if (deltas != null) {
+                String description = deltas.getDescription();
+                if (!deltas.undo()) {
+                    return false;
+                }
+                state = deltas.getState();
+                System.out.println("FunctionalMemento: Undo: " + description);
+                return true;
+            }
             if (!undoStack.isEmpty()) {
                 Command<T> undoCommand = undoStack.pop();
                 T previousState = state;
@@ -64,6 +93,14 @@ public class FunctionalMemento {
         }
         
         public boolean redo() {
+            if (deltas != null) {
+                if (!deltas.redo()) {
+                    return false;
+                }
+                state = deltas.getState();
+                System.out.println("FunctionalMemento: Redo: " + deltas.getDescription());
+                return true;
+            }
             if (!redoStack.isEmpty()) {
                 Command<T> redoCommand = redoStack.pop();
                 state = redoCommand.execute().apply(state);
@@ -87,11 +124,19 @@ public class FunctionalMemento {
         }
         
         public boolean canUndo() {
-            return !undoStack.isEmpty();
+            return deltas != null ? deltas.canUndo() : !undoStack.isEmpty();
         }
         
         public boolean canRedo() {
-            return !redoStack.isEmpty();
+            return deltas != null ? deltas.canRedo() : !redoStack.isEmpty();
+        }
+        
+        // Removes the spill file, if any
+        @Override
+        public void close() {
+            if (deltas != null) {
+                deltas.close();
+            }
         }
     }
     
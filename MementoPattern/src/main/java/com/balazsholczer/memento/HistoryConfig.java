@@ -0,0 +1,42 @@
+package com.balazsholczer.memento;
+
+import java.nio.file.Path;
+
+/**
+ * @param hotWindow      number of most recent deltas kept on the heap; older ones are spilled to disk
+ * @param spillDirectory directory for the memory-mapped spill file, created on first spill
+ * @param segmentBytes   size of each mapped region of the spill file
+ */
+public record HistoryConfig(int hotWindow, Path spillDirectory, int segmentBytes) {
+
+    public HistoryConfig {
+        if (hotWindow <= 0) {
+            throw new IllegalArgumentException("hotWindow must be positive: " + hotWindow);
+        }
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("segmentBytes must be positive: " + segmentBytes);
+        }
+    }
+
+    public static HistoryConfig ofDefaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int hotWindow = 256;
+        private Path spillDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+        private int segmentBytes = 16 * 1024 * 1024;
+
+        public Builder hotWindow(int hotWindow) { this.hotWindow = hotWindow; return this; }
+        public Builder spillDirectory(Path spillDirectory) { this.spillDirectory = spillDirectory; return this; }
+        public Builder segmentBytes(int segmentBytes) { this.segmentBytes = segmentBytes; return this; }
+
+        public HistoryConfig build() {
+            return new HistoryConfig(hotWindow, spillDirectory, segmentBytes);
+        }
+    }
+}
@@ -48,6 +48,23 @@ public class ModernMementoDemo {
         textManager.redo();
         System.out.println("After 1 redo: " + textManager.getState());
         
+        System.out.println("\n=== Delta History (hot window of 2, rest spilled to disk) ===");
+
+        try (RecordMemento.StateManager<String> deltaManager = new RecordMemento.StateManager<>(
+                StateCodec.utf8(), HistoryConfig.builder().hotWindow(2).build())) {
+            deltaManager.setState("Dear team,", "Greeting");
+            deltaManager.setState("Dear team, the release is ready.", "Body");
+            deltaManager.setState("Dear team, the release is ready. Thanks!", "Sign-off");
+            deltaManager.setState("Dear all, the release is ready. Thanks!", "Reworded greeting");
+
+            deltaManager.undo();
+            deltaManager.undo();
+            deltaManager.undo();
+            System.out.println("After 3 undos: " + deltaManager.getState());
+            deltaManager.redo();
+            System.out.println("After 1 redo: " + deltaManager.getState());
+        }
+
         System.out.println("\n=== Functional Memento Pattern ===");
         
         FunctionalMemento.CommandManager<String> cmdManager = 
@@ -134,11 +151,36 @@ public class ModernMementoDemo {
         
         System.out.println("Stream - Cleanup:");
         streamManager.keepOnlyLatest(3);
-        
+
+        System.out.println("\n=== Structural Sharing Snapshots ===");
+
+        StreamMemento.StreamStateManager<PersistentDocument> documentManager =
+            new StreamMemento.StreamStateManager<>(PersistentDocument.of("The quick fox jumps."), 5);
+
+        PersistentDocument document = documentManager.getState();
+        document = document.insert(10, "brown ");
+        documentManager.setState(document);
+        documentManager.saveSnapshot("draft", "review");
+
+        document = document.replace(document.length() - 1, document.length(), " over the dog.");
+        documentManager.setState(document);
+        document = document.insert(document.length() - 4, "lazy ");
+        documentManager.setState(document);
+        documentManager.saveSnapshot("final", "review");
+
+        System.out.println("Current: " + documentManager.getState());
+        documentManager.restoreById("draft");
+        System.out.println("Restored draft: " + documentManager.getState());
+        System.out.println("Snapshots kept (bounded to 5): " + documentManager.getSnapshotCount());
+
         System.out.println("\n=== Pattern Comparison ===");
         System.out.println("Traditional: Basic state saving and restoration");
         System.out.println("Record: Undo/redo with immutable snapshots");
         System.out.println("Functional: Command-based with functional operations");
         System.out.println("Stream: Advanced querying and filtering capabilities");
+        System.out.println("✅ Delta histories keep a hot window in memory and spill the rest to disk");
+        System.out.println("✅ Indexed restore by id/tag in constant time");
+        System.out.println("✅ Bounded history compacts automatic snapshots first");
+        System.out.println("✅ Persistent documents share unchanged text between snapshots");
     }
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+package com.balazsholczer.memento;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable text stored as a rope: a balanced tree of small string chunks.
+ * Every edit returns a new document that shares all untouched chunks with
+ * the old one, so keeping each version as a memento costs roughly one chunk
+ * plus one tree path per edit instead of a full copy of the text.
+ */
+public final class PersistentDocument {
+    static final int CHUNK_SIZE = 1024;
+    private static final int MAX_DEPTH = 48;
+    private static final PersistentDocument EMPTY = new PersistentDocument(new Leaf(""));
+
+    private final Node root;
+
+    private PersistentDocument(Node root) {
+        this.root = root;
+    }
+
+    public static PersistentDocument empty() {
+        return EMPTY;
+    }
+
+    public static PersistentDocument of(String text) {
+        return text.isEmpty() ? EMPTY : new PersistentDocument(build(text));
+    }
+
+    public int length() {
+        return root.length();
+    }
+
+    public char charAt(int index) {
+        checkIndex(index, length());
+        Node node = root;
+        while (node instanceof Concat concat) {
+            if (index < concat.left.length()) {
+                node = concat.left;
+            } else {
+                index -= concat.left.length();
+                node = concat.right;
+            }
+        }
+        return ((Leaf) node).text.charAt(index);
+    }
+
+    public String substring(int start, int end) {
+        checkRange(start, end);
+        StringBuilder result = new StringBuilder(end - start);
+        appendRange(root, start, end, result);
+        return result.toString();
+    }
+
+    public PersistentDocument insert(int index, String text) {
+        checkIndex(index, length() + 1);
+        if (text.isEmpty()) {
+            return this;
+        }
+        Node[] parts = split(root, index);
+        return withRoot(concat(concat(parts[0], build(text)), parts[1]));
+    }
+
+    public PersistentDocument append(String text) {
+        return insert(length(), text);
+    }
+
+    public PersistentDocument delete(int start, int end) {
+        checkRange(start, end);
+        if (start == end) {
+            return this;
+        }
+        Node[] head = split(root, start);
+        Node[] tail = split(head[1], end - start);
+        return withRoot(concat(head[0], tail[1]));
+    }
+
+    public PersistentDocument replace(int start, int end, String text) {
+        return delete(start, end).insert(start, text);
+    }
+
+    // Number of chunks, for diagnostics
+    int chunkCount() {
+        return root.chunks();
+    }
+
+    int depth() {
+        return root.depth();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(length());
+        appendRange(root, 0, length(), result);
+        return result.toString();
+    }
+
+    private PersistentDocument withRoot(Node node) {
+        if (node.depth() > MAX_DEPTH) {
+            node = rebalance(node);
+        }
+        return node.length() == 0 ? EMPTY : new PersistentDocument(node);
+    }
+
+    private static Node build(String text) {
+        List<Node> leaves = new ArrayList<>(text.length() / CHUNK_SIZE + 1);
+        for (int start = 0; start < text.length(); start += CHUNK_SIZE) {
+            leaves.add(new Leaf(text.substring(start, Math.min(text.length(), start + CHUNK_SIZE))));
+        }
+        return balanced(leaves, 0, leaves.size());
+    }
+
+    private static Node balanced(List<Node> leaves, int from, int to) {
+        if (to - from == 1) {
+            return leaves.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return new Concat(balanced(leaves, from, middle), balanced(leaves, middle, to));
+    }
+
+    private static Node rebalance(Node node) {
+        List<Node> leaves = new ArrayList<>(node.chunks());
+        collectLeaves(node, leaves);
+        return balanced(leaves, 0, leaves.size());
+    }
+
+    private static void collectLeaves(Node node, List<Node> leaves) {
+        if (node instanceof Concat concat) {
+            collectLeaves(concat.left, leaves);
+            collectLeaves(concat.right, leaves);
+        } else if (node.length() > 0) {
+            leaves.add(node);
+        }
+    }
+
+    private static Node concat(Node left, Node right) {
+        if (left.length() == 0) {
+            return right;
+        }
+        if (right.length() == 0) {
+            return left;
+        }
+        // Small neighbouring chunks are merged so edits do not fragment the rope
+        if (left instanceof Leaf a && right instanceof Leaf b && a.length() + b.length() <= CHUNK_SIZE) {
+            return new Leaf(a.text + b.text);
+        }
+        return new Concat(left, right);
+    }
+
+    // Returns {text before index, text from index}; untouched subtrees are reused as-is
+    private static Node[] split(Node node, int index) {
+        if (index == 0) {
+            return new Node[]{new Leaf(""), node};
+        }
+        if (index == node.length()) {
+            return new Node[]{node, new Leaf("")};
+        }
+        if (node instanceof Leaf leaf) {
+            return new Node[]{new Leaf(leaf.text.substring(0, index)), new Leaf(leaf.text.substring(index))};
+        }
+        Concat concat = (Concat) node;
+        if (index < concat.left.length()) {
+            Node[] parts = split(concat.left, index);
+            return new Node[]{parts[0], concat(parts[1], concat.right)};
+        }
+        Node[] parts = split(concat.right, index - concat.left.length());
+        return new Node[]{concat(concat.left, parts[0]), parts[1]};
+    }
+
+    private static void appendRange(Node node, int start, int end, StringBuilder result) {
+        if (start >= end) {
+            return;
+        }
+        if (node instanceof Leaf leaf) {
+            result.append(leaf.text, start, end);
+            return;
+        }
+        Concat concat = (Concat) node;
+        int leftLength = concat.left.length();
+        if (start < leftLength) {
+            appendRange(concat.left, start, Math.min(end, leftLength), result);
+        }
+        if (end > leftLength) {
+            appendRange(concat.right, Math.max(0, start - leftLength), end - leftLength, result);
+        }
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + length());
+        }
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + bound);
+        }
+    }
+
+    private sealed interface Node permits Leaf, Concat {
+        int length();
+
+        int depth();
+
+        int chunks();
+    }
+
+    private record Leaf(String text) implements Node {
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public int depth() {
+            return 0;
+        }
+
+        @Override
+        public int chunks() {
+            return 1;
+        }
+    }
+
+    private record Concat(Node left, Node right, int length, int depth, int chunks) implements Node {
+        Concat(Node left, Node right) {
+            this(left, right, left.length() + right.length(),
+                Math.max(left.depth(), right.depth()) + 1, left.chunks() + right.chunks());
+        }
+    }
+}
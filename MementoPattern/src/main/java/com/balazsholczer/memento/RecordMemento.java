@@ -16,14 +16,34 @@ public class RecordMemento {
         }
     }
     
-    public static class StateManager<T> {
+    /**
+     * Keeps every snapshot in memory by default. Given a {@link StateCodec} it
+     * stores a {@link DeltaHistory} instead: binary deltas, a hot window on
+     * the heap and the rest spilled to disk.
+     */
+    public static class StateManager<T> implements AutoCloseable {
         private T currentState;
         private final List<Snapshot<T>> history = new CopyOnWriteArrayList<>();
         private int currentIndex = -1;
+        private final DeltaHistory<T> deltas;
+        
+        public StateManager() {
+            this.deltas = null;
+        }
+        
+        public StateManager(StateCodec<T> codec, HistoryConfig config) {
+            this.deltas = new DeltaHistory<>(codec, config);
+        }
         
         public void setState(T state, String description) {
             this.currentState = state;
             
+            if (deltas != null) {
+                deltas.push(state, description);
+                System.out.println("RecordMemento: State set - " + description);
+                return;
+            }
+            
             // Remove any future history if we're not at the end
             if (currentIndex < history.size() - 1) {
                 history.subList(currentIndex + 1, history.size()).clear();
@@ -43,6 +63,14 @@ public class RecordMemento {
         }
         
         public boolean undo() {
+            if (deltas != null) {
+                if (!deltas.undo()) {
+                    return false;
+                }
+                currentState = deltas.getState();
+                System.out.println("RecordMemento: Undo to - " + deltas.getDescription());
+                return true;
+            }
             if (currentIndex > 0) {
                 currentIndex--;
                 currentState = history.get(currentIndex).state();
@@ -53,6 +81,14 @@ public class RecordMemento {
         }
         
         public boolean redo() {
+            if (deltas != null) {
+                if (!deltas.redo()) {
+                    return false;
+                }
+                currentState = deltas.getState();
+                System.out.println("RecordMemento: Redo to - " + deltas.getDescription());
+                return true;
+            }
             if (currentIndex < history.size() - 1) {
                 currentIndex++;
                 currentState = history.get(currentIndex).state();
@@ -63,15 +99,23 @@ public class RecordMemento {
         }
         
         public List<Snapshot<T>> getHistory() {
-            return List.copyOf(history);
+            return deltas != null ? deltas.snapshots() : List.copyOf(history);
         }
         
         public boolean canUndo() {
-            return currentIndex > 0;
+            return deltas != null ? deltas.canUndo() : currentIndex > 0;
         }
         
         public boolean canRedo() {
-            return currentIndex < history.size() - 1;
+            return deltas != null ? deltas.canRedo() : currentIndex < history.size() - 1;
+        }
+        
+        // Removes the spill file, if any
+        @Override
+        public void close() {
+            if (deltas != null) {
+                deltas.close();
+            }
         }
     }
 }
\ No newline at end of file
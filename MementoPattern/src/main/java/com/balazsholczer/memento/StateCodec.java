@@ -0,0 +1,43 @@
+package com.balazsholczer.memento;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns a state into bytes and back, so a {@link DeltaHistory} can store the
+ * difference between two versions instead of both of them.
+ */
+public interface StateCodec<T> {
+
+    byte[] encode(T state);
+
+    T decode(byte[] bytes);
+
+    static StateCodec<String> utf8() {
+        return new StateCodec<>() {
+            @Override
+            public byte[] encode(String state) {
+                return state.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    static StateCodec<Integer> int32() {
+        return new StateCodec<>() {
+            @Override
+            public byte[] encode(Integer state) {
+                return ByteBuffer.allocate(Integer.BYTES).putInt(state).array();
+            }
+
+            @Override
+            public Integer decode(byte[] bytes) {
+                return ByteBuffer.wrap(bytes).getInt();
+            }
+        };
+    }
+}
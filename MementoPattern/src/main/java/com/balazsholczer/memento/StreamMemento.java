@@ -1,9 +1,14 @@
 package com.balazsholczer.memento;
 
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -27,22 +32,53 @@ public class StreamMemento {
         }
     }
     
+    /**
+     * Keeps snapshots in insertion order with an index per id and per tag, so
+     * the latest snapshot for either is found in O(1). History is bounded:
+     * past maxSnapshots the oldest automatic ("auto") snapshots are compacted
+     * away first, then the oldest named ones. Pair it with an immutable,
+     * structurally shared state such as {@link PersistentDocument} so each
+     * snapshot only costs what changed.
+     */
     public static class StreamStateManager<T> {
-        private final List<StateSnapshot<T>> snapshots = new CopyOnWriteArrayList<>();
-        private T currentState;
+        public static final int DEFAULT_MAX_SNAPSHOTS = 1_000;
+        private static final String AUTO_ID = "auto";
+        
+        private final Map<Long, StateSnapshot<T>> snapshots = new LinkedHashMap<>();
+        private final Map<String, Deque<Long>> byId = new HashMap<>();
+        private final Map<String, Deque<Long>> byTag = new HashMap<>();
+        private final int maxSnapshots;
+        private long nextSequence;
+        private volatile T currentState;
         
         public StreamStateManager(T initialState) {
+            this(initialState, DEFAULT_MAX_SNAPSHOTS);
+        }
+        
+        public StreamStateManager(T initialState, int maxSnapshots) {
+            if (maxSnapshots <= 0) {
+                throw new IllegalArgumentException("maxSnapshots must be positive: " + maxSnapshots);
+            }
+            this.maxSnapshots = maxSnapshots;
             this.currentState = initialState;
             saveSnapshot("initial", "Initial state");
         }
         
         public void setState(T state) {
             this.currentState = state;
-            saveSnapshot("auto", "State updated");
+            saveSnapshot(AUTO_ID, "State updated");
         }
         
         public void saveSnapshot(String id, String tag) {
-            snapshots.add(new StateSnapshot<>(id, currentState, tag));
+            synchronized (snapshots) {
+                long sequence = nextSequence++;
+                snapshots.put(sequence, new StateSnapshot<>(id, currentState, tag));
+                byId.computeIfAbsent(id, k -> new ArrayDeque<>()).addLast(sequence);
+                byTag.computeIfAbsent(tag, k -> new ArrayDeque<>()).addLast(sequence);
+                if (snapshots.size() > maxSnapshots) {
+                    compact();
+                }
+            }
             System.out.println("StreamMemento: Snapshot saved - " + tag + " (id: " + id + ")");
         }
         
@@ -51,35 +87,32 @@ public class StreamMemento {
         }
         
         public Optional<T> restoreById(String id) {
-            return snapshots.stream()
-                          .filter(snapshot -> snapshot.id().equals(id))
-                          .reduce((first, second) -> second) // Get latest with this id
-                          .map(snapshot -> {
-                              currentState = snapshot.state();
-                              System.out.println("StreamMemento: Restored state from id: " + id);
-                              return currentState;
-                          });
+            return latest(byId, id).map(snapshot -> {
+                currentState = snapshot.state();
+                System.out.println("StreamMemento: Restored state from id: " + id);
+                return currentState;
+            });
         }
         
         public Optional<T> restoreByTag(String tag) {
-            return snapshots.stream()
-                          .filter(snapshot -> snapshot.isTagged(tag))
-                          .reduce((first, second) -> second) // Get latest with this tag
-                          .map(snapshot -> {
-                              currentState = snapshot.state();
-                              System.out.println("StreamMemento: Restored state from tag: " + tag);
-                              return currentState;
-                          });
+            return latest(byTag, tag).map(snapshot -> {
+                currentState = snapshot.state();
+                System.out.println("StreamMemento: Restored state from tag: " + tag);
+                return currentState;
+            });
         }
         
         public List<StateSnapshot<T>> findSnapshots(Predicate<StateSnapshot<T>> predicate) {
-            return snapshots.stream()
+            return allSnapshots().stream()
                           .filter(predicate)
                           .toList();
         }
         
         public List<StateSnapshot<T>> getSnapshotsByTag(String tag) {
-            return findSnapshots(snapshot -> snapshot.isTagged(tag));
+            synchronized (snapshots) {
+                Deque<Long> sequences = byTag.get(tag);
+                return sequences == null ? List.of() : sequences.stream().map(snapshots::get).toList();
+            }
         }
         
         public List<StateSnapshot<T>> getSnapshotsAfter(LocalDateTime time) {
@@ -91,25 +124,83 @@ public class StreamMemento {
         }
         
         public Stream<T> getStateHistory() {
-            return snapshots.stream().map(StateSnapshot::state);
+            return allSnapshots().stream().map(StateSnapshot::state);
+        }
+        
+        public int getSnapshotCount() {
+            synchronized (snapshots) {
+                return snapshots.size();
+            }
         }
         
         public void cleanup(Predicate<StateSnapshot<T>> shouldRemove) {
-            int sizeBefore = snapshots.size();
-            snapshots.removeIf(shouldRemove);
-            int sizeAfter = snapshots.size();
-            System.out.println("StreamMemento: Cleaned up " + (sizeBefore - sizeAfter) + " snapshots");
+            int removed;
+            synchronized (snapshots) {
+                int sizeBefore = snapshots.size();
+                snapshots.values().removeIf(shouldRemove);
+                removed = sizeBefore - snapshots.size();
+                reindex();
+            }
+            System.out.println("StreamMemento: Cleaned up " + removed + " snapshots");
         }
         
         public void keepOnlyLatest(int count) {
-            if (snapshots.size() > count) {
-                List<StateSnapshot<T>> toKeep = snapshots.stream()
-                                                       .skip(Math.max(0, snapshots.size() - count))
-                                                       .toList();
-                snapshots.clear();
-                snapshots.addAll(toKeep);
+            boolean trimmed = false;
+            synchronized (snapshots) {
+                Iterator<Long> oldest = snapshots.keySet().iterator();
+                while (snapshots.size() > count && oldest.hasNext()) {
+                    oldest.next();
+                    oldest.remove();
+                    trimmed = true;
+                }
+                if (trimmed) {
+                    reindex();
+                }
+            }
+            if (trimmed) {
                 System.out.println("StreamMemento: Kept only latest " + count + " snapshots");
             }
         }
+        
+        private Optional<StateSnapshot<T>> latest(Map<String, Deque<Long>> index, String key) {
+            synchronized (snapshots) {
+                Deque<Long> sequences = index.get(key);
+                return sequences == null || sequences.isEmpty()
+                    ? Optional.empty()
+                    : Optional.of(snapshots.get(sequences.peekLast()));
+            }
+        }
+        
+        private List<StateSnapshot<T>> allSnapshots() {
+            synchronized (snapshots) {
+                return List.copyOf(snapshots.values());
+            }
+        }
+        
+        // Caller holds the snapshots lock
+        private void compact() {
+            Deque<Long> autos = byId.get(AUTO_ID);
+            long victim = autos != null && !autos.isEmpty() ? autos.peekFirst() : snapshots.keySet().iterator().next();
+            StateSnapshot<T> removed = snapshots.remove(victim);
+            unindex(byId, removed.id(), victim);
+            unindex(byTag, removed.tag(), victim);
+        }
+        
+        private static void unindex(Map<String, Deque<Long>> index, String key, long sequence) {
+            Deque<Long> sequences = index.get(key);
+            sequences.removeFirstOccurrence(sequence);
+            if (sequences.isEmpty()) {
+                index.remove(key);
+            }
+        }
+        
+        private void reindex() {
+            byId.clear();
+            byTag.clear();
+            snapshots.forEach((sequence, snapshot) -> {
+                byId.computeIfAbsent(snapshot.id(), k -> new ArrayDeque<>()).addLast(sequence);
+                byTag.computeIfAbsent(snapshot.tag(), k -> new ArrayDeque<>()).addLast(sequence);
+            });
+        }
     }
-}
\ No newline at end of file
+}
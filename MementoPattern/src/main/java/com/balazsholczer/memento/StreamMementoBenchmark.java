@@ -0,0 +1,103 @@
+package com.balazsholczer.memento;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.ref.Reference;
+import java.util.Random;
+
+/**
+ * Heap retained per snapshot when a large document is edited a little at a
+ * time: a plain String history copies the whole text on every version, a
+ * PersistentDocument history shares everything but the edited chunk. Also
+ * times restoreById/restoreByTag against a long history.
+ *
+ * Run with: java com.balazsholczer.memento.StreamMementoBenchmark [documentKb] [snapshots]
+ */
+public class StreamMementoBenchmark {
+
+    public static void main(String[] args) {
+        int documentKb = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int snapshots = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        String text = "lorem ipsum ".repeat(documentKb * 1024 / 12);
+
+        System.out.println("=== Stream Memento Benchmark ===");
+        System.out.println("Document: " + text.length() / 1024 + " KB, " + snapshots + " snapshots of small edits");
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            // The small history is measured first so it is not skewed by the large one's garbage
+            long documentBytes = documentHistory(text, snapshots);
+            console.printf("PersistentDocument history: %,12d bytes (%,d per snapshot)%n",
+                documentBytes, documentBytes / snapshots);
+            long stringBytes = stringHistory(text, snapshots);
+            console.printf("String history:             %,12d bytes (%,d per snapshot)%n",
+                stringBytes, stringBytes / snapshots);
+            console.printf("Reduction: %.1fx%n", (double) stringBytes / Math.max(1, documentBytes));
+
+            timeRestores(console);
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static long stringHistory(String text, int snapshots) {
+        long baseline = usedHeap();
+        StreamMemento.StreamStateManager<String> manager = new StreamMemento.StreamStateManager<>(text, snapshots + 1);
+        Random random = new Random(42);
+        String current = text;
+        for (int i = 0; i < snapshots; i++) {
+            int at = random.nextInt(current.length());
+            current = current.substring(0, at) + "edit" + current.substring(at);
+            manager.setState(current);
+        }
+        long used = usedHeap() - baseline;
+        Reference.reachabilityFence(manager);
+        return used;
+    }
+
+    private static long documentHistory(String text, int snapshots) {
+        long baseline = usedHeap();
+        StreamMemento.StreamStateManager<PersistentDocument> manager =
+            new StreamMemento.StreamStateManager<>(PersistentDocument.of(text), snapshots + 1);
+        Random random = new Random(42);
+        PersistentDocument current = manager.getState();
+        for (int i = 0; i < snapshots; i++) {
+            current = current.insert(random.nextInt(current.length()), "edit");
+            manager.setState(current);
+        }
+        long used = usedHeap() - baseline;
+        Reference.reachabilityFence(manager);
+        return used;
+    }
+
+    private static void timeRestores(PrintStream console) {
+        int history = 100_000;
+        StreamMemento.StreamStateManager<Integer> manager = new StreamMemento.StreamStateManager<>(0, history + 1);
+        for (int i = 0; i < history; i++) {
+            manager.setState(i);
+            if (i % 10 == 0) {
+                manager.saveSnapshot("v" + i, "tag" + (i % 100));
+            }
+        }
+        int restores = 1_000_000;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < restores; i++) {
+                manager.restoreById("v" + (i % 10_000) * 10);
+                manager.restoreByTag("tag" + (i % 100));
+            }
+            long elapsed = System.nanoTime() - start;
+            console.printf("Restore over %,d snapshots: %.0f ns/op%n",
+                manager.getSnapshotCount(), (double) elapsed / (2L * restores));
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,6 +1,8 @@
 package com.balazsholczer.memento;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
@@ -236,6 +238,110 @@ class MementoTest {
         assertTrue(manager.getStateHistory().count() <= 2);
     }
     
+    @Test
+    void testStreamMementoBoundedHistory() {
+        StreamMemento.StreamStateManager<String> manager = new StreamMemento.StreamStateManager<>("Start", 4);
+        manager.setState("A");
+        manager.saveSnapshot("a", "release");
+        for (int i = 0; i < 10; i++) {
+            manager.setState("Draft " + i);
+        }
+        
+        assertEquals(4, manager.getSnapshotCount());
+        // Automatic snapshots are compacted before named ones
+        assertEquals("A", manager.restoreById("a").orElseThrow());
+        assertEquals("Start", manager.restoreByTag("Initial state").orElseThrow());
+        assertEquals(List.of("Start", "A", "Draft 8", "Draft 9"), manager.getStateHistory().toList());
+        
+        manager.cleanup(snapshot -> snapshot.id().equals("a"));
+        assertTrue(manager.restoreById("a").isEmpty());
+        assertEquals("Draft 9", manager.restoreById("auto").orElseThrow());
+    }
+    
+    @Test
+    void testPersistentDocumentEdits() {
+        String text = "0123456789".repeat(500);
+        PersistentDocument original = PersistentDocument.of(text);
+        
+        PersistentDocument edited = original.insert(2500, "abc").delete(10, 20).replace(0, 1, "X");
+        String expected = ("X" + text.substring(1, 10) + text.substring(20, 2500) + "abc" + text.substring(2500));
+        
+        assertEquals(expected, edited.toString());
+        assertEquals(expected.length(), edited.length());
+        assertEquals(expected.charAt(2493), edited.charAt(2493));
+        assertEquals(expected.substring(1000, 3000), edited.substring(1000, 3000));
+        // The original version is untouched
+        assertEquals(text, original.toString());
+        assertEquals("", original.delete(0, original.length()).toString());
+    }
+    
+    @Test
+    void testPersistentDocumentStaysBalanced() {
+        PersistentDocument document = PersistentDocument.empty();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            document = document.insert(document.length() / 2, "line " + i + "\n");
+            expected.insert(expected.length() / 2, "line " + i + "\n");
+        }
+        
+        assertEquals(expected.toString(), document.toString());
+        assertTrue(document.depth() <= 48);
+    }
+    
+    @Test
+    void testDeltaHistorySpillsAndRestores(@TempDir Path spillDirectory) {
+        HistoryConfig config = HistoryConfig.builder().hotWindow(3).spillDirectory(spillDirectory).segmentBytes(64).build();
+        try (RecordMemento.StateManager<String> manager = new RecordMemento.StateManager<>(StateCodec.utf8(), config)) {
+            for (int i = 0; i < 20; i++) {
+                manager.setState("Document revision " + i + " with a shared tail", "Revision " + i);
+            }
+            
+            while (manager.undo()) {
+                // Walks back through the spilled entries
+            }
+            assertEquals("Document revision 0 with a shared tail", manager.getState());
+            for (int i = 0; i < 12; i++) {
+                manager.redo();
+            }
+            assertEquals("Document revision 12 with a shared tail", manager.getState());
+            
+            // Branching inside the spilled part drops the later revisions
+            manager.undo();
+            manager.setState("Branch", "Branch");
+            assertFalse(manager.canRedo());
+            List<RecordMemento.Snapshot<String>> history = manager.getHistory();
+            assertEquals(13, history.size());
+            assertEquals("Revision 11", history.get(11).description());
+            assertEquals("Document revision 11 with a shared tail", history.get(11).state());
+            assertEquals("Branch", history.get(12).state());
+            
+            manager.undo();
+            assertEquals("Document revision 11 with a shared tail", manager.getState());
+        }
+    }
+    
+    @Test
+    void testCommandManagerWithDeltaHistory(@TempDir Path spillDirectory) {
+        HistoryConfig config = HistoryConfig.builder().hotWindow(2).spillDirectory(spillDirectory).build();
+        try (FunctionalMemento.CommandManager<Integer> manager =
+                 new FunctionalMemento.CommandManager<>(0, StateCodec.int32(), config)) {
+            for (int i = 1; i <= 10; i++) {
+                manager.execute(FunctionalMemento.increment(i));
+            }
+            assertEquals(55, manager.getState());
+            
+            for (int i = 0; i < 10; i++) {
+                assertTrue(manager.undo());
+            }
+            assertEquals(0, manager.getState());
+            assertFalse(manager.undo());
+            
+            manager.redo();
+            manager.redo();
+            assertEquals(3, manager.getState());
+        }
+    }
+    
     @Test
     void testEquivalence() {
         // All approaches should preserve and restore state
@@ -1,43 +1,56 @@
 package com.balazsholczer.observer;
 
 import java.util.concurrent.Flow;
-import java.util.concurrent.SubmissionPublisher;
 
-public class EventWeatherStation extends SubmissionPublisher<EventWeatherStation.WeatherEvent> {
+public class EventWeatherStation extends RingBufferPublisher<EventWeatherStation.WeatherEvent> {
     
     public record WeatherEvent(String type, int value, int pressure, int temperature, int humidity) {}
     
     private int pressure, temperature, humidity;
     
-    public void setPressure(int pressure) {
+    public EventWeatherStation() {
+    }
+    
+    public EventWeatherStation(int bufferSize, WaitStrategy waitStrategy) {
+        super(bufferSize, waitStrategy);
+    }
+    
+    // Setters are synchronized: the ring buffer takes one producer at a time
+    public synchronized void setPressure(int pressure) {
         this.pressure = pressure;
         submit(new WeatherEvent("PRESSURE", pressure, this.pressure, temperature, humidity));
     }
     
-    public void setTemperature(int temperature) {
+    public synchronized void setTemperature(int temperature) {
         this.temperature = temperature;
         submit(new WeatherEvent("TEMPERATURE", temperature, pressure, this.temperature, humidity));
     }
     
-    public void setHumidity(int humidity) {
+    public synchronized void setHumidity(int humidity) {
         this.humidity = humidity;
         submit(new WeatherEvent("HUMIDITY", humidity, pressure, temperature, this.humidity));
     }
     
     public static class WeatherSubscriber implements Flow.Subscriber<WeatherEvent> {
+        private static final int BATCH_SIZE = 32;
+        
         private Flow.Subscription subscription;
+        private int receivedSinceRequest;
         
         @Override
         public void onSubscribe(Flow.Subscription subscription) {
             this.subscription = subscription;
-            subscription.request(1);
+            subscription.request(BATCH_SIZE);
         }
         
         @Override
         public void onNext(WeatherEvent event) {
             System.out.println(event.type() + " changed: " + event.pressure() + "-" + 
                              event.temperature() + "-" + event.humidity());
-            subscription.request(1);
+            if (++receivedSinceRequest == BATCH_SIZE / 2) {
+                receivedSinceRequest = 0;
+                subscription.request(BATCH_SIZE / 2);
+            }
         }
         
         @Override
@@ -0,0 +1,407 @@
+package com.balazsholczer.observer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Flow.Publisher over a pre-allocated ring of slots, in the style of the LMAX
+ * Disruptor. A single producer writes items into a power-of-two array and
+ * advances a cursor; every subscriber owns a thread and a sequence and reads
+ * the slots directly, so there is no per-item queue node or executor hand-off.
+ * Demand is a counter, so a subscriber that requests in batches receives
+ * items back to back. The producer waits once the slowest subscriber is a
+ * full ring behind. Slots are nulled as soon as every subscriber has read
+ * them, so the ring does not keep consumed items reachable.
+ *
+ * {@link #submit(Object)} must be called from one thread at a time.
+ */
+public class RingBufferPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+
+    public enum WaitStrategy {
+        BUSY_SPIN,  // Lowest latency, burns a core per waiting thread
+        YIELDING,   // Spins briefly, then gives up the CPU between checks
+        BLOCKING    // Parks until signalled; cheapest on CPU, highest latency
+    }
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final int SPIN_TRIES = 100;
+    private static final long PRODUCER_PARK_NANOS = 1_000;
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    private final Object[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final Sequence cursor = new Sequence(-1);
+    // Highest sequence whose slot has been cleared; the producer never wraps past it
+    private final Sequence released = new Sequence(-1);
+
+    // Replaced on subscribe/cancel; the producer scans it to find the slowest subscriber
+    private volatile List<RingSubscription> subscriptions = List.of();
+    private final Object subscriptionLock = new Object();
+
+    // Producer-only state
+    private long nextSequence;
+    private long cachedGatingSequence = -1;
+
+    private volatile boolean closed;
+    private volatile Throwable closedException;
+
+    public RingBufferPublisher() {
+        this(DEFAULT_BUFFER_SIZE, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param bufferSize number of slots, rounded up to a power of two
+     */
+    public RingBufferPublisher(int bufferSize, WaitStrategy waitStrategy) {
+        if (bufferSize <= 0 || bufferSize > 1 << 30) {
+            throw new IllegalArgumentException("bufferSize out of range: " + bufferSize);
+        }
+        int capacity = Integer.highestOneBit(bufferSize - 1) << 1;
+        this.slots = new Object[Math.max(capacity, 1)];
+        this.mask = slots.length - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        RingSubscription subscription = new RingSubscription(subscriber);
+        synchronized (subscriptionLock) {
+            subscription.sequence.setVolatile(cursor.getAcquire());
+            List<RingSubscription> updated = new ArrayList<>(subscriptions);
+            updated.add(subscription);
+            subscriptions = List.copyOf(updated);
+            // Re-read once the producer can see us: it may have wrapped past the first value meanwhile
+            subscription.sequence.setVolatile(cursor.getAcquire());
+            if (updated.size() == 1) {
+                // Items published while nobody listened are nobody's to clear
+                released.setRelease(subscription.sequence.getAcquire());
+            }
+        }
+        subscription.start();
+    }
+
+    /**
+     * Publishes an item to every current subscriber, waiting while the ring
+     * is full.
+     */
+    public void submit(T item) {
+        Objects.requireNonNull(item, "item");
+        if (closed) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+        long sequence = nextSequence;
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > cachedGatingSequence) {
+            long minimum;
+            int tries = 0;
+            while (wrapPoint > (minimum = gatingSequence(sequence - 1))) {
+                backOff(tries++);
+            }
+            cachedGatingSequence = minimum;
+        }
+        slots[(int) sequence & mask] = item;
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            // Full fence so a consumer that just announced it is parking cannot miss this item
+            cursor.setVolatile(sequence);
+            signalParked();
+        } else {
+            cursor.setRelease(sequence);
+        }
+        nextSequence = sequence + 1;
+    }
+
+    // Subscribers receive onComplete once they have consumed everything already submitted
+    @Override
+    public void close() {
+        closed = true;
+        signalAll();
+    }
+
+    public void closeExceptionally(Throwable error) {
+        closedException = Objects.requireNonNull(error, "error");
+        close();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getNumberOfSubscribers() {
+        return subscriptions.size();
+    }
+
+    public int getBufferSize() {
+        return slots.length;
+    }
+
+    // How far the slowest subscriber is behind the producer
+    public long estimateMaximumLag() {
+        long published = cursor.getAcquire();
+        return published - minimumSequence(published);
+    }
+
+    private long minimumSequence(long defaultValue) {
+        List<RingSubscription> current = subscriptions;
+        long minimum = defaultValue;
+        for (int i = 0; i < current.size(); i++) {
+            minimum = Math.min(minimum, current.get(i).sequence.getAcquire());
+        }
+        return minimum;
+    }
+
+    // Slowest subscriber, or the clearing point if it lags behind them
+    private long gatingSequence(long defaultValue) {
+        List<RingSubscription> current = subscriptions;
+        if (current.isEmpty()) {
+            return defaultValue;
+        }
+        long minimum = Math.min(defaultValue, released.getAcquire());
+        for (int i = 0; i < current.size(); i++) {
+            minimum = Math.min(minimum, current.get(i).sequence.getAcquire());
+        }
+        return minimum;
+    }
+
+    // Nulls the slots every subscriber has read; caller holds subscriptionLock.
+    // The producer gates on released, so it never refills a slot still waiting to be cleared.
+    private void releaseConsumed() {
+        long upTo = minimumSequence(cursor.getAcquire());
+        long from = Math.max(released.getAcquire() + 1, upTo - slots.length + 1);
+        for (long s = from; s <= upTo; s++) {
+            slots[(int) s & mask] = null;
+        }
+        if (upTo >= from) {
+            released.setRelease(upTo);
+        }
+    }
+
+    private void backOff(int tries) {
+        switch (waitStrategy) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> {
+                if (tries < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            case BLOCKING -> LockSupport.parkNanos(this, PRODUCER_PARK_NANOS);
+        }
+    }
+
+    private void signalParked() {
+        List<RingSubscription> current = subscriptions;
+        for (int i = 0; i < current.size(); i++) {
+            RingSubscription subscription = current.get(i);
+            if (subscription.parked) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+
+    private void signalAll() {
+        for (RingSubscription subscription : subscriptions) {
+            LockSupport.unpark(subscription.thread);
+        }
+    }
+
+    private void remove(RingSubscription subscription) {
+        synchronized (subscriptionLock) {
+            List<RingSubscription> updated = new ArrayList<>(subscriptions);
+            if (updated.remove(subscription)) {
+                subscriptions = List.copyOf(updated);
+                releaseConsumed();
+            }
+        }
+    }
+
+    private final class RingSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Sequence sequence = new Sequence(-1);
+        private final AtomicLong demand = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean cancelled;
+        private volatile boolean parked;
+        private volatile Throwable pendingError;
+
+        private RingSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+            String name = "ring-subscriber-" + THREAD_IDS.incrementAndGet();
+            // Spinning strategies need a carrier of their own; parked consumers are cheap as virtual threads
+            this.thread = waitStrategy == WaitStrategy.BLOCKING
+                ? Thread.ofVirtual().name(name).unstarted(this::run)
+                : Thread.ofPlatform().name(name).daemon().unstarted(this::run);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                pendingError = new IllegalArgumentException("request must be positive: " + n);
+                cancel();
+                return;
+            }
+            demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+            LockSupport.unpark(thread);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void run() {
+            try {
+                subscriber.onSubscribe(this);
+                long next = sequence.getAcquire() + 1;
+                while (!cancelled) {
+                    long available = waitForItems(next);
+                    if (available < next) {
+                        break;
+                    }
+                    long requested = demand.get();
+                    if (requested == 0) {
+                        waitForDemand();
+                        continue;
+                    }
+                    long batch = Math.min(available - next + 1, requested);
+                    long end = next + batch - 1;
+                    for (long s = next; s <= end; s++) {
+                        subscriber.onNext((T) slots[(int) s & mask]);
+                    }
+                    // Slots are released a batch at a time
+                    sequence.setRelease(end);
+                    // Only the slowest subscriber finds anything to clear; the fence makes sure the last one to move sees it
+                    VarHandle.fullFence();
+                    if (minimumSequence(end) > released.getAcquire()) {
+                        synchronized (subscriptionLock) {
+                            releaseConsumed();
+                        }
+                    }
+                    if (requested != Long.MAX_VALUE) {
+                        demand.addAndGet(-batch);
+                    }
+                    next = end + 1;
+                }
+            } catch (Throwable error) {
+                cancel();
+                subscriber.onError(error);
+                return;
+            }
+            remove(this);
+            if (pendingError != null) {
+                subscriber.onError(pendingError);
+            } else if (!cancelled) {
+                Throwable error = closedException;
+                if (error != null) {
+                    subscriber.onError(error);
+                } else {
+                    subscriber.onComplete();
+                }
+            }
+        }
+
+        // Highest published sequence >= next, or next - 1 once closed and drained or cancelled
+        private long waitForItems(long next) {
+            long available;
+            int tries = 0;
+            while ((available = cursor.getAcquire()) < next) {
+                if (cancelled) {
+                    return next - 1;
+                }
+                if (closed) {
+                    // close() happens after the last submit, so re-reading the cursor is conclusive
+                    return cursor.getAcquire();
+                }
+                switch (waitStrategy) {
+                    case BUSY_SPIN -> Thread.onSpinWait();
+                    case YIELDING -> {
+                        if (tries++ < SPIN_TRIES) {
+                            Thread.onSpinWait();
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                    case BLOCKING -> {
+                        parked = true;
+                        if (cursor.getVolatile() < next && !closed && !cancelled) {
+                            LockSupport.park(this);
+                        }
+                        parked = false;
+                    }
+                }
+            }
+            return available;
+        }
+
+        private void waitForDemand() {
+            parked = true;
+            if (demand.get() == 0 && !cancelled) {
+                LockSupport.park(this);
+            }
+            parked = false;
+        }
+    }
+
+    // Padding on both sides keeps each hot sequence on its own cache line
+    @SuppressWarnings("unused")
+    private static class LeftPadding {
+        protected long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private static class SequenceValue extends LeftPadding {
+        protected long value;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Sequence extends SequenceValue {
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        protected long p9, p10, p11, p12, p13, p14, p15;
+
+        private Sequence(long initial) {
+            VALUE.setVolatile(this, initial);
+        }
+
+        private long getAcquire() {
+            return (long) VALUE.getAcquire(this);
+        }
+
+        private long getVolatile() {
+            return (long) VALUE.getVolatile(this);
+        }
+
+        private void setRelease(long value) {
+            VALUE.setRelease(this, value);
+        }
+
+        private void setVolatile(long value) {
+            VALUE.setVolatile(this, value);
+        }
+    }
+}
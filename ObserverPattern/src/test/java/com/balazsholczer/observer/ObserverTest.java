@@ -1,7 +1,11 @@
 package com.balazsholczer.observer;
 
 import org.junit.jupiter.api.Test;
+import java.lang.ref.WeakReference;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import static org.junit.jupiter.api.Assertions.*;
@@ -156,4 +160,92 @@ class ObserverTest {
         
         eventStation.close();
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testEventWeatherStationDeliversEveryEventInOrder() throws InterruptedException {
+        for (RingBufferPublisher.WaitStrategy waitStrategy : RingBufferPublisher.WaitStrategy.values()) {
+            assertDeliversEveryEventInOrder(waitStrategy);
+        }
+    }
+    
+    private static void assertDeliversEveryEventInOrder(RingBufferPublisher.WaitStrategy waitStrategy) throws InterruptedException {
+        EventWeatherStation station = new EventWeatherStation(4, waitStrategy);
+        AtomicInteger lastPressure = new AtomicInteger(-1);
+        AtomicInteger outOfOrder = new AtomicInteger();
+        CountDownLatch completed = new CountDownLatch(1);
+        
+        station.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+            
+            @Override
+            public void onNext(EventWeatherStation.WeatherEvent event) {
+                if (event.pressure() != lastPressure.get() + 1) {
+                    outOfOrder.incrementAndGet();
+                }
+                lastPressure.set(event.pressure());
+            }
+            
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable);
+            }
+            
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+        
+        for (int pressure = 0; pressure < 500; pressure++) {
+            station.setPressure(pressure);
+        }
+        station.close();
+        
+        assertTrue(completed.await(10, TimeUnit.SECONDS), waitStrategy.name());
+        assertEquals(499, lastPressure.get(), waitStrategy.name());
+        assertEquals(0, outOfOrder.get(), waitStrategy.name());
+    }
+    
+    @Test
+    void testRingBufferPublisherDoesNotRetainConsumedItems() throws InterruptedException {
+        RingBufferPublisher<Object> publisher = new RingBufferPublisher<>(16, RingBufferPublisher.WaitStrategy.BLOCKING);
+        CountDownLatch consumed = new CountDownLatch(1);
+        publisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+            
+            @Override
+            public void onNext(Object item) {
+                consumed.countDown();
+            }
+            
+            @Override
+            public void onError(Throwable throwable) {
+            }
+            
+            @Override
+            public void onComplete() {
+            }
+        });
+        
+        WeakReference<Object> item = publish(publisher);
+        assertTrue(consumed.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50 && item.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(item.get(), "ring still references an item every subscriber has read");
+        publisher.close();
+    }
+    
+    private static WeakReference<Object> publish(RingBufferPublisher<Object> publisher) {
+        Object item = new Object();
+        publisher.submit(item);
+        return new WeakReference<>(item);
+    }
+}
@@ -0,0 +1,518 @@
+package com.balazsholczer.prototype;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.SequencedCollection;
+import java.util.SequencedMap;
+import java.util.SequencedSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Deep copies object graphs without going through serialization. The first
+ * time a class is seen its fields are turned into MethodHandle getters and
+ * setters, and the resulting plan is cached per class, so later copies are
+ * plain field reads and writes.
+ *
+ * Strings, boxed primitives, enums, java.time values and records or immutable
+ * collections whose contents are all immutable are shared, not copied.
+ * Cycles and shared references are preserved for ordinary objects, arrays
+ * and mutable collections. A cycle that runs through a record or an
+ * immutable collection cannot be rebuilt, since those need their contents
+ * before they exist, and is rejected.
+ *
+ * Instances are created through a no-arg constructor, or failing that a copy
+ * constructor taking the original; either may be private, and every field is
+ * overwritten afterwards. Classes with neither are rejected. So are lambdas
+ * and other hidden classes, which cannot be instantiated and whose captured
+ * state cannot be copied.
+ *
+ * Rebuilt collections keep their kind: a sorted or navigable view stays one
+ * with the original's comparator, and so do priority queues.
+ */
+public final class DeepCopier {
+
+    private static final DeepCopier DEFAULT = new DeepCopier(Set.of());
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = Set.of(
+        String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+        Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class, Class.class);
+
+    // Marks a record or immutable collection whose contents are still being copied
+    private static final Object IN_PROGRESS = new Object();
+
+    private final Set<Class<?>> extraImmutableTypes;
+
+    private final ClassValue<Plan> plans = new ClassValue<>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return planFor(type);
+        }
+    };
+
+    private DeepCopier(Set<Class<?>> extraImmutableTypes) {
+        this.extraImmutableTypes = extraImmutableTypes;
+    }
+
+    public static DeepCopier defaultCopier() {
+        return DEFAULT;
+    }
+
+    // A copier that also shares instances of the given types, e.g. value classes of your own
+    public static DeepCopier withImmutableTypes(Class<?>... types) {
+        return new DeepCopier(Set.of(types));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T copy(T original) {
+        if (original == null) {
+            return null;
+        }
+        Plan plan = plans.get(original.getClass());
+        return plan == Immutable.INSTANCE ? original : (T) plan.copy(original, new IdentityHashMap<>(8));
+    }
+
+    private Object copyValue(Object value, IdentityHashMap<Object, Object> copies) {
+        if (value == null) {
+            return null;
+        }
+        Plan plan = plans.get(value.getClass());
+        if (plan == Immutable.INSTANCE) {
+            return value;
+        }
+        Object existing = copies.get(value);
+        if (existing == IN_PROGRESS) {
+            throw new IllegalArgumentException("Cannot deep copy a cycle through " + value.getClass().getName());
+        }
+        return existing != null ? existing : plan.copy(value, copies);
+    }
+
+    private boolean isImmutable(Class<?> type) {
+        return type.isPrimitive() || IMMUTABLE_TYPES.contains(type) || extraImmutableTypes.contains(type)
+            || Enum.class.isAssignableFrom(type)
+            || (type.getPackageName().equals("java.time") && !type.isInterface());
+    }
+
+    // True when every value this static type can hold is immutable, so a field of it can be copied as-is
+    private boolean isImmutableFieldType(Class<?> type) {
+        return isImmutable(type) && (type.isPrimitive() || Modifier.isFinal(type.getModifiers()) || type.isEnum());
+    }
+
+    private Plan planFor(Class<?> type) {
+        if (type.isHidden()) {
+            throw new IllegalArgumentException("Cannot deep copy hidden class " + type.getName() + " (a lambda?)");
+        }
+        if (isImmutable(type)) {
+            return Immutable.INSTANCE;
+        }
+        if (type.isArray()) {
+            return new ArrayPlan(type.getComponentType());
+        }
+        if (type.isRecord()) {
+            return recordPlan(type);
+        }
+        String name = type.getName();
+        if (name.startsWith("java.util.ImmutableCollections$") || name.startsWith("java.util.Collections$Unmodifiable")
+                || name.startsWith("java.util.Collections$Empty") || name.startsWith("java.util.Collections$Singleton")) {
+            return new ImmutableCollectionPlan(type);
+        }
+        if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            return new MutableCollectionPlan(type);
+        }
+        if (name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.")) {
+            throw new IllegalArgumentException("Cannot deep copy JDK type " + name);
+        }
+        return new FieldPlan(type);
+    }
+
+    private Plan recordPlan(Class<?> type) {
+        return isImmutableRecord(type, new ArrayList<>()) ? Immutable.INSTANCE : new RecordPlan(type, type.getRecordComponents());
+    }
+
+    // A record is immutable when every component is, records included; visiting holds the current path
+    private boolean isImmutableRecord(Class<?> type, List<Class<?>> visiting) {
+        if (visiting.contains(type)) {
+            return false;
+        }
+        visiting.add(type);
+        boolean immutable = true;
+        for (RecordComponent component : type.getRecordComponents()) {
+            Class<?> componentType = component.getType();
+            immutable &= isImmutableFieldType(componentType)
+                || (componentType.isRecord() && isImmutableRecord(componentType, visiting));
+        }
+        visiting.remove(type);
+        return immutable;
+    }
+
+    private sealed interface Plan permits Immutable, ArrayPlan, RecordPlan, ImmutableCollectionPlan, MutableCollectionPlan, FieldPlan {
+        Object copy(Object original, IdentityHashMap<Object, Object> copies);
+    }
+
+    private enum Immutable implements Plan {
+        INSTANCE;
+
+        @Override
+        public Object copy(Object original, IdentityHashMap<Object, Object> copies) {
+            return original;
+        }
+    }
+
+    private final class ArrayPlan implements Plan {
+        private final Class<?> componentType;
+        private final boolean shallow;
+
+        private ArrayPlan(Class<?> componentType) {
+            this.componentType = componentType;
+            this.shallow = isImmutableFieldType(componentType);
+        }
+
+        @Override
+        public Object copy(Object original, IdentityHashMap<Object, Object> copies) {
+            int length = Array.getLength(original);
+            Object copy = Array.newInstance(componentType, length);
+            copies.put(original, copy);
+            if (shallow) {
+                System.arraycopy(original, 0, copy, 0, length);
+            } else {
+                Object[] source = (Object[]) original;
+                Object[] target = (Object[]) copy;
+                for (int i = 0; i < length; i++) {
+                    target[i] = copyValue(source[i], copies);
+                }
+            }
+            return copy;
+        }
+    }
+
+    private final class RecordPlan implements Plan {
+        private final MethodHandle[] accessors;
+        private final MethodHandle constructor;
+
+        private RecordPlan(Class<?> type, RecordComponent[] components) {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            try {
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+                accessors = new MethodHandle[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    parameterTypes[i] = components[i].getType();
+                    components[i].getAccessor().setAccessible(true);
+                    accessors[i] = lookup.unreflect(components[i].getAccessor())
+                                         .asType(MethodType.methodType(Object.class, Object.class));
+                }
+                Constructor<?> canonical = type.getDeclaredConstructor(parameterTypes);
+                canonical.setAccessible(true);
+                constructor = lookup.unreflectConstructor(canonical)
+                                    .asSpreader(Object[].class, components.length)
+                                    .asType(MethodType.methodType(Object.class, Object[].class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new IllegalArgumentException("Cannot deep copy record " + type.getName(), e);
+            }
+        }
+
+        @Override
+        public Object copy(Object original, IdentityHashMap<Object, Object> copies) {
+            copies.put(original, IN_PROGRESS);
+            try {
+                Object[] values = new Object[accessors.length];
+                boolean changed = false;
+                for (int i = 0; i < accessors.length; i++) {
+                    Object value = (Object) accessors[i].invokeExact(original);
+                    values[i] = copyValue(value, copies);
+                    changed |= values[i] != value;
+                }
+                // Nothing mutable inside this instance, so it can be shared
+                Object copy = changed ? (Object) constructor.invokeExact(values) : original;
+                copies.put(original, copy);
+                return copy;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Record copy failed for " + original.getClass().getName(), e);
+            }
+        }
+    }
+
+    private final class ImmutableCollectionPlan implements Plan {
+        private final boolean unmodifiableView;
+
+        private ImmutableCollectionPlan(Class<?> type) {
+            // Collections.unmodifiable*/singleton*/empty* allow nulls, List.of and friends do not
+            this.unmodifiableView = type.getName().startsWith("java.util.Collections$");
+        }
+
+        @Override
+        public Object copy(Object original, IdentityHashMap<Object, Object> copies) {
+            if (holdsOnlyImmutables(original)) {
+                return original;
+            }
+            copies.put(original, IN_PROGRESS);
+            boolean changed = false;
+            Object copy;
+            if (original instanceof Map<?, ?> map) {
+                Map<Object, Object> entries = original instanceof SortedMap<?, ?>
+                    ? new TreeMap<>(comparatorOf(original)) : new LinkedHashMap<>();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    Object key = copyValue(entry.getKey(), copies);
+                    Object value = copyValue(entry.getValue(), copies);
+                    changed |= key != entry.getKey() || value != entry.getValue();
+                    entries.put(key, value);
+                }
+                copy = !changed ? original : unmodifiableView ? unmodifiableMap(original, entries) : Map.copyOf(entries);
+            } else {
+                Collection<?> collection = (Collection<?>) original;
+                List<Object> elements = new ArrayList<>(collection.size());
+                for (Object element : collection) {
+                    Object elementCopy = copyValue(element, copies);
+                    changed |= elementCopy != element;
+                    elements.add(elementCopy);
+                }
+                if (!changed) {
+                    copy = original;
+                } else if (original instanceof Set<?>) {
+                    Set<Object> set = original instanceof SortedSet<?>
+                        ? new TreeSet<>(comparatorOf(original)) : new LinkedHashSet<>();
+                    set.addAll(elements);
+                    copy = unmodifiableView ? unmodifiableSet(original, set) : Set.copyOf(set);
+                } else if (unmodifiableView) {
+                    copy = original instanceof List<?> || !(original instanceof SequencedCollection<?>)
+                        ? Collections.unmodifiableList(elements) : Collections.unmodifiableSequencedCollection(elements);
+                } else {
+                    // List.copyOf rejects nulls, which Stream.toList lists may hold
+                    copy = elements.contains(null) ? elements.stream().toList() : List.copyOf(elements);
+                }
+            }
+            copies.put(original, copy);
+            return copy;
+        }
+    }
+
+    // Wrapped like the original, so a copy still fits a NavigableMap or SequencedMap field
+    private static Map<Object, Object> unmodifiableMap(Object original, Map<Object, Object> entries) {
+        if (original instanceof NavigableMap<?, ?>) {
+            return Collections.unmodifiableNavigableMap((NavigableMap<Object, Object>) entries);
+        }
+        if (original instanceof SortedMap<?, ?>) {
+            return Collections.unmodifiableSortedMap((SortedMap<Object, Object>) entries);
+        }
+        if (original instanceof SequencedMap<?, ?>) {
+            return Collections.unmodifiableSequencedMap((SequencedMap<Object, Object>) entries);
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    private static Set<Object> unmodifiableSet(Object original, Set<Object> set) {
+        if (original instanceof NavigableSet<?>) {
+            return Collections.unmodifiableNavigableSet((NavigableSet<Object>) set);
+        }
+        if (original instanceof SortedSet<?>) {
+            return Collections.unmodifiableSortedSet((SortedSet<Object>) set);
+        }
+        if (original instanceof SequencedSet<?>) {
+            return Collections.unmodifiableSequencedSet((SequencedSet<Object>) set);
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    // Checked before copying so the common case, e.g. List.of of Strings, allocates nothing
+    private boolean holdsOnlyImmutables(Object collection) {
+        if (collection instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!isShared(entry.getKey()) || !isShared(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (Object element : (Collection<?>) collection) {
+            if (!isShared(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isShared(Object value) {
+        return value == null || plans.get(value.getClass()) == Immutable.INSTANCE;
+    }
+
+    private final class MutableCollectionPlan implements Plan {
+        // JDK default capacity, for PriorityBlockingQueue's only constructor taking a comparator
+        private static final int INITIAL_CAPACITY = 11;
+
+        private final MethodHandle constructor;
+        private final boolean sorted;
+
+        private MutableCollectionPlan(Class<?> type) {
+            this.sorted = SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type)
+                || PriorityQueue.class.isAssignableFrom(type) || PriorityBlockingQueue.class.isAssignableFrom(type);
+            try {
+                // Sorted collections and priority queues are rebuilt with the original's comparator
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                MethodHandle create;
+                if (PriorityBlockingQueue.class.isAssignableFrom(type)) {
+                    create = MethodHandles.insertArguments(lookup.findConstructor(type,
+                        MethodType.methodType(void.class, int.class, Comparator.class)), 0, INITIAL_CAPACITY);
+                } else {
+                    create = lookup.findConstructor(type, sorted
+                        ? MethodType.methodType(void.class, Comparator.class)
+                        : MethodType.methodType(void.class));
+                }
+                constructor = create.asType(sorted
+                    ? MethodType.methodType(Object.class, Object.class) : MethodType.methodType(Object.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot deep copy " + type.getName() + ": no public constructor to rebuild it", e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object copy(Object original, IdentityHashMap<Object, Object> copies) {
+            Object copy;
+            try {
+                copy = !sorted ? (Object) constructor.invokeExact()
+                    : (Object) constructor.invokeExact((Object) comparatorOf(original));
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot create " + original.getClass().getName(), e);
+            }
+            copies.put(original, copy);
+            if (original instanceof Map<?, ?> map) {
+                Map<Object, Object> target = (Map<Object, Object>) copy;
+                map.forEach((key, value) -> target.put(copyValue(key, copies), copyValue(value, copies)));
+            } else {
+                Collection<Object> target = (Collection<Object>) copy;
+                for (Object element : (Collection<?>) original) {
+                    target.add(copyValue(element, copies));
+                }
+            }
+            return copy;
+        }
+    }
+
+    private final class FieldPlan implements Plan {
+        // (Object original) -> Object, a fresh instance whose fields are all overwritten next
+        private final MethodHandle allocator;
+        // (Object target, Object source) -> void, copying every primitive and immutable field as-is
+        private final MethodHandle valueCopier;
+        private final MethodHandle[] getters;
+        private final MethodHandle[] setters;
+
+        private FieldPlan(Class<?> type) {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            List<MethodHandle> values = new ArrayList<>();
+            List<MethodHandle> readers = new ArrayList<>();
+            List<MethodHandle> writers = new ArrayList<>();
+            try {
+                for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+                    if (current.getName().startsWith("java.")) {
+                        throw new IllegalArgumentException("Cannot deep copy " + type.getName()
+                            + ": it extends JDK class " + current.getName());
+                    }
+                    for (Field field : current.getDeclaredFields()) {
+                        if (Modifier.isStatic(field.getModifiers())) {
+                            continue;
+                        }
+                        field.setAccessible(true);
+                        MethodHandle getter = lookup.unreflectGetter(field);
+                        MethodHandle setter = lookup.unreflectSetter(field);
+                        if (isImmutableFieldType(field.getType())) {
+                            values.add(MethodHandles.filterArguments(setter, 1, getter)
+                                .asType(MethodType.methodType(void.class, Object.class, Object.class)));
+                        } else {
+                            readers.add(getter.asType(MethodType.methodType(Object.class, Object.class)));
+                            writers.add(setter.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+                        }
+                    }
+                }
+                this.allocator = allocator(type, lookup);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                if (e instanceof IllegalArgumentException illegal) {
+                    throw illegal;
+                }
+                throw new IllegalArgumentException("Cannot deep copy " + type.getName(), e);
+            }
+            // Folded into a single handle so all plain fields are copied by one call
+            MethodHandle combined = MethodHandles.empty(MethodType.methodType(void.class, Object.class, Object.class));
+            for (MethodHandle value : values) {
+                combined = MethodHandles.foldArguments(combined, value);
+            }
+            this.valueCopier = combined;
+            this.getters = readers.toArray(MethodHandle[]::new);
+            this.setters = writers.toArray(MethodHandle[]::new);
+        }
+
+        @Override
+        public Object copy(Object original, IdentityHashMap<Object, Object> copies) {
+            try {
+                Object copy = (Object) allocator.invokeExact(original);
+                copies.put(original, copy);
+                valueCopier.invokeExact(copy, original);
+                for (int i = 0; i < getters.length; i++) {
+                    Object value = (Object) getters[i].invokeExact(original);
+                    setters[i].invokeExact(copy, copyValue(value, copies));
+                }
+                return copy;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Copy failed for " + original.getClass().getName(), e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparator<Object> comparatorOf(Object sorted) {
+        return (Comparator<Object>) switch (sorted) {
+            case SortedMap<?, ?> map -> map.comparator();
+            case SortedSet<?> set -> set.comparator();
+            case PriorityQueue<?> queue -> queue.comparator();
+            default -> ((PriorityBlockingQueue<?>) sorted).comparator();
+        };
+    }
+
+    private static MethodHandle allocator(Class<?> type, MethodHandles.Lookup lookup) throws ReflectiveOperationException {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("Cannot instantiate abstract " + type.getName());
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.dropArguments(
+                lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class)), 0, Object.class);
+        } catch (NoSuchMethodException noArg) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor(type);
+                constructor.setAccessible(true);
+                return lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class, Object.class));
+            } catch (NoSuchMethodException noCopy) {
+                throw new IllegalArgumentException("Cannot deep copy " + type.getName()
+                    + ": it needs a no-arg or copy constructor (private is fine)", noCopy);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.balazsholczer.prototype;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Time and garbage per deep clone of a SerializableBook, and of a list of a
+ * hundred of them: Java serialization versus DeepCopier versus a hand-written
+ * copy constructor.
+ *
+ * Run with: java com.balazsholczer.prototype.DeepCopyBenchmark [iterations]
+ */
+public class DeepCopyBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        SerializablePrototype.SerializableBook book = new SerializablePrototype.SerializableBook(
+            "Design Patterns", "GoF", 395, List.of("patterns", "oop", "classic"));
+        ArrayList<SerializablePrototype.SerializableBook> shelf = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            shelf.add(new SerializablePrototype.SerializableBook("Volume " + i, "Author " + i, i, List.of("tag" + i)));
+        }
+        DeepCopier copier = DeepCopier.defaultCopier();
+
+        System.out.println("=== Deep Copy Benchmark ===");
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (int round = 0; round < 2; round++) {
+                console.println("Round " + (round + 1) + " - single book:");
+                run(console, "  Serialization", iterations / 50, book, SerializablePrototype.SerializableBook::deepCloneViaSerialization);
+                run(console, "  DeepCopier", iterations, book, copier::copy);
+                run(console, "  Copy constructor", iterations, book, SerializablePrototype.SerializableBook::new);
+
+                console.println("Round " + (round + 1) + " - shelf of 100 books:");
+                run(console, "  Serialization", iterations / 5_000, shelf, DeepCopyBenchmark::serializationCopy);
+                run(console, "  DeepCopier", iterations / 100, shelf, copier::copy);
+                run(console, "  Copy constructor", iterations / 100, shelf, books -> {
+                    ArrayList<SerializablePrototype.SerializableBook> copy = new ArrayList<>(books.size());
+                    books.forEach(b -> copy.add(new SerializablePrototype.SerializableBook(b)));
+                    return copy;
+                });
+            }
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static <T> void run(PrintStream console, String name, int iterations, T original, UnaryOperator<T> cloner) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        Object sink = null;
+        for (int i = 0; i < iterations; i++) {
+            sink = cloner.apply(original);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        if (sink == original) {
+            throw new IllegalStateException(name + " did not copy");
+        }
+        console.printf("%-20s %,10.0f ns/op %,10d bytes/op%n", name, (double) elapsed / iterations, allocated / iterations);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayList<SerializablePrototype.SerializableBook> serializationCopy(
+            ArrayList<SerializablePrototype.SerializableBook> books) {
+        try (var bytes = new java.io.ByteArrayOutputStream(); var out = new java.io.ObjectOutputStream(bytes)) {
+            out.writeObject(books);
+            try (var in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()))) {
+                return (ArrayList<SerializablePrototype.SerializableBook>) in.readObject();
+            }
+        } catch (java.io.IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Serialization copy failed", e);
+        }
+    }
+}
@@ -31,6 +31,11 @@ public class FunctionalPrototype {
             System.out.println("FunctionalPrototype: Registered factory " + key);
         }
         
+        // Clones are deep copies made by DeepCopier
+        public void registerPrototype(String key, T prototype) {
+            registerPrototype(key, prototype, deepCopyCloner());
+        }
+        
         public void registerPrototype(String key, T prototype, Function<T, T> cloner) {
             prototypes.put(key, prototype);
             factories.put(key, new PrototypeFactory<>(() -> prototype, cloner));
@@ -67,4 +72,12 @@ public class FunctionalPrototype {
     public static <T> Function<T, T> deepCloner(Function<T, T> customCloner) {
         return customCloner;
     }
+    
+    public static <T> Function<T, T> deepCopyCloner() {
+        return deepCopyCloner(DeepCopier.defaultCopier());
+    }
+    
+    public static <T> Function<T, T> deepCopyCloner(DeepCopier copier) {
+        return copier::copy;
+    }
 }
\ No newline at end of file
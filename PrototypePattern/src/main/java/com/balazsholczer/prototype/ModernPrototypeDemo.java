@@ -1,5 +1,6 @@
 package com.balazsholczer.prototype;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ModernPrototypeDemo {
@@ -128,10 +129,17 @@ public class ModernPrototypeDemo {
         System.out.println("Has prototype 'programming-book': " + registry.hasPrototype("programming-book"));
         System.out.println("Has prototype 'missing': " + registry.hasPrototype("missing"));
         
+        System.out.println("Serializable - Deep copy of a mutable graph:");
+        var shelf = new ArrayList<>(List.of(serializableBook, serializableBook));
+        var shelfCopy = DeepCopier.defaultCopier().copy(shelf);
+        System.out.println("Copied list is new: " + (shelfCopy != shelf));
+        System.out.println("Shared book stays shared in the copy: " + (shelfCopy.get(0) == shelfCopy.get(1)));
+        System.out.println("Copy differs from original book: " + (shelfCopy.get(0) != serializableBook));
+        
         System.out.println("\n=== Pattern Comparison ===");
         System.out.println("Traditional: Interface-based with manual clone implementation");
         System.out.println("Record: Immutable with builder-style modifications");
         System.out.println("Functional: Function-based cloning with flexible strategies");
-        System.out.println("Serializable: Deep cloning via serialization mechanism");
+        System.out.println("Serializable: Deep cloning via a cached MethodHandle copier (serialization kept for comparison)");
     }
 }
\ No newline at end of file
@@ -22,8 +22,27 @@ public class SerializablePrototype {
             this.tags = List.copyOf(tags);
         }
         
-        // Deep clone using serialization
+        // Hand-written copy constructor; tags is immutable and can be shared
+        public SerializableBook(SerializableBook other) {
+            this.title = other.title;
+            this.author = other.author;
+            this.pages = other.pages;
+            this.tags = other.tags;
+        }
+        
+        // Deep clone through the MethodHandle-based copier, no byte round trip
         public SerializableBook deepClone() {
+            return deepClone(DeepCopier.defaultCopier());
+        }
+        
+        public SerializableBook deepClone(DeepCopier copier) {
+            SerializableBook copy = copier.copy(this);
+            System.out.println("SerializablePrototype: Deep cloned");
+            return copy;
+        }
+        
+        // Deep clone using serialization
+        public SerializableBook deepCloneViaSerialization() {
             try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
                  ObjectOutputStream oos = new ObjectOutputStream(bos)) {
                 
@@ -73,6 +92,15 @@ public class SerializablePrototype {
     
     public static class DeepCloneRegistry {
         private final Map<String, SerializableBook> prototypes = new ConcurrentHashMap<>();
+        private final DeepCopier copier;
+        
+        public DeepCloneRegistry() {
+            this(DeepCopier.defaultCopier());
+        }
+        
+        public DeepCloneRegistry(DeepCopier copier) {
+            this.copier = copier;
+        }
         
         public void register(String key, SerializableBook prototype) {
             prototypes.put(key, prototype);
@@ -90,7 +118,7 @@ public class SerializablePrototype {
         public SerializableBook getDeepClone(String key) {
             SerializableBook prototype = prototypes.get(key);
             if (prototype != null) {
-                return prototype.deepClone();
+                return prototype.deepClone(copier);
             }
             throw new IllegalArgumentException("No prototype found: " + key);
         }
@@ -100,7 +128,7 @@ public class SerializablePrototype {
             if (original == null) return;
             
             SerializableBook shallow = original.clone();
-            SerializableBook deep = original.deepClone();
+            SerializableBook deep = original.deepClone(copier);
             
             System.out.println("Original: " + original);
             System.out.println("Shallow clone: " + shallow);
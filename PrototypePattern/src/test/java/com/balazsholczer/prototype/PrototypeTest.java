@@ -1,6 +1,18 @@
 package com.balazsholczer.prototype;
 
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.PriorityBlockingQueue;
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -89,6 +101,145 @@ class PrototypeTest {
         assertEquals(original.getTitle(), deep.getTitle());
     }
     
+    @Test
+    void testDeepCopierPreservesGraphShape() {
+        Node first = new Node("first");
+        Node second = new Node("second");
+        first.next = second;
+        second.next = first; // cycle
+        first.tags.add("mutable");
+        first.scores = new int[]{1, 2, 3};
+        first.children.put("self", first);
+        
+        Node copy = DeepCopier.defaultCopier().copy(first);
+        
+        assertNotSame(first, copy);
+        assertNotSame(second, copy.next);
+        assertSame(copy, copy.next.next);
+        assertSame(copy, copy.children.get("self"));
+        assertNotSame(first.tags, copy.tags);
+        assertEquals(List.of("mutable"), copy.tags);
+        assertArrayEquals(new int[]{1, 2, 3}, copy.scores);
+        assertNotSame(first.scores, copy.scores);
+        assertSame(first.name, copy.name);
+    }
+    
+    @Test
+    void testDeepCopierSharesImmutables() {
+        var record = new RecordPrototype.BookRecord("Title", "Author", 100, "Genre");
+        List<String> immutableList = List.of("a", "b");
+        DeepCopier copier = DeepCopier.defaultCopier();
+        
+        assertSame(record, copier.copy(record));
+        assertSame(immutableList, copier.copy(immutableList));
+        
+        // A record holding something mutable gets a fresh copy
+        var holder = new Holder(new ArrayList<>(List.of("x")));
+        var holderCopy = copier.copy(holder);
+        assertNotSame(holder, holderCopy);
+        assertNotSame(holder.items(), holderCopy.items());
+        assertEquals(holder.items(), holderCopy.items());
+        
+        var book = new SerializablePrototype.SerializableBook("Book", "Author", 10, List.of("tag"));
+        var bookCopy = copier.copy(book);
+        assertNotSame(book, bookCopy);
+        assertSame(book.getTitle(), bookCopy.getTitle());
+        assertEquals(book.toString(), bookCopy.toString());
+    }
+    
+    @Test
+    void testFunctionalPrototypeDeepCopy() {
+        var manager = new FunctionalPrototype.PrototypeManager<Node>();
+        Node template = new Node("template");
+        template.tags.add("draft");
+        manager.registerPrototype("node", template);
+        
+        Node cloned = manager.clone("node");
+        cloned.tags.add("published");
+        
+        assertNotSame(template, cloned);
+        assertEquals(List.of("draft"), template.tags);
+        assertEquals(List.of("draft", "published"), cloned.tags);
+    }
+    
+    @Test
+    void testDeepCopierRejectsWhatItCannotRebuild() {
+        DeepCopier copier = DeepCopier.defaultCopier();
+        Runnable lambda = () -> { };
+        
+        assertThrows(IllegalArgumentException.class, () -> copier.copy(lambda));
+        assertThrows(IllegalArgumentException.class, () -> copier.copy(new Sized(3)));
+    }
+    
+    @Test
+    void testDeepCopierKeepsCollectionKinds() {
+        DeepCopier copier = DeepCopier.defaultCopier();
+        Comparator<String> reversed = Comparator.reverseOrder();
+        
+        // Unmodifiable sorted views holding mutable values stay sorted views with their comparator
+        NavigableMap<String, List<String>> map = new TreeMap<>(reversed);
+        map.put("a", new ArrayList<>(List.of("x")));
+        map.put("b", new ArrayList<>(List.of("y")));
+        NavigableMap<String, List<String>> mapCopy = copier.copy(Collections.unmodifiableNavigableMap(map));
+        assertSame(reversed, mapCopy.comparator());
+        assertEquals(List.of("b", "a"), List.copyOf(mapCopy.keySet()));
+        assertNotSame(map.get("a"), mapCopy.get("a"));
+        assertThrows(UnsupportedOperationException.class, () -> mapCopy.put("c", List.of()));
+        
+        SortedSet<List<String>> set = new TreeSet<>(Comparator.comparing(List::size));
+        set.add(new ArrayList<>(List.of("x")));
+        SortedSet<List<String>> setCopy = copier.copy(Collections.unmodifiableSortedSet(set));
+        assertSame(set.comparator(), setCopy.comparator());
+        assertNotSame(set.first(), setCopy.first());
+        
+        // Stream.toList permits nulls
+        List<List<String>> withNull = java.util.stream.Stream.of(new ArrayList<>(List.of("x")), (List<String>) null).toList();
+        List<List<String>> withNullCopy = copier.copy(withNull);
+        assertEquals(withNull, withNullCopy);
+        assertNotSame(withNull.get(0), withNullCopy.get(0));
+        
+        // Priority queues keep their comparator, so elements need not be Comparable
+        PriorityQueue<Holder> queue = new PriorityQueue<>(Comparator.comparing(holder -> holder.items().size()));
+        queue.add(new Holder(new ArrayList<>(List.of("x", "y"))));
+        queue.add(new Holder(new ArrayList<>(List.of("z"))));
+        PriorityQueue<Holder> queueCopy = copier.copy(queue);
+        assertSame(queue.comparator(), queueCopy.comparator());
+        assertEquals(List.of("z"), queueCopy.poll().items());
+        
+        PriorityBlockingQueue<Holder> blocking = new PriorityBlockingQueue<>(4, Comparator.comparing(holder -> holder.items().size()));
+        blocking.addAll(queue);
+        PriorityBlockingQueue<Holder> blockingCopy = copier.copy(blocking);
+        assertSame(blocking.comparator(), blockingCopy.comparator());
+        assertEquals(List.of("z"), blockingCopy.poll().items());
+    }
+    
+    record Holder(List<String> items) {}
+    
+    static class Sized {
+        int size;
+        
+        Sized(int size) {
+            this.size = size;
+        }
+    }
+    
+    static class Node {
+        final String name;
+        Node next;
+        List<String> tags = new ArrayList<>();
+        int[] scores;
+        Map<String, Node> children = new HashMap<>();
+        
+        Node(String name) {
+            this.name = name;
+        }
+        
+        // DeepCopier needs a no-arg constructor
+        private Node() {
+            this(null);
+        }
+    }
+    
     @Test
     void testEquivalence() {
         String testData = "Test Data";
@@ -1,12 +1,19 @@
 package com.balazsholczer.pubsub;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * Publisher-Subscriber Pattern: async messaging
  * 
  * Key Concepts:
  * - Decouples message producers from consumers
- * - Topic-based message routing
+ * - Topic-based message routing with "*" and "#" wildcards
  * - Asynchronous message delivery
+ * - Bounded per-subscriber buffers with overflow policies
+ * - Key-based partitioning keeps per-key ordering
+ * - Durable topics replay missed messages from a disk log
  * - Many-to-many communication pattern
  * 
  * Benefits:
@@ -18,7 +25,7 @@ package com.balazsholczer.pubsub;
 
 public class App {
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("=== Publisher-Subscriber Pattern ===");
         System.out.println("Async messaging with topic-based routing");
         System.out.println();
@@ -55,10 +62,105 @@ public class App {
         broker.unsubscribe("user.created", emailSub1);
         broker.publish(new Message("user.created", "User Jane Smith created"));
         
+        System.out.println("\n--- Wildcard subscriptions ---");
+        Subscriber auditSub = new EmailSubscriber("order-created-audit");
+        Subscriber metricsSub = new EmailSubscriber("order-metrics");
+        broker.subscribe("order.*.created", auditSub);   // exactly one segment in the middle
+        broker.subscribe("order.#", metricsSub);          // anything under "order"
+        broker.publish(new Message("order.eu.created", "EU order created"));
+        broker.publish(new Message("order.us.payment.failed", "US payment failed"));
+        broker.unsubscribe("order.#", metricsSub);
+        broker.publish(new Message("order.us.created", "US order created"));
+        
+        System.out.println("\n--- Async delivery with a slow subscriber ---");
+        Subscriber slowSub = new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+                sleep(20);
+                System.out.println("  " + Thread.currentThread().getName() + " handled " + message);
+            }
+            
+            @Override
+            public String getSubscriberId() {
+                return "audit-service";
+            }
+        };
+        
+        // Two partitions: each order's messages stay in order, different orders are handled in parallel
+        broker.subscribeAsync("order.updated", slowSub, 2, 4, OverflowPolicy.BLOCK);
+        long start = System.nanoTime();
+        for (int i = 1; i <= 3; i++) {
+            broker.publish(new Message("order.updated", "order-1", "Order #1 step " + i));
+            broker.publish(new Message("order.updated", "order-2", "Order #2 step " + i));
+        }
+        System.out.printf("Published 6 messages in %.1f ms without waiting for the subscriber%n",
+            (System.nanoTime() - start) / 1e6);
+        
+        System.out.println("\n--- Overflow policy: DROP_OLDEST ---");
+        Subscriber tickerSub = new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+                sleep(50);
+                System.out.println("  ticker received " + message.getContent());
+            }
+            
+            @Override
+            public String getSubscriberId() {
+                return "ticker-display";
+            }
+        };
+        broker.subscribeAsync("price.tick", tickerSub, 1, 2, OverflowPolicy.DROP_OLDEST);
+        for (int i = 1; i <= 10; i++) {
+            broker.publish(new Message("price.tick", "Price tick " + i));
+        }
+        
+        long dropped = broker.getDroppedCount(tickerSub);
+        
+        System.out.println("\n--- Durable topic: replay after a restart ---");
+        Path logDir = Files.createTempDirectory("pubsub-log");
+        broker.createDurableTopic("invoice.issued", logDir);
+        Subscriber billingSub = new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+                System.out.println("  billing-service received " + message.getContent());
+            }
+            
+            @Override
+            public String getSubscriberId() {
+                return "billing-service";
+            }
+        };
+        broker.subscribeDurable("invoice.issued", billingSub);
+        broker.publish(new Message("invoice.issued", "Invoice #1"));
+        broker.publish(new Message("invoice.issued", "Invoice #2"));
+        sleep(200);
+        
+        broker.unsubscribe("invoice.issued", billingSub);   // billing-service goes down
+        broker.publish(new Message("invoice.issued", "Invoice #3"));
+        broker.publish(new Message("invoice.issued", "Invoice #4"));
+        System.out.println("billing-service is back, resuming from its committed offset");
+        broker.subscribeDurable("invoice.issued", billingSub);
+        sleep(200);
+        
+        // Drains every async buffer before returning
+        broker.close();
+        System.out.println("Ticker dropped " + dropped + " stale ticks");
+        
         System.out.println("\n=== Benefits Demonstrated ===");
         System.out.println("✅ Loose coupling between publishers and subscribers");
-        System.out.println("✅ Topic-based message routing");
+        System.out.println("✅ Topic-based message routing with wildcards");
         System.out.println("✅ Dynamic subscription management");
         System.out.println("✅ Scalable message distribution");
+        System.out.println("✅ Slow subscribers no longer stall publishers");
+        System.out.println("✅ Per-key ordering with parallel consumption");
+        System.out.println("✅ Restarted subscribers catch up from a durable log");
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
\ No newline at end of file
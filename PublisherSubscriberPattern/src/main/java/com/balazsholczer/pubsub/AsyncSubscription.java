@@ -0,0 +1,148 @@
+package com.balazsholczer.pubsub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffers messages for one subscriber in bounded per-partition ring buffers,
+ * each drained by its own virtual thread. Messages with the same key always
+ * land in the same partition, so they are delivered in publish order while
+ * different keys are consumed in parallel. With more than one partition the
+ * subscriber must be thread-safe.
+ */
+class AsyncSubscription implements Subscription {
+    private static final int DRAIN_BATCH = 64;
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private final Subscriber subscriber;
+    private final OverflowPolicy overflowPolicy;
+    private final List<BlockingQueue<Message>> partitions;
+    private final List<Thread> consumers;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running = true;
+
+    AsyncSubscription(Subscriber subscriber, int partitionCount, int bufferSize, OverflowPolicy overflowPolicy) {
+        this.subscriber = subscriber;
+        this.overflowPolicy = overflowPolicy;
+        this.partitions = new ArrayList<>(partitionCount);
+        this.consumers = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            BlockingQueue<Message> partition = new ArrayBlockingQueue<>(bufferSize);
+            partitions.add(partition);
+            consumers.add(Thread.ofVirtual()
+                .name(subscriber.getSubscriberId() + "-partition-" + i)
+                .start(() -> drain(partition)));
+        }
+    }
+
+    @Override
+    public void deliver(Message message) {
+        if (!running) {
+            // Nobody drains the buffers after close
+            dropped.increment();
+            return;
+        }
+        BlockingQueue<Message> partition = partitions.get(partitionFor(message));
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                // Wait in slices so a publisher blocked on a full buffer notices close
+                try {
+                    while (!partition.offer(message, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                        if (!running) {
+                            dropped.increment();
+                            return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+            }
+            case DROP_NEWEST -> {
+                if (!partition.offer(message)) {
+                    dropped.increment();
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!partition.offer(message)) {
+                    if (partition.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+            }
+            case FAIL -> {
+                if (!partition.offer(message)) {
+                    dropped.increment();
+                    throw new SubscriberOverflowException(subscriber.getSubscriberId());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Subscriber subscriber() {
+        return subscriber;
+    }
+
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    int getBufferedCount() {
+        return partitions.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    // Lets the delivery threads finish what is buffered, then stops them
+    @Override
+    public void close() {
+        running = false;
+        for (Thread consumer : consumers) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int partitionFor(Message message) {
+        if (partitions.size() == 1) {
+            return 0;
+        }
+        String key = message.getKey();
+        int hash = key == null ? roundRobin.getAndIncrement() : key.hashCode();
+        return (hash & Integer.MAX_VALUE) % partitions.size();
+    }
+
+    private void drain(BlockingQueue<Message> partition) {
+        List<Message> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running || !partition.isEmpty()) {
+            try {
+                Message first = partition.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                return;
+            }
+            // One lock acquisition hands over up to a whole batch
+            partition.drainTo(batch, DRAIN_BATCH - 1);
+            for (Message message : batch) {
+                try {
+                    subscriber.onMessage(message);
+                } catch (Exception e) {
+                    System.err.println("MessageBroker: Error delivering to " + subscriber.getSubscriberId() + ": " + e.getMessage());
+                }
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.balazsholczer.pubsub;
+
+// Delivers on the publisher's thread, as the broker always did
+class DirectSubscription implements Subscription {
+    private final Subscriber subscriber;
+
+    DirectSubscription(Subscriber subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    @Override
+    public void deliver(Message message) {
+        try {
+            subscriber.onMessage(message);
+        } catch (Exception e) {
+            System.err.println("MessageBroker: Error delivering to " + subscriber.getSubscriberId() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Subscriber subscriber() {
+        return subscriber;
+    }
+
+    @Override
+    public void close() {
+    }
+}
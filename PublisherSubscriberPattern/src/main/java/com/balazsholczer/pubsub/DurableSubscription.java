@@ -0,0 +1,84 @@
+package com.balazsholczer.pubsub;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a subscriber from a topic log rather than from publish calls, so it
+ * sees every retained message in order even across restarts. Its position is
+ * committed to the log after each batch; publishes only wake it up.
+ */
+class DurableSubscription implements Subscription {
+    private static final int BATCH_SIZE = 512;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Subscriber subscriber;
+    private final TopicLog log;
+    private final Thread consumer;
+    private volatile boolean running = true;
+    private volatile long nextOffset;
+
+    DurableSubscription(Subscriber subscriber, TopicLog log, long fromOffset) {
+        this.subscriber = subscriber;
+        this.log = log;
+        this.nextOffset = fromOffset;
+        this.consumer = Thread.ofVirtual()
+            .name(subscriber.getSubscriberId() + "-" + log.getTopic())
+            .start(this::consume);
+    }
+
+    @Override
+    public void deliver(Message message) {
+        LockSupport.unpark(consumer);
+    }
+
+    @Override
+    public Subscriber subscriber() {
+        return subscriber;
+    }
+
+    long getNextOffset() {
+        return nextOffset;
+    }
+
+    // Delivery stops after the current batch; the committed offset is where a later subscription resumes
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        while (running && log.isOpen()) {
+            List<TopicLog.Entry> batch;
+            try {
+                batch = log.read(nextOffset, BATCH_SIZE);
+            } catch (IllegalStateException e) {
+                if (!log.isOpen()) {
+                    // The log was closed under us; there is nothing left to deliver
+                    return;
+                }
+                throw e;
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            for (TopicLog.Entry entry : batch) {
+                try {
+                    subscriber.onMessage(entry.message());
+                } catch (Exception e) {
+                    System.err.println("MessageBroker: Error delivering to " + subscriber.getSubscriberId() + ": " + e.getMessage());
+                }
+                nextOffset = entry.offset() + 1;
+            }
+            log.commitOffset(subscriber.getSubscriberId(), nextOffset);
+        }
+    }
+}
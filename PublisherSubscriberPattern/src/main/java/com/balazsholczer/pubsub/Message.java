@@ -4,21 +4,36 @@ import java.time.LocalDateTime;
 
 public class Message {
     private final String topic;
+    private final String key;
     private final String content;
     private final LocalDateTime timestamp;
     
     public Message(String topic, String content) {
+        this(topic, null, content);
+    }
+    
+    /**
+     * @param key partition key; async subscribers receive messages with the same key in publish order
+     */
+    public Message(String topic, String key, String content) {
+        this(topic, key, content, LocalDateTime.now());
+    }
+    
+    // Rebuilds a message read back from a topic log
+    Message(String topic, String key, String content, LocalDateTime timestamp) {
         this.topic = topic;
+        this.key = key;
         this.content = content;
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
     }
     
     public String getTopic() { return topic; }
+    public String getKey() { return key; }
     public String getContent() { return content; }
     public LocalDateTime getTimestamp() { return timestamp; }
     
     @Override
     public String toString() {
-        return "Message{topic='" + topic + "', content='" + content + "'}";
+        return "Message{topic='" + topic + "', " + (key != null ? "key='" + key + "', " : "") + "content='" + content + "'}";
     }
-}
\ No newline at end of file
+}
@@ -1,39 +1,196 @@
 package com.balazsholczer.pubsub;
 
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
-public class MessageBroker {
-    private final Map<String, List<Subscriber>> topicSubscribers = new ConcurrentHashMap<>();
+/**
+ * Topics are dot-separated ("orders.eu.created"). Subscriptions may use
+ * wildcards: "*" matches one segment, "#" matches zero or more
+ * ("orders.*.created", "orders.#").
+ */
+public class MessageBroker implements AutoCloseable {
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final int MAX_CACHED_TOPICS = 65_536;
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final TopicTrie subscriptions = new TopicTrie();
+    private final Object subscriptionLock = new Object();
+    
+    // Resolved subscribers per concrete topic, so a publish is one hash lookup
+    private final Map<String, Subscription[]> resolved = new ConcurrentHashMap<>();
+    private volatile long generation;
+    
+    private final Map<String, TopicLog> durableTopics = new ConcurrentHashMap<>();
     
+    // Synchronous delivery on the publisher's thread
     public void subscribe(String topic, Subscriber subscriber) {
-        topicSubscribers.computeIfAbsent(topic, k -> new CopyOnWriteArrayList<>()).add(subscriber);
-        System.out.println("MessageBroker: " + subscriber.getSubscriberId() + " subscribed to " + topic);
+        addSubscription(topic, new DirectSubscription(subscriber));
+    }
+    
+    public void subscribeAsync(String topic, Subscriber subscriber) {
+        subscribeAsync(topic, subscriber, 1, DEFAULT_BUFFER_SIZE, OverflowPolicy.BLOCK);
+    }
+    
+    /**
+     * Delivers on background threads so a slow subscriber never stalls publishers
+     * (unless the policy is BLOCK and its buffers are full). With FAIL, publish
+     * throws {@link SubscriberOverflowException} after delivering to everyone else.
+     *
+     * @param partitions number of buffers consumed in parallel; messages are routed by key
+     * @param bufferSize capacity of each partition's ring buffer
+     */
+    public void subscribeAsync(String topic, Subscriber subscriber, int partitions, int bufferSize,
+                               OverflowPolicy overflowPolicy) {
+        if (partitions <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("partitions and bufferSize must be positive");
+        }
+        addSubscription(topic, new AsyncSubscription(subscriber, partitions, bufferSize, overflowPolicy));
+    }
+    
+    /**
+     * Keeps every message published to the topic in a log under the given
+     * directory, so durable subscribers can replay it later.
+     */
+    public TopicLog createDurableTopic(String topic, Path directory) {
+        return createDurableTopic(topic, directory, TopicLogConfig.ofDefaults());
+    }
+    
+    public TopicLog createDurableTopic(String topic, Path directory, TopicLogConfig config) {
+        if (TopicTrie.hasWildcard(topic)) {
+            throw new IllegalArgumentException("Durable topics cannot contain wildcards: " + topic);
+        }
+        return durableTopics.computeIfAbsent(topic, t -> TopicLog.open(t, directory, config));
+    }
+    
+    // Resumes from the subscriber's committed offset, or the oldest retained message
+    public void subscribeDurable(String topic, Subscriber subscriber) {
+        TopicLog log = durableLog(topic);
+        long fromOffset = log.getCommittedOffset(subscriber.getSubscriberId()).orElse(log.getStartOffset());
+        subscribeDurable(topic, subscriber, fromOffset);
+    }
+    
+    public void subscribeDurable(String topic, Subscriber subscriber, long fromOffset) {
+        addSubscription(topic, new DurableSubscription(subscriber, durableLog(topic), fromOffset));
+    }
+    
+    public void subscribeDurable(String topic, Subscriber subscriber, LocalDateTime fromTime) {
+        subscribeDurable(topic, subscriber, durableLog(topic).offsetForTimestamp(fromTime));
     }
     
     public void unsubscribe(String topic, Subscriber subscriber) {
-        List<Subscriber> subscribers = topicSubscribers.get(topic);
-        if (subscribers != null) {
-            subscribers.remove(subscriber);
+        Subscription removed;
+        synchronized (subscriptionLock) {
+            removed = subscriptions.remove(topic, subscriber);
+            if (removed != null) {
+                invalidate(topic);
+            }
+        }
+        if (removed != null) {
+            removed.close();
             System.out.println("MessageBroker: " + subscriber.getSubscriberId() + " unsubscribed from " + topic);
         }
     }
     
     public void publish(Message message) {
-        System.out.println("MessageBroker: Publishing " + message);
-        
-        List<Subscriber> subscribers = topicSubscribers.get(message.getTopic());
-        if (subscribers != null) {
-            for (Subscriber subscriber : subscribers) {
+        TopicLog log = durableTopics.get(message.getTopic());
+        if (log != null) {
+            log.append(message);
+        }
+        Subscription[] targets = resolve(message.getTopic());
+        if (targets.length > 0) {
+            SubscriberOverflowException overflow = null;
+            for (Subscription subscription : targets) {
+                // One full FAIL subscriber must not keep the message from the others
                 try {
-                    subscriber.onMessage(message);
-                } catch (Exception e) {
-                    System.err.println("MessageBroker: Error delivering to " + subscriber.getSubscriberId() + ": " + e.getMessage());
+                    subscription.deliver(message);
+                } catch (SubscriberOverflowException e) {
+                    if (overflow == null) {
+                        overflow = e;
+                    } else {
+                        overflow.addSuppressed(e);
+                    }
                 }
             }
-        } else {
+            if (overflow != null) {
+                throw overflow;
+            }
+        } else if (log == null) {
             System.out.println("MessageBroker: No subscribers for topic " + message.getTopic());
         }
     }
-}
\ No newline at end of file
+    
+    // Messages dropped by overflow policies across this subscriber's async subscriptions
+    public long getDroppedCount(Subscriber subscriber) {
+        long[] dropped = {0};
+        subscriptions.forEach(subscription -> {
+            if (subscription.subscriber() == subscriber && subscription instanceof AsyncSubscription async) {
+                dropped[0] += async.getDroppedCount();
+            }
+        });
+        return dropped[0];
+    }
+    
+    // Drains every async buffer, then stops the delivery threads
+    @Override
+    public void close() {
+        List<Subscription> all = new ArrayList<>();
+        synchronized (subscriptionLock) {
+            subscriptions.forEach(all::add);
+            subscriptions.clear();
+            generation++;
+            resolved.clear();
+        }
+        all.forEach(Subscription::close);
+        durableTopics.values().forEach(TopicLog::close);
+        durableTopics.clear();
+    }
+    
+    private TopicLog durableLog(String topic) {
+        TopicLog log = durableTopics.get(topic);
+        if (log == null) {
+            throw new IllegalStateException("Topic is not durable: " + topic);
+        }
+        return log;
+    }
+    
+    private void addSubscription(String topic, Subscription subscription) {
+        synchronized (subscriptionLock) {
+            subscriptions.add(topic, subscription);
+            invalidate(topic);
+        }
+        System.out.println("MessageBroker: " + subscription.subscriber().getSubscriberId() + " subscribed to " + topic);
+    }
+    
+    private Subscription[] resolve(String topic) {
+        Subscription[] cached = resolved.get(topic);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = generation;
+        Subscription[] matched = subscriptions.match(topic);
+        if (matched.length == 0) {
+            matched = NO_SUBSCRIPTIONS;
+        }
+        if (resolved.size() >= MAX_CACHED_TOPICS) {
+            resolved.clear();
+        }
+        resolved.put(topic, matched);
+        // A subscription change raced with the trie walk: don't leave a stale entry behind
+        if (generation != seen) {
+            resolved.remove(topic, matched);
+        }
+        return matched;
+    }
+    
+    // Called under subscriptionLock after the trie changed
+    private void invalidate(String pattern) {
+        generation++;
+        if (TopicTrie.hasWildcard(pattern)) {
+            resolved.keySet().removeIf(topic -> TopicTrie.matches(pattern, topic));
+        } else {
+            resolved.remove(pattern);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.balazsholczer.pubsub;
+
+public enum OverflowPolicy {
+    BLOCK,        // Publisher waits for space (backpressure)
+    DROP_OLDEST,  // Oldest buffered message is discarded to make room
+    DROP_NEWEST,  // The message being published is discarded
+    FAIL          // The message is discarded and publish throws SubscriberOverflowException
+}
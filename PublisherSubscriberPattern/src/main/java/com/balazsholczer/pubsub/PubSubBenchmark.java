@@ -0,0 +1,129 @@
+package com.balazsholczer.pubsub;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput and end-to-end latency of async delivery. Publishers push keyed
+ * messages into one topic; a counting subscriber records the delay between
+ * publish and delivery for a sample of them.
+ *
+ * Run with: java com.balazsholczer.pubsub.PubSubBenchmark [messages] [publishers] [partitions]
+ */
+public class PubSubBenchmark {
+    private static final int SAMPLE_EVERY = 64;
+
+    public static void main(String[] args) throws InterruptedException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int publishers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int partitions = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        System.out.println("=== Publisher-Subscriber Benchmark ===");
+        System.out.printf("%,d messages, %d publishers, %d partitions, %d cores%n",
+            messages, publishers, partitions, Runtime.getRuntime().availableProcessors());
+
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            run(messages / 4, publishers, partitions, policy);  // warm-up
+            run(messages, publishers, partitions, policy);
+        }
+    }
+
+    private static void run(int messages, int publishers, int partitions, OverflowPolicy policy)
+            throws InterruptedException {
+        LatencySubscriber subscriber = new LatencySubscriber(messages / SAMPLE_EVERY + publishers);
+        int perPublisher = messages / publishers;
+        Thread[] threads = new Thread[publishers];
+
+        long start;
+        long published;
+        long dropped;
+        try (MessageBroker broker = new MessageBroker()) {
+            broker.subscribeAsync("bench", subscriber, partitions, 8192, policy);
+            CountDownLatch go = new CountDownLatch(1);
+            for (int p = 0; p < publishers; p++) {
+                String[] keys = new String[64];
+                for (int k = 0; k < keys.length; k++) {
+                    keys[k] = "key-" + p + "-" + k;
+                }
+                threads[p] = Thread.ofPlatform().start(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perPublisher; i++) {
+                        broker.publish(new TimedMessage(keys[i & 63], i % SAMPLE_EVERY == 0));
+                    }
+                });
+            }
+            start = System.nanoTime();
+            go.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            published = System.nanoTime() - start;
+            dropped = broker.getDroppedCount(subscriber);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] latencies = subscriber.samples();
+        Arrays.sort(latencies);
+        System.out.printf("%-12s publish %,12.0f msg/s | delivered %,12.0f msg/s | dropped %,d | latency p50 %s p99 %s p99.9 %s%n",
+            policy,
+            perPublisher * (double) publishers / published * 1e9,
+            subscriber.received.get() / (double) elapsed * 1e9,
+            dropped,
+            micros(percentile(latencies, 0.50)),
+            micros(percentile(latencies, 0.99)),
+            micros(percentile(latencies, 0.999)));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * p)];
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%,.1fµs", nanos / 1_000.0);
+    }
+
+    private static final class TimedMessage extends Message {
+        private final long publishedAt;
+
+        private TimedMessage(String key, boolean sampled) {
+            super("bench", key, "");
+            this.publishedAt = sampled ? System.nanoTime() : 0;
+        }
+    }
+
+    private static final class LatencySubscriber implements Subscriber {
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicInteger sampleCount = new AtomicInteger();
+        private final long[] samples;
+
+        private LatencySubscriber(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            received.incrementAndGet();
+            long publishedAt = ((TimedMessage) message).publishedAt;
+            if (publishedAt != 0) {
+                int slot = sampleCount.getAndIncrement();
+                if (slot < samples.length) {
+                    samples[slot] = System.nanoTime() - publishedAt;
+                }
+            }
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return "latency-subscriber";
+        }
+
+        private long[] samples() {
+            return Arrays.copyOf(samples, Math.min(sampleCount.get(), samples.length));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.balazsholczer.pubsub;
+
+import java.io.Serial;
+
+// Thrown by publish when a subscriber with the FAIL overflow policy has a full buffer
+public final class SubscriberOverflowException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String subscriberId;
+
+    public SubscriberOverflowException(String subscriberId) {
+        super("Buffer of subscriber " + subscriberId + " is full - message rejected");
+        this.subscriberId = subscriberId;
+    }
+
+    public String getSubscriberId() {
+        return subscriberId;
+    }
+}
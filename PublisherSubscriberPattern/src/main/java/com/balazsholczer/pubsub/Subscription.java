@@ -0,0 +1,11 @@
+package com.balazsholczer.pubsub;
+
+interface Subscription extends AutoCloseable {
+
+    void deliver(Message message);
+
+    Subscriber subscriber();
+
+    @Override
+    void close();
+}
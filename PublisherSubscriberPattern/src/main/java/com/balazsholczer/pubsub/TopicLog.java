@@ -0,0 +1,677 @@
+package com.balazsholczer.pubsub;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, replayable log of one topic's messages on local disk.
+ *
+ * Messages get consecutive offsets and are appended to segment files named
+ * after the first offset they hold. Record layout: [int bodyLength][int
+ * crc32c(body)][body], where body is offset, timestamp, key and content. A
+ * sparse in-memory index maps offsets to file positions every few KB, so a
+ * read seeks straight to the right place. Whole segments are dropped by
+ * size or age retention; the active one is never deleted.
+ *
+ * Appends reach the OS page cache immediately and are forced to disk when a
+ * segment rolls, on {@link #flush()} and on {@link #close()}.
+ */
+public class TopicLog implements AutoCloseable {
+
+    public record Entry(long offset, Message message) {
+    }
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MIN_BODY_SIZE = 8 + 8 + 4 + 4;
+    private static final int INDEX_INTERVAL_BYTES = 4096;
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    private static final long OFFSET_PERSIST_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String OFFSETS_FILE = "offsets";
+
+    private final String topic;
+    private final Path directory;
+    private final TopicLogConfig config;
+
+    // Replaced wholesale on roll and retention so readers can iterate a snapshot without locking
+    private volatile List<Segment> segments = List.of();
+    private Segment active;
+    // Writer state, guarded by the log's monitor
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);
+    private final CRC32C crc = new CRC32C();
+    private volatile boolean open = true;
+
+    private final Map<String, Long> committedOffsets = new ConcurrentHashMap<>();
+    private long offsetsPersistedAt = System.nanoTime();
+
+    private TopicLog(String topic, Path directory, TopicLogConfig config) {
+        this.topic = topic;
+        this.directory = directory;
+        this.config = config;
+    }
+
+    public static TopicLog open(String topic, Path directory) {
+        return open(topic, directory, TopicLogConfig.ofDefaults());
+    }
+
+    /**
+     * Opens (or creates) the log, discarding any torn record left by a crash
+     * and applying retention.
+     */
+    public static TopicLog open(String topic, Path directory, TopicLogConfig config) {
+        TopicLog log = new TopicLog(topic, directory, config);
+        try {
+            Files.createDirectories(directory);
+            log.recover();
+            log.loadOffsets();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open topic log in " + directory, e);
+        }
+        log.enforceRetention();
+        return log;
+    }
+
+    public synchronized long append(Message message) {
+        if (!open) {
+            throw new IllegalStateException("Topic log is closed");
+        }
+        long offset = active.nextOffset;
+        long timestamp = toNanos(message.getTimestamp());
+        ByteBuffer record = encode(offset, timestamp, message);
+        try {
+            if (active.size > 0 && active.size + record.remaining() > config.segmentBytes()) {
+                roll(offset);
+            }
+            active.append(offset, timestamp, record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to topic log " + topic, e);
+        }
+        return offset;
+    }
+
+    /**
+     * Reads up to maxMessages entries starting at fromOffset. Offsets already
+     * removed by retention are skipped. Records are fetched in large chunks,
+     * not one system call per message.
+     */
+    public List<Entry> read(long fromOffset, int maxMessages) {
+        List<Entry> entries = new ArrayList<>(Math.min(maxMessages, 1024));
+        long offset = Math.max(fromOffset, getStartOffset());
+        while (entries.size() < maxMessages) {
+            List<Segment> current = segments;
+            Segment segment = segmentFor(current, offset);
+            if (segment == null) {
+                break;
+            }
+            // A segment that is not the newest is sealed, so its extent cannot change under us
+            boolean sealed = segment != current.get(current.size() - 1);
+            long from = offset;
+            try {
+                long[] extent = segment.extent();
+                segment.scan(segment.positionAtOrBefore(from), extent[0], false, (recordOffset, timestamp, body, position) -> {
+                    if (recordOffset >= from) {
+                        entries.add(new Entry(recordOffset, decode(timestamp, body)));
+                    }
+                    return entries.size() < maxMessages;
+                });
+            } catch (ClosedChannelException e) {
+                ensureOpen();
+                // Segment was deleted by retention mid-read; continue from what is left
+                offset = Math.max(offset, getStartOffset());
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read topic log " + topic, e);
+            }
+            if (!sealed) {
+                break;
+            }
+            offset = segment.nextOffset;
+        }
+        return entries;
+    }
+
+    /**
+     * Copies raw records starting at fromOffset straight from the page cache
+     * to the target channel (a socket or file) with {@link FileChannel#transferTo},
+     * without copying them through the Java heap. Stops at a record boundary
+     * within one segment; {@link #decode(String, ByteBuffer)} parses the bytes
+     * on the receiving side.
+     *
+     * @return the offset to continue from
+     */
+    public long transferTo(long fromOffset, long maxBytes, WritableByteChannel target) {
+        long offset = Math.max(fromOffset, getStartOffset());
+        Segment segment = segmentFor(segments, offset);
+        if (segment == null) {
+            return offset;
+        }
+        try {
+            long[] extent = segment.extent();
+            long end = extent[0];
+            long[] start = {end};
+            segment.scan(segment.positionAtOrBefore(offset), end, false, (recordOffset, timestamp, body, position) -> {
+                if (recordOffset >= offset) {
+                    start[0] = position;
+                    return false;
+                }
+                return true;
+            });
+            if (start[0] == end) {
+                return offset;
+            }
+            long[] boundary = segment.boundaryAtOrBefore(start[0] + maxBytes, extent);
+            long stop = boundary[0];
+            long next = boundary[1];
+            if (stop <= start[0]) {
+                // Less than one index interval requested: find the exact record boundary
+                long[] last = {start[0], offset};
+                segment.scan(start[0], end, false, (recordOffset, timestamp, body, position) -> {
+                    long recordEnd = position + HEADER_SIZE + body.capacity();
+                    if (recordEnd - start[0] > maxBytes && recordOffset > offset) {
+                        return false;
+                    }
+                    last[0] = recordEnd;
+                    last[1] = recordOffset + 1;
+                    return true;
+                });
+                stop = last[0];
+                next = last[1];
+            }
+            long position = start[0];
+            while (position < stop) {
+                position += segment.channel.transferTo(position, stop - position, target);
+            }
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot transfer from topic log " + topic, e);
+        }
+    }
+
+    // Parses records produced by transferTo
+    public static List<Entry> decode(String topic, ByteBuffer records) {
+        List<Entry> entries = new ArrayList<>();
+        while (records.remaining() >= HEADER_SIZE) {
+            int length = records.getInt(records.position());
+            if (records.remaining() < HEADER_SIZE + length) {
+                break;
+            }
+            ByteBuffer body = records.slice(records.position() + HEADER_SIZE, length);
+            records.position(records.position() + HEADER_SIZE + length);
+            long offset = body.getLong();
+            long timestamp = body.getLong();
+            entries.add(new Entry(offset, decode(topic, timestamp, body)));
+        }
+        return entries;
+    }
+
+    // First offset whose message was published at or after the given time
+    public long offsetForTimestamp(LocalDateTime time) {
+        long target = toNanos(time);
+        for (Segment segment : segments) {
+            if (segment.size == 0 || segment.lastTimestamp < target) {
+                continue;
+            }
+            long[] found = {segment.nextOffset};
+            try {
+                segment.scan(0, segment.size, false, (recordOffset, timestamp, body, position) -> {
+                    if (timestamp >= target) {
+                        found[0] = recordOffset;
+                        return false;
+                    }
+                    return true;
+                });
+            } catch (ClosedChannelException e) {
+                ensureOpen();
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read topic log " + topic, e);
+            }
+            return found[0];
+        }
+        return getEndOffset();
+    }
+
+    public void commitOffset(String subscriberId, long offset) {
+        committedOffsets.merge(subscriberId, offset, Math::max);
+        synchronized (committedOffsets) {
+            long now = System.nanoTime();
+            if (now - offsetsPersistedAt >= OFFSET_PERSIST_INTERVAL_NANOS) {
+                offsetsPersistedAt = now;
+                persistOffsets();
+            }
+        }
+    }
+
+    public OptionalLong getCommittedOffset(String subscriberId) {
+        Long offset = committedOffsets.get(subscriberId);
+        return offset == null ? OptionalLong.empty() : OptionalLong.of(offset);
+    }
+
+    public long getStartOffset() {
+        return segments.get(0).baseOffset;
+    }
+
+    public long getEndOffset() {
+        List<Segment> current = segments;
+        return current.get(current.size() - 1).nextOffset;
+    }
+
+    public long getSizeInBytes() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    // Deletes the oldest segments that are past the size or age limit
+    public synchronized void enforceRetention() {
+        List<Segment> current = segments;
+        long total = getSizeInBytes();
+        long oldestAllowed = config.retentionAge().isZero() ? Long.MIN_VALUE
+            : toNanos(LocalDateTime.now()) - config.retentionAge().toNanos();
+        int drop = 0;
+        while (drop < current.size() - 1) {
+            Segment segment = current.get(drop);
+            boolean overSize = config.retentionBytes() > 0 && total > config.retentionBytes();
+            boolean tooOld = segment.size > 0 && segment.lastTimestamp < oldestAllowed;
+            if (!overSize && !tooOld) {
+                break;
+            }
+            total -= segment.size;
+            drop++;
+        }
+        if (drop == 0) {
+            return;
+        }
+        segments = List.copyOf(current.subList(drop, current.size()));
+        for (Segment segment : current.subList(0, drop)) {
+            segment.delete();
+        }
+    }
+
+    public void flush() {
+        Segment segment;
+        synchronized (this) {
+            segment = active;
+        }
+        try {
+            segment.channel.force(false);
+        } catch (ClosedChannelException e) {
+            // Rolled and closed meanwhile; rolling already forced it
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot flush topic log " + topic, e);
+        }
+        synchronized (committedOffsets) {
+            persistOffsets();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+        }
+        flush();
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    // A closed channel means retention or close; only the first is worth retrying
+    private void ensureOpen() {
+        if (!open) {
+            throw new IllegalStateException("Topic log is closed");
+        }
+    }
+
+    private static Segment segmentFor(List<Segment> current, long offset) {
+        for (int i = current.size() - 1; i >= 0; i--) {
+            Segment segment = current.get(i);
+            if (offset >= segment.baseOffset) {
+                return offset < segment.nextOffset ? segment : null;
+            }
+        }
+        return null;
+    }
+
+    private void roll(long baseOffset) throws IOException {
+        active.channel.force(false);
+        active = Segment.create(segmentPath(baseOffset), baseOffset);
+        List<Segment> rolled = new ArrayList<>(segments);
+        rolled.add(active);
+        segments = List.copyOf(rolled);
+        enforceRetention();
+    }
+
+    private ByteBuffer encode(long offset, long timestamp, Message message) {
+        byte[] key = message.getKey() == null ? null : message.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = MIN_BODY_SIZE + (key == null ? 0 : key.length) + content.length;
+        if (scratch.capacity() < HEADER_SIZE + bodyLength) {
+            scratch = ByteBuffer.allocate(Integer.highestOneBit(HEADER_SIZE + bodyLength) << 1);
+        }
+        scratch.clear();
+        scratch.position(HEADER_SIZE);
+        scratch.putLong(offset);
+        scratch.putLong(timestamp);
+        if (key == null) {
+            scratch.putInt(-1);
+        } else {
+            scratch.putInt(key.length).put(key);
+        }
+        scratch.putInt(content.length).put(content);
+
+        crc.reset();
+        crc.update(scratch.array(), HEADER_SIZE, bodyLength);
+        scratch.putInt(0, bodyLength);
+        scratch.putInt(4, (int) crc.getValue());
+        return scratch.flip();
+    }
+
+    private Message decode(long timestamp, ByteBuffer body) {
+        return decode(topic, timestamp, body);
+    }
+
+    // body is positioned just after the offset and timestamp
+    private static Message decode(String topic, long timestamp, ByteBuffer body) {
+        int keyLength = body.getInt();
+        String key = keyLength < 0 ? null : readString(body, keyLength);
+        String content = readString(body, body.getInt());
+        return new Message(topic, key, content, fromNanos(timestamp));
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static long toNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    private static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+            (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+
+        List<Segment> recovered = new ArrayList<>();
+        boolean corrupt = false;
+        for (Path file : files) {
+            if (corrupt) {
+                // Nothing after a torn record can be trusted
+                Files.delete(file);
+                continue;
+            }
+            Segment segment = Segment.open(file, segmentBaseOffset(file));
+            corrupt = !segment.recover();
+            recovered.add(segment);
+        }
+        if (recovered.isEmpty()) {
+            recovered.add(Segment.create(segmentPath(0), 0));
+        }
+        segments = List.copyOf(recovered);
+        active = recovered.get(recovered.size() - 1);
+    }
+
+    private void loadOffsets() throws IOException {
+        Path file = directory.resolve(OFFSETS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int separator = line.lastIndexOf('=');
+            if (separator > 0) {
+                committedOffsets.put(line.substring(0, separator), Long.parseLong(line.substring(separator + 1)));
+            }
+        }
+    }
+
+    // Caller holds the committedOffsets monitor
+    private void persistOffsets() {
+        StringBuilder content = new StringBuilder();
+        new TreeMap<>(committedOffsets).forEach((id, offset) -> content.append(id).append('=').append(offset).append('\n'));
+        Path file = directory.resolve(OFFSETS_FILE);
+        Path temp = directory.resolve(OFFSETS_FILE + ".tmp");
+        try {
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store committed offsets for " + topic, e);
+        }
+    }
+
+    private Path segmentPath(long baseOffset) {
+        return directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentBaseOffset(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        // body is positioned after the offset and timestamp; return false to stop
+        boolean visit(long offset, long timestamp, ByteBuffer body, long position);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long baseOffset;
+        private final FileChannel channel;
+        private volatile long size;
+        private volatile long nextOffset;
+        private volatile long lastTimestamp = Long.MIN_VALUE;
+
+        // Sparse offset -> position index, one entry per INDEX_INTERVAL_BYTES
+        private long[] indexOffsets = new long[64];
+        private long[] indexPositions = new long[64];
+        private int indexSize;
+
+        private Segment(Path path, long baseOffset, FileChannel channel) {
+            this.path = path;
+            this.baseOffset = baseOffset;
+            this.channel = channel;
+            this.nextOffset = baseOffset;
+        }
+
+        private static Segment create(Path path, long baseOffset) throws IOException {
+            return open(path, baseOffset);
+        }
+
+        private static Segment open(Path path, long baseOffset) throws IOException {
+            return new Segment(path, baseOffset, FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        private void append(long offset, long timestamp, ByteBuffer record) throws IOException {
+            long position = size;
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                channel.write(record, position + length - record.remaining());
+            }
+            index(offset, position);
+            lastTimestamp = timestamp;
+            synchronized (this) {
+                nextOffset = offset + 1;
+                size = position + length;
+            }
+        }
+
+        // {size, nextOffset} as one consistent pair
+        private synchronized long[] extent() {
+            return new long[]{size, nextOffset};
+        }
+
+        // Returns false if the segment ends in a torn or corrupt record
+        private boolean recover() throws IOException {
+            long fileSize = channel.size();
+            long validEnd = scan(0, fileSize, true, (offset, timestamp, body, position) -> {
+                index(offset, position);
+                lastTimestamp = timestamp;
+                nextOffset = offset + 1;
+                return true;
+            });
+            size = validEnd;
+            if (validEnd < fileSize) {
+                System.out.println("TopicLog: Discarding torn record at " + path.getFileName() + ":" + validEnd);
+                channel.truncate(validEnd);
+                channel.force(true);
+                return false;
+            }
+            return true;
+        }
+
+        private synchronized void index(long offset, long position) {
+            if (indexSize > 0 && position - indexPositions[indexSize - 1] < INDEX_INTERVAL_BYTES) {
+                return;
+            }
+            if (indexSize == indexOffsets.length) {
+                indexOffsets = Arrays.copyOf(indexOffsets, indexSize * 2);
+                indexPositions = Arrays.copyOf(indexPositions, indexSize * 2);
+            }
+            indexOffsets[indexSize] = offset;
+            indexPositions[indexSize] = position;
+            indexSize++;
+        }
+
+        private synchronized long positionAtOrBefore(long offset) {
+            int slot = Arrays.binarySearch(indexOffsets, 0, indexSize, offset);
+            if (slot < 0) {
+                slot = -slot - 2;
+            }
+            return slot < 0 ? 0 : indexPositions[slot];
+        }
+
+        // Last indexed record start at or before the given position: {position, offset}
+        private synchronized long[] boundaryAtOrBefore(long position, long[] extent) {
+            if (position >= extent[0]) {
+                return extent;
+            }
+            int slot = Arrays.binarySearch(indexPositions, 0, indexSize, position);
+            if (slot < 0) {
+                slot = -slot - 2;
+            }
+            return slot < 0 ? new long[]{0, baseOffset} : new long[]{indexPositions[slot], indexOffsets[slot]};
+        }
+
+        /**
+         * Visits records in [start, end) reading a chunk at a time. Returns the
+         * position scanning stopped at - the end of valid data when verifying.
+         */
+        private long scan(long start, long end, boolean verify, RecordVisitor visitor) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+            CRC32C crc = verify ? new CRC32C() : null;
+            long position = start;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int recordStart = buffer.position();
+                    int length = buffer.getInt(recordStart);
+                    if (length < MIN_BODY_SIZE) {
+                        return position + recordStart;
+                    }
+                    if (buffer.remaining() < HEADER_SIZE + length) {
+                        break;
+                    }
+                    ByteBuffer body = buffer.slice(recordStart + HEADER_SIZE, length);
+                    if (verify) {
+                        crc.reset();
+                        crc.update(body.duplicate());
+                        if ((int) crc.getValue() != buffer.getInt(recordStart + 4)) {
+                            return position + recordStart;
+                        }
+                    }
+                    buffer.position(recordStart + HEADER_SIZE + length);
+                    if (!visitor.visit(body.getLong(), body.getLong(), body, position + recordStart)) {
+                        return position + recordStart;
+                    }
+                }
+
+                if (buffer.position() == 0) {
+                    // Not even one whole record in this chunk: torn tail, or a record bigger than the buffer
+                    if (buffer.remaining() < HEADER_SIZE) {
+                        return position;
+                    }
+                    int length = buffer.getInt(0);
+                    if (length < MIN_BODY_SIZE || position + HEADER_SIZE + length > end) {
+                        return position;
+                    }
+                    buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+                    continue;
+                }
+                position += buffer.position();
+            }
+            return position;
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.out.println("TopicLog: Failed to close segment - " + e.getMessage());
+            }
+        }
+
+        private void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                System.out.println("TopicLog: Failed to delete segment - " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.balazsholczer.pubsub;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append rate of a topic log, then how fast a recovering subscriber catches
+ * up: decoding reads into messages, and raw zero-copy transfers to a file.
+ *
+ * Run with: java com.balazsholczer.pubsub.TopicLogBenchmark [messages]
+ */
+public class TopicLogBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = Files.createTempDirectory("topic-log-bench");
+        String payload = "x".repeat(100);
+
+        System.out.println("=== Topic Log Benchmark ===");
+        try (TopicLog log = TopicLog.open("bench", directory,
+                TopicLogConfig.builder().segmentBytes(64 * 1024 * 1024).build())) {
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                log.append(new Message("bench", "key-" + (i & 255), payload));
+            }
+            log.flush();
+            report("Append", messages, log.getSizeInBytes(), System.nanoTime() - start);
+
+            for (int round = 0; round < 2; round++) {
+                start = System.nanoTime();
+                long offset = log.getStartOffset();
+                long read = 0;
+                List<TopicLog.Entry> batch;
+                while (!(batch = log.read(offset, 4096)).isEmpty()) {
+                    read += batch.size();
+                    offset = batch.get(batch.size() - 1).offset() + 1;
+                }
+                report("Catch-up read", read, log.getSizeInBytes(), System.nanoTime() - start);
+            }
+
+            Path copy = Files.createTempFile("topic-log-copy", ".bin");
+            for (int round = 0; round < 2; round++) {
+                try (FileChannel target = FileChannel.open(copy, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    start = System.nanoTime();
+                    long offset = log.getStartOffset();
+                    long next;
+                    while ((next = log.transferTo(offset, 8 * 1024 * 1024, target)) > offset) {
+                        offset = next;
+                    }
+                    report("transferTo", offset - log.getStartOffset(), target.size(), System.nanoTime() - start);
+                }
+            }
+            Files.delete(copy);
+
+            start = System.nanoTime();
+            long offset = log.getEndOffset() / 2;
+            int seeks = 100_000;
+            for (int i = 0; i < seeks; i++) {
+                log.read(offset + (i * 7919L) % (messages / 2), 1);
+            }
+            System.out.printf("Random single reads: %,.1f µs/op%n", (System.nanoTime() - start) / 1_000.0 / seeks);
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void report(String label, long messages, long bytes, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-14s %,12.0f msg/s %,10.1f MB/s%n", label, messages / seconds, bytes / seconds / 1e6);
+    }
+}
@@ -0,0 +1,45 @@
+package com.balazsholczer.pubsub;
+
+import java.time.Duration;
+
+/**
+ * @param segmentBytes   a new segment file is started once the active one reaches this size
+ * @param retentionBytes oldest segments are deleted while the log is larger than this, 0 for no limit
+ * @param retentionAge   segments whose newest message is older than this are deleted, {@link Duration#ZERO} for no limit
+ */
+public record TopicLogConfig(long segmentBytes, long retentionBytes, Duration retentionAge) {
+
+    public TopicLogConfig {
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("segmentBytes must be positive: " + segmentBytes);
+        }
+        if (retentionBytes < 0) {
+            throw new IllegalArgumentException("retentionBytes must not be negative: " + retentionBytes);
+        }
+        if (retentionAge.isNegative()) {
+            throw new IllegalArgumentException("retentionAge must not be negative: " + retentionAge);
+        }
+    }
+
+    public static TopicLogConfig ofDefaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long segmentBytes = 16 * 1024 * 1024;
+        private long retentionBytes = 0;
+        private Duration retentionAge = Duration.ofDays(7);
+
+        public Builder segmentBytes(long segmentBytes) { this.segmentBytes = segmentBytes; return this; }
+        public Builder retentionBytes(long retentionBytes) { this.retentionBytes = retentionBytes; return this; }
+        public Builder retentionAge(Duration retentionAge) { this.retentionAge = retentionAge; return this; }
+
+        public TopicLogConfig build() {
+            return new TopicLogConfig(segmentBytes, retentionBytes, retentionAge);
+        }
+    }
+}
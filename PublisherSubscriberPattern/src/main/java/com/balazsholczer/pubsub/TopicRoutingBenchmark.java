@@ -0,0 +1,75 @@
+package com.balazsholczer.pubsub;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publish cost with 100k subscriptions, half exact and half wildcard, for a
+ * warm resolved-subscriber cache and for topics seen for the first time.
+ *
+ * Run with: java com.balazsholczer.pubsub.TopicRoutingBenchmark [subscriptions]
+ */
+public class TopicRoutingBenchmark {
+
+    public static void main(String[] args) {
+        int subscriptionCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int tenants = subscriptionCount / 2;
+
+        System.out.println("=== Topic Routing Benchmark ===");
+        LongAdder delivered = new LongAdder();
+        Subscriber counter = new Subscriber() {
+            @Override
+            public void onMessage(Message message) {
+                delivered.increment();
+            }
+
+            @Override
+            public String getSubscriberId() {
+                return "counter";
+            }
+        };
+
+        MessageBroker broker = new MessageBroker();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));  // silence per-subscribe logging
+        long start = System.nanoTime();
+        for (int t = 0; t < tenants; t++) {
+            broker.subscribe("tenant" + t + ".orders.created", counter);
+            broker.subscribe("tenant" + t + ".orders.*.#", counter);
+        }
+        long subscribeNanos = System.nanoTime() - start;
+        System.setOut(out);
+        System.out.printf("Subscribed %,d patterns in %,d ms%n", subscriptionCount, subscribeNanos / 1_000_000);
+
+        int hotTopics = 1_000;
+        Message[] hot = new Message[hotTopics];
+        for (int i = 0; i < hotTopics; i++) {
+            hot[i] = new Message("tenant" + (i * 37 % tenants) + ".orders.eu.created", "");
+        }
+        int iterations = 5_000_000;
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                broker.publish(hot[i % hotTopics]);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Cached publish: %,.0f ns/op%n", elapsed / (double) iterations);
+        }
+
+        // Every topic is new, so each publish walks the trie before caching
+        int cold = 200_000;
+        Message[] fresh = new Message[cold];
+        for (int i = 0; i < cold; i++) {
+            fresh[i] = new Message("tenant" + (i % tenants) + ".orders.us.shipped." + i, "");
+        }
+        start = System.nanoTime();
+        for (Message message : fresh) {
+            broker.publish(message);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Uncached publish (trie walk): %,.0f ns/op%n", elapsed / (double) cold);
+        System.out.printf("Delivered %,d messages%n", delivered.sum());
+        broker.close();
+    }
+}
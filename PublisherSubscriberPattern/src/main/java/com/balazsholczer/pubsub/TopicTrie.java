@@ -0,0 +1,145 @@
+package com.balazsholczer.pubsub;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Subscriptions indexed by dot-separated topic pattern. A "*" segment matches
+ * exactly one segment and "#" matches zero or more, so "orders.*.created"
+ * matches "orders.eu.created" and "orders.#" matches "orders" and anything
+ * below it. Lookups may run concurrently with add/remove; mutations are
+ * serialised by the caller.
+ */
+class TopicTrie {
+    static final String SINGLE_WILDCARD = "*";
+    static final String MULTI_WILDCARD = "#";
+
+    private final Node root = new Node();
+
+    void add(String pattern, Subscription subscription) {
+        Node node = root;
+        for (String segment : split(pattern)) {
+            node = node.children.computeIfAbsent(segment, s -> new Node());
+        }
+        node.subscriptions.add(subscription);
+    }
+
+    Subscription remove(String pattern, Subscriber subscriber) {
+        List<Node> path = new ArrayList<>();
+        String[] segments = split(pattern);
+        Node node = root;
+        path.add(node);
+        for (String segment : segments) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+            path.add(node);
+        }
+
+        Subscription removed = null;
+        for (Subscription subscription : node.subscriptions) {
+            if (subscription.subscriber() == subscriber && node.subscriptions.remove(subscription)) {
+                removed = subscription;
+                break;
+            }
+        }
+
+        // Prune branches left empty so churn does not grow the trie
+        for (int i = segments.length; i > 0 && path.get(i).isEmpty(); i--) {
+            path.get(i - 1).children.remove(segments[i - 1], path.get(i));
+        }
+        return removed;
+    }
+
+    Subscription[] match(String topic) {
+        Set<Subscription> matched = new LinkedHashSet<>();
+        collect(root, split(topic), 0, matched);
+        return matched.toArray(new Subscription[0]);
+    }
+
+    void forEach(Consumer<Subscription> action) {
+        forEach(root, action);
+    }
+
+    void clear() {
+        root.children.clear();
+        root.subscriptions.clear();
+    }
+
+    static boolean hasWildcard(String pattern) {
+        for (String segment : split(pattern)) {
+            if (SINGLE_WILDCARD.equals(segment) || MULTI_WILDCARD.equals(segment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // True if a concrete topic is matched by the pattern, without touching the trie
+    static boolean matches(String pattern, String topic) {
+        return matches(split(pattern), 0, split(topic), 0);
+    }
+
+    private static boolean matches(String[] pattern, int p, String[] topic, int t) {
+        if (p == pattern.length) {
+            return t == topic.length;
+        }
+        if (MULTI_WILDCARD.equals(pattern[p])) {
+            for (int skip = t; skip <= topic.length; skip++) {
+                if (matches(pattern, p + 1, topic, skip)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return t < topic.length
+            && (SINGLE_WILDCARD.equals(pattern[p]) || pattern[p].equals(topic[t]))
+            && matches(pattern, p + 1, topic, t + 1);
+    }
+
+    private static void collect(Node node, String[] segments, int index, Set<Subscription> matched) {
+        if (index == segments.length) {
+            matched.addAll(node.subscriptions);
+        } else {
+            Node exact = node.children.get(segments[index]);
+            if (exact != null) {
+                collect(exact, segments, index + 1, matched);
+            }
+            Node single = node.children.get(SINGLE_WILDCARD);
+            if (single != null) {
+                collect(single, segments, index + 1, matched);
+            }
+        }
+        Node multi = node.children.get(MULTI_WILDCARD);
+        if (multi != null) {
+            for (int skip = index; skip <= segments.length; skip++) {
+                collect(multi, segments, skip, matched);
+            }
+        }
+    }
+
+    private static void forEach(Node node, Consumer<Subscription> action) {
+        node.subscriptions.forEach(action);
+        node.children.values().forEach(child -> forEach(child, action));
+    }
+
+    private static String[] split(String topic) {
+        return topic.split("\\.", -1);
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && subscriptions.isEmpty();
+        }
+    }
+}
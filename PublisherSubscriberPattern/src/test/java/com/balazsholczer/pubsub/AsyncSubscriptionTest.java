@@ -0,0 +1,152 @@
+package com.balazsholczer.pubsub;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncSubscriptionTest {
+
+    private static final int BUFFER_SIZE = 4;
+
+    @Test
+    void testDropNewestDiscardsTheIncomingMessage() throws InterruptedException {
+        SlowSubscriber subscriber = new SlowSubscriber("slow");
+        AsyncSubscription subscription = stalled(subscriber, OverflowPolicy.DROP_NEWEST);
+        for (int i = 1; i <= 10; i++) {
+            subscription.deliver(message(i));
+        }
+        assertEquals(BUFFER_SIZE, subscription.getBufferedCount());
+        assertEquals(6, subscription.getDroppedCount());
+
+        subscriber.release();
+        subscription.close();
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), subscriber.received());
+    }
+
+    @Test
+    void testDropOldestKeepsTheLatestMessages() throws InterruptedException {
+        SlowSubscriber subscriber = new SlowSubscriber("slow");
+        AsyncSubscription subscription = stalled(subscriber, OverflowPolicy.DROP_OLDEST);
+        for (int i = 1; i <= 10; i++) {
+            subscription.deliver(message(i));
+        }
+        assertEquals(BUFFER_SIZE, subscription.getBufferedCount());
+        assertEquals(6, subscription.getDroppedCount());
+
+        subscriber.release();
+        subscription.close();
+        assertEquals(List.of("m0", "m7", "m8", "m9", "m10"), subscriber.received());
+    }
+
+    @Test
+    void testBlockHoldsThePublisherUntilThereIsRoom() throws InterruptedException {
+        SlowSubscriber subscriber = new SlowSubscriber("slow");
+        AsyncSubscription subscription = stalled(subscriber, OverflowPolicy.BLOCK);
+        for (int i = 1; i <= BUFFER_SIZE; i++) {
+            subscription.deliver(message(i));
+        }
+        Thread publisher = Thread.ofPlatform().start(() -> subscription.deliver(message(5)));
+        publisher.join(300);
+        assertTrue(publisher.isAlive(), "publisher waits while the buffer is full");
+
+        subscriber.release();
+        publisher.join(5_000);
+        assertFalse(publisher.isAlive());
+        subscription.close();
+        assertEquals(0, subscription.getDroppedCount());
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4", "m5"), subscriber.received());
+    }
+
+    @Test
+    void testFailRejectsThePublishWhenTheBufferIsFull() throws InterruptedException {
+        SlowSubscriber subscriber = new SlowSubscriber("slow");
+        AsyncSubscription subscription = stalled(subscriber, OverflowPolicy.FAIL);
+        for (int i = 1; i <= BUFFER_SIZE; i++) {
+            subscription.deliver(message(i));
+        }
+        SubscriberOverflowException overflow = assertThrows(SubscriberOverflowException.class,
+            () -> subscription.deliver(message(5)));
+        assertEquals("slow", overflow.getSubscriberId());
+        assertEquals(1, subscription.getDroppedCount());
+
+        subscriber.release();
+        subscription.close();
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), subscriber.received());
+    }
+
+    @Test
+    void testFailingSubscriberDoesNotKeepTheMessageFromOthers() throws InterruptedException {
+        SlowSubscriber slow = new SlowSubscriber("slow");
+        SlowSubscriber fast = new SlowSubscriber("fast");
+        fast.release();
+        try (MessageBroker broker = new MessageBroker()) {
+            broker.subscribeAsync("prices", slow, 1, 1, OverflowPolicy.FAIL);
+            broker.subscribe("prices", fast);
+            broker.publish(message(0));
+            assertTrue(slow.entered.await(5, TimeUnit.SECONDS));
+            broker.publish(message(1));
+
+            assertThrows(SubscriberOverflowException.class, () -> broker.publish(message(2)));
+            assertEquals(List.of("m0", "m1", "m2"), fast.received());
+            assertEquals(1, broker.getDroppedCount(slow));
+            slow.release();
+        }
+        assertEquals(List.of("m0", "m1"), slow.received());
+    }
+
+    // A single-partition subscription whose consumer is stuck inside onMessage("m0")
+    private static AsyncSubscription stalled(SlowSubscriber subscriber, OverflowPolicy policy) throws InterruptedException {
+        AsyncSubscription subscription = new AsyncSubscription(subscriber, 1, BUFFER_SIZE, policy);
+        subscription.deliver(message(0));
+        assertTrue(subscriber.entered.await(5, TimeUnit.SECONDS));
+        return subscription;
+    }
+
+    private static Message message(int i) {
+        return new Message("prices", "m" + i);
+    }
+
+    private static final class SlowSubscriber implements Subscriber {
+        private final String subscriberId;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final List<String> received = new ArrayList<>();
+
+        private SlowSubscriber(String subscriberId) {
+            this.subscriberId = subscriberId;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (received) {
+                received.add(message.getContent());
+            }
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return subscriberId;
+        }
+
+        private void release() {
+            gate.countDown();
+        }
+
+        private List<String> received() {
+            synchronized (received) {
+                return List.copyOf(received);
+            }
+        }
+    }
+}
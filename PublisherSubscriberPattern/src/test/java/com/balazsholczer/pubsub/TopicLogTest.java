@@ -0,0 +1,212 @@
+package com.balazsholczer.pubsub;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicLogTest {
+
+    private static final TopicLogConfig SMALL_SEGMENTS = TopicLogConfig.builder()
+        .segmentBytes(256)
+        .retentionAge(Duration.ZERO)
+        .build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testTornWriteIsDiscardedOnReopen() throws IOException {
+        long end;
+        try (TopicLog log = TopicLog.open("orders", directory)) {
+            for (int i = 0; i < 5; i++) {
+                log.append(new Message("orders", "order-" + i));
+            }
+            end = log.getSizeInBytes();
+        }
+        // A crash mid-append: a header promising 200 bytes, followed by only part of the body
+        Path segment = segments().getLast();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(20).putInt(200).putInt(0x1234).putLong(5).flip(), end);
+        }
+
+        try (TopicLog log = TopicLog.open("orders", directory)) {
+            assertEquals(5, log.getEndOffset());
+            assertEquals(end, Files.size(segment), "the torn record is truncated away");
+            assertEquals(List.of("order-0", "order-1", "order-2", "order-3", "order-4"), contents(log.read(0, 100)));
+            assertEquals(5, log.append(new Message("orders", "order-5")));
+        }
+        try (TopicLog log = TopicLog.open("orders", directory)) {
+            assertEquals(6, log.read(0, 100).size());
+        }
+    }
+
+    @Test
+    void testCorruptRecordDropsEverythingAfterIt() throws IOException {
+        try (TopicLog log = TopicLog.open("orders", directory, SMALL_SEGMENTS)) {
+            for (int i = 0; i < 40; i++) {
+                log.append(new Message("orders", "order-" + i));
+            }
+            assertTrue(log.getSegmentCount() > 3);
+        }
+        List<Path> before = segments();
+        // Flip a content byte of the first record in the second segment
+        Path second = before.get(1);
+        long secondBase = Long.parseLong(second.getFileName().toString().replace(".log", ""));
+        try (FileChannel channel = FileChannel.open(second, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer body = ByteBuffer.allocate(1);
+            channel.read(body, 8 + 8 + 8 + 4 + 4);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~body.get(0)}), 8 + 8 + 8 + 4 + 4);
+        }
+
+        try (TopicLog log = TopicLog.open("orders", directory, SMALL_SEGMENTS)) {
+            assertEquals(secondBase, log.getEndOffset());
+            assertEquals(2, log.getSegmentCount());
+            assertEquals(2, segments().size(), "later segments are deleted");
+            assertEquals(secondBase, log.read(0, 100).size());
+            assertEquals(secondBase, log.append(new Message("orders", "after recovery")));
+        }
+    }
+
+    @Test
+    void testSizeRetentionDeletesOldestSegments() throws IOException {
+        TopicLogConfig config = TopicLogConfig.builder()
+            .segmentBytes(256)
+            .retentionBytes(1024)
+            .retentionAge(Duration.ZERO)
+            .build();
+        try (TopicLog log = TopicLog.open("orders", directory, config)) {
+            for (int i = 0; i < 200; i++) {
+                log.append(new Message("orders", "order-" + i));
+            }
+            long start = log.getStartOffset();
+            assertTrue(start > 0);
+            // The limit may be overshot by at most the active segment
+            assertTrue(log.getSizeInBytes() <= 1024 + 256);
+            assertEquals(log.getSegmentCount(), segments().size());
+
+            List<TopicLog.Entry> retained = log.read(0, 1000);
+            assertEquals(start, retained.getFirst().offset(), "reads from a deleted offset skip ahead");
+            assertEquals(200 - start, retained.size());
+            assertEquals("order-199", retained.getLast().message().getContent());
+        }
+        try (TopicLog log = TopicLog.open("orders", directory, config)) {
+            assertEquals(200, log.getEndOffset());
+            assertTrue(log.getStartOffset() > 0);
+        }
+    }
+
+    @Test
+    void testAgeRetentionDeletesSegmentsOfOldMessages() throws IOException {
+        try (TopicLog log = TopicLog.open("orders", directory, SMALL_SEGMENTS)) {
+            LocalDateTime twoDaysAgo = LocalDateTime.now().minusDays(2);
+            for (int i = 0; i < 30; i++) {
+                log.append(new Message("orders", null, "old-" + i, twoDaysAgo));
+            }
+            for (int i = 0; i < 30; i++) {
+                log.append(new Message("orders", "new-" + i));
+            }
+            assertEquals(0, log.getStartOffset(), "no age limit configured");
+        }
+
+        TopicLogConfig oneDay = TopicLogConfig.builder().segmentBytes(256).retentionAge(Duration.ofDays(1)).build();
+        try (TopicLog log = TopicLog.open("orders", directory, oneDay)) {
+            long start = log.getStartOffset();
+            assertTrue(start > 0 && start <= 30, "segments holding only old messages are gone: " + start);
+            List<String> contents = contents(log.read(0, 1000));
+            assertTrue(contents.containsAll(contents(log.read(30, 1000))));
+            assertEquals(60 - start, contents.size());
+            assertEquals(log.getSegmentCount(), segments().size());
+        }
+    }
+
+    @Test
+    void testCommittedOffsetSurvivesReopen() {
+        try (TopicLog log = TopicLog.open("orders", directory)) {
+            log.commitOffset("billing", 7);
+            log.commitOffset("billing", 3);
+            log.commitOffset("shipping", 2);
+            assertEquals(7, log.getCommittedOffset("billing").orElseThrow(), "offsets never move backwards");
+        }
+        try (TopicLog log = TopicLog.open("orders", directory)) {
+            assertEquals(7, log.getCommittedOffset("billing").orElseThrow());
+            assertEquals(2, log.getCommittedOffset("shipping").orElseThrow());
+            assertTrue(log.getCommittedOffset("audit").isEmpty());
+        }
+    }
+
+    @Test
+    void testDurableSubscriberResumesFromItsCommittedOffset() throws InterruptedException {
+        RecordingSubscriber first = new RecordingSubscriber("billing", 10);
+        try (MessageBroker broker = new MessageBroker()) {
+            broker.createDurableTopic("orders", directory);
+            for (int i = 0; i < 10; i++) {
+                broker.publish(new Message("orders", "order-" + i));
+            }
+            broker.subscribeDurable("orders", first);
+            assertTrue(first.received.await(5, TimeUnit.SECONDS));
+        }
+
+        RecordingSubscriber resumed = new RecordingSubscriber("billing", 5);
+        try (MessageBroker broker = new MessageBroker()) {
+            broker.createDurableTopic("orders", directory);
+            for (int i = 10; i < 15; i++) {
+                broker.publish(new Message("orders", "order-" + i));
+            }
+            broker.subscribeDurable("orders", resumed);
+            assertTrue(resumed.received.await(5, TimeUnit.SECONDS));
+        }
+        assertEquals(10, first.contents().size());
+        assertEquals(List.of("order-10", "order-11", "order-12", "order-13", "order-14"), resumed.contents());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static List<String> contents(List<TopicLog.Entry> entries) {
+        return entries.stream().map(entry -> entry.message().getContent()).toList();
+    }
+
+    private static final class RecordingSubscriber implements Subscriber {
+        private final String subscriberId;
+        private final CountDownLatch received;
+        private final List<String> contents = new ArrayList<>();
+
+        private RecordingSubscriber(String subscriberId, int expected) {
+            this.subscriberId = subscriberId;
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public synchronized void onMessage(Message message) {
+            contents.add(message.getContent());
+            received.countDown();
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return subscriberId;
+        }
+
+        private synchronized List<String> contents() {
+            return List.copyOf(contents);
+        }
+    }
+}
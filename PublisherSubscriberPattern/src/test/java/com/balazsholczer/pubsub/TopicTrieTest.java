@@ -0,0 +1,153 @@
+package com.balazsholczer.pubsub;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicTrieTest {
+
+    private static final List<String> PATTERNS = List.of(
+        "orders.eu.created", "orders.*.created", "orders.#", "#", "orders.#.created", "*.eu.*", "*", "orders.*");
+    private static final List<String> TOPICS = List.of(
+        "orders", "orders.eu", "orders.eu.created", "orders.us.created", "orders.eu.shipped",
+        "orders.eu.de.created", "payments.eu.settled", "payments");
+
+    @Test
+    void testSingleWildcardMatchesExactlyOneSegment() {
+        TopicTrie trie = new TopicTrie();
+        Subscription subscription = subscription("a");
+        trie.add("orders.*.created", subscription);
+
+        assertArrayEquals(new Subscription[]{subscription}, trie.match("orders.eu.created"));
+        assertArrayEquals(new Subscription[]{subscription}, trie.match("orders.us.created"));
+        assertEquals(0, trie.match("orders.created").length);
+        assertEquals(0, trie.match("orders.eu.de.created").length);
+        assertEquals(0, trie.match("orders.eu.created.late").length);
+    }
+
+    @Test
+    void testMultiWildcardMatchesZeroOrMoreSegments() {
+        TopicTrie trie = new TopicTrie();
+        Subscription below = subscription("below");
+        Subscription between = subscription("between");
+        trie.add("orders.#", below);
+        trie.add("orders.#.created", between);
+
+        assertArrayEquals(new Subscription[]{below}, trie.match("orders"));
+        assertArrayEquals(new Subscription[]{below}, trie.match("orders.eu.shipped"));
+        assertEquals(Set.of(below, between), Set.of(trie.match("orders.created")));
+        assertEquals(Set.of(below, between), Set.of(trie.match("orders.eu.de.created")));
+        assertEquals(0, trie.match("payments.created").length);
+    }
+
+    @Test
+    void testSubscriptionMatchedByTwoPathsIsReturnedOnce() {
+        TopicTrie trie = new TopicTrie();
+        Subscription everything = subscription("all");
+        // "#.#" reaches "a.b" through several splits of the segments
+        trie.add("#.#", everything);
+        assertArrayEquals(new Subscription[]{everything}, trie.match("a.b"));
+    }
+
+    @Test
+    void testTrieAgreesWithPatternMatching() {
+        TopicTrie trie = new TopicTrie();
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (String pattern : PATTERNS) {
+            Subscription subscription = subscription(pattern);
+            subscriptions.add(subscription);
+            trie.add(pattern, subscription);
+        }
+        for (String topic : TOPICS) {
+            List<Subscription> expected = new ArrayList<>();
+            for (int i = 0; i < PATTERNS.size(); i++) {
+                if (TopicTrie.matches(PATTERNS.get(i), topic)) {
+                    expected.add(subscriptions.get(i));
+                }
+            }
+            List<Subscription> matched = Arrays.asList(trie.match(topic));
+            assertEquals(expected.size(), matched.size(), topic);
+            assertTrue(matched.containsAll(expected), topic);
+        }
+    }
+
+    @Test
+    void testRemovePrunesEmptyBranches() {
+        TopicTrie trie = new TopicTrie();
+        Subscription subscription = subscription("a");
+        trie.add("orders.*.created", subscription);
+        assertNull(trie.remove("orders.*.created", subscription("b").subscriber()));
+        assertSame(subscription, trie.remove("orders.*.created", subscription.subscriber()));
+
+        assertEquals(0, trie.match("orders.eu.created").length);
+        List<Subscription> left = new ArrayList<>();
+        trie.forEach(left::add);
+        assertTrue(left.isEmpty());
+    }
+
+    @Test
+    void testWildcardSubscribeAndUnsubscribeInvalidateCachedTopics() {
+        List<String> received = new ArrayList<>();
+        Subscriber subscriber = new RecordingSubscriber("audit", received);
+        try (MessageBroker broker = new MessageBroker()) {
+            // Resolved and cached as having no subscribers
+            broker.publish(new Message("orders.eu.created", "first"));
+
+            broker.subscribe("orders.*.created", subscriber);
+            broker.publish(new Message("orders.eu.created", "second"));
+            broker.publish(new Message("orders.us.created", "third"));
+
+            broker.unsubscribe("orders.*.created", subscriber);
+            broker.publish(new Message("orders.eu.created", "fourth"));
+
+            broker.subscribe("orders.#", subscriber);
+            broker.publish(new Message("orders.eu.created", "fifth"));
+            broker.unsubscribe("orders.#", subscriber);
+            broker.publish(new Message("orders.us.created", "sixth"));
+        }
+        assertEquals(List.of("audit:second", "audit:third", "audit:fifth"), received);
+    }
+
+    @Test
+    void testExactSubscribeAndUnsubscribeInvalidateCachedTopic() {
+        List<String> received = new ArrayList<>();
+        Subscriber exact = new RecordingSubscriber("exact", received);
+        Subscriber wildcard = new RecordingSubscriber("wildcard", received);
+        try (MessageBroker broker = new MessageBroker()) {
+            broker.subscribe("orders.*.created", wildcard);
+            broker.publish(new Message("orders.eu.created", "first"));
+
+            broker.subscribe("orders.eu.created", exact);
+            broker.publish(new Message("orders.eu.created", "second"));
+
+            broker.unsubscribe("orders.eu.created", exact);
+            broker.publish(new Message("orders.eu.created", "third"));
+        }
+        // Matching subscriptions are served in no particular order
+        assertEquals("wildcard:first", received.get(0));
+        assertEquals(Set.of("wildcard:second", "exact:second"), Set.copyOf(received.subList(1, 3)));
+        assertEquals("wildcard:third", received.get(3));
+        assertEquals(4, received.size());
+    }
+
+    private static Subscription subscription(String name) {
+        return new DirectSubscription(new RecordingSubscriber(name, new ArrayList<>()));
+    }
+
+    private record RecordingSubscriber(String subscriberId, List<String> received) implements Subscriber {
+        @Override
+        public void onMessage(Message message) {
+            received.add(subscriberId + ":" + message.getContent());
+        }
+
+        @Override
+        public String getSubscriberId() {
+            return subscriberId;
+        }
+    }
+}
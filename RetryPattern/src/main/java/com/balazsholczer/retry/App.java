@@ -1,5 +1,9 @@
 package com.balazsholczer.retry;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Retry Pattern: automatic retry with backoff
  * 
@@ -8,6 +12,7 @@ package com.balazsholczer.retry;
  * - Implements exponential backoff strategy
  * - Configurable retry attempts and delays
  * - Handles transient failures gracefully
+ * - Retries are scheduled asynchronously with jitter and capped by a shared budget
  * 
  * Benefits:
  * - Improved resilience to transient failures
@@ -45,10 +50,31 @@ public class App {
             System.out.println();
         }
         
+        System.out.println("--- Async Retries with Jitter and a Shared Budget ---");
+        // Retries are capped at 20% of requests across every operation sharing the budget
+        RetryBudget budget = new RetryBudget(20, 5);
+        RetryPolicy jittered = RetryPolicy.builder()
+            .maxAttempts(4)
+            .baseDelayMs(50)
+            .maxDelayMs(1_000)
+            .jitter(RetryPolicy.Jitter.DECORRELATED)
+            .retryOn(RuntimeException.class, e -> e.getMessage() != null && e.getMessage().contains("temporarily"))
+            .build();
+        RetryableOperation<String> asyncOp = new RetryableOperation<>(jittered, budget);
+        
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            calls.add(asyncOp.executeAsync(new UnreliableService(0.3)::callService));
+        }
+        long failed = calls.stream().filter(call -> !call.handle((r, e) -> e == null).join()).count();
+        System.out.println("Failed calls: " + failed + "/10, retry tokens left: " + budget.getAvailableRetries());
+        System.out.println();
+        
         System.out.println("=== Benefits Demonstrated ===");
         System.out.println("✅ Automatic retry on transient failures");
         System.out.println("✅ Exponential backoff strategy");
         System.out.println("✅ Configurable retry policy");
         System.out.println("✅ Graceful handling of service instability");
+        System.out.println("✅ Jittered, non-blocking retries under a shared retry budget");
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.balazsholczer.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket shared by many operations. Every request deposits a fraction
+ * of a token and every retry spends a whole one, so retries stay below the
+ * given percentage of total traffic no matter how many clients fail at once.
+ */
+public class RetryBudget {
+    private static final long TOKEN = 1_000; // Balance is kept in thousandths of a token
+    
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final AtomicLong balance;
+    
+    public RetryBudget(double retryPercent, int maxRetryTokens) {
+        if (retryPercent < 0) {
+            throw new IllegalArgumentException("retryPercent must not be negative: " + retryPercent);
+        }
+        this.depositPerRequest = (long) (retryPercent / 100 * TOKEN);
+        this.maxBalance = maxRetryTokens * TOKEN;
+        this.balance = new AtomicLong(maxBalance);
+    }
+    
+    public static RetryBudget unlimited() {
+        return new RetryBudget(0, 0) {
+            @Override
+            public boolean tryAcquireRetry() {
+                return true;
+            }
+        };
+    }
+    
+    public void recordRequest() {
+        balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxBalance, current + deposit));
+    }
+    
+    public boolean tryAcquireRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+    
+    public double getAvailableRetries() {
+        return (double) balance.get() / TOKEN;
+    }
+}
@@ -1,21 +1,101 @@
 package com.balazsholczer.retry;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
 public class RetryPolicy {
+    
+    public enum Jitter {
+        NONE,         // Pure exponential backoff
+        FULL,         // Uniform in [0, exponential delay]
+        DECORRELATED  // Uniform in [base, previous delay * 3], so clients drift apart over time
+    }
+    
     private final int maxAttempts;
     private final long baseDelayMs;
     private final double backoffMultiplier;
+    private final long maxDelayMs;
+    private final Jitter jitter;
+    private final Predicate<Throwable> retryOn;
     
     public RetryPolicy(int maxAttempts, long baseDelayMs, double backoffMultiplier) {
+        this(maxAttempts, baseDelayMs, backoffMultiplier, Long.MAX_VALUE, Jitter.NONE, e -> e instanceof Exception);
+    }
+    
+    private RetryPolicy(int maxAttempts, long baseDelayMs, double backoffMultiplier, long maxDelayMs,
+                        Jitter jitter, Predicate<Throwable> retryOn) {
         this.maxAttempts = maxAttempts;
         this.baseDelayMs = baseDelayMs;
         this.backoffMultiplier = backoffMultiplier;
+        this.maxDelayMs = maxDelayMs;
+        this.jitter = jitter;
+        this.retryOn = retryOn;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
     }
     
     public int getMaxAttempts() { return maxAttempts; }
     public long getBaseDelayMs() { return baseDelayMs; }
     public double getBackoffMultiplier() { return backoffMultiplier; }
+    public long getMaxDelayMs() { return maxDelayMs; }
+    public Jitter getJitter() { return jitter; }
     
     public long calculateDelay(int attempt) {
-        return (long) (baseDelayMs * Math.pow(backoffMultiplier, attempt - 1));
+        return (long) Math.min(maxDelayMs, baseDelayMs * Math.pow(backoffMultiplier, attempt - 1));
+    }
+    
+    public long calculateDelay(int attempt, long previousDelayMs) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (jitter) {
+            case NONE -> calculateDelay(attempt);
+            // Bounds are clamped so the exclusive upper bound cannot overflow
+            case FULL -> random.nextLong(Math.min(calculateDelay(attempt), Long.MAX_VALUE - 1) + 1);
+            case DECORRELATED -> {
+                long tripled = previousDelayMs > Long.MAX_VALUE / 3 ? Long.MAX_VALUE : previousDelayMs * 3;
+                long upper = Math.min(Long.MAX_VALUE - 1, Math.max(baseDelayMs, Math.min(maxDelayMs, tripled)));
+                yield random.nextLong(baseDelayMs, upper + 1);
+            }
+        };
+    }
+    
+    public boolean shouldRetry(Throwable failure) {
+        return retryOn.test(failure);
+    }
+    
+    public static class Builder {
+        private int maxAttempts = 3;
+        private long baseDelayMs = 100;
+        private double backoffMultiplier = 2.0;
+        private long maxDelayMs = Long.MAX_VALUE;
+        private Jitter jitter = Jitter.NONE;
+        private final List<Predicate<Throwable>> retryOn = new ArrayList<>();
+        
+        public Builder maxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; return this; }
+        public Builder baseDelayMs(long baseDelayMs) { this.baseDelayMs = baseDelayMs; return this; }
+        public Builder backoffMultiplier(double backoffMultiplier) { this.backoffMultiplier = backoffMultiplier; return this; }
+        public Builder maxDelayMs(long maxDelayMs) { this.maxDelayMs = maxDelayMs; return this; }
+        public Builder jitter(Jitter jitter) { this.jitter = jitter; return this; }
+        
+        public Builder retryOn(Class<? extends Throwable> type) {
+            return retryOn(type, e -> true);
+        }
+        
+        public <E extends Throwable> Builder retryOn(Class<E> type, Predicate<? super E> predicate) {
+            retryOn.add(e -> type.isInstance(e) && predicate.test(type.cast(e)));
+            return this;
+        }
+        
+        public RetryPolicy build() {
+            // Without explicit rules every Exception is retryable, as with the plain constructor
+            List<Predicate<Throwable>> rules = List.copyOf(retryOn);
+            Predicate<Throwable> predicate = rules.isEmpty()
+                ? e -> e instanceof Exception
+                : e -> rules.stream().anyMatch(rule -> rule.test(e));
+            return new RetryPolicy(maxAttempts, baseDelayMs, backoffMultiplier, maxDelayMs, jitter, predicate);
+        }
     }
-}
\ No newline at end of file
+}
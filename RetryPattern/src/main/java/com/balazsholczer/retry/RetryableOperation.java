@@ -1,40 +1,110 @@
 package com.balazsholczer.retry;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+/**
+ * Retries are rescheduled on a ScheduledExecutorService rather than slept
+ * out, so no thread is held while waiting for the next attempt.
+ */
 public class RetryableOperation<T> {
+    private static final ScheduledExecutorService DEFAULT_SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("retry-scheduler").daemon().factory());
+    // Shared by every operation built without an executor; virtual threads need no pool sizing
+    private static final Executor DEFAULT_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    
     private final RetryPolicy policy;
+    private final RetryBudget budget;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
     
     public RetryableOperation(RetryPolicy policy) {
+        this(policy, RetryBudget.unlimited());
+    }
+    
+    public RetryableOperation(RetryPolicy policy, RetryBudget budget) {
+        this(policy, budget, DEFAULT_SCHEDULER, DEFAULT_EXECUTOR);
+    }
+    
+    public RetryableOperation(RetryPolicy policy, RetryBudget budget, ScheduledExecutorService scheduler, Executor executor) {
         this.policy = policy;
+        this.budget = budget;
+        this.scheduler = scheduler;
+        this.executor = executor;
     }
     
     public T execute(Supplier<T> operation) throws Exception {
-        Exception lastException = null;
+        try {
+            return executeAsync(operation).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    public CompletableFuture<T> executeAsync(Supplier<T> operation) {
+        return retryAsync(() -> CompletableFuture.supplyAsync(operation, executor));
+    }
+    
+    public CompletableFuture<T> retryAsync(Supplier<? extends CompletionStage<T>> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        budget.recordRequest();
+        attempt(operation, 1, policy.getBaseDelayMs(), result);
+        return result;
+    }
+    
+    private void attempt(Supplier<? extends CompletionStage<T>> operation, int attempt, long previousDelay,
+                         CompletableFuture<T> result) {
+        System.out.println("RetryableOperation: Attempt " + attempt + "/" + policy.getMaxAttempts());
+        CompletionStage<T> stage;
+        try {
+            stage = operation.get();
+        } catch (RuntimeException e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
         
-        for (int attempt = 1; attempt <= policy.getMaxAttempts(); attempt++) {
+        stage.whenComplete((value, error) -> {
             try {
-                System.out.println("RetryableOperation: Attempt " + attempt + "/" + policy.getMaxAttempts());
-                return operation.get();
-            } catch (Exception e) {
-                lastException = e;
-                System.out.println("RetryableOperation: Attempt " + attempt + " failed - " + e.getMessage());
-                
-                if (attempt < policy.getMaxAttempts()) {
-                    long delay = policy.calculateDelay(attempt);
-                    System.out.println("RetryableOperation: Waiting " + delay + "ms before retry");
-                    
-                    try {
-                        Thread.sleep(delay);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Retry interrupted", ie);
-                    }
-                }
+                onComplete(operation, attempt, previousDelay, result, value, error);
+            } catch (Throwable t) {
+                // A throwing retry predicate or a rejected schedule must not leave the caller waiting
+                result.completeExceptionally(t);
             }
+        });
+    }
+    
+    private void onComplete(Supplier<? extends CompletionStage<T>> operation, int attempt, long previousDelay,
+                            CompletableFuture<T> result, T value, Throwable error) {
+        if (error == null) {
+            result.complete(value);
+            return;
         }
         
-        System.out.println("RetryableOperation: All attempts failed");
-        throw new RuntimeException("Operation failed after " + policy.getMaxAttempts() + " attempts", lastException);
+        Throwable failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        System.out.println("RetryableOperation: Attempt " + attempt + " failed - " + failure.getMessage());
+        
+        if (!policy.shouldRetry(failure)) {
+            result.completeExceptionally(failure);
+        } else if (attempt >= policy.getMaxAttempts()) {
+            System.out.println("RetryableOperation: All attempts failed");
+            result.completeExceptionally(
+                new RuntimeException("Operation failed after " + policy.getMaxAttempts() + " attempts", failure));
+        } else if (!budget.tryAcquireRetry()) {
+            System.out.println("RetryableOperation: Retry budget exhausted");
+            result.completeExceptionally(
+                new RuntimeException("Retry budget exhausted after " + attempt + " attempts", failure));
+        } else {
+            long delay = policy.calculateDelay(attempt, previousDelay);
+            System.out.println("RetryableOperation: Retrying in " + delay + "ms");
+            scheduler.schedule(() -> attempt(operation, attempt + 1, delay, result), delay, TimeUnit.MILLISECONDS);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package com.balazsholczer.retry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryableOperationTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testRetryBudgetRefillsWithRequestsUpToItsCap() {
+        RetryBudget budget = new RetryBudget(20, 2);
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+
+        // 20% of a token per request: five requests earn one retry
+        for (int i = 0; i < 5; i++) {
+            budget.recordRequest();
+        }
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+
+        for (int i = 0; i < 1_000; i++) {
+            budget.recordRequest();
+        }
+        assertEquals(2.0, budget.getAvailableRetries());
+    }
+
+    @Test
+    void testExhaustedBudgetStopsRetriesUnderLoad() {
+        RetryBudget budget = new RetryBudget(10, 5);
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(5).baseDelayMs(1).build();
+        RetryableOperation<String> operation = new RetryableOperation<>(policy, budget, scheduler, executor);
+        AtomicInteger attempts = new AtomicInteger();
+
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            calls.add(operation.executeAsync(() -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("downstream is down");
+            }));
+        }
+
+        int exhausted = 0;
+        for (CompletableFuture<String> call : calls) {
+            CompletionException failure = assertThrows(CompletionException.class, call::join);
+            if (failure.getCause().getMessage().startsWith("Retry budget exhausted")) {
+                exhausted++;
+            }
+        }
+        // First attempts, plus the 5 banked retries, plus 10% of 100 requests earned along the way
+        assertTrue(attempts.get() <= 100 + 5 + 10, "attempts " + attempts.get());
+        assertTrue(exhausted >= 90, "calls stopped by the budget " + exhausted);
+        assertTrue(budget.getAvailableRetries() < 1);
+    }
+
+    @Test
+    void testAsyncBackoffDoesNotBlockTheCaller() {
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(2).baseDelayMs(300).build();
+        RetryableOperation<String> operation = new RetryableOperation<>(policy, RetryBudget.unlimited(), scheduler, executor);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<Thread> retriedOn = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        CompletableFuture<String> result = operation.executeAsync(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("transient");
+            }
+            retriedOn.set(Thread.currentThread());
+            return "ok";
+        });
+        long returnedAfter = System.nanoTime() - start;
+
+        assertTrue(returnedAfter < TimeUnit.MILLISECONDS.toNanos(200), "executeAsync waited out the backoff");
+        assertFalse(result.isDone());
+        assertEquals("ok", result.join());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+        assertNotSame(Thread.currentThread(), retriedOn.get());
+    }
+
+    @Test
+    void testWaitingRetriesHoldNoThreads() {
+        // A single scheduler thread serves every pending backoff at once
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(2).baseDelayMs(200).build();
+        RetryableOperation<Integer> operation = new RetryableOperation<>(policy, RetryBudget.unlimited(), scheduler, executor);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            AtomicInteger attempts = new AtomicInteger();
+            calls.add(operation.executeAsync(() -> {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("transient");
+                }
+                return attempts.get();
+            }));
+        }
+        calls.forEach(call -> assertEquals(2, call.join()));
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs < 5_000, "backoffs ran one after another: " + elapsedMs + "ms");
+    }
+
+    @Test
+    void testNonRetryableFailureIsNotRetried() {
+        RetryPolicy policy = RetryPolicy.builder().maxAttempts(5).baseDelayMs(1).retryOn(IllegalStateException.class).build();
+        RetryableOperation<String> operation = new RetryableOperation<>(policy, RetryBudget.unlimited(), scheduler, executor);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> operation.executeAsync(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("bad request");
+        }).join());
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals(1, attempts.get());
+    }
+}
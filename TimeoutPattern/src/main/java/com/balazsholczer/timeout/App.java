@@ -1,5 +1,7 @@
 package com.balazsholczer.timeout;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Timeout Pattern: request timeout handling
  * 
@@ -8,6 +10,7 @@ package com.balazsholczer.timeout;
  * - Prevents indefinite blocking on slow services
  * - Provides graceful handling of timeout scenarios
  * - Ensures system responsiveness and reliability
+ * - Deadlines are armed on a shared hashed-wheel timer and propagate to nested calls
  * 
  * Benefits:
  * - Prevents system hang due to slow operations
@@ -59,6 +62,27 @@ public class App {
             System.out.println("Error: " + e.getMessage());
         }
         
+        // Non-blocking timeout: the caller gets a future and no thread waits on the deadline
+        System.out.println("\n--- Async Timeout Test ---");
+        CompletableFuture<String> async = timeoutExecutor.executeAsync(service::slowOperation, 500);
+        async.whenComplete((result, error) -> System.out.println(
+            error == null ? "Async result: " + result : "Async timeout: " + error.getMessage()));
+        async.exceptionally(error -> null).join();
+        
+        // Deadline propagation: the nested call asks for 5s but inherits the outer 300ms budget
+        System.out.println("\n--- Deadline Propagation Test ---");
+        try {
+            String result = timeoutExecutor.executeWithTimeout(() -> {
+                System.out.println("Outer task: " + Deadline.current().map(Deadline::remainingMillis).orElse(-1L) + "ms left");
+                return timeoutExecutor.executeAsync(service::slowOperation, 5000).join();
+            }, 300);
+            System.out.println("Result: " + result);
+        } catch (TimeoutException e) {
+            System.out.println("Timeout: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+        
         timeoutExecutor.shutdown();
         
         System.out.println("\n=== Benefits Demonstrated ===");
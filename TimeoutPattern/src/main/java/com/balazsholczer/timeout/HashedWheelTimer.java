@@ -0,0 +1,219 @@
+package com.balazsholczer.timeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: one thread serves any number of pending deadlines.
+ * Scheduling and cancelling are O(1) and lock-free; each tick only touches
+ * one bucket. Expiry actions run on the timer thread and must be short -
+ * hand real work off to an executor.
+ *
+ * The timer thread starts with the first scheduled timeout. Closing the timer
+ * rejects every timeout that has not expired yet, so nobody is left waiting
+ * for an expiry that will never come.
+ */
+public final class HashedWheelTimer implements AutoCloseable {
+
+    public interface Timeout {
+        boolean cancel();
+
+        boolean isExpired();
+
+        boolean isCancelled();
+    }
+
+    private static final int INIT = 0;
+    private static final int STARTED = 1;
+    private static final int SHUTDOWN = 2;
+
+    private final long tickNanos;
+    private final List<List<WheelTimeout>> wheel;
+    private final int mask;
+    private final Queue<WheelTimeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+    private final AtomicInteger state = new AtomicInteger(INIT);
+    private long tick; // Only touched by the worker thread
+
+    public HashedWheelTimer() {
+        this(Duration.ofMillis(10), 512);
+    }
+
+    public HashedWheelTimer(Duration tickDuration, int ticksPerWheel) {
+        if (Integer.bitCount(ticksPerWheel) != 1) {
+            throw new IllegalArgumentException("ticksPerWheel must be a power of two: " + ticksPerWheel);
+        }
+        this.tickNanos = tickDuration.toNanos();
+        this.mask = ticksPerWheel - 1;
+        this.wheel = new ArrayList<>(ticksPerWheel);
+        for (int i = 0; i < ticksPerWheel; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.worker = Thread.ofPlatform().name("hashed-wheel-timer").daemon().unstarted(this::run);
+    }
+
+    public Timeout schedule(Runnable action, long delay, TimeUnit unit) {
+        return schedule(action, rejected -> { }, delay, unit);
+    }
+
+    /**
+     * Like {@link #schedule(Runnable, long, TimeUnit)}, but onRejected is told
+     * if the timer is closed before the timeout expires.
+     *
+     * @throws RejectedExecutionException if the timer is already closed
+     */
+    public Timeout schedule(Runnable action, Consumer<? super RejectedExecutionException> onRejected,
+                            long delay, TimeUnit unit) {
+        if (state.get() == INIT && state.compareAndSet(INIT, STARTED)) {
+            worker.start();
+        }
+        if (state.get() == SHUTDOWN) {
+            throw new RejectedExecutionException("Timer is closed");
+        }
+        long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+        WheelTimeout timeout = new WheelTimeout(action, onRejected, deadline);
+        pending.add(timeout);
+        // Closed while this was being added: the worker may have drained the queue already
+        if (state.get() == SHUTDOWN) {
+            rejectAll(pending);
+        }
+        return timeout;
+    }
+
+    @Override
+    public void close() {
+        if (state.getAndSet(SHUTDOWN) == STARTED && Thread.currentThread() != worker) {
+            worker.interrupt();
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        rejectAll(pending);
+    }
+
+    private void run() {
+        while (state.get() == STARTED) {
+            long tickDeadline = tickNanos * (tick + 1);
+            waitUntil(tickDeadline);
+            transferPending();
+            expire(wheel.get((int) (tick & mask)), tickDeadline);
+            tick++;
+        }
+        for (List<WheelTimeout> bucket : wheel) {
+            bucket.forEach(WheelTimeout::reject);
+            bucket.clear();
+        }
+        rejectAll(pending);
+    }
+
+    private void waitUntil(long tickDeadline) {
+        long remaining;
+        while (state.get() == STARTED && (remaining = tickDeadline - (System.nanoTime() - startTime)) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private void transferPending() {
+        WheelTimeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long ticks = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (ticks - tick) / wheel.size();
+            // Deadlines already in the past go into the current bucket and fire this tick
+            wheel.get((int) (Math.max(ticks, tick) & mask)).add(timeout);
+        }
+    }
+
+    private void expire(List<WheelTimeout> bucket, long tickDeadline) {
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            WheelTimeout timeout = bucket.get(i);
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+                timeout.expire();
+                continue;
+            }
+            timeout.remainingRounds--;
+            bucket.set(kept++, timeout);
+        }
+        // Compact in place so the hot loop does not allocate
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    private static void rejectAll(Queue<WheelTimeout> timeouts) {
+        WheelTimeout timeout;
+        while ((timeout = timeouts.poll()) != null) {
+            timeout.reject();
+        }
+    }
+
+    private static final class WheelTimeout implements Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable action;
+        private final Consumer<? super RejectedExecutionException> onRejected;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long remainingRounds;
+
+        private WheelTimeout(Runnable action, Consumer<? super RejectedExecutionException> onRejected, long deadline) {
+            this.action = action;
+            this.onRejected = onRejected;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                System.out.println("HashedWheelTimer: Timeout action failed - " + e.getMessage());
+            }
+        }
+
+        private void reject() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return;
+            }
+            try {
+                onRejected.accept(new RejectedExecutionException("Timer closed before the timeout expired"));
+            } catch (RuntimeException e) {
+                System.out.println("HashedWheelTimer: Rejection handler failed - " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.balazsholczer.timeout;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original design (cached pool + blocking get per call) with the
+ * hashed-wheel TimeoutExecutor when many calls time out at once.
+ * Run with: java com.balazsholczer.timeout.TimeoutBenchmark [calls] [legacyCalls]
+ *
+ * The legacy design needs two platform threads per in-flight call, so it is
+ * run at a smaller count by default to keep the JVM alive.
+ */
+public class TimeoutBenchmark {
+
+    private static final long TIMEOUT_MS = 200;
+    private static final long TASK_MS = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int legacyCalls = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        System.out.println("=== Timeout Benchmark ===");
+        System.out.println("Each task runs " + TASK_MS + "ms against a " + TIMEOUT_MS + "ms timeout");
+        runLegacy(legacyCalls);
+        runWheel(calls);
+    }
+
+    private static void runLegacy(int calls) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        ExecutorService workers = Executors.newCachedThreadPool();
+        ExecutorService callers = Executors.newCachedThreadPool();
+
+        long start = System.nanoTime();
+        List<Future<?>> waits = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            waits.add(callers.submit(() -> {
+                Future<?> future = workers.submit(() -> sleep(TASK_MS));
+                try {
+                    future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (java.util.concurrent.TimeoutException e) {
+                    future.cancel(true);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> wait : waits) {
+            wait.get();
+        }
+        report("cached pool + get()", calls, start, threads.getPeakThreadCount());
+        workers.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    private static void runWheel(int calls) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        TimeoutExecutor executor = new TimeoutExecutor();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> results = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            results.add(executor.executeAsync(() -> {
+                sleep(TASK_MS);
+                return null;
+            }, TIMEOUT_MS).<Void>thenApply(ignored -> null).exceptionally(error -> null));
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        report("hashed wheel + virtual threads", calls, start, threads.getPeakThreadCount());
+        executor.shutdown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void report(String name, int calls, long start, int peakThreads) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.printf("%-32s %,8d calls  %,6d ms  peak platform threads %,d%n", name, calls, elapsedMs, peakThreads);
+    }
+}
@@ -2,34 +2,85 @@ package com.balazsholczer.timeout;
 
 import java.util.concurrent.*;
 
+/**
+ * Runs tasks on virtual threads and arms their deadlines on one shared
+ * {@link HashedWheelTimer}, so waiting for a timeout costs no thread at all.
+ */
 public class TimeoutExecutor {
     private final ExecutorService executor;
+    private final HashedWheelTimer timer;
     
     public TimeoutExecutor() {
-        this.executor = Executors.newCachedThreadPool();
+        this(Executors.newVirtualThreadPerTaskExecutor(), new HashedWheelTimer());
+    }
+    
+    public TimeoutExecutor(ExecutorService executor, HashedWheelTimer timer) {
+        this.executor = executor;
+        this.timer = timer;
     }
     
     public <T> T executeWithTimeout(Callable<T> task, long timeoutMs) throws TimeoutException, Exception {
         System.out.println("TimeoutExecutor: Executing task with " + timeoutMs + "ms timeout");
         
-        Future<T> future = executor.submit(task);
-        
         try {
-            T result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            T result = executeAsync(task, timeoutMs).get();
             System.out.println("TimeoutExecutor: Task completed within timeout");
             return result;
-        } catch (java.util.concurrent.TimeoutException e) {
-            future.cancel(true);
-            System.out.println("TimeoutExecutor: Task timed out after " + timeoutMs + "ms");
-            throw new TimeoutException("Operation timed out after " + timeoutMs + "ms");
         } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException timeout) {
+                System.out.println("TimeoutExecutor: Task timed out after " + timeoutMs + "ms");
+                throw timeout;
+            }
             System.out.println("TimeoutExecutor: Task failed with exception");
             throw new Exception("Task execution failed", e.getCause());
         }
     }
     
+    public <T> CompletableFuture<T> executeAsync(Callable<T> task, long timeoutMs) {
+        // A nested call never outlives the deadline of the task that made it
+        Deadline requested = Deadline.after(timeoutMs);
+        Deadline deadline = Deadline.current().map(requested::earliest).orElse(requested);
+        return executeAsync(task, deadline, "Operation timed out after " + timeoutMs + "ms");
+    }
+    
+    public <T> CompletableFuture<T> executeAsync(Callable<T> task, Deadline deadline) {
+        return executeAsync(task, deadline, "Operation did not complete before its deadline");
+    }
+    
+    private <T> CompletableFuture<T> executeAsync(Callable<T> task, Deadline deadline, String timeoutMessage) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (deadline.isExpired()) {
+            result.completeExceptionally(new TimeoutException("Deadline expired before the operation started"));
+            return result;
+        }
+        
+        Future<?> work = executor.submit(() -> {
+            try {
+                result.complete(Deadline.callWithin(deadline, task));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        
+        // Expiry hops off the timer thread before completing, so callers' stages never run on it
+        // A timer closed before the deadline fails the call rather than leaving it without a timeout
+        HashedWheelTimer.Timeout timeout = timer.schedule(() -> executor.execute(() -> {
+            if (result.completeExceptionally(new TimeoutException(timeoutMessage))) {
+                work.cancel(true);
+            }
+        }), rejected -> {
+            if (result.completeExceptionally(rejected)) {
+                work.cancel(true);
+            }
+        }, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        result.whenComplete((value, error) -> timeout.cancel());
+        
+        return result;
+    }
+    
     public void shutdown() {
         executor.shutdown();
+        timer.close();
         System.out.println("TimeoutExecutor: Shutdown completed");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package com.balazsholczer.timeout;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    @Test
+    void testTimeoutExpiresAfterItsDelay() throws InterruptedException {
+        try (HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(5), 8)) {
+            CountDownLatch fired = new CountDownLatch(1);
+            long start = System.nanoTime();
+            // Longer than one turn of the wheel, so it has to wait out a round
+            HashedWheelTimer.Timeout timeout = timer.schedule(fired::countDown, 100, TimeUnit.MILLISECONDS);
+
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel());
+        }
+    }
+
+    @Test
+    void testCancelledTimeoutNeverFires() throws InterruptedException {
+        try (HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(5), 8)) {
+            AtomicBoolean fired = new AtomicBoolean();
+            HashedWheelTimer.Timeout timeout = timer.schedule(() -> fired.set(true), 50, TimeUnit.MILLISECONDS);
+            assertTrue(timeout.cancel());
+
+            CountDownLatch later = new CountDownLatch(1);
+            timer.schedule(later::countDown, 100, TimeUnit.MILLISECONDS);
+            assertTrue(later.await(5, TimeUnit.SECONDS));
+            assertFalse(fired.get());
+            assertTrue(timeout.isCancelled());
+        }
+    }
+
+    @Test
+    void testCloseRejectsPendingTimeouts() {
+        HashedWheelTimer timer = new HashedWheelTimer();
+        AtomicBoolean fired = new AtomicBoolean();
+        CompletableFuture<RejectedExecutionException> queued = new CompletableFuture<>();
+        CompletableFuture<RejectedExecutionException> inWheel = new CompletableFuture<>();
+        HashedWheelTimer.Timeout first = timer.schedule(() -> fired.set(true), queued::complete, 1, TimeUnit.HOURS);
+        HashedWheelTimer.Timeout second = timer.schedule(() -> fired.set(true), inWheel::complete, 1, TimeUnit.HOURS);
+
+        timer.close();
+
+        assertInstanceOf(RejectedExecutionException.class, queued.getNow(null));
+        assertInstanceOf(RejectedExecutionException.class, inWheel.getNow(null));
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+        assertFalse(fired.get());
+    }
+
+    @Test
+    void testExpiredTimeoutIsNotRejectedOnClose() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(5), 8);
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicBoolean rejected = new AtomicBoolean();
+        HashedWheelTimer.Timeout timeout = timer.schedule(fired::countDown, e -> rejected.set(true), 10, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+
+        timer.close();
+
+        assertTrue(timeout.isExpired());
+        assertFalse(rejected.get());
+    }
+
+    @Test
+    void testScheduleAfterCloseIsRejected() {
+        HashedWheelTimer timer = new HashedWheelTimer();
+        timer.close();
+        assertThrows(RejectedExecutionException.class, () -> timer.schedule(() -> { }, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testTimeoutActionCanCloseTheTimer() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(5), 8);
+        CountDownLatch rejected = new CountDownLatch(1);
+        timer.schedule(() -> { }, e -> rejected.countDown(), 1, TimeUnit.HOURS);
+        timer.schedule(timer::close, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(rejected.await(5, TimeUnit.SECONDS));
+    }
+}
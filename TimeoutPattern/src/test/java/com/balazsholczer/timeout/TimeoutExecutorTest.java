@@ -0,0 +1,92 @@
+package com.balazsholczer.timeout;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeoutExecutorTest {
+
+    private final TimeoutExecutor executor = new TimeoutExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testTaskWithinTimeoutReturnsItsResult() throws Exception {
+        assertEquals("done", executor.executeWithTimeout(() -> "done", 1000));
+    }
+
+    @Test
+    void testExpiryInterruptsTheWork() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<String> result = executor.executeAsync(() -> {
+            try {
+                Thread.sleep(10_000);
+                return "too late";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        }, 100);
+
+        CompletionException failure = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "the task is interrupted once it times out");
+    }
+
+    @Test
+    void testNestedCallInheritsTheCallersDeadline() {
+        AtomicLong nestedBudget = new AtomicLong();
+        long start = System.nanoTime();
+        Exception failure = assertThrows(TimeoutException.class, () -> executor.executeWithTimeout(() ->
+            executor.executeAsync(() -> {
+                nestedBudget.set(Deadline.current().orElseThrow().remainingMillis());
+                Thread.sleep(10_000);
+                return "too late";
+            }, 5_000).join(), 200));
+
+        assertNotNull(failure.getMessage());
+        assertTrue(nestedBudget.get() <= 200, "nested call asked for 5s but only has " + nestedBudget.get() + "ms");
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+    }
+
+    @Test
+    void testExpiredDeadlineFailsWithoutRunningTheTask() {
+        CompletableFuture<String> result = executor.executeAsync(() -> fail("must not run"), new Deadline(System.nanoTime() - 1));
+        CompletionException failure = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+    }
+
+    @Test
+    void testShutdownFailsCallsStillWaitingForTheirDeadline() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<String> result = executor.executeAsync(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+                return "too late";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        }, 60_000);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executor.shutdown();
+
+        CompletionException failure = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+}